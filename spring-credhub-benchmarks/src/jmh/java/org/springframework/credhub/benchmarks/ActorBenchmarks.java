@@ -0,0 +1,73 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.credhub.benchmarks;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import org.springframework.credhub.support.permissions.Actor;
+import org.springframework.credhub.support.utils.JsonUtils;
+
+/**
+ * Benchmarks for creating {@link Actor}s and serializing them to JSON.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ActorBenchmarks {
+	private static final String APP_GUID = "2f36b2a5-8d71-4f52-9d1c-bb7e8c9f0a3e";
+	private static final String ZONE_ID = "uaa";
+	private static final String USER_GUID = "b2c4d3e9-16c8-4f3b-8c5e-0f4a29b1e7d2";
+
+	private List<Actor> actors;
+	private ObjectWriter actorWriter;
+	private ObjectWriter actorsWriter;
+
+	@Setup
+	public void setUp() {
+		actors = Arrays.asList(Actor.app(APP_GUID), Actor.user(ZONE_ID, USER_GUID), Actor.client("benchmark-client"));
+		actorWriter = JsonUtils.getWriter(Actor.class);
+		actorsWriter = JsonUtils.getWriter(List.class, Actor.class);
+	}
+
+	@Benchmark
+	public String createActorIdentity() {
+		return Actor.user(ZONE_ID, USER_GUID).getIdentity();
+	}
+
+	@Benchmark
+	public String writeActor() throws IOException {
+		return actorWriter.writeValueAsString(Actor.app(APP_GUID));
+	}
+
+	@Benchmark
+	public String writeActors() throws IOException {
+		return actorsWriter.writeValueAsString(actors);
+	}
+}
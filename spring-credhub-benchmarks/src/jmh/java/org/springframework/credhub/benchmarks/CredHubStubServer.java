@@ -0,0 +1,100 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.credhub.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.springframework.credhub.support.CredentialType;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.StreamUtils;
+
+/**
+ * An in-process HTTP server that answers CredHub credential requests with canned
+ * responses, so that benchmarks measure the client rather than a CredHub server.
+ */
+final class CredHubStubServer {
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final byte[] detailsData;
+	private final byte[] details;
+
+	private CredHubStubServer(CredentialType credentialType) throws IOException {
+		this.detailsData = SampleCredentials.detailsDataJson(credentialType).getBytes(StandardCharsets.UTF_8);
+		this.details = SampleCredentials.detailsJson(credentialType).getBytes(StandardCharsets.UTF_8);
+
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("credhub-stub-");
+		threadFactory.setDaemon(true);
+		this.executor = Executors.newFixedThreadPool(16, threadFactory);
+
+		this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		this.server.createContext("/api/v1/data", this::handle);
+		this.server.setExecutor(executor);
+	}
+
+	/**
+	 * Start a server that returns a credential of the given type.
+	 *
+	 * @param credentialType the type of credential to return
+	 * @return the started server
+	 * @throws IOException if the server cannot be started
+	 */
+	static CredHubStubServer start(CredentialType credentialType) throws IOException {
+		// without TCP_NODELAY, delayed ACKs add ~40ms to every exchange with the JDK server
+		System.setProperty("sun.net.httpserver.nodelay", "true");
+
+		CredHubStubServer stubServer = new CredHubStubServer(credentialType);
+		stubServer.server.start();
+		return stubServer;
+	}
+
+	String getUrl() {
+		InetSocketAddress address = server.getAddress();
+		return "http://" + address.getHostString() + ":" + address.getPort();
+	}
+
+	void stop() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		try (InputStream requestBody = exchange.getRequestBody()) {
+			StreamUtils.drain(requestBody);
+		}
+
+		byte[] body = "GET".equals(exchange.getRequestMethod()) ? detailsData : details;
+
+		exchange.getResponseHeaders().set(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+		exchange.sendResponseHeaders(200, body.length);
+		try (OutputStream responseBody = exchange.getResponseBody()) {
+			responseBody.write(body);
+		}
+	}
+}
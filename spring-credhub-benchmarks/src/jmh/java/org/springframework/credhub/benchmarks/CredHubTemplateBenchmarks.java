@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.credhub.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.credhub.configuration.ClientHttpRequestFactoryFactory;
+import org.springframework.credhub.configuration.ClientHttpRequestFactoryFactory.ClientLibrary;
+import org.springframework.credhub.core.CredHubOperations;
+import org.springframework.credhub.core.CredHubProperties;
+import org.springframework.credhub.core.CredHubTemplate;
+import org.springframework.credhub.support.ClientOptions;
+import org.springframework.credhub.support.CredentialDetails;
+import org.springframework.credhub.support.CredentialRequest;
+import org.springframework.credhub.support.CredentialType;
+import org.springframework.http.client.ClientHttpRequestFactory;
+
+/**
+ * End-to-end benchmarks for {@link CredHubTemplate} calls against an in-process HTTP
+ * server, run with each HTTP client library supported by
+ * {@link org.springframework.credhub.configuration.ClientHttpRequestFactoryFactory}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CredHubTemplateBenchmarks {
+	@Param
+	public ClientLibrary backend;
+
+	@Param({"PASSWORD", "CERTIFICATE"})
+	public CredentialType credentialType;
+
+	private CredHubStubServer server;
+	private ClientHttpRequestFactory requestFactory;
+	private CredHubOperations credHubOperations;
+	private CredentialRequest<?> request;
+
+	@Setup
+	public void setUp() throws IOException {
+		server = CredHubStubServer.start(credentialType);
+
+		CredHubProperties properties = new CredHubProperties();
+		properties.setUrl(server.getUrl());
+
+		requestFactory = ClientHttpRequestFactoryFactory.create(new ClientOptions(), backend);
+		credHubOperations = new CredHubTemplate(properties, requestFactory);
+		request = SampleCredentials.request(credentialType);
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		if (requestFactory instanceof DisposableBean) {
+			((DisposableBean) requestFactory).destroy();
+		}
+		server.stop();
+	}
+
+	@Benchmark
+	public CredentialDetails<Object> getByName() {
+		return credHubOperations.credentials().getByName(SampleCredentials.NAME, Object.class);
+	}
+
+	@Benchmark
+	@Threads(8)
+	public CredentialDetails<Object> getByNameConcurrently() {
+		return credHubOperations.credentials().getByName(SampleCredentials.NAME, Object.class);
+	}
+
+	@Benchmark
+	public CredentialDetails<?> write() {
+		return credHubOperations.credentials().write(request);
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.benchmarks;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.credhub.configuration.ClientHttpRequestFactoryFactory;
+import org.springframework.credhub.configuration.ClientHttpRequestFactoryFactory.ClientLibrary;
+import org.springframework.credhub.core.CredHubProperties;
+import org.springframework.credhub.core.CredHubTemplate;
+import org.springframework.credhub.core.credential.CachingCredHubCredentialTemplate;
+import org.springframework.credhub.core.credential.CredHubCredentialOperations;
+import org.springframework.credhub.support.ClientOptions;
+import org.springframework.credhub.support.CredentialCacheOptions;
+import org.springframework.credhub.support.CredentialDetails;
+import org.springframework.credhub.support.CredentialType;
+import org.springframework.credhub.testserver.CredHubTestServer;
+import org.springframework.http.client.ClientHttpRequestFactory;
+
+/**
+ * Benchmarks for credential reads with and without the client-side credential cache,
+ * against a {@link CredHubTestServer} that adds latency to each response.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CredentialCacheBenchmarks {
+	@Param({"0", "5"})
+	public int latencyMillis;
+
+	@Param({"false", "true"})
+	public boolean cached;
+
+	private CredHubTestServer server;
+	private ClientHttpRequestFactory requestFactory;
+	private CredHubCredentialOperations credentials;
+
+	@Setup
+	public void setUp() {
+		server = new CredHubTestServer().start();
+
+		CredHubProperties properties = new CredHubProperties();
+		properties.setUrl(server.getUrl());
+
+		requestFactory = ClientHttpRequestFactoryFactory.create(new ClientOptions(), ClientLibrary.HTTP_COMPONENTS);
+		credentials = new CredHubTemplate(properties, requestFactory).credentials();
+		credentials.write(SampleCredentials.request(CredentialType.PASSWORD));
+
+		if (cached) {
+			credentials = new CachingCredHubCredentialTemplate(credentials,
+					new CredentialCacheOptions(100, Duration.ofMinutes(5)));
+		}
+
+		server.getFaultOptions().setLatency(Duration.ofMillis(latencyMillis));
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		if (requestFactory instanceof DisposableBean) {
+			((DisposableBean) requestFactory).destroy();
+		}
+		server.stop();
+	}
+
+	@Benchmark
+	public CredentialDetails<Object> getByName() {
+		return credentials.getByName(SampleCredentials.NAME, Object.class);
+	}
+
+	@Benchmark
+	@Threads(8)
+	public CredentialDetails<Object> getByNameConcurrently() {
+		return credentials.getByName(SampleCredentials.NAME, Object.class);
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.credhub.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import org.springframework.credhub.support.CredentialName;
+import org.springframework.credhub.support.ServiceInstanceCredentialName;
+import org.springframework.credhub.support.SimpleCredentialName;
+import org.springframework.credhub.support.utils.JsonUtils;
+
+/**
+ * Benchmarks for creating {@link CredentialName}s, building their full names, and parsing
+ * them from JSON.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CredentialNameBenchmarks {
+	private static final String NAME_JSON = "\"/service-broker/service-offering/binding-id/credentials-json\"";
+
+	private CredentialName simpleName;
+	private CredentialName serviceInstanceName;
+	private ObjectReader nameReader;
+
+	@Setup
+	public void setUp() {
+		simpleName = new SimpleCredentialName("app", "space", "credential");
+		serviceInstanceName = ServiceInstanceCredentialName.builder()
+				.serviceBrokerName("service-broker")
+				.serviceOfferingName("service-offering")
+				.serviceBindingId("binding-id")
+				.credentialName("credentials-json")
+				.build();
+		nameReader = JsonUtils.getReader(CredentialName.class);
+	}
+
+	@Benchmark
+	public String simpleNameGetName() {
+		return simpleName.getName();
+	}
+
+	@Benchmark
+	public String serviceInstanceNameGetName() {
+		return serviceInstanceName.getName();
+	}
+
+	@Benchmark
+	public String createSimpleName() {
+		return new SimpleCredentialName("app", "space", "credential").getName();
+	}
+
+	@Benchmark
+	public CredentialName parseName() throws IOException {
+		return nameReader.readValue(NAME_JSON);
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.credhub.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import org.springframework.credhub.support.CredentialDetailsData;
+import org.springframework.credhub.support.CredentialRequest;
+import org.springframework.credhub.support.CredentialType;
+import org.springframework.credhub.support.utils.JsonUtils;
+
+/**
+ * Benchmarks for serializing credential requests and deserializing credential responses
+ * for each {@link CredentialType}. The {@literal shared} benchmarks use the shared
+ * {@link ObjectMapper} and its cached readers and writers, while the {@literal newMapper}
+ * benchmarks build a new {@link ObjectMapper} for every operation to show the cost of a
+ * cold mapper.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class JsonBenchmarks {
+	@Param
+	public CredentialType credentialType;
+
+	private String detailsDataJson;
+	private CredentialRequest<?> request;
+
+	private ObjectMapper reusedMapper;
+	private JavaType detailsDataType;
+	private ObjectReader detailsDataReader;
+	private ObjectWriter requestWriter;
+
+	@Setup
+	public void setUp() {
+		detailsDataJson = SampleCredentials.detailsDataJson(credentialType);
+		request = SampleCredentials.request(credentialType);
+
+		reusedMapper = JsonUtils.buildObjectMapper();
+		detailsDataType = reusedMapper.getTypeFactory()
+				.constructParametricType(CredentialDetailsData.class, Object.class);
+		detailsDataReader = JsonUtils.getReader(CredentialDetailsData.class, Object.class);
+		requestWriter = JsonUtils.getWriter(request.getClass());
+	}
+
+	@Benchmark
+	public Object readDetailsDataWithSharedReader() throws IOException {
+		return detailsDataReader.readValue(detailsDataJson);
+	}
+
+	@Benchmark
+	public Object readDetailsDataWithReusedMapper() throws IOException {
+		return reusedMapper.readValue(detailsDataJson, detailsDataType);
+	}
+
+	@Benchmark
+	public Object readDetailsDataWithNewMapper() throws IOException {
+		ObjectMapper mapper = JsonUtils.buildObjectMapper();
+		return mapper.readValue(detailsDataJson,
+				mapper.getTypeFactory().constructParametricType(CredentialDetailsData.class, Object.class));
+	}
+
+	@Benchmark
+	public String writeRequestWithSharedWriter() throws IOException {
+		return requestWriter.writeValueAsString(request);
+	}
+
+	@Benchmark
+	public String writeRequestWithNewMapper() throws IOException {
+		return JsonUtils.buildObjectMapper().writeValueAsString(request);
+	}
+}
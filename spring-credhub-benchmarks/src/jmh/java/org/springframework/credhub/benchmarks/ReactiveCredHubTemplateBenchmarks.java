@@ -0,0 +1,92 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.credhub.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import org.springframework.credhub.configuration.ClientHttpConnectorFactory;
+import org.springframework.credhub.core.CredHubProperties;
+import org.springframework.credhub.core.ReactiveCredHubTemplate;
+import org.springframework.credhub.support.ClientOptions;
+import org.springframework.credhub.support.CredentialDetails;
+import org.springframework.credhub.support.CredentialRequest;
+import org.springframework.credhub.support.CredentialType;
+
+/**
+ * End-to-end benchmarks for {@link ReactiveCredHubTemplate} calls against an in-process
+ * HTTP server. {@link ClientHttpConnectorFactory} supports only Reactor Netty, so there is
+ * no choice of HTTP client library for the reactive template. Its connectors share the
+ * global Reactor Netty connection pool, so there is no client to release between trials.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ReactiveCredHubTemplateBenchmarks {
+	@Param({"PASSWORD", "CERTIFICATE"})
+	public CredentialType credentialType;
+
+	private CredHubStubServer server;
+	private ReactiveCredHubTemplate credHubOperations;
+	private CredentialRequest<?> request;
+
+	@Setup
+	public void setUp() throws IOException {
+		server = CredHubStubServer.start(credentialType);
+
+		CredHubProperties properties = new CredHubProperties();
+		properties.setUrl(server.getUrl());
+
+		credHubOperations = new ReactiveCredHubTemplate(properties,
+				ClientHttpConnectorFactory.create(new ClientOptions()));
+		request = SampleCredentials.request(credentialType);
+	}
+
+	@TearDown
+	public void tearDown() {
+		credHubOperations.destroy();
+		server.stop();
+	}
+
+	@Benchmark
+	public CredentialDetails<Object> getByName() {
+		return credHubOperations.credentials().getByName(SampleCredentials.NAME, Object.class).block();
+	}
+
+	@Benchmark
+	@Threads(8)
+	public CredentialDetails<Object> getByNameConcurrently() {
+		return credHubOperations.credentials().getByName(SampleCredentials.NAME, Object.class).block();
+	}
+
+	@Benchmark
+	public CredentialDetails<?> write() {
+		return credHubOperations.credentials().write(request).block();
+	}
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.credhub.benchmarks;
+
+import java.security.cert.CertificateException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import org.springframework.credhub.configuration.ClientHttpConnectorFactory;
+import org.springframework.credhub.core.CredHubProperties;
+import org.springframework.credhub.core.ReactiveCredHubOperations;
+import org.springframework.credhub.core.ReactiveCredHubTemplate;
+import org.springframework.credhub.support.ClientOptions;
+import org.springframework.credhub.support.CredentialDetails;
+import org.springframework.credhub.support.CredentialType;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+/**
+ * Benchmarks for {@link ReactiveCredHubTemplate} calls over TLS with each TLS provider
+ * supported by {@link ClientHttpConnectorFactory}. {@code reused} measures requests
+ * sent over pooled connections, which is dominated by the cost of encryption.
+ * {@code handshake} opens a new connection for every request, which is dominated by the
+ * cost of the TLS handshake. The OpenSSL provider falls back to the JDK provider when
+ * netty-tcnative is not on the classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TlsBenchmarks {
+	@Param
+	public ClientOptions.SslProvider sslProvider;
+
+	private SelfSignedCertificate certificate;
+	private DisposableServer server;
+	private ReactiveCredHubOperations reused;
+	private ReactiveCredHubOperations handshake;
+
+	@Setup
+	public void setUp() throws CertificateException {
+		certificate = new SelfSignedCertificate("localhost");
+
+		String body = SampleCredentials.detailsDataJson(CredentialType.PASSWORD);
+		server = HttpServer.create()
+				.host("localhost")
+				.port(0)
+				.secure(sslContextSpec -> sslContextSpec.sslContext(
+						SslContextBuilder.forServer(certificate.certificate(), certificate.privateKey())))
+				.handle((request, response) -> response
+						.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+						.sendString(Mono.just(body)))
+				.bindNow();
+
+		CredHubProperties properties = new CredHubProperties();
+		properties.setUrl("https://localhost:" + server.port());
+
+		reused = new ReactiveCredHubTemplate(properties,
+				ClientHttpConnectorFactory.create(clientOptions(null)));
+		handshake = new ReactiveCredHubTemplate(properties,
+				ClientHttpConnectorFactory.create(clientOptions(Duration.ZERO)));
+	}
+
+	@TearDown
+	public void tearDown() {
+		server.disposeNow();
+		certificate.delete();
+	}
+
+	@Benchmark
+	public CredentialDetails<Object> reused() {
+		return reused.credentials().getByName(SampleCredentials.NAME, Object.class).block();
+	}
+
+	@Benchmark
+	@Threads(8)
+	public CredentialDetails<Object> reusedConcurrently() {
+		return reused.credentials().getByName(SampleCredentials.NAME, Object.class).block();
+	}
+
+	@Benchmark
+	public CredentialDetails<Object> handshake() {
+		return handshake.credentials().getByName(SampleCredentials.NAME, Object.class).block();
+	}
+
+	private ClientOptions clientOptions(Duration keepAlive) {
+		ClientOptions options = new ClientOptions();
+		options.setCaCertFiles(new String[] { certificate.certificate().getPath() });
+		options.setSslProvider(sslProvider);
+		options.setKeepAlive(keepAlive);
+		return options;
+	}
+}
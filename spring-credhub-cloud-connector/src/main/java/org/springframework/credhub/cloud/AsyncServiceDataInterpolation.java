@@ -0,0 +1,153 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.credhub.cloud;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import org.springframework.credhub.support.ServicesData;
+
+/**
+ * An interpolation of service data that runs in the background while the application
+ * starts. The startup timeout is measured from the time interpolation was started, so
+ * time spent on other startup work before the result is needed counts towards it.
+ */
+final class AsyncServiceDataInterpolation {
+	private static final AtomicReference<AsyncServiceDataInterpolation> started = new AtomicReference<>();
+
+	private static final Executor executor = runnable -> {
+		Thread thread = new Thread(runnable, "credhub-interpolation");
+		thread.setDaemon(true);
+		thread.start();
+	};
+
+	private final ServicesData references;
+
+	private final CompletableFuture<ServicesData> result;
+
+	private final long startTime;
+
+	private AsyncServiceDataInterpolation(ServicesData references, CompletableFuture<ServicesData> result) {
+		this.references = references;
+		this.result = result;
+		this.startTime = System.nanoTime();
+	}
+
+	/**
+	 * Start interpolating service data in the background. The interpolator is created on
+	 * the background thread, so that no connection to CredHub is set up on the caller's
+	 * thread. Cancelling the interpolation cancels the request to CredHub if it is made
+	 * with the reactive client. A request made with the blocking client cannot be
+	 * cancelled, and is instead bounded by the read timeout of that client.
+	 *
+	 * @param references the service bindings that contain CredHub references
+	 * @param interpolator creates the interpolator to use
+	 * @return the started interpolation
+	 */
+	static AsyncServiceDataInterpolation start(ServicesData references, Supplier<ServiceDataInterpolator> interpolator) {
+		CompletableFuture<ServicesData> result = new CompletableFuture<>();
+
+		CompletableFuture.supplyAsync(interpolator, executor)
+				.thenCompose(created -> {
+					CompletableFuture<ServicesData> interpolation = created.interpolate(references);
+					result.whenComplete((interpolated, error) -> {
+						if (result.isCancelled()) {
+							interpolation.cancel(true);
+						}
+					});
+					return interpolation;
+				})
+				.whenComplete((interpolated, error) -> {
+					if (error == null) {
+						result.complete(interpolated);
+					}
+					else {
+						result.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+								? error.getCause() : error);
+					}
+				});
+
+		return new AsyncServiceDataInterpolation(references, result);
+	}
+
+	/**
+	 * Start interpolating service data before the service data post-processor is created,
+	 * unless an interpolation has already been started. The interpolation is used by the
+	 * next post-processor that processes the same service bindings.
+	 *
+	 * @param references the service bindings that contain CredHub references
+	 * @param interpolator creates the interpolator to use
+	 */
+	static void startEarly(ServicesData references, Supplier<ServiceDataInterpolator> interpolator) {
+		if (started.get() == null) {
+			AsyncServiceDataInterpolation interpolation = start(references, interpolator);
+			if (!started.compareAndSet(null, interpolation)) {
+				interpolation.result.cancel(true);
+			}
+		}
+	}
+
+	/**
+	 * Take the interpolation started by {@link #startEarly}, if it is for the provided
+	 * service bindings.
+	 *
+	 * @param references the service bindings that contain CredHub references
+	 * @return the started interpolation, or {@literal null}
+	 */
+	static AsyncServiceDataInterpolation takeStarted(ServicesData references) {
+		AsyncServiceDataInterpolation interpolation = started.getAndSet(null);
+		if (interpolation == null) {
+			return null;
+		}
+		if (!interpolation.references.equals(references)) {
+			interpolation.result.cancel(true);
+			return null;
+		}
+		return interpolation;
+	}
+
+	/**
+	 * Wait for the interpolated service data until the startup timeout has passed since
+	 * interpolation was started. The interpolation is cancelled if it times out, see
+	 * {@link #start}.
+	 *
+	 * @param startupTimeout the startup timeout
+	 * @return the interpolated service data
+	 * @throws TimeoutException if the startup timeout passes first
+	 * @throws ExecutionException if interpolation failed
+	 * @throws InterruptedException if the waiting thread is interrupted
+	 */
+	ServicesData await(Duration startupTimeout)
+			throws TimeoutException, ExecutionException, InterruptedException {
+		long remaining = startupTimeout.toNanos() - (System.nanoTime() - this.startTime);
+		try {
+			return this.result.get(Math.max(remaining, 0), TimeUnit.NANOSECONDS);
+		}
+		catch (TimeoutException e) {
+			this.result.cancel(true);
+			throw e;
+		}
+	}
+}
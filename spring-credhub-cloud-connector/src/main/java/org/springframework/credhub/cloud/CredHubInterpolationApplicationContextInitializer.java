@@ -0,0 +1,38 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.credhub.cloud;
+
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * An {@link ApplicationContextInitializer} that starts interpolating the service data in
+ * {@literal VCAP_SERVICES} before the application context is refreshed, so that CredHub
+ * interpolation runs in parallel with the creation of the application context when
+ * {@literal spring.credhub.interpolation.async} is enabled.
+ *
+ * @see CredHubInterpolationServiceDataPostProcessor#startInterpolation()
+ */
+public class CredHubInterpolationApplicationContextInitializer
+		implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+
+	@Override
+	public void initialize(ConfigurableApplicationContext applicationContext) {
+		CredHubInterpolationServiceDataPostProcessor.startInterpolation();
+	}
+}
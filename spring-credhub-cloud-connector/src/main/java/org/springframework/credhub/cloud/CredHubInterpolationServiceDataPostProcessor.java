@@ -16,9 +16,17 @@
 
 package org.springframework.credhub.cloud;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.springframework.cloud.CloudException;
 import org.springframework.cloud.cloudfoundry.CloudFoundryRawServiceData;
 import org.springframework.cloud.cloudfoundry.ServiceDataPostProcessor;
 import org.springframework.credhub.configuration.CredHubTemplateFactory;
@@ -27,37 +35,65 @@ import org.springframework.credhub.core.CredHubOperations;
 import org.springframework.credhub.core.CredHubProperties;
 import org.springframework.credhub.support.ClientOptions;
 import org.springframework.credhub.support.ServicesData;
+import org.springframework.credhub.support.utils.JsonUtils;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
 
 /**
  * A Spring Cloud Connectors {@link ServiceDataPostProcessor} that post-processes service
- * data from {@literal VCAP_SERVICES} using the CredHub interpolation API.
+ * data from {@literal VCAP_SERVICES} using the CredHub interpolation API. Only service
+ * bindings whose credentials contain a {@literal credhub-ref} are sent to CredHub, and
+ * no request is made if there are no such bindings.
+ *
+ * <p>If the system property {@literal spring.credhub.interpolation.async} is
+ * {@literal true}, interpolation runs in the background, using the reactive CredHub
+ * client if it is on the classpath. It can be started before the post-processor is
+ * used with {@link #startInterpolation()}, which
+ * {@link CredHubInterpolationApplicationContextInitializer} does when a Spring Boot
+ * application starts. If interpolation has not completed within
+ * {@literal spring.credhub.interpolation.startup-timeout} of being started, the
+ * post-processor either fails or continues with the uninterpolated service data, as
+ * set by {@literal spring.credhub.interpolation.fallback}.
  *
  * @author Scott Frederick
  * @author Daniel Lavoie
  */
 public class CredHubInterpolationServiceDataPostProcessor
 		implements ServiceDataPostProcessor {
-	private Logger logger = Logger
+	private static final String URL_PROPERTY = "spring.credhub.url";
+
+	private static final String VCAP_SERVICES = "VCAP_SERVICES";
+
+	private static final String CREDENTIALS_KEY = "credentials";
+
+	private static final String CREDHUB_REF_KEY = "credhub-ref";
+
+	private static final boolean reactiveClientPresent =
+			ClassUtils.isPresent("org.springframework.web.reactive.function.client.WebClient",
+					CredHubInterpolationServiceDataPostProcessor.class.getClassLoader())
+			&& ClassUtils.isPresent("reactor.netty.http.client.HttpClient",
+					CredHubInterpolationServiceDataPostProcessor.class.getClassLoader());
+
+	private static final Logger logger = Logger
 			.getLogger(CredHubInterpolationServiceDataPostProcessor.class.getName());
 
-	private CredHubInterpolationOperations credHubOperations;
+	private InterpolationStartupOptions startupOptions;
+
+	private Supplier<ServiceDataInterpolator> interpolatorFactory;
+
+	private ServiceDataInterpolator interpolator;
 
 	/**
-	 * Initialize the service data post-processor.
+	 * Initialize the service data post-processor. The CredHub client is created when
+	 * service data that contains CredHub references is first processed.
 	 */
 	public CredHubInterpolationServiceDataPostProcessor() {
 		try {
-			CredHubTemplateFactory credHubTemplateFactory = new CredHubTemplateFactory();
-			CredHubProperties credHubProperties = new CredHubProperties();
-
-			credHubProperties.setUrl(System.getProperty("spring.credhub.url"));
+			String url = System.getProperty(URL_PROPERTY);
 
-			if (credHubProperties.getUrl() != null
-					&& !credHubProperties.getUrl().isEmpty()) {
-				credHubOperations = credHubTemplateFactory.credHubTemplate(
-						credHubProperties,
-						new ClientOptions())
-						.interpolation();
+			if (StringUtils.hasLength(url)) {
+				startupOptions = InterpolationStartupOptions.fromProperties(System.getProperties());
+				interpolatorFactory = interpolatorFactory(url, startupOptions);
 			}
 			else {
 				logger.log(Level.WARNING,
@@ -77,60 +113,221 @@ public class CredHubInterpolationServiceDataPostProcessor
 	 * @param credHubOperations the CredHubOperations to use
 	 */
 	CredHubInterpolationServiceDataPostProcessor(CredHubInterpolationOperations credHubOperations) {
-		this.credHubOperations = credHubOperations;
+		this(credHubOperations == null ? null : blockingInterpolator(credHubOperations),
+				new InterpolationStartupOptions(false, null, InterpolationStartupOptions.Fallback.UNINTERPOLATED));
+	}
+
+	/**
+	 * Initialize the service data post-processor using the provided interpolator and
+	 * options. Intended for internal use.
+	 *
+	 * @param interpolator the interpolator to use
+	 * @param startupOptions the interpolation startup options
+	 */
+	CredHubInterpolationServiceDataPostProcessor(ServiceDataInterpolator interpolator,
+			InterpolationStartupOptions startupOptions) {
+		this.interpolatorFactory = interpolator == null ? null : () -> interpolator;
+		this.startupOptions = startupOptions;
+	}
+
+	/**
+	 * Start interpolating the service data in {@literal VCAP_SERVICES} in the background,
+	 * so that it is available when the post-processor is used. Does nothing unless the
+	 * system property {@literal spring.credhub.interpolation.async} is {@literal true} and
+	 * {@literal spring.credhub.url} is set.
+	 */
+	public static void startInterpolation() {
+		try {
+			String url = System.getProperty(URL_PROPERTY);
+			String vcapServices = System.getenv(VCAP_SERVICES);
+			if (!StringUtils.hasLength(url) || !StringUtils.hasText(vcapServices)) {
+				return;
+			}
+
+			InterpolationStartupOptions options = InterpolationStartupOptions.fromProperties(System.getProperties());
+			if (!options.isAsync()) {
+				return;
+			}
+
+			ServicesData servicesData = JsonUtils.getReader(ServicesData.class).readValue(vcapServices);
+			ServicesData references = findCredHubReferences(servicesData, new LinkedHashMap<>());
+			if (!references.isEmpty()) {
+				AsyncServiceDataInterpolation.startEarly(references, interpolatorFactory(url, options));
+			}
+		}
+		catch (Exception e) {
+			logger.log(Level.WARNING, "Error starting interpolation of service data from CredHub, "
+					+ "it will be started when service data is processed", e);
+		}
 	}
 
 	/**
 	 * Process the provided {@literal serviceData} parsed from {@literal VCAP_SERVICES} by
 	 * Spring Cloud Connectors using the
 	 * {@link CredHubInterpolationOperations#interpolateServiceData(ServicesData)} API.
+	 * The interpolated bindings replace the original bindings in {@literal serviceData}.
 	 *
 	 * @param serviceData raw service data parsed from {@literal VCAP_SERVICES}
 	 * @return serviceData with CredHub references replaced by stored credentials
 	 */
 	@Override
 	public CloudFoundryRawServiceData process(CloudFoundryRawServiceData serviceData) {
-		if (credHubOperations == null) {
+		if (interpolatorFactory == null) {
+			return serviceData;
+		}
+
+		Map<String, List<Integer>> referencePositions = new LinkedHashMap<>();
+		ServicesData references = findCredHubReferences(serviceData, referencePositions);
+		if (references.isEmpty()) {
 			return serviceData;
 		}
 
 		try {
-			ServicesData interpolatedData = credHubOperations
-					.interpolateServiceData(connectorsToCredHub(serviceData));
+			ServicesData interpolatedData = startupOptions.isAsync()
+					? awaitInterpolation(references)
+					: interpolator().interpolate(references).get();
 
-			return credHubToConnectors(interpolatedData);
+			mergeInterpolatedData(serviceData, interpolatedData, referencePositions);
+			return serviceData;
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return fallback(serviceData, "Interrupted while interpolating service data from CredHub.", e);
+		}
+		catch (TimeoutException e) {
+			return fallback(serviceData, "Service data was not interpolated by CredHub within the startup timeout of "
+					+ startupOptions.getStartupTimeout() + ".", e);
 		}
 		catch (Exception e) {
-			logger.log(Level.WARNING, "Error interpolating service data from CredHub.",
-					e);
-			return serviceData;
+			return fallback(serviceData, "Error interpolating service data from CredHub.", e);
 		}
 	}
 
+	private ServicesData awaitInterpolation(ServicesData references) throws Exception {
+		AsyncServiceDataInterpolation interpolation = AsyncServiceDataInterpolation.takeStarted(references);
+		if (interpolation == null) {
+			interpolation = AsyncServiceDataInterpolation.start(references, this::interpolator);
+		}
+		return interpolation.await(startupOptions.getStartupTimeout());
+	}
+
+	private CloudFoundryRawServiceData fallback(CloudFoundryRawServiceData serviceData, String message, Exception e) {
+		if (startupOptions.isAsync() && startupOptions.getFallback() == InterpolationStartupOptions.Fallback.FAIL) {
+			throw new CloudException(message, e);
+		}
+		logger.log(Level.WARNING, message, e);
+		return serviceData;
+	}
+
+	private synchronized ServiceDataInterpolator interpolator() {
+		if (interpolator == null) {
+			interpolator = interpolatorFactory.get();
+		}
+		return interpolator;
+	}
+
+	private static Supplier<ServiceDataInterpolator> interpolatorFactory(String url,
+			InterpolationStartupOptions startupOptions) {
+		CredHubProperties credHubProperties = new CredHubProperties();
+		credHubProperties.setUrl(url);
+
+		if (startupOptions.isAsync() && reactiveClientPresent) {
+			return () -> ReactiveServiceDataInterpolators.create(credHubProperties);
+		}
+		return () -> blockingInterpolator(new CredHubTemplateFactory()
+				.credHubTemplate(credHubProperties, blockingClientOptions(startupOptions))
+				.interpolation());
+	}
+
 	/**
-	 * Convert from the Spring Cloud Connectors service data structure to the Spring
-	 * Credhub data structure.
+	 * Create the connection options of the blocking CredHub client. A blocking request
+	 * cannot be cancelled once it has been sent, so when interpolation is asynchronous
+	 * the startup timeout is used as the connection and read timeout, so that a request
+	 * that has timed out does not keep its thread and connection beyond the startup
+	 * timeout.
 	 *
-	 * @param rawServiceData the Spring Cloud Connectors data structure
-	 * @return the equivalent Spring CredHub data structure
+	 * @param startupOptions the interpolation startup options
+	 * @return the connection options
+	 */
+	static ClientOptions blockingClientOptions(InterpolationStartupOptions startupOptions) {
+		ClientOptions clientOptions = new ClientOptions();
+		if (startupOptions.isAsync() && startupOptions.getStartupTimeout() != null) {
+			clientOptions.setConnectionTimeout(startupOptions.getStartupTimeout());
+			clientOptions.setReadTimeout(startupOptions.getStartupTimeout());
+		}
+		return clientOptions;
+	}
+
+	private static ServiceDataInterpolator blockingInterpolator(CredHubInterpolationOperations credHubOperations) {
+		return serviceData -> {
+			CompletableFuture<ServicesData> result = new CompletableFuture<>();
+			try {
+				result.complete(credHubOperations.interpolateServiceData(serviceData));
+			}
+			catch (RuntimeException e) {
+				result.completeExceptionally(e);
+			}
+			return result;
+		};
+	}
+
+	/**
+	 * Collect the service bindings that contain CredHub references, recording the
+	 * position of each binding in the list of bindings of its service offering.
+	 *
+	 * @param rawServiceData the service data parsed from {@literal VCAP_SERVICES}
+	 * @param positions populated with the positions of the collected bindings
+	 * @return the bindings that contain CredHub references
 	 */
-	private ServicesData connectorsToCredHub(CloudFoundryRawServiceData rawServiceData) {
-		ServicesData servicesData = new ServicesData();
-		servicesData.putAll(rawServiceData);
-		return servicesData;
+	private static ServicesData findCredHubReferences(Map<String, List<Map<String, Object>>> rawServiceData,
+			Map<String, List<Integer>> positions) {
+		ServicesData references = new ServicesData();
+
+		rawServiceData.forEach((offering, bindings) -> {
+			if (bindings == null) {
+				return;
+			}
+			for (int i = 0; i < bindings.size(); i++) {
+				Map<String, Object> binding = bindings.get(i);
+				if (binding != null && hasCredHubReference(binding)) {
+					references.computeIfAbsent(offering, key -> new ArrayList<>()).add(binding);
+					positions.computeIfAbsent(offering, key -> new ArrayList<>()).add(i);
+				}
+			}
+		});
+
+		return references;
+	}
+
+	private static boolean hasCredHubReference(Map<String, Object> binding) {
+		Object credentials = binding.get(CREDENTIALS_KEY);
+		return credentials instanceof Map && ((Map<?, ?>) credentials).containsKey(CREDHUB_REF_KEY);
 	}
 
 	/**
-	 * Convert from the Spring Credhub service data structure to the Spring Cloud
-	 * Connectors data structure.
+	 * Replace the bindings that contained CredHub references with the interpolated
+	 * bindings. Only the binding lists of service offerings with interpolated bindings are
+	 * copied.
 	 *
-	 * @param interpolatedData the Spring CredHub data structure
-	 * @return the equivalent Spring Cloud Connectors data structure
+	 * @param rawServiceData the Spring Cloud Connectors data structure
+	 * @param interpolatedData the interpolated bindings returned by CredHub
+	 * @param positions the positions of the interpolated bindings
 	 */
-	private CloudFoundryRawServiceData credHubToConnectors(
-			ServicesData interpolatedData) {
-		CloudFoundryRawServiceData rawServicesData = new CloudFoundryRawServiceData();
-		rawServicesData.putAll(interpolatedData);
-		return rawServicesData;
+	private void mergeInterpolatedData(CloudFoundryRawServiceData rawServiceData,
+			ServicesData interpolatedData, Map<String, List<Integer>> positions) {
+		positions.forEach((offering, indexes) -> {
+			List<Map<String, Object>> interpolated = interpolatedData.get(offering);
+			if (interpolated == null || interpolated.size() != indexes.size()) {
+				logger.log(Level.WARNING, "CredHub did not return the interpolated service data for "
+						+ "service offering " + offering + ", leaving it unchanged");
+				return;
+			}
+
+			List<Map<String, Object>> bindings = new ArrayList<>(rawServiceData.get(offering));
+			for (int i = 0; i < indexes.size(); i++) {
+				bindings.set(indexes.get(i), interpolated.get(i));
+			}
+			rawServiceData.put(offering, bindings);
+		});
 	}
 }
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.credhub.cloud;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Properties;
+
+import org.springframework.util.StringUtils;
+
+/**
+ * Options that control when the service data post-processor interpolates service data,
+ * read from system properties.
+ */
+final class InterpolationStartupOptions {
+	static final String ASYNC_PROPERTY = "spring.credhub.interpolation.async";
+
+	static final String STARTUP_TIMEOUT_PROPERTY = "spring.credhub.interpolation.startup-timeout";
+
+	static final String FALLBACK_PROPERTY = "spring.credhub.interpolation.fallback";
+
+	private static final Duration DEFAULT_STARTUP_TIMEOUT = Duration.ofSeconds(10);
+
+	/**
+	 * The action taken when service data has not been interpolated by the startup
+	 * deadline.
+	 */
+	enum Fallback {
+		/**
+		 * Fail creation of the service data, and so startup of the application.
+		 */
+		FAIL,
+
+		/**
+		 * Continue with the service data as provided in {@literal VCAP_SERVICES}.
+		 */
+		UNINTERPOLATED
+	}
+
+	private final boolean async;
+
+	private final Duration startupTimeout;
+
+	private final Fallback fallback;
+
+	InterpolationStartupOptions(boolean async, Duration startupTimeout, Fallback fallback) {
+		this.async = async;
+		this.startupTimeout = startupTimeout;
+		this.fallback = fallback;
+	}
+
+	/**
+	 * Create options from the provided properties. Interpolation is synchronous unless
+	 * {@literal spring.credhub.interpolation.async} is {@literal true}.
+	 *
+	 * @param properties the properties, typically the system properties
+	 * @return the options
+	 */
+	static InterpolationStartupOptions fromProperties(Properties properties) {
+		boolean async = Boolean.parseBoolean(properties.getProperty(ASYNC_PROPERTY));
+
+		String timeout = properties.getProperty(STARTUP_TIMEOUT_PROPERTY);
+		Duration startupTimeout = StringUtils.hasText(timeout) ? parseDuration(timeout.trim()) : DEFAULT_STARTUP_TIMEOUT;
+
+		String fallback = properties.getProperty(FALLBACK_PROPERTY);
+		Fallback startupFallback = StringUtils.hasText(fallback)
+				? Fallback.valueOf(fallback.trim().toUpperCase(Locale.ROOT))
+				: Fallback.UNINTERPOLATED;
+
+		return new InterpolationStartupOptions(async, startupTimeout, startupFallback);
+	}
+
+	/**
+	 * Indicates whether service data is interpolated asynchronously, starting as early as
+	 * possible.
+	 *
+	 * @return {@literal true} if interpolation is asynchronous
+	 */
+	boolean isAsync() {
+		return this.async;
+	}
+
+	/**
+	 * Get the maximum time from the start of interpolation to waiting for its result.
+	 *
+	 * @return the startup timeout
+	 */
+	Duration getStartupTimeout() {
+		return this.startupTimeout;
+	}
+
+	/**
+	 * Get the action taken when service data has not been interpolated in time.
+	 *
+	 * @return the fallback action
+	 */
+	Fallback getFallback() {
+		return this.fallback;
+	}
+
+	/**
+	 * Parse a duration in milliseconds ({@literal 500}), with a unit suffix of
+	 * {@literal ms}, {@literal s}, or {@literal m} ({@literal 10s}), or in ISO-8601
+	 * format ({@literal PT10S}).
+	 */
+	private static Duration parseDuration(String value) {
+		String lower = value.toLowerCase(Locale.ROOT);
+		if (lower.startsWith("pt")) {
+			return Duration.parse(value);
+		}
+		if (lower.endsWith("ms")) {
+			return Duration.ofMillis(Long.parseLong(lower.substring(0, lower.length() - 2).trim()));
+		}
+		if (lower.endsWith("s")) {
+			return Duration.ofSeconds(Long.parseLong(lower.substring(0, lower.length() - 1).trim()));
+		}
+		if (lower.endsWith("m")) {
+			return Duration.ofMinutes(Long.parseLong(lower.substring(0, lower.length() - 1).trim()));
+		}
+		return Duration.ofMillis(Long.parseLong(lower));
+	}
+}
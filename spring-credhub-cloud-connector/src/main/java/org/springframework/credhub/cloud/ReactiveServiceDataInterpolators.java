@@ -0,0 +1,41 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.credhub.cloud;
+
+import org.springframework.credhub.configuration.CredHubTemplateFactory;
+import org.springframework.credhub.core.CredHubProperties;
+import org.springframework.credhub.core.interpolation.ReactiveCredHubInterpolationOperations;
+import org.springframework.credhub.support.ClientOptions;
+
+/**
+ * Creates a {@link ServiceDataInterpolator} that uses the non-blocking
+ * {@link ReactiveCredHubInterpolationOperations}. Kept in a separate class so that the
+ * reactive client is only loaded when it is on the classpath.
+ */
+final class ReactiveServiceDataInterpolators {
+	private ReactiveServiceDataInterpolators() {
+	}
+
+	static ServiceDataInterpolator create(CredHubProperties credHubProperties) {
+		ReactiveCredHubInterpolationOperations interpolation = new CredHubTemplateFactory()
+				.reactiveCredHubTemplate(credHubProperties, new ClientOptions())
+				.interpolation();
+
+		return serviceData -> interpolation.interpolateServiceData(serviceData).toFuture();
+	}
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.credhub.cloud;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.credhub.support.ServicesData;
+
+/**
+ * Starts interpolation of service data by CredHub.
+ */
+@FunctionalInterface
+interface ServiceDataInterpolator {
+	/**
+	 * Start interpolating the provided service data.
+	 *
+	 * @param serviceData the service bindings that contain CredHub references
+	 * @return the interpolated service data, when it is available
+	 */
+	CompletableFuture<ServicesData> interpolate(ServicesData serviceData);
+}
@@ -16,10 +16,16 @@
 
 package org.springframework.credhub.cloud;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -27,16 +33,22 @@ import org.mockito.ArgumentMatcher;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import org.springframework.cloud.CloudException;
 import org.springframework.cloud.cloudfoundry.CloudFoundryRawServiceData;
+import org.springframework.credhub.cloud.InterpolationStartupOptions.Fallback;
 import org.springframework.credhub.core.CredHubException;
 import org.springframework.credhub.core.interpolation.CredHubInterpolationOperations;
+import org.springframework.credhub.support.ClientOptions;
 import org.springframework.credhub.support.ServicesData;
 import org.springframework.http.HttpStatus;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @RunWith(MockitoJUnitRunner.class)
 public class CredHubInterpolationServiceDataPostProcessorTests {
@@ -72,6 +84,61 @@ public class CredHubInterpolationServiceDataPostProcessorTests {
 		assertThat(actual).isEqualTo(rawServiceData);
 	}
 
+	@Test
+	public void processServiceDataWithoutCredHubReferences() {
+		CloudFoundryRawServiceData rawServiceData = new CloudFoundryRawServiceData(
+				buildRawServiceData(plainCredentials()));
+
+		CredHubInterpolationServiceDataPostProcessor processor =
+				new CredHubInterpolationServiceDataPostProcessor(credHubOperations);
+
+		CloudFoundryRawServiceData actual = processor.process(rawServiceData);
+
+		assertThat(actual).isSameAs(rawServiceData);
+		verifyZeroInteractions(credHubOperations);
+	}
+
+	@Test
+	public void processServiceDataSendsOnlyBindingsWithCredHubReferences() {
+		Map<String, Object> plainBinding = buildBinding("plain-instance", plainCredentials());
+		Map<String, Object> referenceBinding = buildBinding("credhub-instance", referenceCredentials());
+		Map<String, Object> interpolatedBinding = buildBinding("credhub-instance", plainCredentials());
+		Map<String, Object> otherPlainBinding = buildBinding("other-instance", plainCredentials());
+
+		CloudFoundryRawServiceData rawServiceData = new CloudFoundryRawServiceData();
+		rawServiceData.put("service-offering", new ArrayList<>(Arrays.asList(plainBinding, referenceBinding)));
+		rawServiceData.put("other-offering", Collections.singletonList(otherPlainBinding));
+
+		ServicesData expectedRequest = new ServicesData();
+		expectedRequest.put("service-offering", Collections.singletonList(referenceBinding));
+		ServicesData interpolatedServiceData = new ServicesData();
+		interpolatedServiceData.put("service-offering", Collections.singletonList(interpolatedBinding));
+
+		when(credHubOperations.interpolateServiceData(any())).thenReturn(interpolatedServiceData);
+
+		CredHubInterpolationServiceDataPostProcessor processor =
+				new CredHubInterpolationServiceDataPostProcessor(credHubOperations);
+
+		CloudFoundryRawServiceData actual = processor.process(rawServiceData);
+
+		verify(credHubOperations).interpolateServiceData(expectedRequest);
+		assertThat(actual.get("service-offering")).containsExactly(plainBinding, interpolatedBinding);
+		assertThat(actual.get("other-offering")).containsExactly(otherPlainBinding);
+	}
+
+	@Test
+	public void processServiceDataWithIncompleteCredHubResponse() {
+		CloudFoundryRawServiceData rawServiceData = buildRawServiceData();
+
+		when(credHubOperations.interpolateServiceData(any())).thenReturn(new ServicesData());
+
+		CredHubInterpolationServiceDataPostProcessor processor =
+				new CredHubInterpolationServiceDataPostProcessor(credHubOperations);
+
+		CloudFoundryRawServiceData actual = processor.process(rawServiceData);
+		assertThat(actual).isEqualTo(buildRawServiceData());
+	}
+
 	@Test
 	public void processServiceDataWithInitializationError() {
 		CredHubInterpolationServiceDataPostProcessor processor =
@@ -82,6 +149,119 @@ public class CredHubInterpolationServiceDataPostProcessorTests {
 		verifyZeroInteractions(credHubOperations);
 	}
 
+	@Test
+	public void processServiceDataAsynchronously() {
+		CompletableFuture<ServicesData> result = new CompletableFuture<>();
+		CredHubInterpolationServiceDataPostProcessor processor = new CredHubInterpolationServiceDataPostProcessor(
+				serviceData -> result, asyncOptions(Duration.ofSeconds(5), Fallback.FAIL));
+
+		result.complete(buildInterpolatedServiceData());
+
+		assertThat(processor.process(buildRawServiceData())).isEqualTo(buildInterpolatedServiceData());
+	}
+
+	@Test
+	public void processServiceDataAsynchronouslyProceedsUninterpolatedAfterStartupTimeout() {
+		CompletableFuture<ServicesData> result = new CompletableFuture<>();
+		CredHubInterpolationServiceDataPostProcessor processor = new CredHubInterpolationServiceDataPostProcessor(
+				serviceData -> result, asyncOptions(Duration.ofMillis(50), Fallback.UNINTERPOLATED));
+
+		assertThat(processor.process(buildRawServiceData())).isEqualTo(buildRawServiceData());
+		assertThat(result).isCancelled();
+		assertThat(processor.process(buildRawServiceData())).isEqualTo(buildRawServiceData());
+	}
+
+	@Test
+	public void processServiceDataAsynchronouslyFailsAfterStartupTimeout() {
+		CredHubInterpolationServiceDataPostProcessor processor = new CredHubInterpolationServiceDataPostProcessor(
+				serviceData -> new CompletableFuture<>(), asyncOptions(Duration.ofMillis(50), Fallback.FAIL));
+
+		assertThatThrownBy(() -> processor.process(buildRawServiceData()))
+				.isInstanceOf(CloudException.class)
+				.hasMessageContaining("startup timeout");
+	}
+
+	@Test
+	public void processServiceDataAsynchronouslyFailsOnCredHubError() {
+		CompletableFuture<ServicesData> result = new CompletableFuture<>();
+		result.completeExceptionally(new CredHubException(HttpStatus.SERVICE_UNAVAILABLE));
+		CredHubInterpolationServiceDataPostProcessor processor = new CredHubInterpolationServiceDataPostProcessor(
+				serviceData -> result, asyncOptions(Duration.ofSeconds(5), Fallback.FAIL));
+
+		assertThatThrownBy(() -> processor.process(buildRawServiceData()))
+				.isInstanceOf(CloudException.class)
+				.hasRootCauseInstanceOf(CredHubException.class);
+	}
+
+	@Test
+	public void processServiceDataUsesInterpolationStartedEarly() {
+		AtomicInteger interpolations = new AtomicInteger();
+		ServiceDataInterpolator interpolator = serviceData -> {
+			interpolations.incrementAndGet();
+			return CompletableFuture.completedFuture(buildInterpolatedServiceData());
+		};
+
+		ServicesData references = new ServicesData(buildRawServiceData(buildReferenceCredentials()));
+		AsyncServiceDataInterpolation.startEarly(references, () -> interpolator);
+
+		CredHubInterpolationServiceDataPostProcessor processor = new CredHubInterpolationServiceDataPostProcessor(
+				interpolator, asyncOptions(Duration.ofSeconds(5), Fallback.FAIL));
+
+		assertThat(processor.process(buildRawServiceData())).isEqualTo(buildInterpolatedServiceData());
+		assertThat(processor.process(buildRawServiceData())).isEqualTo(buildInterpolatedServiceData());
+		assertThat(interpolations).hasValue(2);
+	}
+
+	@Test
+	public void startupOptionsFromProperties() {
+		InterpolationStartupOptions defaults = InterpolationStartupOptions.fromProperties(new Properties());
+		assertThat(defaults.isAsync()).isFalse();
+		assertThat(defaults.getStartupTimeout()).isEqualTo(Duration.ofSeconds(10));
+		assertThat(defaults.getFallback()).isEqualTo(Fallback.UNINTERPOLATED);
+
+		Properties properties = new Properties();
+		properties.setProperty(InterpolationStartupOptions.ASYNC_PROPERTY, "true");
+		properties.setProperty(InterpolationStartupOptions.STARTUP_TIMEOUT_PROPERTY, "1500ms");
+		properties.setProperty(InterpolationStartupOptions.FALLBACK_PROPERTY, "fail");
+		InterpolationStartupOptions options = InterpolationStartupOptions.fromProperties(properties);
+		assertThat(options.isAsync()).isTrue();
+		assertThat(options.getStartupTimeout()).isEqualTo(Duration.ofMillis(1500));
+		assertThat(options.getFallback()).isEqualTo(Fallback.FAIL);
+
+		properties.setProperty(InterpolationStartupOptions.STARTUP_TIMEOUT_PROPERTY, "PT30S");
+		assertThat(InterpolationStartupOptions.fromProperties(properties).getStartupTimeout())
+				.isEqualTo(Duration.ofSeconds(30));
+	}
+
+	@Test
+	public void blockingAsyncInterpolationIsBoundedByStartupTimeout() {
+		ClientOptions clientOptions = CredHubInterpolationServiceDataPostProcessor
+				.blockingClientOptions(asyncOptions(Duration.ofSeconds(5), Fallback.FAIL));
+
+		assertThat(clientOptions.getConnectionTimeout()).isEqualTo(Duration.ofSeconds(5));
+		assertThat(clientOptions.getReadTimeout()).isEqualTo(Duration.ofSeconds(5));
+	}
+
+	@Test
+	public void blockingSyncInterpolationUsesDefaultTimeouts() {
+		ClientOptions clientOptions = CredHubInterpolationServiceDataPostProcessor
+				.blockingClientOptions(InterpolationStartupOptions.fromProperties(new Properties()));
+
+		assertThat(clientOptions.getConnectionTimeout()).isNull();
+		assertThat(clientOptions.getReadTimeout()).isNull();
+	}
+
+	private InterpolationStartupOptions asyncOptions(Duration startupTimeout, Fallback fallback) {
+		return new InterpolationStartupOptions(true, startupTimeout, fallback);
+	}
+
+	private HashMap<String, String> buildReferenceCredentials() {
+		HashMap<String, String> credentials = new HashMap<>();
+		credentials.put("credhub-ref",
+				"((/c/service-broker/service-offering/1111-2222-3333-4444/credentials))");
+		return credentials;
+	}
+
 	private ArgumentMatcher<ServicesData> matchesContent(final CloudFoundryRawServiceData expected) {
 		return new ArgumentMatcher<ServicesData>() {
 			@Override
@@ -138,4 +318,24 @@ public class CredHubInterpolationServiceDataPostProcessorTests {
 			};
 	}
 
-}
\ No newline at end of file
+	private HashMap<String, String> plainCredentials() {
+		HashMap<String, String> credentials = new HashMap<>();
+		credentials.put("uri", "https://example.com");
+		return credentials;
+	}
+
+	private HashMap<String, String> referenceCredentials() {
+		HashMap<String, String> credentials = new HashMap<>();
+		credentials.put("credhub-ref", "((/c/service-broker/service-offering/1111-2222-3333-4444/credentials))");
+		return credentials;
+	}
+
+	private Map<String, Object> buildBinding(String name, Map<String, String> credentials) {
+		Map<String, Object> binding = new HashMap<>();
+		binding.put("credentials", credentials);
+		binding.put("label", "service-offering");
+		binding.put("name", name);
+		binding.put("plan", "standard");
+		return binding;
+	}
+}
@@ -16,59 +16,169 @@
 
 package org.springframework.credhub.configuration;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
 import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import io.netty.handler.timeout.WriteTimeoutHandler;
 import io.netty.handler.ssl.SslContextBuilder;
-import io.netty.handler.ssl.SslProvider;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.springframework.credhub.support.ClientOptions;
 import org.springframework.http.client.reactive.ClientHttpConnector;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
-import javax.net.ssl.TrustManagerFactory;
+import java.time.Duration;
 
 /**
- * Factory for {@link ClientHttpConnector} that supports {@link ReactorClientHttpConnector}.
+ * Factory for {@link ClientHttpConnector} that supports {@link ReactorClientHttpConnector},
+ * or {@code java.net.http.HttpClient} on Java 11 or later when an
+ * {@link ClientOptions#getHttpVersion() HTTP version} is set.
  *
  * @author Mark Paluch
  * @author Scott Frederick
  */
 public class ClientHttpConnectorFactory {
+	private static final Log logger = LogFactory.getLog(ClientHttpConnectorFactory.class);
+
+	private static final String CONNECTION_POOL_NAME = "credhub";
+
+	private static final String READ_TIMEOUT_HANDLER = "credhubReadTimeout";
+	private static final String WRITE_TIMEOUT_HANDLER = "credhubWriteTimeout";
+	private static final String RESPONSE_TIMEOUT_HANDLER = "credhubResponseTimeout";
 
 	private static SslCertificateUtils sslCertificateUtils = new SslCertificateUtils();
 
+	private static final Map<Integer, ConnectionProvider> connectionProviders = new ConcurrentHashMap<>();
+
 	/**
 	 * Create a {@link ClientHttpConnector} for the given {@link ClientOptions}.
 	 *
+	 * Connectors created with the same maximum number of connections share one
+	 * connection pool for the lifetime of the application, as connectors without a
+	 * maximum share the global Reactor Netty pool.
+	 *
 	 * @param options must not be {@literal null}
 	 * @return a new {@link ClientHttpConnector}.
 	 */
 	public static ClientHttpConnector create(ClientOptions options) {
-		HttpClient httpClient = HttpClient.create();
-
-		if (usingCustomCerts(options)) {
-			TrustManagerFactory trustManagerFactory =
-					sslCertificateUtils.createTrustManagerFactory(options.getCaCertFiles());
-
-			httpClient = httpClient.secure(sslContextSpec -> sslContextSpec
-					.sslContext(SslContextBuilder.forClient()
-							.sslProvider(SslProvider.JDK)
-							.trustManager(trustManagerFactory)));
-		} else {
-			httpClient = httpClient.secure(sslContextSpec -> sslContextSpec
-					.sslContext(SslContextBuilder.forClient()
-							.sslProvider(SslProvider.JDK)));
+		ClientHttpConnector connector = createConnector(options);
+
+		if (options.isRequestCoalescing()) {
+			return new RequestCoalescingClientHttpConnector(connector);
+		}
+
+		return connector;
+	}
+
+	private static ClientHttpConnector createConnector(ClientOptions options) {
+		if (options.getHttpVersion() != null) {
+			if (JdkHttpClients.isAvailable()) {
+				return JdkHttpClients.createConnector(options, sslCertificateUtils);
+			}
+
+			logger.warn("The HTTP version will not be configured because " +
+					"java.net.http.HttpClient requires Java 11 or later.");
 		}
 
+		HttpClient httpClient = createHttpClient(options);
+
+		if (options.getKeepAlive() != null && options.getKeepAlive().isZero()) {
+			httpClient = httpClient.keepAlive(false);
+		}
+
+		SslContextBuilder sslContextBuilder = NettySslContextBuilders.forClient(options, sslCertificateUtils);
+
+		httpClient = httpClient.secure(sslContextSpec -> sslContextSpec.sslContext(sslContextBuilder));
+
 		if (options.getConnectionTimeout() != null) {
 			httpClient = httpClient.tcpConfiguration(tcpClient ->
 					tcpClient.option(ChannelOption.CONNECT_TIMEOUT_MILLIS,
 							Math.toIntExact(options.getConnectionTimeout().toMillis())));
 		}
 
+		httpClient = configureTimeouts(httpClient, options);
+
 		return new ReactorClientHttpConnector(httpClient);
 	}
 
-	private static boolean usingCustomCerts(ClientOptions options) {
-		return options.getCaCertFiles() != null;
+	/**
+	 * Create an {@link HttpClient} using a connection pool configured from the options.
+	 * Reactor Netty pools connections per server, so the per-route limit takes precedence
+	 * over the total limit. The global Reactor Netty pool is used when no limit is set.
+	 */
+	private static HttpClient createHttpClient(ClientOptions options) {
+		if (options.getMaxIdleTime() != null || options.getConnectionTimeToLive() != null) {
+			logger.warn("Idle connection eviction and connection time to live will not be " +
+					"configured when using Reactor Netty.");
+		}
+		if (options.getKeepAlive() != null && !options.getKeepAlive().isZero()) {
+			logger.warn("A keep-alive duration will not be configured when using Reactor Netty.");
+		}
+
+		Integer maxConnections = options.getMaxConnectionsPerRoute() != null
+				? options.getMaxConnectionsPerRoute()
+				: options.getMaxConnections();
+
+		if (maxConnections != null) {
+			return HttpClient.create(connectionProvider(maxConnections));
+		}
+
+		return HttpClient.create();
+	}
+
+	/**
+	 * Get the shared connection pool with the provided maximum number of connections per
+	 * server, creating it on first use. The pools are never disposed, so that connectors
+	 * do not need to be released.
+	 */
+	static ConnectionProvider connectionProvider(int maxConnections) {
+		return connectionProviders.computeIfAbsent(maxConnections,
+				max -> ConnectionProvider.fixed(CONNECTION_POOL_NAME + "-" + max, max));
+	}
+
+	/**
+	 * Apply the read, write and response timeouts to each request. The timeout handlers
+	 * are added when a request is sent and are removed when the connection is released,
+	 * so idle pooled connections are not closed by the timeouts.
+	 */
+	private static HttpClient configureTimeouts(HttpClient httpClient, ClientOptions options) {
+		Long readTimeout = toMillis(options.getReadTimeout());
+		Long writeTimeout = toMillis(options.getWriteTimeout());
+		Long responseTimeout = toMillis(options.getResponseTimeout());
+
+		if (readTimeout == null && writeTimeout == null && responseTimeout == null) {
+			return httpClient;
+		}
+
+		HttpClient configured = httpClient.doOnRequest((request, connection) -> {
+			if (readTimeout != null) {
+				connection.addHandlerLast(READ_TIMEOUT_HANDLER,
+						new ReadTimeoutHandler(readTimeout, TimeUnit.MILLISECONDS));
+			}
+			if (writeTimeout != null) {
+				connection.addHandlerLast(WRITE_TIMEOUT_HANDLER,
+						new WriteTimeoutHandler(writeTimeout, TimeUnit.MILLISECONDS));
+			}
+			if (responseTimeout != null) {
+				connection.addHandlerLast(RESPONSE_TIMEOUT_HANDLER,
+						new ReadTimeoutHandler(responseTimeout, TimeUnit.MILLISECONDS));
+			}
+		});
+
+		if (responseTimeout != null) {
+			configured = configured.doOnResponse((response, connection) ->
+					connection.removeHandler(RESPONSE_TIMEOUT_HANDLER));
+		}
+
+		return configured;
+	}
+
+	private static Long toMillis(Duration duration) {
+		return duration == null ? null : duration.toMillis();
 	}
 }
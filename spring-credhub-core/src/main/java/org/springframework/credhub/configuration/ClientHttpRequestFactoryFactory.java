@@ -18,29 +18,33 @@ package org.springframework.credhub.configuration;
 
 import java.io.IOException;
 import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.Collections;
 import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLSocketFactory;
-import javax.net.ssl.TrustManagerFactory;
 import javax.net.ssl.X509TrustManager;
 
 import io.netty.handler.ssl.ClientAuth;
 import io.netty.handler.ssl.JdkSslContext;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslContextBuilder;
-import io.netty.handler.ssl.SslProvider;
+import okhttp3.ConnectionPool;
 import okhttp3.OkHttpClient.Builder;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.NoConnectionReuseStrategy;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
 
 import org.springframework.credhub.support.ClientOptions;
 import org.springframework.http.client.ClientHttpRequestFactory;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.InterceptingClientHttpRequestFactory;
 import org.springframework.http.client.Netty4ClientHttpRequestFactory;
 import org.springframework.http.client.OkHttp3ClientHttpRequestFactory;
 import org.springframework.http.client.SimpleClientHttpRequestFactory;
@@ -50,7 +54,9 @@ import org.springframework.util.ClassUtils;
 /**
  * Factory for {@link ClientHttpRequestFactory} that supports Apache HTTP Components,
  * OkHttp, Netty and the JDK HTTP client (in that order). This factory configures a
- * {@link ClientHttpRequestFactory} depending on the available dependencies.
+ * {@link ClientHttpRequestFactory} depending on the available dependencies, or uses
+ * {@code java.net.http.HttpClient} on Java 11 or later when an
+ * {@link ClientOptions#getHttpVersion() HTTP version} is set.
  *
  * @author Mark Paluch
  * @author Scott Frederick
@@ -72,6 +78,8 @@ public class ClientHttpRequestFactoryFactory {
 			"io.netty.channel.nio.NioEventLoopGroup",
 			ClientHttpRequestFactoryFactory.class.getClassLoader());
 
+	private static final Duration DEFAULT_COALESCED_REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
 	/**
 	 * Create a {@link ClientHttpRequestFactory} for the given {@link ClientOptions}.
 	 *
@@ -83,7 +91,66 @@ public class ClientHttpRequestFactoryFactory {
 
 		Assert.notNull(options, "ClientOptions must not be null");
 
+		return withRequestCoalescing(createRequestFactory(options), options);
+	}
+
+	/**
+	 * Create a {@link ClientHttpRequestFactory} for the given {@link ClientOptions} using
+	 * a specific HTTP client library, instead of the first library found on the
+	 * classpath.
+	 *
+	 * @param options must not be {@literal null}
+	 * @param library the HTTP client library to use, which must be on the classpath; must
+	 * not be {@literal null}
+	 * @return a new {@link ClientHttpRequestFactory}. Lifecycle beans must be initialized
+	 * after obtaining.
+	 */
+	public static ClientHttpRequestFactory create(ClientOptions options, ClientLibrary library) {
+		Assert.notNull(options, "ClientOptions must not be null");
+		Assert.notNull(library, "ClientLibrary must not be null");
+
 		try {
+			return withRequestCoalescing(library.createRequestFactory(options), options);
+		}
+		catch (GeneralSecurityException | IOException e) {
+			throw new IllegalStateException("Error configuring HTTP connections using " + library, e);
+		}
+	}
+
+	private static ClientHttpRequestFactory withRequestCoalescing(ClientHttpRequestFactory factory,
+																  ClientOptions options) {
+		if (options.isRequestCoalescing()) {
+			return new InterceptingClientHttpRequestFactory(factory,
+					Collections.singletonList(new RequestCoalescingInterceptor(coalescedRequestTimeout(options))));
+		}
+
+		return factory;
+	}
+
+	/**
+	 * Get the maximum time a request waits for an identical request it is coalesced with,
+	 * which is the time that request may take to connect and read the response.
+	 */
+	private static Duration coalescedRequestTimeout(ClientOptions options) {
+		Duration connectionTimeout = options.getConnectionTimeout() != null ? options.getConnectionTimeout()
+				: DEFAULT_COALESCED_REQUEST_TIMEOUT;
+		Duration readTimeout = options.getReadTimeout() != null ? options.getReadTimeout()
+				: DEFAULT_COALESCED_REQUEST_TIMEOUT;
+		return connectionTimeout.plus(readTimeout);
+	}
+
+	private static ClientHttpRequestFactory createRequestFactory(ClientOptions options) {
+		try {
+			if (options.getHttpVersion() != null) {
+				if (JdkHttpClients.isAvailable()) {
+					logger.info("Using java.net.http.HttpClient for HTTP connections");
+					return JdkHttpClients.createRequestFactory(options, sslCertificateUtils);
+				}
+
+				logger.warn("The HTTP version will not be configured because " +
+						"java.net.http.HttpClient requires Java 11 or later.");
+			}
+
 			if (HTTP_COMPONENTS_PRESENT) {
 				logger.info("Using Apache HttpComponents HttpClient for HTTP connections");
 				return HttpComponents.usingHttpComponents(options);
@@ -106,16 +173,73 @@ public class ClientHttpRequestFactoryFactory {
 		return HttpURLConnection.usingJdk(options);
 	}
 
+	/**
+	 * The HTTP client libraries that a {@link ClientHttpRequestFactory} can be created
+	 * with.
+	 */
+	public enum ClientLibrary {
+		/**
+		 * {@link java.net.HttpURLConnection}.
+		 */
+		JDK {
+			@Override
+			ClientHttpRequestFactory createRequestFactory(ClientOptions options) {
+				return HttpURLConnection.usingJdk(options);
+			}
+		},
+
+		/**
+		 * Apache HttpComponents HttpClient.
+		 */
+		HTTP_COMPONENTS {
+			@Override
+			ClientHttpRequestFactory createRequestFactory(ClientOptions options) throws GeneralSecurityException {
+				return HttpComponents.usingHttpComponents(options);
+			}
+		},
+
+		/**
+		 * OkHttp3.
+		 */
+		OKHTTP3 {
+			@Override
+			ClientHttpRequestFactory createRequestFactory(ClientOptions options) throws GeneralSecurityException {
+				return OkHttp3.usingOkHttp3(options);
+			}
+		},
+
+		/**
+		 * Netty.
+		 */
+		NETTY {
+			@Override
+			ClientHttpRequestFactory createRequestFactory(ClientOptions options)
+					throws GeneralSecurityException, IOException {
+				return Netty.usingNetty(options);
+			}
+		};
+
+		abstract ClientHttpRequestFactory createRequestFactory(ClientOptions options)
+				throws GeneralSecurityException, IOException;
+	}
+
 	/**
 	 * {@link ClientHttpRequestFactory} using {@link java.net.HttpURLConnection}.
 	 */
 	static class HttpURLConnection {
 		static ClientHttpRequestFactory usingJdk(ClientOptions options) {
-			if (usingCustomCerts(options)) {
+			if (usingCustomCerts(options) || usingClientCertificate(options)) {
 				logger.warn("Trust material will not be configured when using " +
 						"java.net.HttpUrlConnection. Use an alternate HTTP Client " +
 						"(Apache HttpComponents HttpClient, OkHttp3, or Netty) when " +
-						"configuring CA certificates.");
+						"configuring CA certificates or client certificates.");
+			}
+
+			if (usingConnectionPoolOptions(options)) {
+				logger.warn("Connection pool options will not be configured when using " +
+						"java.net.HttpUrlConnection. Use an alternate HTTP Client " +
+						"(Apache HttpComponents HttpClient or OkHttp3) when " +
+						"configuring connection pooling.");
 			}
 
 			SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
@@ -143,8 +267,8 @@ public class ClientHttpRequestFactoryFactory {
 
 			HttpClientBuilder httpClientBuilder = HttpClients.custom();
 
-			if (usingCustomCerts(options)) {
-				SSLContext sslContext = sslCertificateUtils.getSSLContext(options.getCaCertFiles());
+			if (usingCustomCerts(options) || usingClientCertificate(options)) {
+				SSLContext sslContext = sslCertificateUtils.getSSLContext(options);
 				SSLConnectionSocketFactory sslSocketFactory =
 						new SSLConnectionSocketFactory(sslContext);
 
@@ -169,8 +293,38 @@ public class ClientHttpRequestFactoryFactory {
 
 			httpClientBuilder.setDefaultRequestConfig(requestConfigBuilder.build());
 
+			configureConnectionPool(httpClientBuilder, options);
+
 			return new HttpComponentsClientHttpRequestFactory(httpClientBuilder.build());
 		}
+
+		private static void configureConnectionPool(HttpClientBuilder httpClientBuilder, ClientOptions options) {
+			if (options.getMaxConnections() != null) {
+				httpClientBuilder.setMaxConnTotal(options.getMaxConnections());
+			}
+			if (options.getMaxConnectionsPerRoute() != null) {
+				httpClientBuilder.setMaxConnPerRoute(options.getMaxConnectionsPerRoute());
+			}
+			if (options.getMaxIdleTime() != null) {
+				httpClientBuilder.evictIdleConnections(options.getMaxIdleTime().toMillis(), TimeUnit.MILLISECONDS);
+			}
+			if (options.getConnectionTimeToLive() != null) {
+				httpClientBuilder.setConnectionTimeToLive(options.getConnectionTimeToLive().toMillis(),
+						TimeUnit.MILLISECONDS);
+			}
+			if (options.getKeepAlive() != null) {
+				if (options.getKeepAlive().isZero()) {
+					httpClientBuilder.setConnectionReuseStrategy(NoConnectionReuseStrategy.INSTANCE);
+				}
+				else {
+					final long keepAliveMillis = options.getKeepAlive().toMillis();
+					httpClientBuilder.setKeepAliveStrategy((response, context) -> {
+						long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+						return duration > 0 ? duration : keepAliveMillis;
+					});
+				}
+			}
+		}
 	}
 
 	/**
@@ -180,16 +334,21 @@ public class ClientHttpRequestFactoryFactory {
 	 * @author Scott Frederick
 	 */
 	static class OkHttp3 {
+		private static final int OKHTTP3_DEFAULT_MAX_IDLE_CONNECTIONS = 5;
+
+		private static final Duration OKHTTP3_DEFAULT_KEEP_ALIVE = Duration.ofMinutes(5);
+
 		static ClientHttpRequestFactory usingOkHttp3(ClientOptions options)
 				throws GeneralSecurityException {
 
 			Builder builder = new Builder();
 
-			if (usingCustomCerts(options)) {
+			if (usingCustomCerts(options) || usingClientCertificate(options)) {
 				SSLSocketFactory socketFactory =
-						sslCertificateUtils.getSSLContext(options.getCaCertFiles()).getSocketFactory();
-				X509TrustManager trustManager =
-						sslCertificateUtils.createTrustManager(options.getCaCertFiles());
+						sslCertificateUtils.getSSLContext(options).getSocketFactory();
+				X509TrustManager trustManager = usingCustomCerts(options)
+						? sslCertificateUtils.createTrustManager(options.getCaCertFiles())
+						: sslCertificateUtils.getDefaultX509TrustManager();
 
 				builder.sslSocketFactory(socketFactory, trustManager);
 			} else {
@@ -206,9 +365,36 @@ public class ClientHttpRequestFactoryFactory {
 				builder.readTimeout(options.getReadTimeoutMillis(), TimeUnit.MILLISECONDS);
 			}
 
+			configureConnectionPool(builder, options);
+
 			return new OkHttp3ClientHttpRequestFactory(builder.build());
 		}
 
+		private static void configureConnectionPool(Builder builder, ClientOptions options) {
+			if (options.getConnectionTimeToLive() != null) {
+				logger.warn("A connection time to live will not be configured when using OkHttp3.");
+			}
+
+			// the Dispatcher limits only asynchronous calls, and the ConnectionPool limits only
+			// idle connections, so neither can cap the connections of synchronous requests
+			if (options.getMaxConnections() != null || options.getMaxConnectionsPerRoute() != null) {
+				logger.warn("A maximum number of connections will not be configured when using OkHttp3.");
+			}
+
+			if (options.getMaxIdleTime() != null || options.getKeepAlive() != null) {
+				boolean keepAliveDisabled = options.getKeepAlive() != null && options.getKeepAlive().isZero();
+
+				int maxIdleConnections = keepAliveDisabled ? 0 : OKHTTP3_DEFAULT_MAX_IDLE_CONNECTIONS;
+
+				Duration keepAliveDuration = options.getMaxIdleTime() != null ? options.getMaxIdleTime()
+						: options.getKeepAlive() != null && !keepAliveDisabled ? options.getKeepAlive()
+						: OKHTTP3_DEFAULT_KEEP_ALIVE;
+
+				builder.connectionPool(new ConnectionPool(maxIdleConnections, keepAliveDuration.toMillis(),
+						TimeUnit.MILLISECONDS));
+			}
+		}
+
 	}
 
 	/**
@@ -223,6 +409,12 @@ public class ClientHttpRequestFactoryFactory {
 		static ClientHttpRequestFactory usingNetty(ClientOptions options)
 				throws IOException, GeneralSecurityException {
 
+			if (usingConnectionPoolOptions(options)) {
+				logger.warn("Connection pool options will not be configured when using Netty. " +
+						"Use an alternate HTTP Client (Apache HttpComponents HttpClient or OkHttp3) " +
+						"when configuring connection pooling.");
+			}
+
 			final Netty4ClientHttpRequestFactory requestFactory = new Netty4ClientHttpRequestFactory();
 
 			if (options.getConnectionTimeout() != null) {
@@ -232,17 +424,11 @@ public class ClientHttpRequestFactoryFactory {
 				requestFactory.setReadTimeout(options.getReadTimeoutMillis());
 			}
 
-			if (usingCustomCerts(options)) {
-				TrustManagerFactory trustManagerFactory =
-						sslCertificateUtils.createTrustManagerFactory(options.getCaCertFiles());
-				
-				SslContext sslContext = SslContextBuilder
-						.forClient()
-						.sslProvider(SslProvider.JDK)
-						.trustManager(trustManagerFactory)
-						.build();
+			if (NettySslContextBuilders.isCustomized(options)) {
+				SslContextBuilder sslContextBuilder =
+						NettySslContextBuilders.forClient(options, sslCertificateUtils);
 
-				requestFactory.setSslContext(sslContext);
+				requestFactory.setSslContext(sslContextBuilder.build());
 			} else {
 				SslContext sslContext = new JdkSslContext(SSLContext.getDefault(), true, ClientAuth.REQUIRE);
 
@@ -257,4 +443,16 @@ public class ClientHttpRequestFactoryFactory {
 	private static boolean usingCustomCerts(ClientOptions options) {
 		return options.getCaCertFiles() != null;
 	}
+
+	private static boolean usingClientCertificate(ClientOptions options) {
+		return options.getClientCertificateFile() != null;
+	}
+
+	private static boolean usingConnectionPoolOptions(ClientOptions options) {
+		return options.getMaxConnections() != null
+				|| options.getMaxConnectionsPerRoute() != null
+				|| options.getMaxIdleTime() != null
+				|| options.getKeepAlive() != null
+				|| options.getConnectionTimeToLive() != null;
+	}
 }
\ No newline at end of file
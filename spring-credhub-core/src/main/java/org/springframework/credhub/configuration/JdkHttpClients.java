@@ -0,0 +1,71 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.credhub.configuration;
+
+import org.springframework.credhub.support.ClientOptions;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+
+/**
+ * Creates HTTP clients based on {@code java.net.http.HttpClient}, which is available on
+ * Java 11 or later. This is the implementation for earlier Java versions, which reports
+ * the HTTP client as unavailable. The Java 11 implementation of this class is packaged
+ * in {@code META-INF/versions/11} of the multi-release jar.
+ */
+final class JdkHttpClients {
+
+	private JdkHttpClients() {
+	}
+
+	/**
+	 * Indicates whether {@code java.net.http.HttpClient} can be used.
+	 *
+	 * @return {@literal true} on Java 11 or later
+	 */
+	static boolean isAvailable() {
+		return false;
+	}
+
+	/**
+	 * Create a {@link ClientHttpRequestFactory} using {@code java.net.http.HttpClient}.
+	 *
+	 * @param options the client options
+	 * @param sslCertificateUtils used to create trust and key material
+	 * @return a new {@link ClientHttpRequestFactory}
+	 */
+	static ClientHttpRequestFactory createRequestFactory(ClientOptions options,
+			SslCertificateUtils sslCertificateUtils) {
+		throw unavailable();
+	}
+
+	/**
+	 * Create a {@link ClientHttpConnector} using {@code java.net.http.HttpClient}.
+	 *
+	 * @param options the client options
+	 * @param sslCertificateUtils used to create trust and key material
+	 * @return a new {@link ClientHttpConnector}
+	 */
+	static ClientHttpConnector createConnector(ClientOptions options,
+			SslCertificateUtils sslCertificateUtils) {
+		throw unavailable();
+	}
+
+	private static IllegalStateException unavailable() {
+		return new IllegalStateException("java.net.http.HttpClient requires Java 11 or later");
+	}
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.credhub.configuration;
+
+import io.netty.handler.ssl.OpenSsl;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslProvider;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.credhub.support.ClientOptions;
+
+/**
+ * Creates Netty {@link SslContextBuilder client SSL context builders} for the Netty-based
+ * HTTP clients, applying the TLS provider, trust material, client certificate, and TLS
+ * session options from {@link ClientOptions}.
+ */
+final class NettySslContextBuilders {
+	private static final Log logger = LogFactory.getLog(NettySslContextBuilders.class);
+
+	private NettySslContextBuilders() {
+	}
+
+	/**
+	 * Create an {@link SslContextBuilder} for the given {@link ClientOptions}.
+	 *
+	 * @param options the client options
+	 * @param sslCertificateUtils used to create trust and key material
+	 * @return the {@link SslContextBuilder}
+	 */
+	static SslContextBuilder forClient(ClientOptions options, SslCertificateUtils sslCertificateUtils) {
+		SslContextBuilder sslContextBuilder = SslContextBuilder.forClient()
+				.sslProvider(sslProvider(options.getSslProvider()));
+
+		if (options.getCaCertFiles() != null) {
+			sslContextBuilder.trustManager(
+					sslCertificateUtils.createTrustManagerFactory(options.getCaCertFiles()));
+		}
+		if (options.getClientCertificateFile() != null) {
+			sslContextBuilder.keyManager(sslCertificateUtils.createKeyManagerFactory(options));
+		}
+		if (options.getSslSessionCacheSize() != null) {
+			sslContextBuilder.sessionCacheSize(options.getSslSessionCacheSize());
+		}
+		if (options.getSslSessionTimeout() != null) {
+			sslContextBuilder.sessionTimeout(options.getSslSessionTimeout().getSeconds());
+		}
+
+		return sslContextBuilder;
+	}
+
+	/**
+	 * Indicates whether any option requires an {@link SslContextBuilder} rather than the
+	 * JDK default {@link javax.net.ssl.SSLContext}.
+	 *
+	 * @param options the client options
+	 * @return {@literal true} if a custom SSL context is required
+	 */
+	static boolean isCustomized(ClientOptions options) {
+		return options.getCaCertFiles() != null
+				|| options.getClientCertificateFile() != null
+				|| (options.getSslProvider() != null && options.getSslProvider() != ClientOptions.SslProvider.JDK)
+				|| options.getSslSessionCacheSize() != null
+				|| options.getSslSessionTimeout() != null;
+	}
+
+	/**
+	 * Resolve the Netty {@link SslProvider} for the requested provider, falling back to
+	 * {@link SslProvider#JDK} when OpenSSL is requested but netty-tcnative is not
+	 * available.
+	 *
+	 * @param requested the requested provider; can be {@literal null}
+	 * @return the {@link SslProvider} to use
+	 */
+	static SslProvider sslProvider(ClientOptions.SslProvider requested) {
+		if (requested == null || requested == ClientOptions.SslProvider.JDK) {
+			return SslProvider.JDK;
+		}
+
+		if (!OpenSsl.isAvailable()) {
+			logger.warn("The " + requested + " TLS provider was requested, but OpenSSL is not available; "
+					+ "falling back to the JDK TLS provider. Add netty-tcnative to the classpath to use OpenSSL. "
+					+ "Cause: " + OpenSsl.unavailabilityCause());
+			return SslProvider.JDK;
+		}
+
+		return requested == ClientOptions.SslProvider.OPENSSL_REFCNT
+				? SslProvider.OPENSSL_REFCNT
+				: SslProvider.OPENSSL;
+	}
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.credhub.configuration;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Base class for SSL material loaded from files that is reloaded when the files change.
+ *
+ * <p>Changes are detected with a {@link WatchService} on the directories containing the
+ * files, and by comparing file modification times and sizes whenever
+ * {@link #reloadIfModified()} is called. If the changed files cannot be loaded (for
+ * example because they are only partially written), the previously loaded material
+ * remains in use.
+ */
+abstract class ReloadableFileMaterial {
+	protected static final Log logger = LogFactory.getLog(ReloadableFileMaterial.class);
+
+	private final List<Path> files;
+
+	private volatile List<FileVersion> versions;
+
+	protected ReloadableFileMaterial(List<Path> files) {
+		this.files = files;
+		this.versions = currentVersions(files);
+	}
+
+	/**
+	 * Load the material from the files.
+	 *
+	 * @param fileNames the names of the files, in the order they were provided
+	 */
+	protected abstract void load(String[] fileNames);
+
+	/**
+	 * Get a description of the material for log messages.
+	 *
+	 * @return the description
+	 */
+	protected abstract String getDescription();
+
+	protected List<Path> getFiles() {
+		return this.files;
+	}
+
+	/**
+	 * Reload the material if any of the files have changed since they were last loaded.
+	 *
+	 * @return {@literal true} if the material was reloaded
+	 */
+	synchronized boolean reloadIfModified() {
+		List<FileVersion> current = currentVersions(this.files);
+		if (current.equals(this.versions)) {
+			return false;
+		}
+
+		try {
+			load(fileNames(this.files));
+			this.versions = current;
+
+			if (logger.isInfoEnabled()) {
+				logger.info("Reloaded " + getDescription() + " from " + this.files);
+			}
+			return true;
+		} catch (RuntimeException e) {
+			logger.warn("Unable to reload " + getDescription() + " from " + this.files
+					+ "; continuing to use the previously loaded material: " + e.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * Start watching the files of the given material for changes.
+	 *
+	 * @param material the material to watch
+	 */
+	static void watch(ReloadableFileMaterial material) {
+		Watcher.INSTANCE.watch(material);
+	}
+
+	/**
+	 * Stop watching the files of the given material.
+	 *
+	 * @param materials the material to stop watching
+	 */
+	static void unwatch(Collection<? extends ReloadableFileMaterial> materials) {
+		Watcher.INSTANCE.unwatch(materials);
+	}
+
+	static Path normalize(String fileName) {
+		return new File(fileName).toPath().toAbsolutePath().normalize();
+	}
+
+	static String[] fileNames(List<Path> files) {
+		String[] names = new String[files.size()];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = files.get(i).toString();
+		}
+		return names;
+	}
+
+	private boolean isInDirectory(Path directory) {
+		for (Path file : this.files) {
+			if (directory.equals(file.getParent())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static List<FileVersion> currentVersions(List<Path> files) {
+		List<FileVersion> versions = new ArrayList<>(files.size());
+		for (Path file : files) {
+			versions.add(FileVersion.of(file));
+		}
+		return versions;
+	}
+
+	/**
+	 * The modification time and size of a file, used to detect changes.
+	 */
+	private static final class FileVersion {
+		private final long lastModified;
+
+		private final long size;
+
+		private FileVersion(long lastModified, long size) {
+			this.lastModified = lastModified;
+			this.size = size;
+		}
+
+		static FileVersion of(Path file) {
+			try {
+				return new FileVersion(Files.getLastModifiedTime(file).toMillis(), Files.size(file));
+			} catch (IOException e) {
+				return new FileVersion(-1, -1);
+			}
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof FileVersion)) {
+				return false;
+			}
+			FileVersion that = (FileVersion) o;
+			return this.lastModified == that.lastModified && this.size == that.size;
+		}
+
+		@Override
+		public int hashCode() {
+			return Long.hashCode(this.lastModified) * 31 + Long.hashCode(this.size);
+		}
+	}
+
+	/**
+	 * Watches the directories containing the files and reloads the affected material
+	 * when a directory changes. Directories are watched rather than files so that files
+	 * replaced by a rename or a symbolic link swap are detected.
+	 */
+	private static final class Watcher implements Runnable {
+		static final Watcher INSTANCE = new Watcher();
+
+		private final List<ReloadableFileMaterial> materials = new CopyOnWriteArrayList<>();
+
+		private final Set<Path> directories = ConcurrentHashMap.newKeySet();
+
+		private WatchService watchService;
+
+		private boolean unavailable;
+
+		synchronized void watch(ReloadableFileMaterial material) {
+			this.materials.add(material);
+
+			WatchService service = getWatchService();
+			if (service == null) {
+				return;
+			}
+
+			for (Path file : material.files) {
+				Path directory = file.getParent();
+				if (directory == null || this.directories.contains(directory)) {
+					continue;
+				}
+				try {
+					directory.register(service,
+							StandardWatchEventKinds.ENTRY_CREATE,
+							StandardWatchEventKinds.ENTRY_MODIFY,
+							StandardWatchEventKinds.ENTRY_DELETE);
+					this.directories.add(directory);
+				} catch (IOException e) {
+					logger.warn("Unable to watch directory " + directory + " for changes to "
+							+ material.getDescription() + "; changes will be detected when new clients "
+							+ "are created: " + e.getMessage());
+				}
+			}
+		}
+
+		void unwatch(Collection<? extends ReloadableFileMaterial> removed) {
+			this.materials.removeAll(removed);
+		}
+
+		private WatchService getWatchService() {
+			if (this.watchService == null && !this.unavailable) {
+				try {
+					this.watchService = FileSystems.getDefault().newWatchService();
+
+					Thread thread = new Thread(this, "credhub-ssl-file-watcher");
+					thread.setDaemon(true);
+					thread.start();
+				} catch (IOException | UnsupportedOperationException e) {
+					this.unavailable = true;
+					logger.warn("Unable to watch SSL certificate files for changes; "
+							+ "changes will be detected when new clients are created: " + e.getMessage());
+				}
+			}
+			return this.watchService;
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				WatchKey key;
+				try {
+					key = this.watchService.take();
+				} catch (InterruptedException | ClosedWatchServiceException e) {
+					return;
+				}
+
+				key.pollEvents();
+				Path directory = (Path) key.watchable();
+
+				for (ReloadableFileMaterial material : this.materials) {
+					if (material.isInDirectory(directory)) {
+						material.reloadIfModified();
+					}
+				}
+
+				if (!key.reset()) {
+					this.directories.remove(directory);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.credhub.configuration;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.X509KeyManager;
+import java.nio.file.Path;
+import java.security.KeyStore;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Key material built from a PEM-encoded client certificate file and private key file,
+ * shared by every HTTP client that is configured with the same files.
+ *
+ * <p>The {@link #getKeyManager() key manager} handed out to clients presents the most
+ * recently loaded certificate, so that short-lived certificates such as Cloud Foundry
+ * instance identity certificates can rotate without rebuilding clients or connection
+ * pools. Connections that were established with a previous certificate remain usable.
+ */
+class ReloadableKeyMaterial extends ReloadableFileMaterial {
+	private static final Map<List<Path>, ReloadableKeyMaterial> cache = new ConcurrentHashMap<>();
+
+	private final Function<String[], KeyStore.PrivateKeyEntry> loader;
+
+	private final ReloadingX509KeyManager keyManager;
+
+	private ReloadableKeyMaterial(List<Path> files, Function<String[], KeyStore.PrivateKeyEntry> loader) {
+		super(files);
+		this.loader = loader;
+		this.keyManager = new ReloadingX509KeyManager(loader.apply(fileNames(files)));
+	}
+
+	/**
+	 * Get the shared key material for the given certificate and private key files,
+	 * loading it with the provided {@code loader} if no key material exists for the files
+	 * yet.
+	 *
+	 * @param certificateFile the PEM-encoded client certificate file
+	 * @param privateKeyFile the PEM-encoded private key file
+	 * @param loader creates a private key entry from the certificate and private key files
+	 * @return the shared key material
+	 */
+	static ReloadableKeyMaterial forFiles(String certificateFile, String privateKeyFile,
+			Function<String[], KeyStore.PrivateKeyEntry> loader) {
+		List<Path> files = Collections.unmodifiableList(
+				Arrays.asList(normalize(certificateFile), normalize(privateKeyFile)));
+
+		ReloadableKeyMaterial material = cache.get(files);
+		if (material != null) {
+			material.reloadIfModified();
+			return material;
+		}
+
+		return cache.computeIfAbsent(files, key -> {
+			ReloadableKeyMaterial created = new ReloadableKeyMaterial(key, loader);
+			watch(created);
+			return created;
+		});
+	}
+
+	/**
+	 * Remove all shared key material. Clients that were already configured keep the key
+	 * material they were built with.
+	 */
+	static void clearCache() {
+		unwatch(cache.values());
+		cache.clear();
+	}
+
+	/**
+	 * Get a key manager that presents the current client certificate.
+	 *
+	 * @return the key manager
+	 */
+	X509KeyManager getKeyManager() {
+		return this.keyManager;
+	}
+
+	/**
+	 * Get a {@link KeyManagerFactory} whose key manager presents the current client
+	 * certificate.
+	 *
+	 * @return the {@link KeyManagerFactory}
+	 */
+	KeyManagerFactory getKeyManagerFactory() {
+		return this.keyManager.asKeyManagerFactory();
+	}
+
+	@Override
+	protected void load(String[] fileNames) {
+		this.keyManager.update(this.loader.apply(fileNames));
+	}
+
+	@Override
+	protected String getDescription() {
+		return "client certificate and private key";
+	}
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.credhub.configuration;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509TrustManager;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Trust material built from a set of PEM-encoded CA certificate files, shared by every
+ * HTTP client that is configured with the same files.
+ *
+ * <p>The certificate files are parsed once per distinct file set. The
+ * {@link #getTrustManager() trust manager} and {@link #getSSLContext() SSL context}
+ * handed out to clients delegate to the most recently loaded certificates, so that
+ * rotated CA certificates are picked up by existing clients and connection pools
+ * without rebuilding them.
+ */
+class ReloadableTrustMaterial extends ReloadableFileMaterial {
+	private static final Map<List<Path>, ReloadableTrustMaterial> cache = new ConcurrentHashMap<>();
+
+	private final Function<String[], X509TrustManager> loader;
+
+	private final ReloadingX509TrustManager trustManager;
+
+	private final SSLContext sslContext;
+
+	private ReloadableTrustMaterial(List<Path> files, Function<String[], X509TrustManager> loader) {
+		super(files);
+		this.loader = loader;
+		this.trustManager = new ReloadingX509TrustManager(loader.apply(fileNames(files)));
+		this.sslContext = createSSLContext(this.trustManager);
+	}
+
+	/**
+	 * Get the shared trust material for the given certificate files, loading it with the
+	 * provided {@code loader} if no trust material exists for the file set yet.
+	 *
+	 * @param caCertFiles the PEM-encoded CA certificate files
+	 * @param loader creates a trust manager from the certificate files
+	 * @return the shared trust material
+	 */
+	static ReloadableTrustMaterial forFiles(String[] caCertFiles, Function<String[], X509TrustManager> loader) {
+		List<Path> files = new ArrayList<>(caCertFiles.length);
+		for (String fileName : caCertFiles) {
+			files.add(normalize(fileName));
+		}
+		Collections.sort(files);
+
+		ReloadableTrustMaterial material = cache.get(files);
+		if (material != null) {
+			material.reloadIfModified();
+			return material;
+		}
+
+		return cache.computeIfAbsent(Collections.unmodifiableList(files), key -> {
+			ReloadableTrustMaterial created = new ReloadableTrustMaterial(key, loader);
+			watch(created);
+			return created;
+		});
+	}
+
+	/**
+	 * Remove all shared trust material. Clients that were already configured keep the
+	 * trust material they were built with.
+	 */
+	static void clearCache() {
+		unwatch(cache.values());
+		cache.clear();
+	}
+
+	/**
+	 * Get a trust manager that delegates to the current certificates.
+	 *
+	 * @return the trust manager
+	 */
+	X509TrustManager getTrustManager() {
+		return this.trustManager;
+	}
+
+	/**
+	 * Get a {@link TrustManagerFactory} whose trust manager delegates to the current
+	 * certificates.
+	 *
+	 * @return the {@link TrustManagerFactory}
+	 */
+	TrustManagerFactory getTrustManagerFactory() {
+		return this.trustManager.asTrustManagerFactory();
+	}
+
+	/**
+	 * Get an {@link SSLContext} that validates server certificates against the current
+	 * certificates.
+	 *
+	 * @return the {@link SSLContext}
+	 */
+	SSLContext getSSLContext() {
+		return this.sslContext;
+	}
+
+	@Override
+	protected void load(String[] fileNames) {
+		this.trustManager.setDelegate(this.loader.apply(fileNames));
+	}
+
+	@Override
+	protected String getDescription() {
+		return "CA certificates";
+	}
+
+	private static SSLContext createSSLContext(X509TrustManager trustManager) {
+		try {
+			SSLContext sslContext = SSLContext.getInstance("TLS");
+			sslContext.init(null, new X509TrustManager[] { trustManager }, null);
+			return sslContext;
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException("Error creating SSLContext: " + e.getMessage(), e);
+		}
+	}
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.credhub.configuration;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.KeyManagerFactorySpi;
+import javax.net.ssl.ManagerFactoryParameters;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.X509ExtendedKeyManager;
+import java.net.Socket;
+import java.security.KeyStore;
+import java.security.Principal;
+import java.security.PrivateKey;
+import java.security.Provider;
+import java.security.cert.X509Certificate;
+
+/**
+ * An {@link javax.net.ssl.X509KeyManager} that presents a single client certificate and
+ * private key which can be replaced after the key manager has been handed to an
+ * {@link javax.net.ssl.SSLContext} or HTTP client.
+ *
+ * <p>Each certificate and key pair is exposed under a distinct alias, and the previous
+ * pair remains resolvable by its alias, so that a handshake in progress during a
+ * replacement never combines a certificate with the wrong private key.
+ */
+class ReloadingX509KeyManager extends X509ExtendedKeyManager {
+	private static final String ALIAS_PREFIX = "credhub-client-";
+
+	private volatile Entry current;
+
+	private volatile Entry previous;
+
+	private int generation;
+
+	ReloadingX509KeyManager(KeyStore.PrivateKeyEntry entry) {
+		update(entry);
+	}
+
+	synchronized void update(KeyStore.PrivateKeyEntry entry) {
+		X509Certificate[] chain = new X509Certificate[entry.getCertificateChain().length];
+		for (int i = 0; i < chain.length; i++) {
+			chain[i] = (X509Certificate) entry.getCertificateChain()[i];
+		}
+
+		this.previous = this.current;
+		this.current = new Entry(ALIAS_PREFIX + this.generation++, chain, entry.getPrivateKey());
+	}
+
+	/**
+	 * Create a {@link KeyManagerFactory} that returns this key manager, for clients that
+	 * must be configured with a factory.
+	 *
+	 * @return the {@link KeyManagerFactory}
+	 */
+	KeyManagerFactory asKeyManagerFactory() {
+		return new SingleKeyManagerFactory(this);
+	}
+
+	@Override
+	public String[] getClientAliases(String keyType, Principal[] issuers) {
+		Entry entry = this.current;
+		return entry.matches(keyType) ? new String[] { entry.alias } : null;
+	}
+
+	@Override
+	public String chooseClientAlias(String[] keyTypes, Principal[] issuers, Socket socket) {
+		return chooseAlias(keyTypes);
+	}
+
+	@Override
+	public String chooseEngineClientAlias(String[] keyTypes, Principal[] issuers, SSLEngine engine) {
+		return chooseAlias(keyTypes);
+	}
+
+	@Override
+	public String[] getServerAliases(String keyType, Principal[] issuers) {
+		return null;
+	}
+
+	@Override
+	public String chooseServerAlias(String keyType, Principal[] issuers, Socket socket) {
+		return null;
+	}
+
+	@Override
+	public String chooseEngineServerAlias(String keyType, Principal[] issuers, SSLEngine engine) {
+		return null;
+	}
+
+	@Override
+	public X509Certificate[] getCertificateChain(String alias) {
+		Entry entry = find(alias);
+		return entry == null ? null : entry.chain.clone();
+	}
+
+	@Override
+	public PrivateKey getPrivateKey(String alias) {
+		Entry entry = find(alias);
+		return entry == null ? null : entry.privateKey;
+	}
+
+	private String chooseAlias(String[] keyTypes) {
+		Entry entry = this.current;
+		if (keyTypes != null) {
+			for (String keyType : keyTypes) {
+				if (entry.matches(keyType)) {
+					return entry.alias;
+				}
+			}
+		}
+		return null;
+	}
+
+	private Entry find(String alias) {
+		Entry entry = this.current;
+		if (entry.alias.equals(alias)) {
+			return entry;
+		}
+		entry = this.previous;
+		return entry != null && entry.alias.equals(alias) ? entry : null;
+	}
+
+	private static final class Entry {
+		private final String alias;
+
+		private final X509Certificate[] chain;
+
+		private final PrivateKey privateKey;
+
+		Entry(String alias, X509Certificate[] chain, PrivateKey privateKey) {
+			this.alias = alias;
+			this.chain = chain;
+			this.privateKey = privateKey;
+		}
+
+		boolean matches(String keyType) {
+			String algorithm = this.privateKey.getAlgorithm();
+			return keyType != null && (keyType.equals(algorithm) || keyType.startsWith(algorithm + "_"));
+		}
+	}
+
+	private static final class SingleKeyManagerFactory extends KeyManagerFactory {
+		private static final Provider PROVIDER = new Provider("SpringCredHub", 1.0,
+				"Spring CredHub reloading key manager") {
+			private static final long serialVersionUID = 1L;
+		};
+
+		SingleKeyManagerFactory(KeyManager keyManager) {
+			super(new KeyManagerFactorySpi() {
+				@Override
+				protected void engineInit(KeyStore keyStore, char[] password) {
+				}
+
+				@Override
+				protected void engineInit(ManagerFactoryParameters parameters) {
+				}
+
+				@Override
+				protected KeyManager[] engineGetKeyManagers() {
+					return new KeyManager[] { keyManager };
+				}
+			}, PROVIDER, "Reloading");
+		}
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.credhub.configuration;
+
+import javax.net.ssl.ManagerFactoryParameters;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.TrustManagerFactorySpi;
+import javax.net.ssl.X509ExtendedTrustManager;
+import javax.net.ssl.X509TrustManager;
+import java.net.Socket;
+import java.security.KeyStore;
+import java.security.Provider;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+
+/**
+ * An {@link X509TrustManager} that delegates to a replaceable trust manager, allowing
+ * the trusted certificates to change after the trust manager has been handed to an
+ * {@link javax.net.ssl.SSLContext} or HTTP client.
+ */
+class ReloadingX509TrustManager extends X509ExtendedTrustManager {
+	private volatile X509TrustManager delegate;
+
+	ReloadingX509TrustManager(X509TrustManager delegate) {
+		this.delegate = delegate;
+	}
+
+	void setDelegate(X509TrustManager delegate) {
+		this.delegate = delegate;
+	}
+
+	/**
+	 * Create a {@link TrustManagerFactory} that returns this trust manager, for clients
+	 * that must be configured with a factory.
+	 *
+	 * @return the {@link TrustManagerFactory}
+	 */
+	TrustManagerFactory asTrustManagerFactory() {
+		return new SingleTrustManagerFactory(this);
+	}
+
+	@Override
+	public void checkClientTrusted(X509Certificate[] chain, String authType) throws CertificateException {
+		this.delegate.checkClientTrusted(chain, authType);
+	}
+
+	@Override
+	public void checkServerTrusted(X509Certificate[] chain, String authType) throws CertificateException {
+		this.delegate.checkServerTrusted(chain, authType);
+	}
+
+	@Override
+	public void checkClientTrusted(X509Certificate[] chain, String authType, Socket socket)
+			throws CertificateException {
+		X509TrustManager current = this.delegate;
+		if (current instanceof X509ExtendedTrustManager) {
+			((X509ExtendedTrustManager) current).checkClientTrusted(chain, authType, socket);
+		} else {
+			current.checkClientTrusted(chain, authType);
+		}
+	}
+
+	@Override
+	public void checkServerTrusted(X509Certificate[] chain, String authType, Socket socket)
+			throws CertificateException {
+		X509TrustManager current = this.delegate;
+		if (current instanceof X509ExtendedTrustManager) {
+			((X509ExtendedTrustManager) current).checkServerTrusted(chain, authType, socket);
+		} else {
+			current.checkServerTrusted(chain, authType);
+		}
+	}
+
+	@Override
+	public void checkClientTrusted(X509Certificate[] chain, String authType, SSLEngine engine)
+			throws CertificateException {
+		X509TrustManager current = this.delegate;
+		if (current instanceof X509ExtendedTrustManager) {
+			((X509ExtendedTrustManager) current).checkClientTrusted(chain, authType, engine);
+		} else {
+			current.checkClientTrusted(chain, authType);
+		}
+	}
+
+	@Override
+	public void checkServerTrusted(X509Certificate[] chain, String authType, SSLEngine engine)
+			throws CertificateException {
+		X509TrustManager current = this.delegate;
+		if (current instanceof X509ExtendedTrustManager) {
+			((X509ExtendedTrustManager) current).checkServerTrusted(chain, authType, engine);
+		} else {
+			current.checkServerTrusted(chain, authType);
+		}
+	}
+
+	@Override
+	public X509Certificate[] getAcceptedIssuers() {
+		return this.delegate.getAcceptedIssuers();
+	}
+
+	private static final class SingleTrustManagerFactory extends TrustManagerFactory {
+		private static final Provider PROVIDER = new Provider("SpringCredHub", 1.0,
+				"Spring CredHub reloading trust manager") {
+			private static final long serialVersionUID = 1L;
+		};
+
+		SingleTrustManagerFactory(TrustManager trustManager) {
+			super(new TrustManagerFactorySpi() {
+				@Override
+				protected void engineInit(KeyStore keyStore) {
+				}
+
+				@Override
+				protected void engineInit(ManagerFactoryParameters parameters) {
+				}
+
+				@Override
+				protected TrustManager[] engineGetTrustManagers() {
+					return new TrustManager[] { trustManager };
+				}
+			}, PROVIDER, "Reloading");
+		}
+	}
+}
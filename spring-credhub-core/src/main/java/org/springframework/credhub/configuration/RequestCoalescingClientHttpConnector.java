@@ -0,0 +1,232 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.configuration;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.reactivestreams.Publisher;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseCookie;
+import org.springframework.http.client.reactive.AbstractClientHttpRequest;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.http.client.reactive.ClientHttpResponse;
+import org.springframework.util.Assert;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * A {@link ClientHttpConnector} that coalesces concurrent identical GET requests into a
+ * single HTTP exchange. Requests are identical when they have the same URI,
+ * {@literal Authorization} header, and cookies. Subscribers that make a request while an
+ * identical exchange is in flight share a single {@link Mono} and each receive a buffered
+ * copy of the response.
+ *
+ * <p>Headers such as {@literal Authorization} are added by exchange filter functions
+ * before the connector is called and are only visible through the request callback, so
+ * the callback is first applied to a {@link RecordingClientHttpRequest} to compute the
+ * key. Requests with a body are not coalesced.
+ */
+class RequestCoalescingClientHttpConnector implements ClientHttpConnector {
+	private static final DataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+
+	private final ClientHttpConnector delegate;
+
+	private final Map<String, Mono<BufferedClientHttpResponse>> inFlight = new ConcurrentHashMap<>();
+
+	RequestCoalescingClientHttpConnector(ClientHttpConnector delegate) {
+		Assert.notNull(delegate, "delegate must not be null");
+
+		this.delegate = delegate;
+	}
+
+	@Override
+	public Mono<ClientHttpResponse> connect(HttpMethod method, URI uri,
+											Function<? super ClientHttpRequest, Mono<Void>> requestCallback) {
+		if (!HttpMethod.GET.equals(method)) {
+			return delegate.connect(method, uri, requestCallback);
+		}
+
+		return Mono.defer(() -> {
+			RecordingClientHttpRequest recorded = new RecordingClientHttpRequest(method, uri);
+
+			return requestCallback.apply(recorded).then(Mono.defer(() -> {
+				if (recorded.hasBody()) {
+					return delegate.connect(method, uri, requestCallback);
+				}
+
+				return inFlight.computeIfAbsent(requestKey(recorded), key ->
+						delegate.connect(method, uri, requestCallback)
+								.flatMap(RequestCoalescingClientHttpConnector::buffer)
+								.doFinally(signal -> inFlight.remove(key))
+								.cache())
+						.map(BufferedClientHttpResponse::copy);
+			}));
+		});
+	}
+
+	int inFlightCount() {
+		return inFlight.size();
+	}
+
+	private static String requestKey(RecordingClientHttpRequest request) {
+		StringBuilder key = new StringBuilder(request.getURI().toString());
+		String authorization = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+		if (authorization != null) {
+			key.append('\n').append(authorization);
+		}
+		request.getHeaders().getOrDefault(HttpHeaders.COOKIE, Collections.emptyList())
+				.forEach(cookie -> key.append('\n').append(cookie));
+		request.getCookies().values().forEach(cookies ->
+				cookies.forEach(cookie -> key.append('\n').append(cookie)));
+		return key.toString();
+	}
+
+	private static Mono<BufferedClientHttpResponse> buffer(ClientHttpResponse response) {
+		return DataBufferUtils.join(response.getBody())
+				.map(dataBuffer -> {
+					byte[] bytes = new byte[dataBuffer.readableByteCount()];
+					dataBuffer.read(bytes);
+					DataBufferUtils.release(dataBuffer);
+					return bytes;
+				})
+				.defaultIfEmpty(new byte[0])
+				.map(body -> new BufferedClientHttpResponse(response.getRawStatusCode(),
+						response.getHeaders(), response.getCookies(), body));
+	}
+
+	/**
+	 * A {@link ClientHttpRequest} that records the headers and cookies set by a request
+	 * callback without sending anything.
+	 */
+	private static final class RecordingClientHttpRequest extends AbstractClientHttpRequest {
+		private final HttpMethod method;
+		private final URI uri;
+		private boolean body;
+
+		private RecordingClientHttpRequest(HttpMethod method, URI uri) {
+			this.method = method;
+			this.uri = uri;
+		}
+
+		private boolean hasBody() {
+			return body;
+		}
+
+		@Override
+		public HttpMethod getMethod() {
+			return method;
+		}
+
+		@Override
+		public URI getURI() {
+			return uri;
+		}
+
+		@Override
+		public DataBufferFactory bufferFactory() {
+			return bufferFactory;
+		}
+
+		@Override
+		public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+			this.body = true;
+			return doCommit();
+		}
+
+		@Override
+		public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+			this.body = true;
+			return doCommit();
+		}
+
+		@Override
+		public Mono<Void> setComplete() {
+			return doCommit();
+		}
+
+		@Override
+		protected void applyHeaders() {
+		}
+
+		@Override
+		protected void applyCookies() {
+		}
+	}
+
+	/**
+	 * A {@link ClientHttpResponse} whose status, headers, cookies, and body are held in
+	 * memory so that it can be read by more than one subscriber.
+	 */
+	private static final class BufferedClientHttpResponse implements ClientHttpResponse {
+		private final int statusCode;
+		private final HttpHeaders headers;
+		private final MultiValueMap<String, ResponseCookie> cookies;
+		private final byte[] body;
+
+		private BufferedClientHttpResponse(int statusCode, HttpHeaders headers,
+										   MultiValueMap<String, ResponseCookie> cookies, byte[] body) {
+			this.statusCode = statusCode;
+			this.headers = new HttpHeaders();
+			this.headers.putAll(headers);
+			this.cookies = new LinkedMultiValueMap<>(cookies);
+			this.body = body;
+		}
+
+		private BufferedClientHttpResponse copy() {
+			return new BufferedClientHttpResponse(statusCode, headers, cookies, body);
+		}
+
+		@Override
+		public HttpStatus getStatusCode() {
+			return HttpStatus.valueOf(statusCode);
+		}
+
+		@Override
+		public int getRawStatusCode() {
+			return statusCode;
+		}
+
+		@Override
+		public MultiValueMap<String, ResponseCookie> getCookies() {
+			return cookies;
+		}
+
+		@Override
+		public HttpHeaders getHeaders() {
+			return headers;
+		}
+
+		@Override
+		public Flux<DataBuffer> getBody() {
+			return Flux.defer(() -> Flux.just(bufferFactory.wrap(body)));
+		}
+	}
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.configuration;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.util.Assert;
+import org.springframework.util.StreamUtils;
+
+/**
+ * A {@link ClientHttpRequestInterceptor} that coalesces concurrent identical GET requests
+ * into a single HTTP exchange. Requests are identical when they have the same URI,
+ * {@literal Authorization} header, and {@literal Cookie} headers, as with
+ * {@link RequestCoalescingClientHttpConnector}. The response of the shared exchange is buffered and
+ * a copy is returned to every caller that was waiting on it. A caller waits for the
+ * shared exchange no longer than the configured timeout.
+ */
+class RequestCoalescingInterceptor implements ClientHttpRequestInterceptor {
+	private final Map<String, CompletableFuture<BufferedClientHttpResponse>> inFlight = new ConcurrentHashMap<>();
+
+	private final Duration waitTimeout;
+
+	/**
+	 * Create a new {@link RequestCoalescingInterceptor}.
+	 *
+	 * @param waitTimeout the maximum time to wait for a shared exchange; must not be
+	 * {@literal null}
+	 */
+	RequestCoalescingInterceptor(Duration waitTimeout) {
+		Assert.notNull(waitTimeout, "waitTimeout must not be null");
+		this.waitTimeout = waitTimeout;
+	}
+
+	@Override
+	public ClientHttpResponse intercept(HttpRequest request, byte[] body,
+										ClientHttpRequestExecution execution) throws IOException {
+		if (!HttpMethod.GET.equals(request.getMethod())) {
+			return execution.execute(request, body);
+		}
+
+		String key = requestKey(request);
+		CompletableFuture<BufferedClientHttpResponse> exchange = new CompletableFuture<>();
+		CompletableFuture<BufferedClientHttpResponse> existing = inFlight.putIfAbsent(key, exchange);
+		if (existing != null) {
+			return await(existing, this.waitTimeout).copy();
+		}
+
+		try (ClientHttpResponse response = execution.execute(request, body)) {
+			BufferedClientHttpResponse buffered = new BufferedClientHttpResponse(response);
+			exchange.complete(buffered);
+			return buffered.copy();
+		}
+		catch (Throwable e) {
+			exchange.completeExceptionally(e);
+			throw e;
+		}
+		finally {
+			inFlight.remove(key, exchange);
+		}
+	}
+
+	int inFlightCount() {
+		return inFlight.size();
+	}
+
+	private static String requestKey(HttpRequest request) {
+		StringBuilder key = new StringBuilder(request.getURI().toString());
+		String authorization = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+		if (authorization != null) {
+			key.append('\n').append(authorization);
+		}
+		request.getHeaders().getOrDefault(HttpHeaders.COOKIE, Collections.emptyList())
+				.forEach(cookie -> key.append('\n').append(cookie));
+		return key.toString();
+	}
+
+	private static BufferedClientHttpResponse await(CompletableFuture<BufferedClientHttpResponse> exchange,
+													Duration timeout) throws IOException {
+		try {
+			return exchange.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a coalesced request");
+		}
+		catch (TimeoutException e) {
+			throw new SocketTimeoutException("Timed out after " + timeout.toMillis()
+					+ "ms waiting for a coalesced request");
+		}
+		catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IOException(cause);
+		}
+	}
+
+	/**
+	 * A {@link ClientHttpResponse} whose status, headers, and body are held in memory so
+	 * that it can be read by more than one caller.
+	 */
+	private static final class BufferedClientHttpResponse implements ClientHttpResponse {
+		private final int statusCode;
+		private final String statusText;
+		private final HttpHeaders headers;
+		private final byte[] body;
+
+		private BufferedClientHttpResponse(ClientHttpResponse response) throws IOException {
+			this(response.getRawStatusCode(), response.getStatusText(), response.getHeaders(),
+					StreamUtils.copyToByteArray(response.getBody()));
+		}
+
+		private BufferedClientHttpResponse(int statusCode, String statusText, HttpHeaders headers, byte[] body) {
+			this.statusCode = statusCode;
+			this.statusText = statusText;
+			this.headers = new HttpHeaders();
+			this.headers.putAll(headers);
+			this.body = body;
+		}
+
+		private BufferedClientHttpResponse copy() {
+			return new BufferedClientHttpResponse(statusCode, statusText, headers, body);
+		}
+
+		@Override
+		public HttpStatus getStatusCode() {
+			return HttpStatus.valueOf(statusCode);
+		}
+
+		@Override
+		public int getRawStatusCode() {
+			return statusCode;
+		}
+
+		@Override
+		public String getStatusText() {
+			return statusText;
+		}
+
+		@Override
+		public HttpHeaders getHeaders() {
+			return headers;
+		}
+
+		@Override
+		public InputStream getBody() {
+			return new ByteArrayInputStream(body);
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
@@ -16,32 +16,70 @@
 
 package org.springframework.credhub.configuration;
 
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509KeyManager;
 import javax.net.ssl.X509TrustManager;
 import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
 import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
 import java.security.cert.CertificateException;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.PKCS8EncodedKeySpec;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.credhub.support.ClientOptions;
+import org.springframework.util.Assert;
 
 /**
  * Utility methods for building custom trust material for HTTP connections.
  *
+ * <p>Trust material built from CA certificate files is cached and shared by all HTTP
+ * clients configured with the same files, and is reloaded when the files change. See
+ * {@link ReloadableTrustMaterial}. Client certificates and private keys used for mutual
+ * TLS authentication are cached and reloaded in the same way. See
+ * {@link ReloadableKeyMaterial}.
+ *
  * @author Scott Frederick
  */
 class SslCertificateUtils {
+	private static final Pattern PRIVATE_KEY_PATTERN = Pattern.compile(
+			"-----BEGIN (RSA )?PRIVATE KEY-----([^-]+)-----END (?:RSA )?PRIVATE KEY-----");
+
+	/**
+	 * DER encoding of the PKCS#8 version and the {@code rsaEncryption} algorithm
+	 * identifier.
+	 */
+	private static final byte[] PKCS8_RSA_VERSION_AND_ALGORITHM = {
+			0x02, 0x01, 0x00,
+			0x30, 0x0d, 0x06, 0x09, 0x2a, (byte) 0x86, 0x48, (byte) 0x86, (byte) 0xf7, 0x0d, 0x01, 0x01, 0x01, 0x05, 0x00
+	};
+
 	X509TrustManager getDefaultX509TrustManager() {
 		try {
 			TrustManagerFactory trustManagerFactory =
@@ -65,11 +103,38 @@ class SslCertificateUtils {
 	}
 
 	SSLContext getSSLContext(String[] caCertFiles) {
+		return getTrustMaterial(caCertFiles).getSSLContext();
+	}
+
+	TrustManagerFactory createTrustManagerFactory(String[] caCertFiles) {
+		return getTrustMaterial(caCertFiles).getTrustManagerFactory();
+	}
+
+	X509TrustManager createTrustManager(String[] caCertFiles) {
+		return getTrustMaterial(caCertFiles).getTrustManager();
+	}
+
+	private ReloadableTrustMaterial getTrustMaterial(String[] caCertFiles) {
+		return ReloadableTrustMaterial.forFiles(caCertFiles, this::loadTrustManager);
+	}
+
+	/**
+	 * Create an {@link SSLContext} that presents the configured client certificate, if
+	 * any, and validates server certificates against the configured CA certificates or
+	 * the default trust store.
+	 */
+	SSLContext getSSLContext(ClientOptions options) {
+		if (options.getClientCertificateFile() == null) {
+			return getSSLContext(options.getCaCertFiles());
+		}
+
 		try {
-			TrustManagerFactory trustManagerFactory = createTrustManagerFactory(caCertFiles);
+			KeyManager[] keyManagers = { createKeyManager(options) };
+			TrustManager[] trustManagers = options.getCaCertFiles() == null ? null
+					: new TrustManager[] { createTrustManager(options.getCaCertFiles()) };
 
 			SSLContext sslContext = SSLContext.getInstance("TLS");
-			sslContext.init(null, trustManagerFactory.getTrustManagers(), null);
+			sslContext.init(keyManagers, trustManagers, null);
 
 			return sslContext;
 		} catch (GeneralSecurityException e) {
@@ -77,7 +142,23 @@ class SslCertificateUtils {
 		}
 	}
 
-	TrustManagerFactory createTrustManagerFactory(String[] caCertFiles) {
+	KeyManagerFactory createKeyManagerFactory(ClientOptions options) {
+		return getKeyMaterial(options).getKeyManagerFactory();
+	}
+
+	X509KeyManager createKeyManager(ClientOptions options) {
+		return getKeyMaterial(options).getKeyManager();
+	}
+
+	private ReloadableKeyMaterial getKeyMaterial(ClientOptions options) {
+		Assert.notNull(options.getClientPrivateKeyFile(),
+				"A client private key file is required when a client certificate file is configured");
+
+		return ReloadableKeyMaterial.forFiles(options.getClientCertificateFile(),
+				options.getClientPrivateKeyFile(), this::loadPrivateKeyEntry);
+	}
+
+	X509TrustManager loadTrustManager(String[] caCertFiles) {
 		try {
 			KeyStore trustStore = loadCertificateStore(caCertFiles);
 
@@ -85,22 +166,127 @@ class SslCertificateUtils {
 					.getInstance(TrustManagerFactory.getDefaultAlgorithm());
 			trustManagerFactory.init(trustStore);
 
-			return trustManagerFactory;
+			TrustManager[] trustManagers = trustManagerFactory.getTrustManagers();
+
+			if (trustManagers.length != 1 || !(trustManagers[0] instanceof X509TrustManager)) {
+				throw new IllegalStateException("Unexpected default trust managers: "
+						+ Arrays.toString(trustManagers));
+			}
+
+			return (X509TrustManager) trustManagers[0];
 		} catch (GeneralSecurityException e) {
-			throw new IllegalStateException("Error creating KeyManagerFactory: " + e.getMessage(), e);
+			throw new IllegalStateException("Error creating TrustManagerFactory: " + e.getMessage(), e);
 		}
 	}
 
-	X509TrustManager createTrustManager(String[] caCertFiles) {
-		TrustManager[] trustManagers = createTrustManagerFactory(caCertFiles)
-				.getTrustManagers();
+	KeyStore.PrivateKeyEntry loadPrivateKeyEntry(String[] certificateAndKeyFiles) {
+		X509Certificate[] chain = readCertsFromFiles(new String[] { certificateAndKeyFiles[0] });
+		PrivateKey privateKey = readPrivateKey(certificateAndKeyFiles[1]);
 
-		if (trustManagers.length != 1 || !(trustManagers[0] instanceof X509TrustManager)) {
-			throw new IllegalStateException("Unexpected default trust managers: "
-					+ Arrays.toString(trustManagers));
+		if (chain.length == 0 || !isKeyPair(privateKey, chain[0].getPublicKey())) {
+			throw new IllegalStateException("The private key in file " + certificateAndKeyFiles[1]
+					+ " does not match the certificate in file " + certificateAndKeyFiles[0]);
 		}
 
-		return (X509TrustManager) trustManagers[0];
+		return new KeyStore.PrivateKeyEntry(privateKey, chain);
+	}
+
+	/**
+	 * Verify that the private key matches the public key of the certificate, so that a
+	 * certificate and key that are only partially rotated are never used together.
+	 */
+	private static boolean isKeyPair(PrivateKey privateKey, PublicKey publicKey) {
+		String algorithm = "EC".equals(privateKey.getAlgorithm()) ? "SHA256withECDSA" : "SHA256withRSA";
+		byte[] data = "spring-credhub".getBytes(StandardCharsets.US_ASCII);
+
+		try {
+			Signature signer = Signature.getInstance(algorithm);
+			signer.initSign(privateKey);
+			signer.update(data);
+			byte[] signature = signer.sign();
+
+			Signature verifier = Signature.getInstance(algorithm);
+			verifier.initVerify(publicKey);
+			verifier.update(data);
+			return verifier.verify(signature);
+		} catch (GeneralSecurityException e) {
+			return false;
+		}
+	}
+
+	private PrivateKey readPrivateKey(String fileName) {
+		String pem;
+		try {
+			pem = new String(Files.readAllBytes(Paths.get(fileName)), StandardCharsets.US_ASCII);
+		} catch (NoSuchFileException e) {
+			throw new IllegalArgumentException("Private key file not found: " + fileName, e);
+		} catch (IOException e) {
+			throw new IllegalStateException("Error reading private key from file " + fileName
+					+ ": " + e.getMessage(), e);
+		}
+
+		Matcher matcher = PRIVATE_KEY_PATTERN.matcher(pem);
+		if (!matcher.find()) {
+			throw new IllegalStateException("No unencrypted PKCS#1 RSA or PKCS#8 private key found in file "
+					+ fileName);
+		}
+
+		boolean pkcs1 = matcher.group(1) != null;
+		byte[] encoded = Base64.getMimeDecoder().decode(matcher.group(2));
+		if (pkcs1) {
+			encoded = wrapRsaPkcs1Key(encoded);
+		}
+
+		for (String algorithm : pkcs1 ? new String[] { "RSA" } : new String[] { "RSA", "EC" }) {
+			try {
+				return KeyFactory.getInstance(algorithm).generatePrivate(new PKCS8EncodedKeySpec(encoded));
+			} catch (InvalidKeySpecException e) {
+				// try the next algorithm
+			} catch (GeneralSecurityException e) {
+				throw new IllegalStateException("Error reading private key from file " + fileName
+						+ ": " + e.getMessage(), e);
+			}
+		}
+
+		throw new IllegalStateException("Unsupported private key algorithm in file " + fileName);
+	}
+
+	/**
+	 * Wrap a PKCS#1 {@code RSAPrivateKey} structure in a PKCS#8 {@code PrivateKeyInfo}
+	 * structure, which is the only private key encoding the JDK can read.
+	 */
+	private static byte[] wrapRsaPkcs1Key(byte[] pkcs1) {
+		ByteArrayOutputStream privateKey = new ByteArrayOutputStream();
+		privateKey.write(0x04);
+		writeDerLength(privateKey, pkcs1.length);
+		privateKey.write(pkcs1, 0, pkcs1.length);
+
+		int contentLength = PKCS8_RSA_VERSION_AND_ALGORITHM.length + privateKey.size();
+
+		ByteArrayOutputStream privateKeyInfo = new ByteArrayOutputStream();
+		privateKeyInfo.write(0x30);
+		writeDerLength(privateKeyInfo, contentLength);
+		privateKeyInfo.write(PKCS8_RSA_VERSION_AND_ALGORITHM, 0, PKCS8_RSA_VERSION_AND_ALGORITHM.length);
+		privateKeyInfo.write(privateKey.toByteArray(), 0, privateKey.size());
+
+		return privateKeyInfo.toByteArray();
+	}
+
+	private static void writeDerLength(ByteArrayOutputStream out, int length) {
+		if (length < 0x80) {
+			out.write(length);
+			return;
+		}
+
+		int bytes = 0;
+		for (int remaining = length; remaining > 0; remaining >>>= 8) {
+			bytes++;
+		}
+
+		out.write(0x80 | bytes);
+		for (int i = bytes - 1; i >= 0; i--) {
+			out.write(length >>> (8 * i));
+		}
 	}
 
 	private KeyStore loadCertificateStore(String[] caCertFiles) {
@@ -120,8 +306,12 @@ class SslCertificateUtils {
 	private X509Certificate[] readCertsFromFiles(String[] caCertFiles) {
 		List<X509Certificate> certs = new ArrayList<>();
 		for (String fileName : caCertFiles) {
-			BufferedInputStream bufferedStream = getFileStream(fileName);
-			certs.addAll(generateCertificates(fileName, bufferedStream));
+			try (InputStream inputStream = getFileStream(fileName)) {
+				certs.addAll(generateCertificates(fileName, inputStream));
+			} catch (IOException e) {
+				throw new IllegalStateException("Error reading certificate from file "
+						+ fileName + ": " + e.getMessage(), e);
+			}
 		}
 		return certs.toArray(new X509Certificate[0]);
 	}
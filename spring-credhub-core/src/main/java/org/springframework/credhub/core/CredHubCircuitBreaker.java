@@ -0,0 +1,190 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.core;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+import org.springframework.util.Assert;
+
+/**
+ * A circuit breaker for one group of CredHub operations.
+ *
+ * <p>The outcomes of the most recent calls are kept in a sliding window. The circuit
+ * breaker opens when the rate of failed or slow calls in the window reaches its
+ * threshold. Once the open state has lasted long enough, the next call first probes
+ * CredHub; the circuit breaker closes if the probe succeeds and opens again if it fails.
+ */
+class CredHubCircuitBreaker {
+	enum Permission {
+		PERMITTED, PROBE, REJECTED
+	}
+
+	private final String group;
+	private final double failureRateThreshold;
+	private final double slowCallRateThreshold;
+	private final long slowCallDurationNanos;
+	private final int minimumNumberOfCalls;
+	private final long waitDurationInOpenStateNanos;
+	private final List<CredHubCircuitBreakerListener> listeners;
+	private final LongSupplier nanoTime;
+
+	private final boolean[] failures;
+	private final boolean[] slowCalls;
+	private int index;
+	private int numberOfCalls;
+	private int numberOfFailures;
+	private int numberOfSlowCalls;
+
+	private CredHubCircuitBreakerState state = CredHubCircuitBreakerState.CLOSED;
+	private long openedAt;
+
+	CredHubCircuitBreaker(String group, double failureRateThreshold, double slowCallRateThreshold,
+						  Duration slowCallDurationThreshold, int slidingWindowSize, int minimumNumberOfCalls,
+						  Duration waitDurationInOpenState, List<CredHubCircuitBreakerListener> listeners,
+						  LongSupplier nanoTime) {
+		Assert.isTrue(slidingWindowSize > 0, "slidingWindowSize must be greater than 0");
+		Assert.notNull(slowCallDurationThreshold, "slowCallDurationThreshold must not be null");
+		Assert.notNull(waitDurationInOpenState, "waitDurationInOpenState must not be null");
+
+		this.group = group;
+		this.failureRateThreshold = failureRateThreshold;
+		this.slowCallRateThreshold = slowCallRateThreshold;
+		this.slowCallDurationNanos = slowCallDurationThreshold.toNanos();
+		this.minimumNumberOfCalls = Math.max(1, Math.min(minimumNumberOfCalls, slidingWindowSize));
+		this.waitDurationInOpenStateNanos = waitDurationInOpenState.toNanos();
+		this.listeners = listeners;
+		this.nanoTime = nanoTime;
+		this.failures = new boolean[slidingWindowSize];
+		this.slowCalls = new boolean[slidingWindowSize];
+	}
+
+	String getGroup() {
+		return this.group;
+	}
+
+	synchronized CredHubCircuitBreakerState getState() {
+		return this.state;
+	}
+
+	long now() {
+		return nanoTime.getAsLong();
+	}
+
+	/**
+	 * Decide whether a call may be made. When {@link Permission#PROBE} is returned, the
+	 * caller must probe CredHub and report the result with {@link #onProbeResult(boolean)}
+	 * before making the call.
+	 *
+	 * @return the permission for the call
+	 */
+	Permission tryAcquire() {
+		CredHubCircuitBreakerEvent event;
+		synchronized (this) {
+			if (state == CredHubCircuitBreakerState.CLOSED) {
+				return Permission.PERMITTED;
+			}
+			if (state == CredHubCircuitBreakerState.HALF_OPEN
+					|| nanoTime.getAsLong() - openedAt < waitDurationInOpenStateNanos) {
+				return Permission.REJECTED;
+			}
+			event = transitionTo(CredHubCircuitBreakerState.HALF_OPEN);
+		}
+		publish(event);
+		return Permission.PROBE;
+	}
+
+	void onProbeResult(boolean successful) {
+		CredHubCircuitBreakerEvent event;
+		synchronized (this) {
+			if (state != CredHubCircuitBreakerState.HALF_OPEN) {
+				return;
+			}
+			event = transitionTo(successful ? CredHubCircuitBreakerState.CLOSED : CredHubCircuitBreakerState.OPEN);
+		}
+		publish(event);
+	}
+
+	/**
+	 * Record the outcome of a permitted call.
+	 *
+	 * @param startTime the value of {@link #now()} when the call was started
+	 * @param failed whether the call failed
+	 */
+	void onResult(long startTime, boolean failed) {
+		boolean slow = nanoTime.getAsLong() - startTime >= slowCallDurationNanos;
+
+		CredHubCircuitBreakerEvent event;
+		synchronized (this) {
+			if (state != CredHubCircuitBreakerState.CLOSED) {
+				return;
+			}
+			record(failed, slow);
+			if (numberOfCalls < minimumNumberOfCalls
+					|| ((double) numberOfFailures / numberOfCalls < failureRateThreshold
+					&& (double) numberOfSlowCalls / numberOfCalls < slowCallRateThreshold)) {
+				return;
+			}
+			event = transitionTo(CredHubCircuitBreakerState.OPEN);
+		}
+		publish(event);
+	}
+
+	private void record(boolean failed, boolean slow) {
+		if (numberOfCalls == failures.length) {
+			numberOfFailures -= failures[index] ? 1 : 0;
+			numberOfSlowCalls -= slowCalls[index] ? 1 : 0;
+		}
+		else {
+			numberOfCalls++;
+		}
+		failures[index] = failed;
+		slowCalls[index] = slow;
+		numberOfFailures += failed ? 1 : 0;
+		numberOfSlowCalls += slow ? 1 : 0;
+		index = (index + 1) % failures.length;
+	}
+
+	private CredHubCircuitBreakerEvent transitionTo(CredHubCircuitBreakerState newState) {
+		CredHubCircuitBreakerState previousState = this.state;
+		this.state = newState;
+		if (newState == CredHubCircuitBreakerState.OPEN) {
+			this.openedAt = nanoTime.getAsLong();
+		}
+		if (newState == CredHubCircuitBreakerState.CLOSED) {
+			resetWindow();
+		}
+		return new CredHubCircuitBreakerEvent(group, previousState, newState);
+	}
+
+	private void resetWindow() {
+		Arrays.fill(failures, false);
+		Arrays.fill(slowCalls, false);
+		index = 0;
+		numberOfCalls = 0;
+		numberOfFailures = 0;
+		numberOfSlowCalls = 0;
+	}
+
+	private void publish(CredHubCircuitBreakerEvent event) {
+		for (CredHubCircuitBreakerListener listener : listeners) {
+			listener.onStateTransition(event);
+		}
+	}
+}
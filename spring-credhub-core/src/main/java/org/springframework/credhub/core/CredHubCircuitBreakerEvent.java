@@ -0,0 +1,68 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.core;
+
+/**
+ * An event that signals that the state of a client-side circuit breaker for a group of
+ * CredHub operations has changed.
+ */
+public class CredHubCircuitBreakerEvent {
+	private final String group;
+	private final CredHubCircuitBreakerState previousState;
+	private final CredHubCircuitBreakerState state;
+
+	/**
+	 * Create a new {@link CredHubCircuitBreakerEvent}.
+	 *
+	 * @param group the name of the group of operations
+	 * @param previousState the state before the change
+	 * @param state the state after the change
+	 */
+	public CredHubCircuitBreakerEvent(String group, CredHubCircuitBreakerState previousState,
+									  CredHubCircuitBreakerState state) {
+		this.group = group;
+		this.previousState = previousState;
+		this.state = state;
+	}
+
+	/**
+	 * Get the name of the group of operations guarded by the circuit breaker, for example
+	 * {@literal credentials}.
+	 *
+	 * @return the group name
+	 */
+	public String getGroup() {
+		return this.group;
+	}
+
+	public CredHubCircuitBreakerState getPreviousState() {
+		return this.previousState;
+	}
+
+	public CredHubCircuitBreakerState getState() {
+		return this.state;
+	}
+
+	@Override
+	public String toString() {
+		return "CredHubCircuitBreakerEvent{" +
+				"group='" + group + '\'' +
+				", previousState=" + previousState +
+				", state=" + state +
+				'}';
+	}
+}
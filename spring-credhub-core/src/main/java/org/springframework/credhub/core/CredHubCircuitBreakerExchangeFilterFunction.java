@@ -0,0 +1,82 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.core;
+
+import java.util.function.Supplier;
+
+import reactor.core.publisher.Mono;
+
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+
+/**
+ * An {@link ExchangeFilterFunction} that guards CredHub requests with
+ * {@link CredHubCircuitBreakers}.
+ *
+ * <p>A request fails with a {@link CredHubCircuitBreakerOpenException} while the circuit
+ * breaker for its group of operations is open. A request is timed until the response
+ * status and headers are received.
+ */
+class CredHubCircuitBreakerExchangeFilterFunction implements ExchangeFilterFunction {
+	private final CredHubCircuitBreakers circuitBreakers;
+	private final Supplier<Mono<?>> probe;
+
+	CredHubCircuitBreakerExchangeFilterFunction(CredHubCircuitBreakers circuitBreakers, Supplier<Mono<?>> probe) {
+		this.circuitBreakers = circuitBreakers;
+		this.probe = probe;
+	}
+
+	@Override
+	public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+		CredHubCircuitBreaker circuitBreaker = circuitBreakers.forRequest(request.url());
+		if (circuitBreaker == null) {
+			return next.exchange(request);
+		}
+
+		return Mono.defer(() -> {
+			switch (circuitBreaker.tryAcquire()) {
+				case REJECTED:
+					return Mono.error(new CredHubCircuitBreakerOpenException(circuitBreaker.getGroup()));
+				case PROBE:
+					return probe.get()
+							.then(Mono.just(true))
+							.onErrorReturn(false)
+							.doOnCancel(() -> circuitBreaker.onProbeResult(false))
+							.flatMap(successful -> {
+								circuitBreaker.onProbeResult(successful);
+								return successful
+										? exchange(circuitBreaker, request, next)
+										: Mono.error(new CredHubCircuitBreakerOpenException(circuitBreaker.getGroup()));
+							});
+				default:
+					return exchange(circuitBreaker, request, next);
+			}
+		});
+	}
+
+	private Mono<ClientResponse> exchange(CredHubCircuitBreaker circuitBreaker, ClientRequest request,
+										  ExchangeFunction next) {
+		return Mono.defer(() -> {
+			long startTime = circuitBreaker.now();
+			return next.exchange(request)
+					.doOnNext(response -> circuitBreaker.onResult(startTime, response.rawStatusCode() >= 500))
+					.doOnError(e -> circuitBreaker.onResult(startTime, true));
+		});
+	}
+}
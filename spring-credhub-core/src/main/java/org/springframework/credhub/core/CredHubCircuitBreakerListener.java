@@ -0,0 +1,31 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.core;
+
+/**
+ * A listener that is notified when the state of a client-side circuit breaker for a group
+ * of CredHub operations changes.
+ */
+@FunctionalInterface
+public interface CredHubCircuitBreakerListener {
+	/**
+	 * Handle a change of state of a circuit breaker.
+	 *
+	 * @param event the event describing the change
+	 */
+	void onStateTransition(CredHubCircuitBreakerEvent event);
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.core;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Exception thrown when a request is not sent to CredHub because the circuit breaker for
+ * its group of operations is open.
+ */
+public class CredHubCircuitBreakerOpenException extends CredHubException {
+	private final String group;
+
+	/**
+	 * Create a new exception for the provided group of operations.
+	 *
+	 * @param group the name of the group of operations
+	 */
+	public CredHubCircuitBreakerOpenException(String group) {
+		super(HttpStatus.SERVICE_UNAVAILABLE);
+		this.group = group;
+	}
+
+	/**
+	 * Get the name of the group of operations whose circuit breaker is open.
+	 *
+	 * @return the group name
+	 */
+	public String getGroup() {
+		return this.group;
+	}
+
+	@Override
+	public String getMessage() {
+		return "Circuit breaker for CredHub " + group + " operations is open";
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.core;
+
+import java.io.IOException;
+
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * A request interceptor that guards CredHub requests with {@link CredHubCircuitBreakers}.
+ *
+ * <p>A request fails with a {@link CredHubCircuitBreakerOpenException} while the circuit
+ * breaker for its group of operations is open. The probe that decides whether an open
+ * circuit breaker can close is made on the calling thread.
+ */
+class CredHubCircuitBreakerRequestInterceptor implements ClientHttpRequestInterceptor {
+	private final CredHubCircuitBreakers circuitBreakers;
+	private final Runnable probe;
+
+	CredHubCircuitBreakerRequestInterceptor(CredHubCircuitBreakers circuitBreakers, Runnable probe) {
+		this.circuitBreakers = circuitBreakers;
+		this.probe = probe;
+	}
+
+	@Override
+	public ClientHttpResponse intercept(HttpRequest request, byte[] body,
+										ClientHttpRequestExecution execution) throws IOException {
+		CredHubCircuitBreaker circuitBreaker = circuitBreakers.forRequest(request.getURI());
+		if (circuitBreaker == null) {
+			return execution.execute(request, body);
+		}
+
+		acquirePermission(circuitBreaker);
+
+		long startTime = circuitBreaker.now();
+		try {
+			ClientHttpResponse response = execution.execute(request, body);
+			circuitBreaker.onResult(startTime, response.getRawStatusCode() >= 500);
+			return response;
+		}
+		catch (IOException | RuntimeException e) {
+			circuitBreaker.onResult(startTime, true);
+			throw e;
+		}
+	}
+
+	private void acquirePermission(CredHubCircuitBreaker circuitBreaker) {
+		switch (circuitBreaker.tryAcquire()) {
+			case REJECTED:
+				throw new CredHubCircuitBreakerOpenException(circuitBreaker.getGroup());
+			case PROBE:
+				boolean successful = false;
+				try {
+					probe.run();
+					successful = true;
+				}
+				catch (RuntimeException e) {
+					throw new CredHubCircuitBreakerOpenException(circuitBreaker.getGroup());
+				}
+				finally {
+					circuitBreaker.onProbeResult(successful);
+				}
+				break;
+			default:
+				break;
+		}
+	}
+}
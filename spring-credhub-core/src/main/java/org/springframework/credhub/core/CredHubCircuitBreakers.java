@@ -0,0 +1,129 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.core;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongSupplier;
+
+import org.springframework.credhub.support.CircuitBreakerOptions;
+import org.springframework.credhub.support.CircuitBreakerOptions.GroupOptions;
+import org.springframework.util.Assert;
+
+/**
+ * The client-side circuit breakers of a CredHub template, one for each group of
+ * operations. Requests that do not belong to a group, such as requests for server
+ * information, are not guarded by a circuit breaker.
+ */
+class CredHubCircuitBreakers {
+	static final String CREDENTIALS = "credentials";
+	static final String CERTIFICATES = "certificates";
+	static final String PERMISSIONS = "permissions";
+	static final String INTERPOLATION = "interpolation";
+
+	static final List<String> GROUPS = Collections.unmodifiableList(
+			Arrays.asList(CREDENTIALS, CERTIFICATES, PERMISSIONS, INTERPOLATION));
+
+	private final Map<String, CredHubCircuitBreaker> circuitBreakers = new LinkedHashMap<>();
+	private final List<CredHubCircuitBreakerListener> listeners = new CopyOnWriteArrayList<>();
+
+	CredHubCircuitBreakers(CircuitBreakerOptions options) {
+		this(options, System::nanoTime);
+	}
+
+	CredHubCircuitBreakers(CircuitBreakerOptions options, LongSupplier nanoTime) {
+		Assert.notNull(options, "options must not be null");
+		for (String group : options.getGroups().keySet()) {
+			Assert.isTrue(GROUPS.contains(group), "Unknown CredHub operation group '" + group
+					+ "'; supported groups are " + GROUPS);
+		}
+
+		for (String group : GROUPS) {
+			GroupOptions groupOptions = options.getGroups().getOrDefault(group, new GroupOptions());
+			if (!valueOf(groupOptions.getEnabled(), true)) {
+				continue;
+			}
+			circuitBreakers.put(group, new CredHubCircuitBreaker(group,
+					valueOf(groupOptions.getFailureRateThreshold(), options.getFailureRateThreshold()),
+					valueOf(groupOptions.getSlowCallRateThreshold(), options.getSlowCallRateThreshold()),
+					valueOf(groupOptions.getSlowCallDurationThreshold(), options.getSlowCallDurationThreshold()),
+					valueOf(groupOptions.getSlidingWindowSize(), options.getSlidingWindowSize()),
+					valueOf(groupOptions.getMinimumNumberOfCalls(), options.getMinimumNumberOfCalls()),
+					valueOf(groupOptions.getWaitDurationInOpenState(), options.getWaitDurationInOpenState()),
+					listeners, nanoTime));
+		}
+	}
+
+	/**
+	 * Get the circuit breaker that guards a request.
+	 *
+	 * @param uri the URI of the request
+	 * @return the circuit breaker, or {@literal null} if the request is not guarded
+	 */
+	CredHubCircuitBreaker forRequest(URI uri) {
+		String group = groupOf(uri.getPath());
+		return group == null ? null : circuitBreakers.get(group);
+	}
+
+	/**
+	 * Get the state of the circuit breaker for a group of operations.
+	 *
+	 * @param group the group name
+	 * @return the state, or {@literal null} if the group is not guarded by a circuit breaker
+	 */
+	CredHubCircuitBreakerState getState(String group) {
+		CredHubCircuitBreaker circuitBreaker = circuitBreakers.get(group);
+		return circuitBreaker == null ? null : circuitBreaker.getState();
+	}
+
+	Iterable<String> getGroups() {
+		return circuitBreakers.keySet();
+	}
+
+	void addListener(CredHubCircuitBreakerListener listener) {
+		Assert.notNull(listener, "listener must not be null");
+		listeners.add(listener);
+	}
+
+	static String groupOf(String path) {
+		if (path == null) {
+			return null;
+		}
+		if (path.contains("/api/v1/interpolate")) {
+			return INTERPOLATION;
+		}
+		if (path.contains("/api/v1/certificates") || path.contains("/api/v1/bulk-regenerate")) {
+			return CERTIFICATES;
+		}
+		if (path.contains("/api/v1/permissions") || path.contains("/api/v2/permissions")) {
+			return PERMISSIONS;
+		}
+		if (path.contains("/api/v1/data") || path.contains("/api/v1/regenerate")) {
+			return CREDENTIALS;
+		}
+		return null;
+	}
+
+	private static <T> T valueOf(T value, T defaultValue) {
+		return value != null ? value : defaultValue;
+	}
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.credhub.core;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Provides the {@link Executor} used by default to send concurrent requests to CredHub,
+ * such as the requests of batch operations.
+ */
+public final class CredHubExecutors {
+	/**
+	 * The maximum number of threads of the shared executor.
+	 */
+	public static final int SHARED_EXECUTOR_THREADS = 32;
+
+	private static final Executor SHARED_EXECUTOR = createSharedExecutor();
+
+	private CredHubExecutors() {
+	}
+
+	/**
+	 * Get the executor shared by all templates that are not configured with an executor.
+	 * Its daemon threads are created on demand, up to {@link #SHARED_EXECUTOR_THREADS},
+	 * and stop after being idle for a minute. Tasks are queued while all threads are
+	 * busy. The executor can not be shut down.
+	 *
+	 * @return the shared executor
+	 */
+	public static Executor getSharedExecutor() {
+		return SHARED_EXECUTOR;
+	}
+
+	private static Executor createSharedExecutor() {
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("credhub-");
+		threadFactory.setDaemon(true);
+
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(SHARED_EXECUTOR_THREADS, SHARED_EXECUTOR_THREADS,
+				60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), threadFactory);
+		executor.allowCoreThreadTimeOut(true);
+
+		return executor::execute;
+	}
+}
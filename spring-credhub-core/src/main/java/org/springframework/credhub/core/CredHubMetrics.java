@@ -0,0 +1,240 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.core;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import org.springframework.util.Assert;
+
+/**
+ * Records Micrometer metrics for requests made to a CredHub server by a
+ * {@link CredHubTemplate} or a {@link ReactiveCredHubTemplate}.
+ *
+ * <p>The following meters are registered:
+ * <ul>
+ * <li>{@literal credhub.client.requests}: a timer for each request, tagged with the
+ * CredHub {@literal operation} (for example {@literal credentials.getByName}), the HTTP
+ * {@literal method} and {@literal status}, the {@literal outcome} of the request and
+ * the {@literal exception} thrown if no response was received</li>
+ * <li>{@literal credhub.client.errors}: a counter of requests that failed with an error
+ * response or an exception, with the same tags as the timer</li>
+ * <li>{@literal credhub.client.token.refreshes}: a counter of requests to the OAuth2
+ * token server, tagged with the {@literal outcome} of the request</li>
+ * <li>{@literal credhub.client.requests.active}: a gauge of the requests that are in
+ * progress, tagged with the {@literal client} type ({@literal rest} or
+ * {@literal webclient})</li>
+ * <li>{@literal credhub.client.circuit-breaker.state}: a gauge for each state of each
+ * circuit breaker, tagged with the {@literal client} type, the operation {@literal group},
+ * and the {@literal state}; the value is {@literal 1} for the current state and
+ * {@literal 0} otherwise</li>
+ * <li>{@literal credhub.client.circuit-breaker.transitions}: a counter of circuit breaker
+ * state changes, tagged with the {@literal client} type, the operation {@literal group},
+ * and the {@literal from} and {@literal to} states</li>
+ * <li>{@literal credhub.client.warm-up}: a timer of connection warm-ups, tagged with the
+ * {@literal client} type and the {@literal outcome} of the warm-up</li>
+ * </ul>
+ *
+ * <p>A single instance should be shared by all templates that report to the same
+ * {@link MeterRegistry}.
+ */
+public class CredHubMetrics {
+	public static final String REQUESTS_METRIC = "credhub.client.requests";
+	public static final String ERRORS_METRIC = "credhub.client.errors";
+	public static final String TOKEN_REFRESHES_METRIC = "credhub.client.token.refreshes";
+	public static final String ACTIVE_REQUESTS_METRIC = "credhub.client.requests.active";
+	public static final String CIRCUIT_BREAKER_STATE_METRIC = "credhub.client.circuit-breaker.state";
+	public static final String CIRCUIT_BREAKER_TRANSITIONS_METRIC = "credhub.client.circuit-breaker.transitions";
+	public static final String WARM_UP_METRIC = "credhub.client.warm-up";
+
+	static final String REST_CLIENT = "rest";
+	static final String WEB_CLIENT = "webclient";
+
+	private static final String NONE = "none";
+	private static final String OUTCOME_SUCCESS = "SUCCESS";
+	private static final String OUTCOME_REDIRECTION = "REDIRECTION";
+	private static final String OUTCOME_ERROR = "ERROR";
+
+	private final MeterRegistry registry;
+	private final Tags tags;
+
+	private final AtomicInteger activeRestRequests;
+	private final AtomicInteger activeWebClientRequests;
+
+	/**
+	 * Create a new {@link CredHubMetrics} that registers meters with the provided registry.
+	 *
+	 * @param registry the registry; must not be {@literal null}
+	 */
+	public CredHubMetrics(MeterRegistry registry) {
+		this(registry, Tags.empty());
+	}
+
+	/**
+	 * Create a new {@link CredHubMetrics} that registers meters with the provided registry,
+	 * adding the provided tags to all meters.
+	 *
+	 * @param registry the registry; must not be {@literal null}
+	 * @param tags tags to add to all meters; must not be {@literal null}
+	 */
+	public CredHubMetrics(MeterRegistry registry, Iterable<Tag> tags) {
+		Assert.notNull(registry, "registry must not be null");
+		Assert.notNull(tags, "tags must not be null");
+
+		this.registry = registry;
+		this.tags = Tags.of(tags);
+
+		this.activeRestRequests = registry.gauge(ACTIVE_REQUESTS_METRIC,
+				this.tags.and("client", REST_CLIENT), new AtomicInteger());
+		this.activeWebClientRequests = registry.gauge(ACTIVE_REQUESTS_METRIC,
+				this.tags.and("client", WEB_CLIENT), new AtomicInteger());
+	}
+
+	Timer.Sample start() {
+		return Timer.start(this.registry);
+	}
+
+	AtomicInteger activeRequests(String client) {
+		return WEB_CLIENT.equals(client) ? this.activeWebClientRequests : this.activeRestRequests;
+	}
+
+	/**
+	 * Register gauges of the state of the provided circuit breakers, and count their
+	 * state changes.
+	 *
+	 * @param circuitBreakers the circuit breakers
+	 * @param client the type of client that uses the circuit breakers
+	 */
+	void bindCircuitBreakers(CredHubCircuitBreakers circuitBreakers, String client) {
+		for (String group : circuitBreakers.getGroups()) {
+			for (CredHubCircuitBreakerState state : CredHubCircuitBreakerState.values()) {
+				Gauge.builder(CIRCUIT_BREAKER_STATE_METRIC, circuitBreakers,
+						breakers -> breakers.getState(group) == state ? 1 : 0)
+						.description("State of a CredHub client circuit breaker")
+						.tags(this.tags)
+						.tag("client", client)
+						.tag("group", group)
+						.tag("state", state.name())
+						.register(this.registry);
+			}
+		}
+
+		circuitBreakers.addListener(event -> Counter.builder(CIRCUIT_BREAKER_TRANSITIONS_METRIC)
+				.tags(this.tags)
+				.tag("client", client)
+				.tag("group", event.getGroup())
+				.tag("from", event.getPreviousState().name())
+				.tag("to", event.getState().name())
+				.register(this.registry)
+				.increment());
+	}
+
+	/**
+	 * Record a request that received a response from the CredHub server.
+	 */
+	void recordResponse(Timer.Sample sample, String operation, String method, int statusCode) {
+		String outcome = outcome(statusCode);
+
+		Tags requestTags = requestTags(operation, method, String.valueOf(statusCode), outcome, NONE);
+		sample.stop(requestTimer(requestTags));
+
+		if (!OUTCOME_SUCCESS.equals(outcome) && !OUTCOME_REDIRECTION.equals(outcome)) {
+			this.registry.counter(ERRORS_METRIC, requestTags).increment();
+		}
+	}
+
+	/**
+	 * Record a request that failed without receiving a response from the CredHub server.
+	 */
+	void recordException(Timer.Sample sample, String operation, String method, Throwable exception) {
+		Tags requestTags = requestTags(operation, method, NONE, OUTCOME_ERROR,
+				exception.getClass().getSimpleName());
+		sample.stop(requestTimer(requestTags));
+
+		this.registry.counter(ERRORS_METRIC, requestTags).increment();
+	}
+
+	/**
+	 * Record a request to the OAuth2 token server for a new access token.
+	 *
+	 * @param successful {@literal true} if a new token was received
+	 */
+	void recordTokenRefresh(boolean successful) {
+		Counter.builder(TOKEN_REFRESHES_METRIC)
+				.tags(this.tags)
+				.tag("outcome", successful ? OUTCOME_SUCCESS : OUTCOME_ERROR)
+				.register(this.registry)
+				.increment();
+	}
+
+	/**
+	 * Record a warm-up of the connections to the CredHub server.
+	 *
+	 * @param client the type of client that was warmed up
+	 * @param duration the duration of the warm-up
+	 * @param successful {@literal true} if the warm-up completed successfully
+	 */
+	void recordWarmUp(String client, Duration duration, boolean successful) {
+		Timer.builder(WARM_UP_METRIC)
+				.description("Warm-ups of the connections to a CredHub server")
+				.tags(this.tags)
+				.tag("client", client)
+				.tag("outcome", successful ? OUTCOME_SUCCESS : OUTCOME_ERROR)
+				.register(this.registry)
+				.record(duration);
+	}
+
+	private Timer requestTimer(Tags requestTags) {
+		return Timer.builder(REQUESTS_METRIC)
+				.description("Requests made to a CredHub server")
+				.tags(requestTags)
+				.register(this.registry);
+	}
+
+	private static String outcome(int statusCode) {
+		switch (statusCode / 100) {
+			case 1:
+				return "INFORMATIONAL";
+			case 2:
+				return OUTCOME_SUCCESS;
+			case 3:
+				return OUTCOME_REDIRECTION;
+			case 4:
+				return "CLIENT_ERROR";
+			case 5:
+				return "SERVER_ERROR";
+			default:
+				return "UNKNOWN";
+		}
+	}
+
+	private Tags requestTags(String operation, String method, String status, String outcome, String exception) {
+		return this.tags.and(
+				Tag.of("operation", operation),
+				Tag.of("method", method),
+				Tag.of("status", status),
+				Tag.of("outcome", outcome),
+				Tag.of("exception", exception));
+	}
+}
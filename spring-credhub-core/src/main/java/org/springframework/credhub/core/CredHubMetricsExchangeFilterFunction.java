@@ -0,0 +1,65 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.core;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Mono;
+
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+
+/**
+ * An {@link ExchangeFilterFunction} that records {@link CredHubMetrics} for all CredHub
+ * requests.
+ *
+ * <p>The CredHub operation that made a request is identified by the URI template that
+ * {@link WebClient} records as a request attribute. A request is timed until the response
+ * status and headers are received.
+ */
+class CredHubMetricsExchangeFilterFunction implements ExchangeFilterFunction {
+	private static final String URI_TEMPLATE_ATTRIBUTE = WebClient.class.getName() + ".uriTemplate";
+
+	private final CredHubMetrics metrics;
+	private final AtomicInteger activeRequests;
+
+	CredHubMetricsExchangeFilterFunction(CredHubMetrics metrics) {
+		this.metrics = metrics;
+		this.activeRequests = metrics.activeRequests(CredHubMetrics.WEB_CLIENT);
+	}
+
+	@Override
+	public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+		String method = request.method().name();
+		String operation = CredHubOperationNames.resolve(method,
+				(String) request.attribute(URI_TEMPLATE_ATTRIBUTE).orElse(null));
+
+		return Mono.defer(() -> {
+			Timer.Sample sample = metrics.start();
+			activeRequests.incrementAndGet();
+
+			return next.exchange(request)
+					.doOnNext(response -> metrics.recordResponse(sample, operation, method, response.rawStatusCode()))
+					.doOnError(e -> metrics.recordException(sample, operation, method, e))
+					.doFinally(signal -> activeRequests.decrementAndGet());
+		});
+	}
+}
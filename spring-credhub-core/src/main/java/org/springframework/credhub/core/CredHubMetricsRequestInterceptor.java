@@ -0,0 +1,106 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.core;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.Timer;
+
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.util.UriTemplateHandler;
+
+/**
+ * A request interceptor that records {@link CredHubMetrics} for all CredHub requests.
+ *
+ * <p>The CredHub operation that made a request is identified by the URI template that
+ * was expanded to create the request URI. The template is captured by the
+ * {@link UriTemplateHandler} returned from {@link #createUriTemplateHandler}, which must
+ * be used by the same {@link org.springframework.web.client.RestTemplate}. The captured
+ * template is cleared when the request is intercepted, and by
+ * {@link CredHubTemplate#doWithRest} when its callback completes.
+ */
+class CredHubMetricsRequestInterceptor implements ClientHttpRequestInterceptor {
+	private static final ThreadLocal<String> uriTemplate = new ThreadLocal<>();
+
+	private final CredHubMetrics metrics;
+	private final AtomicInteger activeRequests;
+
+	CredHubMetricsRequestInterceptor(CredHubMetrics metrics) {
+		this.metrics = metrics;
+		this.activeRequests = metrics.activeRequests(CredHubMetrics.REST_CLIENT);
+	}
+
+	@Override
+	public ClientHttpResponse intercept(HttpRequest request, byte[] body,
+										ClientHttpRequestExecution execution) throws IOException {
+		String method = request.getMethodValue();
+		String operation = CredHubOperationNames.resolve(method, uriTemplate.get());
+		uriTemplate.remove();
+
+		Timer.Sample sample = metrics.start();
+		activeRequests.incrementAndGet();
+		try {
+			ClientHttpResponse response = execution.execute(request, body);
+			metrics.recordResponse(sample, operation, method, response.getRawStatusCode());
+			return response;
+		}
+		catch (IOException | RuntimeException e) {
+			metrics.recordException(sample, operation, method, e);
+			throw e;
+		}
+		finally {
+			activeRequests.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Clear the URI template captured on the current thread, in case a URI template was
+	 * expanded but the request was not sent.
+	 */
+	static void clearUriTemplate() {
+		uriTemplate.remove();
+	}
+
+	/**
+	 * Create a {@link UriTemplateHandler} that captures each expanded URI template for
+	 * use by this interceptor.
+	 *
+	 * @param delegate the handler that expands URI templates
+	 * @return the capturing handler
+	 */
+	UriTemplateHandler createUriTemplateHandler(UriTemplateHandler delegate) {
+		return new UriTemplateHandler() {
+			@Override
+			public URI expand(String template, Map<String, ?> uriVariables) {
+				uriTemplate.set(template);
+				return delegate.expand(template, uriVariables);
+			}
+
+			@Override
+			public URI expand(String template, Object... uriVariables) {
+				uriTemplate.set(template);
+				return delegate.expand(template, uriVariables);
+			}
+		};
+	}
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.core;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import reactor.core.publisher.Mono;
+
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.endpoint.OAuth2ClientCredentialsGrantRequest;
+import org.springframework.security.oauth2.client.endpoint.ReactiveOAuth2AccessTokenResponseClient;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.registration.ReactiveClientRegistrationRepository;
+import org.springframework.security.oauth2.client.web.server.ServerOAuth2AuthorizedClientRepository;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.util.Assert;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+
+/**
+ * An {@link ExchangeFilterFunction} that sets OAuth2 bearer authentication headers to all
+ * CredHub requests.
+ *
+ * <p>The current access token is held in memory. When no usable token is available, all
+ * subscribers share a single request to the token server. A token that is close to
+ * expiring is refreshed in the background while requests continue to use it.
+ */
+class CredHubOAuth2ExchangeFilterFunction implements ExchangeFilterFunction {
+	private static final Log logger = LogFactory.getLog(CredHubOAuth2ExchangeFilterFunction.class);
+
+	private static final Authentication ANONYMOUS_USER_TOKEN = new AnonymousAuthenticationToken("anonymous",
+			"anonymousUser", AuthorityUtils.createAuthorityList("ROLE_USER"));
+
+	private final ReactiveClientRegistrationRepository clientRegistrationRepository;
+	private final String registrationId;
+	private final ServerOAuth2AuthorizedClientRepository authorizedClientRepository;
+	private final ReactiveOAuth2AccessTokenResponseClient<OAuth2ClientCredentialsGrantRequest> tokenResponseClient;
+	private final Clock clock;
+
+	private final AtomicReference<OAuth2AccessToken> currentToken = new AtomicReference<>();
+	private final AtomicReference<Refresh> refreshInFlight = new AtomicReference<>();
+
+	private volatile CredHubMetrics metrics;
+
+	CredHubOAuth2ExchangeFilterFunction(ReactiveClientRegistrationRepository clientRegistrationRepository,
+										String registrationId,
+										ServerOAuth2AuthorizedClientRepository authorizedClientRepository,
+										ReactiveOAuth2AccessTokenResponseClient<OAuth2ClientCredentialsGrantRequest> tokenResponseClient) {
+		this(clientRegistrationRepository, registrationId, authorizedClientRepository, tokenResponseClient,
+				Clock.systemUTC());
+	}
+
+	CredHubOAuth2ExchangeFilterFunction(ReactiveClientRegistrationRepository clientRegistrationRepository,
+										String registrationId,
+										ServerOAuth2AuthorizedClientRepository authorizedClientRepository,
+										ReactiveOAuth2AccessTokenResponseClient<OAuth2ClientCredentialsGrantRequest> tokenResponseClient,
+										Clock clock) {
+		Assert.notNull(clientRegistrationRepository, "clientRegistrationRepository must not be null");
+		Assert.notNull(authorizedClientRepository, "authorizedClientRepository must not be null");
+		Assert.notNull(tokenResponseClient, "tokenResponseClient must not be null");
+		Assert.notNull(clock, "clock must not be null");
+
+		this.clientRegistrationRepository = clientRegistrationRepository;
+		this.registrationId = registrationId;
+		this.authorizedClientRepository = authorizedClientRepository;
+		this.tokenResponseClient = tokenResponseClient;
+		this.clock = clock;
+	}
+
+	/**
+	 * Add an OAuth2 bearer token header to each request.
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+		return getAccessToken()
+				.map(accessToken -> ClientRequest.from(request)
+						.headers(headers -> headers.setBearerAuth(accessToken.getTokenValue()))
+						.build())
+				.flatMap(next::exchange);
+	}
+
+	/**
+	 * Get a valid access token, requesting a new token from the token server only if there
+	 * is no current token or the current token is about to expire.
+	 *
+	 * @return the access token
+	 */
+	Mono<OAuth2AccessToken> getAccessToken() {
+		return Mono.defer(() -> {
+			OAuth2AccessToken accessToken = currentToken.get();
+			if (accessToken == null || tokenExpiring(accessToken)) {
+				return refresh();
+			}
+
+			if (refreshDue(accessToken)) {
+				refresh().subscribe(refreshed -> { },
+						e -> logger.warn("Error refreshing OAuth2 access token, the current token will be used until it expires", e));
+			}
+
+			return Mono.just(accessToken);
+		});
+	}
+
+	/**
+	 * Request a new token from the token server. If a request is already in flight, the
+	 * result of that request is shared instead of starting another one.
+	 */
+	private Mono<OAuth2AccessToken> refresh() {
+		Refresh refresh = new Refresh();
+		while (!refreshInFlight.compareAndSet(null, refresh)) {
+			Refresh existing = refreshInFlight.get();
+			if (existing != null) {
+				return existing.accessToken;
+			}
+		}
+		return refresh.accessToken;
+	}
+
+	private Mono<OAuth2AccessToken> authorizeClient() {
+		return clientRegistrationRepository.findByRegistrationId(registrationId)
+				.switchIfEmpty(Mono.defer(() -> Mono.error(new IllegalArgumentException(
+						"Could not find ClientRegistration with id " + registrationId))))
+				.flatMap(this::authorizeClient);
+	}
+
+	private Mono<OAuth2AccessToken> authorizeClient(ClientRegistration clientRegistration) {
+		return tokenResponseClient.getTokenResponse(new OAuth2ClientCredentialsGrantRequest(clientRegistration))
+				.flatMap(tokenResponse -> {
+					OAuth2AuthorizedClient authorizedClient = new OAuth2AuthorizedClient(clientRegistration,
+							ANONYMOUS_USER_TOKEN.getName(), tokenResponse.getAccessToken());
+
+					return authorizedClientRepository
+							.saveAuthorizedClient(authorizedClient, ANONYMOUS_USER_TOKEN, null)
+							.thenReturn(tokenResponse.getAccessToken());
+				});
+	}
+
+	/**
+	 * Record requests to the token server with the provided metrics.
+	 *
+	 * @param metrics the metrics; may be {@literal null}
+	 */
+	void setMetrics(CredHubMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	private void recordRefresh(boolean successful) {
+		CredHubMetrics metrics = this.metrics;
+		if (metrics != null) {
+			metrics.recordTokenRefresh(successful);
+		}
+	}
+
+	private boolean refreshDue(OAuth2AccessToken accessToken) {
+		Instant refreshAt = OAuth2TokenManager.refreshTime(accessToken);
+		return refreshAt != null && clock.instant().isAfter(refreshAt);
+	}
+
+	private boolean tokenExpiring(OAuth2AccessToken accessToken) {
+		Instant expiresAt = accessToken.getExpiresAt();
+		return expiresAt != null
+				&& clock.instant().isAfter(expiresAt.minus(OAuth2TokenManager.ACCESS_TOKEN_EXPIRES_SKEW));
+	}
+
+	/**
+	 * A single request to the token server, shared by all subscribers while it is in flight.
+	 */
+	private final class Refresh {
+		private final Mono<OAuth2AccessToken> accessToken;
+
+		private Refresh() {
+			this.accessToken = authorizeClient()
+					.doOnNext(currentToken::set)
+					.doOnSuccess(accessToken -> recordRefresh(accessToken != null))
+					.doOnError(e -> recordRefresh(false))
+					.doFinally(signal -> refreshInFlight.compareAndSet(this, null))
+					.cache();
+		}
+	}
+}
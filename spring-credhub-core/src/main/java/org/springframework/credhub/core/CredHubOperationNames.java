@@ -0,0 +1,91 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.core;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps the HTTP method and URI template of a request made by the CredHub templates to the
+ * name of the operation that made the request, for example {@literal credentials.getByName}.
+ */
+final class CredHubOperationNames {
+	static final String UNKNOWN = "unknown";
+
+	private static final Map<String, String> OPERATIONS = new HashMap<>();
+
+	static {
+		add("PUT", "/api/v1/data", "credentials.write");
+		add("POST", "/api/v1/data", "credentials.generate");
+		add("POST", "/api/v1/regenerate", "credentials.regenerate");
+		add("GET", "/api/v1/data/{id}", "credentials.getById");
+		add("GET", "/api/v1/data?name={name}&current=true", "credentials.getByName");
+		add("GET", "/api/v1/data?name={name}", "credentials.getByNameWithHistory");
+		add("GET", "/api/v1/data?name={name}&versions={versions}", "credentials.getByNameWithHistory");
+		add("GET", "/api/v1/data?name-like={name}", "credentials.findByName");
+		add("GET", "/api/v1/data?path={path}", "credentials.findByPath");
+		add("GET", "/api/v1/data?paths=true", "credentials.getAllPaths");
+		add("DELETE", "/api/v1/data?name={name}", "credentials.deleteByName");
+
+		add("GET", "/api/v1/certificates", "certificates.getAll");
+		add("GET", "/api/v1/certificates?name={name}", "certificates.getByName");
+		add("POST", "/api/v1/certificates/{id}/regenerate", "certificates.regenerate");
+		add("POST", "/api/v1/bulk-regenerate", "certificates.bulkRegenerate");
+		add("PUT", "/api/v1/certificates/{id}/update_transitional_version", "certificates.updateTransitionalVersion");
+
+		add("GET", "/api/v1/permissions?credential_name={name}", "permissions.getPermissions");
+		add("POST", "/api/v1/permissions", "permissions.addPermissions");
+		add("DELETE", "/api/v1/permissions?credential_name={name}&actor={actor}", "permissions.deletePermission");
+
+		add("GET", "/api/v2/permissions/{id}", "permissionsV2.getPermissions");
+		add("GET", "/api/v2/permissions?path={path}&actor={actor}", "permissionsV2.getPermissionsByPathAndActor");
+		add("POST", "/api/v2/permissions", "permissionsV2.addPermissions");
+		add("PUT", "/api/v2/permissions/{id}", "permissionsV2.updatePermissions");
+		add("DELETE", "/api/v2/permissions/{id}", "permissionsV2.deletePermission");
+
+		add("POST", "/api/v1/interpolate", "interpolation.interpolateServiceData");
+
+		add("GET", "/version", "info.version");
+	}
+
+	private CredHubOperationNames() {
+	}
+
+	/**
+	 * Get the name of the operation that makes requests with the given method and URI
+	 * template.
+	 *
+	 * @param method the HTTP method
+	 * @param uriTemplate the URI template; may be {@literal null}
+	 * @return the operation name, or {@link #UNKNOWN} if the request was not made by one
+	 * of the CredHub templates
+	 */
+	static String resolve(String method, String uriTemplate) {
+		if (uriTemplate == null) {
+			return UNKNOWN;
+		}
+		return OPERATIONS.getOrDefault(key(method, uriTemplate), UNKNOWN);
+	}
+
+	private static void add(String method, String uriTemplate, String operation) {
+		OPERATIONS.put(key(method, uriTemplate), operation);
+	}
+
+	private static String key(String method, String uriTemplate) {
+		return method + " " + uriTemplate;
+	}
+}
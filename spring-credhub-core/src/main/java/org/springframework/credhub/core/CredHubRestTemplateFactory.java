@@ -33,7 +33,6 @@ import org.springframework.http.client.support.HttpRequestWrapper;
 import org.springframework.http.converter.ByteArrayHttpMessageConverter;
 import org.springframework.http.converter.FormHttpMessageConverter;
 import org.springframework.http.converter.StringHttpMessageConverter;
-import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClientService;
 import org.springframework.security.oauth2.client.http.OAuth2ErrorResponseErrorHandler;
 import org.springframework.security.oauth2.client.registration.ClientRegistration;
@@ -110,7 +109,7 @@ class CredHubRestTemplateFactory {
 		restTemplate.setMessageConverters(Arrays.asList(
 				new ByteArrayHttpMessageConverter(),
 				new StringHttpMessageConverter(),
-				new MappingJackson2HttpMessageConverter(JsonUtils.buildObjectMapper())));
+				JsonUtils.createHttpMessageConverter()));
 	}
 
 	/**
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.core;
+
+import reactor.core.publisher.Mono;
+
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+
+/**
+ * An {@link ExchangeFilterFunction} that retries CredHub requests that fail with a
+ * transient error, as decided by a {@link CredHubRetryPolicy}.
+ */
+class CredHubRetryExchangeFilterFunction implements ExchangeFilterFunction {
+	private final CredHubRetryPolicy retryPolicy;
+
+	CredHubRetryExchangeFilterFunction(CredHubRetryPolicy retryPolicy) {
+		this.retryPolicy = retryPolicy;
+	}
+
+	@Override
+	public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+		return Mono.defer(() -> {
+			retryPolicy.requestStarted();
+
+			if (!retryPolicy.isRetryable(request.method(), request.url())) {
+				return next.exchange(request);
+			}
+			return exchange(request, next, 1);
+		});
+	}
+
+	private Mono<ClientResponse> exchange(ClientRequest request, ExchangeFunction next, int attempt) {
+		return next.exchange(request)
+				.flatMap(response -> {
+					if (retryPolicy.isRetryableStatus(response.rawStatusCode()) && retryPolicy.acquireRetry(attempt)) {
+						return response.bodyToMono(Void.class)
+								.then(Mono.<ClientResponse>error(new RetryableResponseException()));
+					}
+					return Mono.just(response);
+				})
+				.onErrorResume(e -> e instanceof RetryableResponseException ||
+								(retryPolicy.isRetryableException(e) && retryPolicy.acquireRetry(attempt)),
+						e -> Mono.delay(retryPolicy.backoff(attempt))
+								.then(Mono.defer(() -> exchange(request, next, attempt + 1))));
+	}
+
+	/**
+	 * Signals that a response was received that should be retried.
+	 */
+	@SuppressWarnings("serial")
+	private static class RetryableResponseException extends RuntimeException {
+		RetryableResponseException() {
+			super(null, null, false, false);
+		}
+	}
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.core;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.credhub.support.RetryOptions;
+import org.springframework.http.HttpMethod;
+import org.springframework.util.Assert;
+
+/**
+ * Decides which requests to CredHub are retried, and how long to wait before each retry.
+ *
+ * <p>Every request adds {@link RetryOptions#getBudgetRatio()} to a retry budget, and every
+ * retry takes one from it. A request is not retried when the budget is exhausted, which
+ * limits the additional load that retries put on a CredHub server that is failing.
+ */
+class CredHubRetryPolicy {
+	private static final String INTERPOLATE_PATH = "/api/v1/interpolate";
+
+	private static final String NETTY_TIMEOUT_EXCEPTION = "io.netty.handler.timeout.TimeoutException";
+
+	private final RetryOptions options;
+
+	private final Object budgetMonitor = new Object();
+
+	private double budget;
+
+	CredHubRetryPolicy(RetryOptions options) {
+		Assert.notNull(options, "options must not be null");
+		Assert.isTrue(options.getMaxAttempts() > 0, "maxAttempts must be greater than 0");
+		Assert.notNull(options.getInitialBackoff(), "initialBackoff must not be null");
+		Assert.notNull(options.getMaxBackoff(), "maxBackoff must not be null");
+		Assert.isTrue(options.getJitter() >= 0 && options.getJitter() <= 1, "jitter must be between 0 and 1");
+
+		this.options = options;
+		this.budget = options.getBudgetCapacity();
+	}
+
+	/**
+	 * Indicates whether a request is safe to retry. Requests that only read from CredHub
+	 * and interpolation requests are retried; all other requests are retried only if
+	 * {@link RetryOptions#isRetryNonIdempotent()} is {@literal true}.
+	 *
+	 * @param method the HTTP method of the request
+	 * @param uri the URI of the request
+	 * @return {@literal true} if the request may be retried
+	 */
+	boolean isRetryable(HttpMethod method, URI uri) {
+		if (options.isRetryNonIdempotent()) {
+			return true;
+		}
+		if (method == HttpMethod.GET || method == HttpMethod.HEAD || method == HttpMethod.OPTIONS) {
+			return true;
+		}
+		return method == HttpMethod.POST && uri.getPath() != null && uri.getPath().endsWith(INTERPOLATE_PATH);
+	}
+
+	boolean isRetryableStatus(int status) {
+		return status == 502 || status == 503 || status == 504;
+	}
+
+	/**
+	 * Indicates whether a request that failed with an exception may be retried. I/O
+	 * errors, which include connect timeouts, are retried, as are the read and write
+	 * timeouts raised by Netty and the timeouts raised by Reactor.
+	 *
+	 * @param e the exception the request failed with
+	 * @return {@literal true} if the request may be retried
+	 */
+	boolean isRetryableException(Throwable e) {
+		return e instanceof IOException || e instanceof TimeoutException || isNettyTimeoutException(e);
+	}
+
+	private static boolean isNettyTimeoutException(Throwable e) {
+		for (Class<?> type = e.getClass(); type != null; type = type.getSuperclass()) {
+			if (NETTY_TIMEOUT_EXCEPTION.equals(type.getName())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Record a new request, adding to the retry budget.
+	 */
+	void requestStarted() {
+		synchronized (budgetMonitor) {
+			budget = Math.min(options.getBudgetCapacity(), budget + options.getBudgetRatio());
+		}
+	}
+
+	/**
+	 * Take a retry of a failed attempt from the retry budget.
+	 *
+	 * @param attempt the number of the attempt that failed, starting at {@literal 1}
+	 * @return {@literal true} if the request may be retried
+	 */
+	boolean acquireRetry(int attempt) {
+		if (attempt >= options.getMaxAttempts()) {
+			return false;
+		}
+		synchronized (budgetMonitor) {
+			if (budget < 1) {
+				return false;
+			}
+			budget -= 1;
+			return true;
+		}
+	}
+
+	/**
+	 * Get the time to wait before retrying a failed attempt.
+	 *
+	 * @param attempt the number of the attempt that failed, starting at {@literal 1}
+	 * @return the backoff
+	 */
+	Duration backoff(int attempt) {
+		double backoff = options.getInitialBackoff().toMillis() * Math.pow(options.getMultiplier(), attempt - 1);
+		backoff = Math.min(backoff, options.getMaxBackoff().toMillis());
+		backoff -= backoff * options.getJitter() * ThreadLocalRandom.current().nextDouble();
+		return Duration.ofMillis(Math.round(backoff));
+	}
+}
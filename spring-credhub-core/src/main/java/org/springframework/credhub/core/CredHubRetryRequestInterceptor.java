@@ -0,0 +1,82 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.core;
+
+import java.io.IOException;
+
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * A request interceptor that retries CredHub requests that fail with a transient error,
+ * as decided by a {@link CredHubRetryPolicy}.
+ *
+ * <p>This must be the last interceptor of the
+ * {@link org.springframework.web.client.RestTemplate}, so that each retry creates a new
+ * request from the request factory.
+ */
+class CredHubRetryRequestInterceptor implements ClientHttpRequestInterceptor {
+	private final CredHubRetryPolicy retryPolicy;
+
+	CredHubRetryRequestInterceptor(CredHubRetryPolicy retryPolicy) {
+		this.retryPolicy = retryPolicy;
+	}
+
+	@Override
+	public ClientHttpResponse intercept(HttpRequest request, byte[] body,
+										ClientHttpRequestExecution execution) throws IOException {
+		retryPolicy.requestStarted();
+
+		if (!retryPolicy.isRetryable(request.getMethod(), request.getURI())) {
+			return execution.execute(request, body);
+		}
+
+		for (int attempt = 1; ; attempt++) {
+			ClientHttpResponse response;
+			try {
+				response = execution.execute(request, body);
+			}
+			catch (IOException | RuntimeException e) {
+				if (!retryPolicy.isRetryableException(e) || !retryPolicy.acquireRetry(attempt) || !sleep(attempt)) {
+					throw e;
+				}
+				continue;
+			}
+
+			if (!retryPolicy.isRetryableStatus(response.getRawStatusCode()) || !retryPolicy.acquireRetry(attempt)) {
+				return response;
+			}
+			response.close();
+			if (!sleep(attempt)) {
+				throw new IOException("Interrupted while waiting to retry request to " + request.getURI());
+			}
+		}
+	}
+
+	private boolean sleep(int attempt) {
+		try {
+			Thread.sleep(retryPolicy.backoff(attempt).toMillis());
+			return true;
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+}
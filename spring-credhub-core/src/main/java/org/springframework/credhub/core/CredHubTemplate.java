@@ -16,19 +16,37 @@
 
 package org.springframework.credhub.core;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.credhub.core.certificate.CredHubCertificateOperations;
 import org.springframework.credhub.core.certificate.CredHubCertificateTemplate;
+import org.springframework.credhub.core.credential.CachingCredHubCredentialTemplate;
 import org.springframework.credhub.core.credential.CredHubCredentialOperations;
 import org.springframework.credhub.core.credential.CredHubCredentialTemplate;
 import org.springframework.credhub.core.info.CredHubInfoOperations;
 import org.springframework.credhub.core.info.CredHubInfoTemplate;
+import org.springframework.credhub.core.interpolation.CachingCredHubInterpolationTemplate;
 import org.springframework.credhub.core.interpolation.CredHubInterpolationOperations;
 import org.springframework.credhub.core.interpolation.CredHubInterpolationTemplate;
 import org.springframework.credhub.core.permission.CredHubPermissionOperations;
 import org.springframework.credhub.core.permission.CredHubPermissionTemplate;
 import org.springframework.credhub.core.permissionV2.CredHubPermissionV2Operations;
 import org.springframework.credhub.core.permissionV2.CredHubPermissionV2Template;
+import org.springframework.credhub.support.CircuitBreakerOptions;
+import org.springframework.credhub.support.CredentialCacheOptions;
+import org.springframework.credhub.support.RetryOptions;
+import org.springframework.credhub.support.WarmUpOptions;
 import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClientService;
 import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
 import org.springframework.util.Assert;
@@ -40,10 +58,17 @@ import org.springframework.web.client.RestTemplate;
  *
  * @author Scott Frederick
  */
-public class CredHubTemplate implements CredHubOperations {
+public class CredHubTemplate implements CredHubOperations, DisposableBean {
 	private final RestTemplate restTemplate;
 	private final boolean usingOAuth2;
 
+	private CachingCredHubCredentialTemplate cachingCredentialOperations;
+	private boolean clientSideInterpolation;
+	private CredHubMetrics metrics;
+	private CredHubRetryPolicy retryPolicy;
+	private CredHubCircuitBreakers circuitBreakers;
+	private Executor executor = CredHubExecutors.getSharedExecutor();
+
 	/**
 	 * Create a new {@link CredHubTemplate} using the provided {@link RestTemplate}.
 	 * Intended for internal testing only.
@@ -104,7 +129,10 @@ public class CredHubTemplate implements CredHubOperations {
 	 */
 	@Override
 	public CredHubCredentialOperations credentials() {
-		return new CredHubCredentialTemplate(this);
+		if (this.cachingCredentialOperations != null) {
+			return this.cachingCredentialOperations;
+		}
+		return new CredHubCredentialTemplate(this, this::execute);
 	}
 
 	/**
@@ -144,6 +172,9 @@ public class CredHubTemplate implements CredHubOperations {
 	 */
 	@Override
 	public CredHubInterpolationOperations interpolation() {
+		if (this.cachingCredentialOperations != null && this.clientSideInterpolation) {
+			return new CachingCredHubInterpolationTemplate(new CredHubInterpolationTemplate(this), this.cachingCredentialOperations);
+		}
 		return new CredHubInterpolationTemplate(this);
 	}
 
@@ -172,12 +203,292 @@ public class CredHubTemplate implements CredHubOperations {
 		try {
 			return callback.doWithRestOperations(restTemplate);
 		}
+		catch (CredHubException e) {
+			throw e;
+		}
 		catch (HttpStatusCodeException e) {
 			throw new CredHubException(e);
 		}
+		finally {
+			if (this.metrics != null) {
+				CredHubMetricsRequestInterceptor.clearUriTemplate();
+			}
+		}
 	}
 
 	public boolean isUsingOAuth2() {
 		return this.usingOAuth2;
 	}
+
+	/**
+	 * Configure caching of credentials retrieved using the {@link #credentials()}
+	 * operations. Caching is disabled if the provided options are {@literal null}
+	 * or not enabled. If {@link CredentialCacheOptions#isClientSideInterpolation()} is set,
+	 * the {@link #interpolation()} operations resolve CredHub references using the cache.
+	 * A previously configured cache is closed.
+	 *
+	 * @param cacheOptions the credential cache options
+	 */
+	public void setCredentialCacheOptions(CredentialCacheOptions cacheOptions) {
+		destroyCachingCredentialOperations();
+
+		if (cacheOptions == null || !cacheOptions.isEnabled()) {
+			this.clientSideInterpolation = false;
+		}
+		else {
+			this.cachingCredentialOperations =
+					new CachingCredHubCredentialTemplate(new CredHubCredentialTemplate(this, this::execute),
+							cacheOptions);
+			this.clientSideInterpolation = cacheOptions.isClientSideInterpolation();
+		}
+	}
+
+	/**
+	 * Close the credential cache, if caching is configured. If the cache is kept in a
+	 * snapshot file, the snapshot is written when the last cache using the file is
+	 * closed.
+	 */
+	@Override
+	public void destroy() {
+		destroyCachingCredentialOperations();
+	}
+
+	private void destroyCachingCredentialOperations() {
+		if (this.cachingCredentialOperations != null) {
+			this.cachingCredentialOperations.destroy();
+			this.cachingCredentialOperations = null;
+		}
+	}
+
+	/**
+	 * Indicates whether credentials retrieved using the {@link #credentials()}
+	 * operations are cached.
+	 *
+	 * @return {@literal true} if credentials are cached
+	 */
+	public boolean isCachingCredentials() {
+		return this.cachingCredentialOperations != null;
+	}
+
+	/**
+	 * Set the executor used to send concurrent requests to CredHub, such as the requests
+	 * of the batch operations of {@link #credentials()}. Defaults to
+	 * {@link CredHubExecutors#getSharedExecutor()}. The executor is not shut down by this
+	 * template.
+	 *
+	 * @param executor the executor; must not be {@literal null}
+	 */
+	public void setExecutor(Executor executor) {
+		Assert.notNull(executor, "executor must not be null");
+		this.executor = executor;
+	}
+
+	private void execute(Runnable task) {
+		this.executor.execute(task);
+	}
+
+	/**
+	 * Retry requests to CredHub that fail with a transient error. Retries are not
+	 * configured if the provided options are {@literal null} or not enabled. Retries can
+	 * be configured only once.
+	 *
+	 * @param retryOptions the retry options
+	 */
+	public void setRetryOptions(RetryOptions retryOptions) {
+		if (retryOptions == null || !retryOptions.isEnabled()) {
+			return;
+		}
+		Assert.state(this.retryPolicy == null, "retries have already been configured");
+
+		CredHubRetryPolicy retryPolicy = new CredHubRetryPolicy(retryOptions);
+
+		List<ClientHttpRequestInterceptor> interceptors = new ArrayList<>(restTemplate.getInterceptors());
+		interceptors.add(new CredHubRetryRequestInterceptor(retryPolicy));
+		restTemplate.setInterceptors(interceptors);
+
+		this.retryPolicy = retryPolicy;
+	}
+
+	/**
+	 * Indicates whether requests to CredHub that fail with a transient error are retried.
+	 *
+	 * @return {@literal true} if requests are retried
+	 */
+	public boolean isRetryingRequests() {
+		return this.retryPolicy != null;
+	}
+
+	/**
+	 * Guard requests to CredHub with a circuit breaker for each group of operations, so
+	 * that requests fail immediately while CredHub is failing. Circuit breakers are not
+	 * configured if the provided options are {@literal null} or not enabled. Circuit
+	 * breakers can be configured only once.
+	 *
+	 * @param circuitBreakerOptions the circuit breaker options
+	 */
+	public void setCircuitBreakerOptions(CircuitBreakerOptions circuitBreakerOptions) {
+		if (circuitBreakerOptions == null || !circuitBreakerOptions.isEnabled()) {
+			return;
+		}
+		Assert.state(this.circuitBreakers == null, "circuit breakers have already been configured");
+
+		CredHubCircuitBreakers circuitBreakers = new CredHubCircuitBreakers(circuitBreakerOptions);
+		CredHubCircuitBreakerRequestInterceptor circuitBreakerInterceptor =
+				new CredHubCircuitBreakerRequestInterceptor(circuitBreakers, () -> info().version());
+
+		List<ClientHttpRequestInterceptor> interceptors = new ArrayList<>(restTemplate.getInterceptors());
+		int index = interceptors.size();
+		for (int i = 0; i < interceptors.size(); i++) {
+			if (interceptors.get(i) instanceof CredHubRetryRequestInterceptor) {
+				index = i;
+			}
+		}
+		interceptors.add(index, circuitBreakerInterceptor);
+		restTemplate.setInterceptors(interceptors);
+
+		if (this.metrics != null) {
+			this.metrics.bindCircuitBreakers(circuitBreakers, CredHubMetrics.REST_CLIENT);
+		}
+		this.circuitBreakers = circuitBreakers;
+	}
+
+	/**
+	 * Add a listener that is notified when the state of a circuit breaker changes.
+	 *
+	 * @param listener the listener; must not be {@literal null}
+	 */
+	public void addCircuitBreakerListener(CredHubCircuitBreakerListener listener) {
+		Assert.state(this.circuitBreakers != null, "circuit breakers have not been configured");
+		this.circuitBreakers.addListener(listener);
+	}
+
+	/**
+	 * Get the state of the circuit breaker for a group of operations.
+	 *
+	 * @param group the group name, for example {@literal credentials}
+	 * @return the state of the circuit breaker, or {@literal null} if the group is not
+	 * guarded by a circuit breaker
+	 */
+	public CredHubCircuitBreakerState getCircuitBreakerState(String group) {
+		return this.circuitBreakers == null ? null : this.circuitBreakers.getState(group);
+	}
+
+	/**
+	 * Indicates whether requests to CredHub are guarded by circuit breakers.
+	 *
+	 * @return {@literal true} if circuit breakers are used
+	 */
+	public boolean isUsingCircuitBreakers() {
+		return this.circuitBreakers != null;
+	}
+
+	/**
+	 * Record metrics for all requests made to CredHub, and for requests made to the
+	 * OAuth2 token server if OAuth2 is used. Metrics can be configured only once.
+	 *
+	 * @param metrics the metrics; must not be {@literal null}
+	 */
+	public void setMetrics(CredHubMetrics metrics) {
+		Assert.notNull(metrics, "metrics must not be null");
+		Assert.state(this.metrics == null, "metrics have already been configured");
+
+		CredHubMetricsRequestInterceptor metricsInterceptor = new CredHubMetricsRequestInterceptor(metrics);
+		restTemplate.setUriTemplateHandler(metricsInterceptor.createUriTemplateHandler(
+				restTemplate.getUriTemplateHandler()));
+
+		List<ClientHttpRequestInterceptor> interceptors = new ArrayList<>();
+		interceptors.add(metricsInterceptor);
+		for (ClientHttpRequestInterceptor interceptor : restTemplate.getInterceptors()) {
+			if (interceptor instanceof CredHubOAuth2RequestInterceptor) {
+				((CredHubOAuth2RequestInterceptor) interceptor).setMetrics(metrics);
+			}
+			interceptors.add(interceptor);
+		}
+		restTemplate.setInterceptors(interceptors);
+
+		if (this.circuitBreakers != null) {
+			metrics.bindCircuitBreakers(this.circuitBreakers, CredHubMetrics.REST_CLIENT);
+		}
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Indicates whether metrics are recorded for requests made to CredHub.
+	 *
+	 * @return {@literal true} if metrics are recorded
+	 */
+	public boolean isRecordingMetrics() {
+		return this.metrics != null;
+	}
+
+	/**
+	 * Warm up the connections to CredHub by requesting the server version once, which
+	 * also obtains an OAuth2 access token if OAuth2 is used, and then requesting it
+	 * concurrently to open the configured number of pooled connections. The duration of
+	 * the warm-up is recorded if metrics are configured. The concurrent requests are sent
+	 * using the executor configured with {@link #setExecutor(Executor)}.
+	 *
+	 * @param warmUpOptions the warm-up options; must not be {@literal null}
+	 * @return the duration of the warm-up
+	 * @throws IllegalStateException if the warm-up does not complete within the timeout
+	 */
+	public Duration warmUp(WarmUpOptions warmUpOptions) {
+		Assert.notNull(warmUpOptions, "warmUpOptions must not be null");
+		Assert.isTrue(warmUpOptions.getConnections() > 0, "connections must be greater than 0");
+
+		long start = System.nanoTime();
+		long deadline = start + warmUpOptions.getTimeout().toNanos();
+
+		List<Future<?>> requests = new ArrayList<>();
+		boolean successful = false;
+		try {
+			awaitWarmUp(submitWarmUpRequest(requests), deadline, warmUpOptions);
+
+			for (int i = 0; i < warmUpOptions.getConnections(); i++) {
+				submitWarmUpRequest(requests);
+			}
+			for (Future<?> request : requests) {
+				awaitWarmUp(request, deadline, warmUpOptions);
+			}
+
+			successful = true;
+			return Duration.ofNanos(System.nanoTime() - start);
+		}
+		finally {
+			for (Future<?> request : requests) {
+				request.cancel(true);
+			}
+			if (this.metrics != null) {
+				this.metrics.recordWarmUp(CredHubMetrics.REST_CLIENT,
+						Duration.ofNanos(System.nanoTime() - start), successful);
+			}
+		}
+	}
+
+	private Future<?> submitWarmUpRequest(List<Future<?>> requests) {
+		FutureTask<Object> request = new FutureTask<>(() -> info().version());
+		requests.add(request);
+		this.executor.execute(request);
+		return request;
+	}
+
+	private static void awaitWarmUp(Future<?> request, long deadline, WarmUpOptions warmUpOptions) {
+		try {
+			request.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+		}
+		catch (TimeoutException e) {
+			throw new IllegalStateException("CredHub connection warm-up did not complete within "
+					+ warmUpOptions.getTimeout(), e);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("CredHub connection warm-up was interrupted", e);
+		}
+		catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException("CredHub connection warm-up failed", e.getCause());
+		}
+	}
 }
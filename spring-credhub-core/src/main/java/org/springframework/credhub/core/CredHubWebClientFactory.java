@@ -16,23 +16,16 @@
 
 package org.springframework.credhub.core;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.credhub.security.oauth2.client.endpoint.WebClientReactiveClientCredentialsTokenResponseClient;
 import org.springframework.credhub.support.utils.JsonUtils;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.client.reactive.ClientHttpConnector;
-import org.springframework.http.codec.CodecConfigurer;
-import org.springframework.http.codec.json.Jackson2JsonDecoder;
-import org.springframework.http.codec.json.Jackson2JsonEncoder;
 import org.springframework.security.oauth2.client.registration.ReactiveClientRegistrationRepository;
-import org.springframework.security.oauth2.client.web.reactive.function.client.ServerOAuth2AuthorizedClientExchangeFilterFunction;
 import org.springframework.security.oauth2.client.web.server.ServerOAuth2AuthorizedClientRepository;
 import org.springframework.web.reactive.function.client.ExchangeStrategies;
 import org.springframework.web.reactive.function.client.WebClient;
 
-import static org.springframework.security.oauth2.client.web.reactive.function.client.ServerOAuth2AuthorizedClientExchangeFilterFunction.clientRegistrationId;
-
 /**
  * Factory for creating a {@link WebClient} configured for communication with
  * a CredHub server.
@@ -74,27 +67,22 @@ class CredHubWebClientFactory {
 				.clientConnector(clientHttpConnector)
 				.build());
 
-		ServerOAuth2AuthorizedClientExchangeFilterFunction oauth =
-				new ServerOAuth2AuthorizedClientExchangeFilterFunction(clientRegistrationRepository,
-						authorizedClientRepository);
-		oauth.setClientCredentialsTokenResponseClient(tokenResponseClient);
+		String registrationId = properties.getOauth2() == null ? null
+				: properties.getOauth2().getRegistrationId();
+
+		CredHubOAuth2ExchangeFilterFunction oauth =
+				new CredHubOAuth2ExchangeFilterFunction(clientRegistrationRepository, registrationId,
+						authorizedClientRepository, tokenResponseClient);
 
 		return buildWebClient(properties.getUrl(), clientHttpConnector)
 				.filter(oauth)
-				.defaultRequest(requestHeadersSpec ->
-						requestHeadersSpec.attributes(clientRegistrationId(properties.getOauth2().getRegistrationId())))
 				.build();
 	}
 
 	private static WebClient.Builder buildWebClient(String baseUri, ClientHttpConnector clientHttpConnector) {
 		ExchangeStrategies strategies = ExchangeStrategies.builder()
-				.codecs(configurer -> {
-					ObjectMapper mapper = JsonUtils.buildObjectMapper();
-
-					CodecConfigurer.DefaultCodecs dc = configurer.defaultCodecs();
-					dc.jackson2JsonDecoder(new Jackson2JsonDecoder(mapper));
-					dc.jackson2JsonEncoder(new Jackson2JsonEncoder(mapper));
-				}).build();
+				.codecs(JsonUtils::configureCodecs)
+				.build();
 
 		return WebClient.builder()
 				.clientConnector(clientHttpConnector)
@@ -0,0 +1,305 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.core;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.client.endpoint.OAuth2AccessTokenResponseClient;
+import org.springframework.security.oauth2.client.endpoint.OAuth2ClientCredentialsGrantRequest;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AccessTokenResponse;
+import org.springframework.util.Assert;
+
+/**
+ * Manages the OAuth2 access token used to authenticate to a CredHub server.
+ *
+ * <p>An access token is refreshed on a background thread shortly before it expires, so
+ * that requests are not delayed by a round trip to the token server. When a request finds
+ * no usable token, only one request fetches a new token from the token server while any
+ * concurrent requests wait for the result. Tokens are refreshed in the background only
+ * while they are being used.
+ */
+class OAuth2TokenManager {
+	private static final Log logger = LogFactory.getLog(OAuth2TokenManager.class);
+
+	private static final ScheduledExecutorService REFRESH_SCHEDULER = refreshScheduler();
+
+	static final Duration ACCESS_TOKEN_EXPIRES_SKEW = Duration.ofMinutes(1);
+	static final Duration REFRESH_AHEAD = Duration.ofMinutes(2);
+	static final Duration REFRESH_RETRY_DELAY = Duration.ofSeconds(10);
+
+	private final ClientRegistration clientRegistration;
+	private final OAuth2AuthorizedClientService authorizedClientService;
+	private final OAuth2AccessTokenResponseClient<OAuth2ClientCredentialsGrantRequest> tokenResponseClient;
+	private final ScheduledExecutorService scheduler;
+	private final Clock clock;
+
+	private final AtomicReference<CompletableFuture<OAuth2AuthorizedClient>> refreshInFlight = new AtomicReference<>();
+	private final AtomicReference<ScheduledFuture<?>> scheduledRefresh = new AtomicReference<>();
+	private volatile boolean tokenUsed;
+	private volatile CredHubMetrics metrics;
+
+	/**
+	 * Create a new {@link OAuth2TokenManager} that refreshes tokens using a shared
+	 * background thread.
+	 *
+	 * @param clientRegistration the OAuth2 client registration
+	 * @param authorizedClientService a repository of authorized OAuth2 clients
+	 * @param tokenResponseClient the client used to request tokens from the token server
+	 */
+	OAuth2TokenManager(ClientRegistration clientRegistration,
+					   OAuth2AuthorizedClientService authorizedClientService,
+					   OAuth2AccessTokenResponseClient<OAuth2ClientCredentialsGrantRequest> tokenResponseClient) {
+		this(clientRegistration, authorizedClientService, tokenResponseClient, REFRESH_SCHEDULER, Clock.systemUTC());
+	}
+
+	OAuth2TokenManager(ClientRegistration clientRegistration,
+					   OAuth2AuthorizedClientService authorizedClientService,
+					   OAuth2AccessTokenResponseClient<OAuth2ClientCredentialsGrantRequest> tokenResponseClient,
+					   ScheduledExecutorService scheduler, Clock clock) {
+		Assert.notNull(clientRegistration, "clientRegistration must not be null");
+		Assert.notNull(authorizedClientService, "authorizedClientService must not be null");
+		Assert.notNull(tokenResponseClient, "tokenResponseClient must not be null");
+		Assert.notNull(scheduler, "scheduler must not be null");
+		Assert.notNull(clock, "clock must not be null");
+
+		this.clientRegistration = clientRegistration;
+		this.authorizedClientService = authorizedClientService;
+		this.tokenResponseClient = tokenResponseClient;
+		this.scheduler = scheduler;
+		this.clock = clock;
+	}
+
+	/**
+	 * Get a valid access token, fetching a new token from the token server only if there is
+	 * no current token or the current token is about to expire.
+	 *
+	 * @return the access token
+	 */
+	OAuth2AccessToken getAccessToken() {
+		OAuth2AuthorizedClient client = authorizedClientService
+				.loadAuthorizedClient(clientRegistration.getRegistrationId(), clientRegistration.getClientId());
+
+		if (client == null || tokenExpiring(client)) {
+			client = refresh();
+		}
+		else if (scheduledRefresh.get() == null) {
+			scheduleRefresh(client);
+		}
+
+		tokenUsed = true;
+		return client.getAccessToken();
+	}
+
+	/**
+	 * Fetch a new token from the token server. If a fetch is already in progress, wait for
+	 * the result of that fetch instead of starting another one.
+	 *
+	 * @return the authorized client holding the new token
+	 */
+	OAuth2AuthorizedClient refresh() {
+		CompletableFuture<OAuth2AuthorizedClient> refresh = new CompletableFuture<>();
+		while (!refreshInFlight.compareAndSet(null, refresh)) {
+			CompletableFuture<OAuth2AuthorizedClient> existing = refreshInFlight.get();
+			if (existing != null) {
+				return await(existing);
+			}
+		}
+
+		try {
+			OAuth2AuthorizedClient client = authorizeClient();
+			recordRefresh(true);
+			refresh.complete(client);
+			scheduleRefresh(client);
+			return client;
+		}
+		catch (RuntimeException e) {
+			recordRefresh(false);
+			refresh.completeExceptionally(e);
+			throw e;
+		}
+		finally {
+			refreshInFlight.compareAndSet(refresh, null);
+		}
+	}
+
+	/**
+	 * Record requests to the token server with the provided metrics.
+	 *
+	 * @param metrics the metrics; may be {@literal null}
+	 */
+	void setMetrics(CredHubMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	private void recordRefresh(boolean successful) {
+		CredHubMetrics metrics = this.metrics;
+		if (metrics != null) {
+			metrics.recordTokenRefresh(successful);
+		}
+	}
+
+	private OAuth2AuthorizedClient authorizeClient() {
+		OAuth2ClientCredentialsGrantRequest request =
+				new OAuth2ClientCredentialsGrantRequest(clientRegistration);
+		OAuth2AccessTokenResponse tokenResponse = tokenResponseClient.getTokenResponse(request);
+
+		OAuth2AccessToken accessToken = tokenResponse.getAccessToken();
+
+		OAuth2AuthorizedClient authorizedClient =
+				new OAuth2AuthorizedClient(clientRegistration,
+						clientRegistration.getClientId(),
+						accessToken, tokenResponse.getRefreshToken());
+
+		authorizedClientService.saveAuthorizedClient(authorizedClient,
+				new OAuth2ClientCredentialsGrantAuthenticationToken(clientRegistration, accessToken));
+
+		return authorizedClient;
+	}
+
+	private void scheduleRefresh(OAuth2AuthorizedClient client) {
+		Instant refreshAt = refreshTime(client.getAccessToken());
+		if (refreshAt == null) {
+			return;
+		}
+
+		tokenUsed = false;
+		schedule(Duration.between(clock.instant(), refreshAt));
+	}
+
+	private void schedule(Duration delay) {
+		long delayMillis = Math.max(0, delay.toMillis());
+		ScheduledFuture<?> next = scheduler.schedule(this::backgroundRefresh, delayMillis, TimeUnit.MILLISECONDS);
+		ScheduledFuture<?> previous = scheduledRefresh.getAndSet(next);
+		if (previous != null) {
+			previous.cancel(false);
+		}
+	}
+
+	private void backgroundRefresh() {
+		if (!tokenUsed) {
+			scheduledRefresh.set(null);
+			return;
+		}
+
+		try {
+			refresh();
+		}
+		catch (RuntimeException e) {
+			OAuth2AuthorizedClient client = authorizedClientService
+					.loadAuthorizedClient(clientRegistration.getRegistrationId(), clientRegistration.getClientId());
+
+			if (client != null && !tokenExpiring(client)) {
+				logger.warn("Error refreshing OAuth2 access token, retrying in " + REFRESH_RETRY_DELAY, e);
+				schedule(REFRESH_RETRY_DELAY);
+			}
+			else {
+				logger.warn("Error refreshing OAuth2 access token, a new token will be requested on the next request", e);
+				scheduledRefresh.set(null);
+			}
+		}
+	}
+
+	/**
+	 * Determine when a token should be refreshed: {@link #REFRESH_AHEAD} before it
+	 * expires, or halfway through its lifetime for short-lived tokens.
+	 */
+	static Instant refreshTime(OAuth2AccessToken accessToken) {
+		Instant expiresAt = accessToken.getExpiresAt();
+		if (expiresAt == null) {
+			return null;
+		}
+
+		Instant issuedAt = accessToken.getIssuedAt();
+		if (issuedAt != null) {
+			Duration halfLifetime = Duration.between(issuedAt, expiresAt).dividedBy(2);
+			if (halfLifetime.compareTo(REFRESH_AHEAD) < 0) {
+				return issuedAt.plus(halfLifetime);
+			}
+		}
+
+		return expiresAt.minus(REFRESH_AHEAD);
+	}
+
+	private boolean tokenExpiring(OAuth2AuthorizedClient client) {
+		Instant expiresAt = client.getAccessToken().getExpiresAt();
+		return expiresAt != null && clock.instant().isAfter(expiresAt.minus(ACCESS_TOKEN_EXPIRES_SKEW));
+	}
+
+	private static OAuth2AuthorizedClient await(CompletableFuture<OAuth2AuthorizedClient> refresh) {
+		try {
+			return refresh.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for an OAuth2 access token", e);
+		}
+		catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+	}
+
+	private static ScheduledExecutorService refreshScheduler() {
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("credhub-oauth2-");
+		threadFactory.setDaemon(true);
+		return Executors.newSingleThreadScheduledExecutor(threadFactory);
+	}
+
+	private static class OAuth2ClientCredentialsGrantAuthenticationToken extends AbstractAuthenticationToken {
+		private final ClientRegistration clientRegistration;
+		private final OAuth2AccessToken accessToken;
+
+		OAuth2ClientCredentialsGrantAuthenticationToken(ClientRegistration clientRegistration,
+														OAuth2AccessToken accessToken) {
+			super(Collections.emptyList());
+			this.clientRegistration = clientRegistration;
+			this.accessToken = accessToken;
+		}
+
+		@Override
+		public Object getCredentials() {
+			return accessToken.getTokenValue();
+		}
+
+		@Override
+		public Object getPrincipal() {
+			return this.clientRegistration.getClientId();
+		}
+	}
+}
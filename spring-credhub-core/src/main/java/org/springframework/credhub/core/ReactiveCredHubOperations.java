@@ -25,6 +25,7 @@ import org.springframework.credhub.core.permission.ReactiveCredHubPermissionOper
 import org.springframework.credhub.core.permissionV2.ReactiveCredHubPermissionV2Operations;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import java.time.Duration;
 import java.util.function.Function;
 
 /**
@@ -75,6 +76,23 @@ public interface ReactiveCredHubOperations {
 	 */
 	ReactiveCredHubInfoOperations info();
 
+	/**
+	 * Get a view of these operations that fails requests with a
+	 * {@link java.util.concurrent.TimeoutException} if CredHub does not respond within
+	 * the provided timeout. The timeout applies to each {@link reactor.core.publisher.Mono}
+	 * returned by the operations, and to the first element of each
+	 * {@link reactor.core.publisher.Flux}, and overrides the timeouts configured for
+	 * the client. The default implementation applies the timeout to the publishers
+	 * returned by {@link #doWithWebClient(Function)}, and returns the default operations
+	 * templates, which do not share any cache of these operations.
+	 *
+	 * @param timeout the maximum time to wait for a response; must not be {@literal null}
+	 * @return the operations with the timeout applied
+	 */
+	default ReactiveCredHubOperations withTimeout(Duration timeout) {
+		return new TimeoutReactiveCredHubOperations(this, timeout);
+	}
+
 	/**
 	 * Allow interaction with the configured {@link WebClient} not provided
 	 * by other methods.
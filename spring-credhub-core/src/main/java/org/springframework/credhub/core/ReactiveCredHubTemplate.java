@@ -17,26 +17,38 @@
 package org.springframework.credhub.core;
 
 import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.credhub.core.certificate.ReactiveCredHubCertificateOperations;
 import org.springframework.credhub.core.certificate.ReactiveCredHubCertificateTemplate;
+import org.springframework.credhub.core.credential.ReactiveCachingCredHubCredentialTemplate;
 import org.springframework.credhub.core.credential.ReactiveCredHubCredentialOperations;
 import org.springframework.credhub.core.credential.ReactiveCredHubCredentialTemplate;
 import org.springframework.credhub.core.info.ReactiveCredHubInfoOperations;
 import org.springframework.credhub.core.info.ReactiveCredHubInfoTemplate;
+import org.springframework.credhub.core.interpolation.ReactiveCachingCredHubInterpolationTemplate;
 import org.springframework.credhub.core.interpolation.ReactiveCredHubInterpolationOperations;
 import org.springframework.credhub.core.interpolation.ReactiveCredHubInterpolationTemplate;
 import org.springframework.credhub.core.permission.ReactiveCredHubPermissionOperations;
 import org.springframework.credhub.core.permission.ReactiveCredHubPermissionTemplate;
 import org.springframework.credhub.core.permissionV2.ReactiveCredHubPermissionV2Operations;
 import org.springframework.credhub.core.permissionV2.ReactiveCredHubPermissionV2Template;
+import org.springframework.credhub.support.CircuitBreakerOptions;
+import org.springframework.credhub.support.CredentialCacheOptions;
+import org.springframework.credhub.support.RetryOptions;
+import org.springframework.credhub.support.WarmUpOptions;
 import org.springframework.http.client.ClientHttpRequestFactory;
 import org.springframework.http.client.reactive.ClientHttpConnector;
 import org.springframework.security.oauth2.client.registration.ReactiveClientRegistrationRepository;
 import org.springframework.security.oauth2.client.web.server.ServerOAuth2AuthorizedClientRepository;
 import org.springframework.util.Assert;
 import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
 import java.util.function.Function;
 
 /**
@@ -44,10 +56,18 @@ import java.util.function.Function;
  *
  * @author Scott Frederick
  */
-public class ReactiveCredHubTemplate implements ReactiveCredHubOperations {
-	private final WebClient webClient;
+public class ReactiveCredHubTemplate implements ReactiveCredHubOperations, DisposableBean {
+	private WebClient webClient;
 	private final boolean usingOAuth2;
 
+	private ReactiveCachingCredHubCredentialTemplate cachingCredentialOperations;
+	private boolean clientSideInterpolation;
+	private CredHubMetrics metrics;
+	private CredHubRetryPolicy retryPolicy;
+	private CredHubCircuitBreakers circuitBreakers;
+	private final Duration timeout;
+	private final ReactiveCredHubTemplate parent;
+
 	/**
 	 * Create a new {@link ReactiveCredHubTemplate} using the provided {@link WebClient}.
 	 * Intended for internal testing only.
@@ -59,6 +79,8 @@ public class ReactiveCredHubTemplate implements ReactiveCredHubOperations {
 
 		this.webClient = webClient;
 		this.usingOAuth2 = false;
+		this.timeout = null;
+		this.parent = null;
 	}
 
 	/**
@@ -75,6 +97,8 @@ public class ReactiveCredHubTemplate implements ReactiveCredHubOperations {
 
 		this.webClient = CredHubWebClientFactory.createWebClient(credHubProperties, clientHttpConnector);
 		this.usingOAuth2 = false;
+		this.timeout = null;
+		this.parent = null;
 	}
 
 	/**
@@ -98,6 +122,34 @@ public class ReactiveCredHubTemplate implements ReactiveCredHubOperations {
 		this.webClient = CredHubWebClientFactory.createWebClient(credHubProperties, clientHttpConnector,
 				clientRegistrationRepository, authorizedClientRepository);
 		this.usingOAuth2 = true;
+		this.timeout = null;
+		this.parent = null;
+	}
+
+	private ReactiveCredHubTemplate(ReactiveCredHubTemplate template, Duration timeout) {
+		this.usingOAuth2 = template.usingOAuth2;
+		this.timeout = timeout;
+		this.parent = template.root();
+	}
+
+	/**
+	 * Get the template that holds the configuration of this template, which is the
+	 * template this view was created from if this template is a view with a timeout.
+	 */
+	private ReactiveCredHubTemplate root() {
+		return this.parent != null ? this.parent : this;
+	}
+
+	/**
+	 * Get the caching credentials operations, sending requests through this template so
+	 * that the timeout of a view applies to them.
+	 */
+	private ReactiveCredHubCredentialOperations cachingCredentialOperations() {
+		ReactiveCachingCredHubCredentialTemplate cachingOperations = root().cachingCredentialOperations;
+		if (cachingOperations == null || this.parent == null) {
+			return cachingOperations;
+		}
+		return cachingOperations.withDelegate(new ReactiveCredHubCredentialTemplate(this));
 	}
 
 	/**
@@ -107,6 +159,10 @@ public class ReactiveCredHubTemplate implements ReactiveCredHubOperations {
 	 */
 	@Override
 	public ReactiveCredHubCredentialOperations credentials() {
+		ReactiveCredHubCredentialOperations cachingOperations = cachingCredentialOperations();
+		if (cachingOperations != null) {
+			return cachingOperations;
+		}
 		return new ReactiveCredHubCredentialTemplate(this);
 	}
 
@@ -147,6 +203,10 @@ public class ReactiveCredHubTemplate implements ReactiveCredHubOperations {
 	 */
 	@Override
 	public ReactiveCredHubInterpolationOperations interpolation() {
+		ReactiveCredHubCredentialOperations cachingOperations = cachingCredentialOperations();
+		if (cachingOperations != null && root().clientSideInterpolation) {
+			return new ReactiveCachingCredHubInterpolationTemplate(new ReactiveCredHubInterpolationTemplate(this), cachingOperations);
+		}
 		return new ReactiveCredHubInterpolationTemplate(this);
 	}
 
@@ -173,14 +233,275 @@ public class ReactiveCredHubTemplate implements ReactiveCredHubOperations {
 		Assert.notNull(callback, "callback must not be null");
 
 		try {
-			return callback.apply(webClient);
+			return TimeoutReactiveCredHubOperations.applyTimeout(callback.apply(root().webClient), this.timeout);
 		}
 		catch (HttpStatusCodeException e) {
 			throw new CredHubException(e);
 		}
 	}
 
+	/**
+	 * Get a view of this template that fails requests with a
+	 * {@link java.util.concurrent.TimeoutException} if CredHub does not respond within
+	 * the provided timeout. The view uses the {@link WebClient}, credential cache,
+	 * retries, circuit breakers and metrics of this template, including those configured
+	 * after the view is created, and configuring the view configures this template.
+	 *
+	 * @param timeout the maximum time to wait for a response; must not be {@literal null}
+	 * @return the template with the timeout applied
+	 */
+	@Override
+	public ReactiveCredHubTemplate withTimeout(Duration timeout) {
+		TimeoutReactiveCredHubOperations.validateTimeout(timeout);
+
+		return new ReactiveCredHubTemplate(this, timeout);
+	}
+
 	public boolean isUsingOAuth2() {
 		return this.usingOAuth2;
 	}
+
+	/**
+	 * Configure caching of credentials retrieved using the {@link #credentials()}
+	 * operations. Caching is disabled if the provided options are {@literal null}
+	 * or not enabled. If {@link CredentialCacheOptions#isClientSideInterpolation()} is set,
+	 * the {@link #interpolation()} operations resolve CredHub references using the cache.
+	 * A previously configured cache is closed.
+	 *
+	 * @param cacheOptions the credential cache options
+	 */
+	public void setCredentialCacheOptions(CredentialCacheOptions cacheOptions) {
+		if (this.parent != null) {
+			this.parent.setCredentialCacheOptions(cacheOptions);
+			return;
+		}
+
+		destroyCachingCredentialOperations();
+
+		if (cacheOptions == null || !cacheOptions.isEnabled()) {
+			this.clientSideInterpolation = false;
+		}
+		else {
+			this.cachingCredentialOperations = new ReactiveCachingCredHubCredentialTemplate(
+					new ReactiveCredHubCredentialTemplate(this), cacheOptions);
+			this.clientSideInterpolation = cacheOptions.isClientSideInterpolation();
+		}
+	}
+
+	/**
+	 * Close the credential cache, if caching is configured. If the cache is kept
+	 * in a snapshot file, the snapshot is written when the last cache using the file is
+	 * closed. Destroying a view created by {@link #withTimeout(Duration)} has no effect.
+	 */
+	@Override
+	public void destroy() {
+		if (this.parent != null) {
+			return;
+		}
+
+		destroyCachingCredentialOperations();
+	}
+
+	private void destroyCachingCredentialOperations() {
+		if (this.cachingCredentialOperations != null) {
+			this.cachingCredentialOperations.destroy();
+			this.cachingCredentialOperations = null;
+		}
+	}
+
+	/**
+	 * Indicates whether credentials retrieved using the {@link #credentials()}
+	 * operations are cached.
+	 *
+	 * @return {@literal true} if credentials are cached
+	 */
+	public boolean isCachingCredentials() {
+		return root().cachingCredentialOperations != null;
+	}
+
+	/**
+	 * Retry requests to CredHub that fail with a transient error. Retries are not
+	 * configured if the provided options are {@literal null} or not enabled. Retries can
+	 * be configured only once.
+	 *
+	 * @param retryOptions the retry options
+	 */
+	public void setRetryOptions(RetryOptions retryOptions) {
+		if (this.parent != null) {
+			this.parent.setRetryOptions(retryOptions);
+			return;
+		}
+
+		if (retryOptions == null || !retryOptions.isEnabled()) {
+			return;
+		}
+		Assert.state(this.retryPolicy == null, "retries have already been configured");
+
+		CredHubRetryPolicy retryPolicy = new CredHubRetryPolicy(retryOptions);
+
+		this.webClient = this.webClient.mutate()
+				.filter(new CredHubRetryExchangeFilterFunction(retryPolicy))
+				.build();
+
+		this.retryPolicy = retryPolicy;
+	}
+
+	/**
+	 * Indicates whether requests to CredHub that fail with a transient error are retried.
+	 *
+	 * @return {@literal true} if requests are retried
+	 */
+	public boolean isRetryingRequests() {
+		return root().retryPolicy != null;
+	}
+
+	/**
+	 * Guard requests to CredHub with a circuit breaker for each group of operations, so
+	 * that requests fail immediately while CredHub is failing. Circuit breakers are not
+	 * configured if the provided options are {@literal null} or not enabled. Circuit
+	 * breakers can be configured only once.
+	 *
+	 * @param circuitBreakerOptions the circuit breaker options
+	 */
+	public void setCircuitBreakerOptions(CircuitBreakerOptions circuitBreakerOptions) {
+		if (this.parent != null) {
+			this.parent.setCircuitBreakerOptions(circuitBreakerOptions);
+			return;
+		}
+
+		if (circuitBreakerOptions == null || !circuitBreakerOptions.isEnabled()) {
+			return;
+		}
+		Assert.state(this.circuitBreakers == null, "circuit breakers have already been configured");
+
+		CredHubCircuitBreakers circuitBreakers = new CredHubCircuitBreakers(circuitBreakerOptions);
+		CredHubCircuitBreakerExchangeFilterFunction circuitBreakerFilter =
+				new CredHubCircuitBreakerExchangeFilterFunction(circuitBreakers, () -> info().version());
+
+		this.webClient = this.webClient.mutate()
+				.filters(filters -> {
+					int index = filters.size();
+					for (int i = 0; i < filters.size(); i++) {
+						if (filters.get(i) instanceof CredHubRetryExchangeFilterFunction) {
+							index = i;
+						}
+					}
+					filters.add(index, circuitBreakerFilter);
+				})
+				.build();
+
+		if (this.metrics != null) {
+			this.metrics.bindCircuitBreakers(circuitBreakers, CredHubMetrics.WEB_CLIENT);
+		}
+		this.circuitBreakers = circuitBreakers;
+	}
+
+	/**
+	 * Add a listener that is notified when the state of a circuit breaker changes.
+	 *
+	 * @param listener the listener; must not be {@literal null}
+	 */
+	public void addCircuitBreakerListener(CredHubCircuitBreakerListener listener) {
+		CredHubCircuitBreakers circuitBreakers = root().circuitBreakers;
+		Assert.state(circuitBreakers != null, "circuit breakers have not been configured");
+		circuitBreakers.addListener(listener);
+	}
+
+	/**
+	 * Get the state of the circuit breaker for a group of operations.
+	 *
+	 * @param group the group name, for example {@literal credentials}
+	 * @return the state of the circuit breaker, or {@literal null} if the group is not
+	 * guarded by a circuit breaker
+	 */
+	public CredHubCircuitBreakerState getCircuitBreakerState(String group) {
+		CredHubCircuitBreakers circuitBreakers = root().circuitBreakers;
+		return circuitBreakers == null ? null : circuitBreakers.getState(group);
+	}
+
+	/**
+	 * Indicates whether requests to CredHub are guarded by circuit breakers.
+	 *
+	 * @return {@literal true} if circuit breakers are used
+	 */
+	public boolean isUsingCircuitBreakers() {
+		return root().circuitBreakers != null;
+	}
+
+	/**
+	 * Record metrics for all requests made to CredHub, and for requests made to the
+	 * OAuth2 token server if OAuth2 is used. Metrics can be configured only once.
+	 *
+	 * @param metrics the metrics; must not be {@literal null}
+	 */
+	public void setMetrics(CredHubMetrics metrics) {
+		if (this.parent != null) {
+			this.parent.setMetrics(metrics);
+			return;
+		}
+
+		Assert.notNull(metrics, "metrics must not be null");
+		Assert.state(this.metrics == null, "metrics have already been configured");
+
+		this.webClient = this.webClient.mutate()
+				.filters(filters -> {
+					for (ExchangeFilterFunction filter : filters) {
+						if (filter instanceof CredHubOAuth2ExchangeFilterFunction) {
+							((CredHubOAuth2ExchangeFilterFunction) filter).setMetrics(metrics);
+						}
+					}
+					filters.add(0, new CredHubMetricsExchangeFilterFunction(metrics));
+				})
+				.build();
+
+		if (this.circuitBreakers != null) {
+			metrics.bindCircuitBreakers(this.circuitBreakers, CredHubMetrics.WEB_CLIENT);
+		}
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Indicates whether metrics are recorded for requests made to CredHub.
+	 *
+	 * @return {@literal true} if metrics are recorded
+	 */
+	public boolean isRecordingMetrics() {
+		return root().metrics != null;
+	}
+
+	/**
+	 * Warm up the connections to CredHub by requesting the server version once, which
+	 * also obtains an OAuth2 access token if OAuth2 is used, and then requesting it
+	 * concurrently to open the configured number of pooled connections. The duration of
+	 * the warm-up is recorded if metrics are configured.
+	 *
+	 * @param warmUpOptions the warm-up options; must not be {@literal null}
+	 * @return the duration of the warm-up, or an error if the warm-up fails or does not
+	 * complete within the timeout
+	 */
+	public Mono<Duration> warmUp(WarmUpOptions warmUpOptions) {
+		Assert.notNull(warmUpOptions, "warmUpOptions must not be null");
+		Assert.isTrue(warmUpOptions.getConnections() > 0, "connections must be greater than 0");
+
+		int connections = warmUpOptions.getConnections();
+
+		return Mono.defer(() -> {
+			long start = System.nanoTime();
+
+			return info().version()
+					.thenMany(Flux.range(0, connections).flatMap(i -> info().version(), connections))
+					.then()
+					.timeout(warmUpOptions.getTimeout())
+					.then(Mono.fromSupplier(() -> Duration.ofNanos(System.nanoTime() - start)))
+					.doOnSuccess(duration -> recordWarmUp(duration, true))
+					.doOnError(e -> recordWarmUp(Duration.ofNanos(System.nanoTime() - start), false));
+		});
+	}
+
+	private void recordWarmUp(Duration duration, boolean successful) {
+		CredHubMetrics metrics = root().metrics;
+		if (metrics != null) {
+			metrics.recordWarmUp(CredHubMetrics.WEB_CLIENT, duration, successful);
+		}
+	}
 }
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.credhub.core;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.credhub.core.certificate.ReactiveCredHubCertificateOperations;
+import org.springframework.credhub.core.certificate.ReactiveCredHubCertificateTemplate;
+import org.springframework.credhub.core.credential.ReactiveCredHubCredentialOperations;
+import org.springframework.credhub.core.credential.ReactiveCredHubCredentialTemplate;
+import org.springframework.credhub.core.info.ReactiveCredHubInfoOperations;
+import org.springframework.credhub.core.info.ReactiveCredHubInfoTemplate;
+import org.springframework.credhub.core.interpolation.ReactiveCredHubInterpolationOperations;
+import org.springframework.credhub.core.interpolation.ReactiveCredHubInterpolationTemplate;
+import org.springframework.credhub.core.permission.ReactiveCredHubPermissionOperations;
+import org.springframework.credhub.core.permission.ReactiveCredHubPermissionTemplate;
+import org.springframework.credhub.core.permissionV2.ReactiveCredHubPermissionV2Operations;
+import org.springframework.credhub.core.permissionV2.ReactiveCredHubPermissionV2Template;
+import org.springframework.util.Assert;
+import org.springframework.web.reactive.function.client.WebClient;
+
+/**
+ * The view of a {@link ReactiveCredHubOperations} returned by the default
+ * {@link ReactiveCredHubOperations#withTimeout(Duration)}. The timeout is applied to the
+ * publishers returned by the delegate's {@link #doWithWebClient(Function)}, and the
+ * operations are the default templates built on this view.
+ */
+class TimeoutReactiveCredHubOperations implements ReactiveCredHubOperations {
+	private final ReactiveCredHubOperations delegate;
+	private final Duration timeout;
+
+	TimeoutReactiveCredHubOperations(ReactiveCredHubOperations delegate, Duration timeout) {
+		Assert.notNull(delegate, "delegate must not be null");
+		validateTimeout(timeout);
+
+		this.delegate = delegate;
+		this.timeout = timeout;
+	}
+
+	@Override
+	public ReactiveCredHubCredentialOperations credentials() {
+		return new ReactiveCredHubCredentialTemplate(this);
+	}
+
+	@Override
+	public ReactiveCredHubPermissionOperations permissions() {
+		return new ReactiveCredHubPermissionTemplate(this);
+	}
+
+	@Override
+	public ReactiveCredHubPermissionV2Operations permissionsV2() {
+		return new ReactiveCredHubPermissionV2Template(this);
+	}
+
+	@Override
+	public ReactiveCredHubCertificateOperations certificates() {
+		return new ReactiveCredHubCertificateTemplate(this);
+	}
+
+	@Override
+	public ReactiveCredHubInterpolationOperations interpolation() {
+		return new ReactiveCredHubInterpolationTemplate(this);
+	}
+
+	@Override
+	public ReactiveCredHubInfoOperations info() {
+		return new ReactiveCredHubInfoTemplate(this);
+	}
+
+	@Override
+	public ReactiveCredHubOperations withTimeout(Duration timeout) {
+		return new TimeoutReactiveCredHubOperations(this.delegate, timeout);
+	}
+
+	@Override
+	public <V, T extends Publisher<V>> T doWithWebClient(Function<WebClient, ? extends T> callback) {
+		return applyTimeout(this.delegate.doWithWebClient(callback), this.timeout);
+	}
+
+	static void validateTimeout(Duration timeout) {
+		Assert.notNull(timeout, "timeout must not be null");
+		Assert.isTrue(!timeout.isNegative() && !timeout.isZero(), "timeout must be positive");
+	}
+
+	/**
+	 * Fail a {@link Mono}, or a {@link Flux} that does not emit its first element, with a
+	 * {@link java.util.concurrent.TimeoutException} if it does not complete within the
+	 * timeout.
+	 */
+	@SuppressWarnings("unchecked")
+	static <V, T extends Publisher<V>> T applyTimeout(T publisher, Duration timeout) {
+		if (timeout == null) {
+			return publisher;
+		}
+		if (publisher instanceof Mono) {
+			return (T) ((Mono<V>) publisher).timeout(timeout);
+		}
+		if (publisher instanceof Flux) {
+			return (T) ((Flux<V>) publisher).timeout(Mono.delay(timeout), item -> Mono.never());
+		}
+		return publisher;
+	}
+}
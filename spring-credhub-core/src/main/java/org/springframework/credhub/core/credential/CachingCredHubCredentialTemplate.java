@@ -0,0 +1,267 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.core.credential;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.credhub.support.CredentialCacheOptions;
+import org.springframework.credhub.support.CredentialDetails;
+import org.springframework.credhub.support.CredentialDetailsBatch;
+import org.springframework.credhub.support.CredentialName;
+import org.springframework.credhub.support.CredentialPath;
+import org.springframework.credhub.support.CredentialRequest;
+import org.springframework.credhub.support.CredentialRequestResult;
+import org.springframework.credhub.support.CredentialSummary;
+import org.springframework.credhub.support.ParametersRequest;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link CredHubCredentialOperations} that caches credentials retrieved by name or
+ * ID and delegates all other interactions with CredHub. Cached values of a credential
+ * are evicted when the credential is written, generated, regenerated, or deleted
+ * using this object.
+ *
+ * <p>If {@link CredentialCacheOptions#getMaxStaleness()} is set, an expired cached value
+ * is returned when retrieving a credential fails because CredHub is unavailable. Such
+ * values are returned as {@link org.springframework.credhub.support.StaleCredentialDetails}.
+ */
+public class CachingCredHubCredentialTemplate implements CredHubCredentialOperations, DisposableBean {
+	private final CredHubCredentialOperations delegate;
+
+	private final CredentialCache cache;
+
+	/**
+	 * Create a new {@link CachingCredHubCredentialTemplate}.
+	 *
+	 * @param delegate the {@link CredHubCredentialOperations} to use for interactions with CredHub;
+	 *                 must not be {@literal null}
+	 * @param options  the cache options; must not be {@literal null}
+	 */
+	public CachingCredHubCredentialTemplate(CredHubCredentialOperations delegate, CredentialCacheOptions options) {
+		this(delegate, new CredentialCache(options));
+	}
+
+	CachingCredHubCredentialTemplate(CredHubCredentialOperations delegate, CredentialCache cache) {
+		Assert.notNull(delegate, "delegate must not be null");
+
+		this.delegate = delegate;
+		this.cache = cache;
+	}
+
+	@Override
+	public <T> CredentialDetails<T> write(final CredentialRequest<T> credentialRequest) {
+		Assert.notNull(credentialRequest, "credentialRequest must not be null");
+
+		try {
+			return delegate.write(credentialRequest);
+		}
+		finally {
+			cache.evict(credentialRequest.getName());
+		}
+	}
+
+	@Override
+	public List<CredentialRequestResult<CredentialRequest<?>>> writeAll(
+			final Collection<? extends CredentialRequest<?>> credentialRequests, final int concurrency) {
+		Assert.notNull(credentialRequests, "credentialRequests must not be null");
+
+		try {
+			return delegate.writeAll(credentialRequests, concurrency);
+		}
+		finally {
+			credentialRequests.forEach(request -> cache.evict(request.getName()));
+		}
+	}
+
+	@Override
+	public <T, P> CredentialDetails<T> generate(final ParametersRequest<P> parametersRequest) {
+		Assert.notNull(parametersRequest, "parametersRequest must not be null");
+
+		try {
+			return delegate.generate(parametersRequest);
+		}
+		finally {
+			cache.evict(parametersRequest.getName());
+		}
+	}
+
+	@Override
+	public List<CredentialRequestResult<ParametersRequest<?>>> generateAll(
+			final Collection<? extends ParametersRequest<?>> parametersRequests, final int concurrency) {
+		Assert.notNull(parametersRequests, "parametersRequests must not be null");
+
+		try {
+			return delegate.generateAll(parametersRequests, concurrency);
+		}
+		finally {
+			parametersRequests.forEach(request -> cache.evict(request.getName()));
+		}
+	}
+
+	@Override
+	public <T> CredentialDetails<T> regenerate(final CredentialName name, Class<T> credentialType) {
+		Assert.notNull(name, "credential name must not be null");
+
+		try {
+			return delegate.regenerate(name, credentialType);
+		}
+		finally {
+			cache.evict(name.getName());
+		}
+	}
+
+	@Override
+	public <T> CredentialDetails<T> getById(final String id, final Class<T> credentialType) {
+		Assert.notNull(id, "credential id must not be null");
+
+		CredentialDetails<T> details = cache.getById(id);
+		if (details == null) {
+			long generation = cache.idGeneration();
+			try {
+				details = delegate.getById(id, credentialType);
+			}
+			catch (RuntimeException e) {
+				return staleOrThrow(cache.getStaleById(id), e);
+			}
+			cache.putById(details, generation);
+		}
+		return details;
+	}
+
+	@Override
+	public <T> CredentialDetails<T> getByName(final CredentialName name, final Class<T> credentialType) {
+		Assert.notNull(name, "credential name must not be null");
+
+		CredentialDetails<T> details = cache.getByName(name.getName());
+		if (details == null) {
+			long generation = cache.nameGeneration(name.getName());
+			try {
+				details = delegate.getByName(name, credentialType);
+			}
+			catch (RuntimeException e) {
+				return staleOrThrow(cache.getStaleByName(name.getName()), e);
+			}
+			cache.putByName(details, generation);
+		}
+		return details;
+	}
+
+	@Override
+	public <T> CredentialDetailsBatch<T> getByNames(final Collection<? extends CredentialName> names,
+													final int concurrency, final Class<T> credentialType) {
+		Map<String, CredentialName> distinctNames = CredentialBatchSupport.distinctNames(names, concurrency);
+
+		Map<String, CredentialDetails<T>> cached = new HashMap<>();
+		Map<String, Long> generations = new HashMap<>();
+		List<CredentialName> misses = new ArrayList<>();
+		distinctNames.forEach((key, name) -> {
+			CredentialDetails<T> details = cache.getByName(key);
+			if (details != null) {
+				cached.put(key, details);
+			}
+			else {
+				generations.put(key, cache.nameGeneration(key));
+				misses.add(name);
+			}
+		});
+
+		CredentialDetailsBatch<T> loaded;
+		try {
+			loaded = misses.isEmpty()
+					? CredentialBatchSupport.emptyBatch()
+					: delegate.getByNames(misses, concurrency, credentialType);
+		}
+		catch (RuntimeException e) {
+			if (!cache.isStaleIfErrorEnabled() || !StaleIfErrorSupport.isUnavailable(e)) {
+				throw e;
+			}
+			loaded = StaleIfErrorSupport.failedBatch(misses, e);
+		}
+		CredentialBatchSupport.cacheLoaded(cache, loaded, generations);
+
+		return StaleIfErrorSupport.withStaleValues(cache,
+				CredentialBatchSupport.merge(distinctNames.keySet(), cached, loaded));
+	}
+
+	@Override
+	public <T> List<CredentialDetails<T>> getByNameWithHistory(final CredentialName name,
+															   final Class<T> credentialType) {
+		return delegate.getByNameWithHistory(name, credentialType);
+	}
+
+	@Override
+	public <T> List<CredentialDetails<T>> getByNameWithHistory(final CredentialName name, final int versions,
+															   final Class<T> credentialType) {
+		return delegate.getByNameWithHistory(name, versions, credentialType);
+	}
+
+	@Override
+	public List<CredentialSummary> findByName(final CredentialName name) {
+		return delegate.findByName(name);
+	}
+
+	@Override
+	public List<CredentialSummary> findByPath(final String path) {
+		return delegate.findByPath(path);
+	}
+
+	@Override
+	@Deprecated
+	public List<CredentialPath> getAllPaths() {
+		return delegate.getAllPaths();
+	}
+
+	@Override
+	public void deleteByName(final CredentialName name) {
+		Assert.notNull(name, "credential name must not be null");
+
+		try {
+			delegate.deleteByName(name);
+		}
+		finally {
+			cache.evict(name.getName());
+		}
+	}
+
+	private <T> CredentialDetails<T> staleOrThrow(CredentialDetails<T> stale, RuntimeException e) {
+		if (stale == null || !StaleIfErrorSupport.isUnavailable(e)) {
+			throw e;
+		}
+		return stale;
+	}
+
+	/**
+	 * Remove all credentials from the cache.
+	 */
+	public void clearCache() {
+		cache.clear();
+	}
+
+	/**
+	 * Close the cache. If the cache is kept in a snapshot file, the snapshot is written
+	 * when the last cache using the file is closed.
+	 */
+	@Override
+	public void destroy() {
+		cache.close();
+	}
+}
@@ -17,13 +17,20 @@
 package org.springframework.credhub.core.credential;
 
 import org.springframework.credhub.support.CredentialDetails;
+import org.springframework.credhub.support.CredentialDetailsBatch;
 import org.springframework.credhub.support.CredentialName;
 import org.springframework.credhub.support.CredentialPath;
 import org.springframework.credhub.support.CredentialRequest;
+import org.springframework.credhub.support.CredentialRequestResult;
 import org.springframework.credhub.support.CredentialSummary;
 import org.springframework.credhub.support.ParametersRequest;
+import org.springframework.util.Assert;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Specifies the interactions with CredHub to save, generate, retrieve,
@@ -42,6 +49,46 @@ public interface CredHubCredentialOperations {
 	 */
 	<T> CredentialDetails<T> write(final CredentialRequest<T> credentialRequest);
 
+	/**
+	 * Write a batch of credentials to CredHub. Credentials are written using up to
+	 * {@literal 8} concurrent requests to CredHub.
+	 *
+	 * @param credentialRequests the credentials to write to CredHub; must not be {@literal null}
+	 * @return the result of each request, in the order of the requests
+	 */
+	default List<CredentialRequestResult<CredentialRequest<?>>> writeAll(
+			final Collection<? extends CredentialRequest<?>> credentialRequests) {
+		return writeAll(credentialRequests, CredentialBatchSupport.DEFAULT_CONCURRENCY);
+	}
+
+	/**
+	 * Write a batch of credentials to CredHub. The default implementation writes the
+	 * credentials one at a time using {@link #write(CredentialRequest)}.
+	 *
+	 * @param credentialRequests the credentials to write to CredHub; must not be {@literal null}
+	 * @param concurrency the maximum number of concurrent requests to CredHub; must be
+	 * greater than {@literal 0}
+	 * @return the result of each request, in the order of the requests
+	 */
+	default List<CredentialRequestResult<CredentialRequest<?>>> writeAll(
+			final Collection<? extends CredentialRequest<?>> credentialRequests, int concurrency) {
+		Assert.notNull(credentialRequests, "credentialRequests must not be null");
+		Assert.isTrue(concurrency > 0, "concurrency must be greater than 0");
+
+		List<CredentialRequestResult<CredentialRequest<?>>> results = new ArrayList<>();
+
+		for (CredentialRequest<?> request : credentialRequests) {
+			try {
+				results.add(CredentialRequestResult.success(request, write(request)));
+			}
+			catch (RuntimeException e) {
+				results.add(CredentialRequestResult.failure(request, e));
+			}
+		}
+
+		return results;
+	}
+
 	/**
 	 * Generate a new credential in CredHub, or overwrite an existing credential with a new
 	 * generated value.
@@ -54,6 +101,48 @@ public interface CredHubCredentialOperations {
 	 */
 	<T, P> CredentialDetails<T> generate(final ParametersRequest<P> parametersRequest);
 
+	/**
+	 * Generate a batch of credentials in CredHub. Credentials are generated using up to
+	 * {@literal 8} concurrent requests to CredHub.
+	 *
+	 * @param parametersRequests the parameters of the credentials to generate in CredHub;
+	 *                           must not be {@literal null}
+	 * @return the result of each request, in the order of the requests
+	 */
+	default List<CredentialRequestResult<ParametersRequest<?>>> generateAll(
+			final Collection<? extends ParametersRequest<?>> parametersRequests) {
+		return generateAll(parametersRequests, CredentialBatchSupport.DEFAULT_CONCURRENCY);
+	}
+
+	/**
+	 * Generate a batch of credentials in CredHub. The default implementation generates the
+	 * credentials one at a time using {@link #generate(ParametersRequest)}.
+	 *
+	 * @param parametersRequests the parameters of the credentials to generate in CredHub;
+	 *                           must not be {@literal null}
+	 * @param concurrency the maximum number of concurrent requests to CredHub; must be
+	 * greater than {@literal 0}
+	 * @return the result of each request, in the order of the requests
+	 */
+	default List<CredentialRequestResult<ParametersRequest<?>>> generateAll(
+			final Collection<? extends ParametersRequest<?>> parametersRequests, int concurrency) {
+		Assert.notNull(parametersRequests, "parametersRequests must not be null");
+		Assert.isTrue(concurrency > 0, "concurrency must be greater than 0");
+
+		List<CredentialRequestResult<ParametersRequest<?>>> results = new ArrayList<>();
+
+		for (ParametersRequest<?> request : parametersRequests) {
+			try {
+				results.add(CredentialRequestResult.success(request, generate(request)));
+			}
+			catch (RuntimeException e) {
+				results.add(CredentialRequestResult.failure(request, e));
+			}
+		}
+
+		return results;
+	}
+
 	/**
 	 * Regenerate a credential in CredHub. Only credentials that were previously generated can be
 	 * re-generated.
@@ -86,6 +175,56 @@ public interface CredHubCredentialOperations {
 	 */
 	<T> CredentialDetails<T> getByName(final CredentialName name, final Class<T> credentialType);
 
+	/**
+	 * Retrieve a batch of credentials using their names, as passed to write requests.
+	 * Only the current value of each credential will be returned. Credentials are
+	 * retrieved using up to {@literal 8} concurrent requests to CredHub, and repeated
+	 * names are retrieved once.
+	 *
+	 * @param names the names of the credentials; must not be {@literal null}
+	 * @param credentialType the type of credentials expected to be returned
+	 * @param <T> the credential implementation type
+	 * @return a batch containing the retrieved credentials and the errors that prevented
+	 * other credentials from being retrieved
+	 */
+	default <T> CredentialDetailsBatch<T> getByNames(final Collection<? extends CredentialName> names,
+													 final Class<T> credentialType) {
+		return getByNames(names, CredentialBatchSupport.DEFAULT_CONCURRENCY, credentialType);
+	}
+
+	/**
+	 * Retrieve a batch of credentials using their names, as passed to write requests.
+	 * Only the current value of each credential will be returned. Repeated names are
+	 * retrieved once. The default implementation retrieves the credentials one at a time
+	 * using {@link #getByName(CredentialName, Class)}.
+	 *
+	 * @param names the names of the credentials; must not be {@literal null}
+	 * @param concurrency the maximum number of concurrent requests to CredHub; must be
+	 * greater than {@literal 0}
+	 * @param credentialType the type of credentials expected to be returned
+	 * @param <T> the credential implementation type
+	 * @return a batch containing the retrieved credentials and the errors that prevented
+	 * other credentials from being retrieved
+	 */
+	default <T> CredentialDetailsBatch<T> getByNames(final Collection<? extends CredentialName> names,
+													 int concurrency, final Class<T> credentialType) {
+		Assert.notNull(credentialType, "credential type must not be null");
+
+		Map<String, CredentialDetails<T>> credentials = new LinkedHashMap<>();
+		Map<String, Exception> errors = new LinkedHashMap<>();
+
+		for (CredentialName name : CredentialBatchSupport.distinctNames(names, concurrency).values()) {
+			try {
+				credentials.put(name.getName(), getByName(name, credentialType));
+			}
+			catch (RuntimeException e) {
+				errors.put(name.getName(), e);
+			}
+		}
+
+		return new CredentialDetailsBatch<>(credentials, errors);
+	}
+
 	/**
 	 * Retrieve a credential using its name, as passed to a write request.
 	 * A collection of all stored values for the named credential will be returned,
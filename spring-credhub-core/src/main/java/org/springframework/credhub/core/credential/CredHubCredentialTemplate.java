@@ -17,14 +17,17 @@
 package org.springframework.credhub.core.credential;
 
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.credhub.core.CredHubExecutors;
 import org.springframework.credhub.core.CredHubOperations;
 import org.springframework.credhub.core.ExceptionUtils;
 import org.springframework.credhub.support.CredentialDetails;
+import org.springframework.credhub.support.CredentialDetailsBatch;
 import org.springframework.credhub.support.CredentialDetailsData;
 import org.springframework.credhub.support.CredentialName;
 import org.springframework.credhub.support.CredentialPath;
 import org.springframework.credhub.support.CredentialPathData;
 import org.springframework.credhub.support.CredentialRequest;
+import org.springframework.credhub.support.CredentialRequestResult;
 import org.springframework.credhub.support.CredentialSummary;
 import org.springframework.credhub.support.CredentialSummaryData;
 import org.springframework.credhub.support.ParametersRequest;
@@ -33,9 +36,13 @@ import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.Assert;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 /**
  * Implements the interactions with CredHub to save, retrieve,
@@ -56,15 +63,32 @@ public class CredHubCredentialTemplate implements CredHubCredentialOperations {
 
 	static final String NAME_REQUEST_FIELD = "name";
 
+
 	private CredHubOperations credHubOperations;
+	private final Executor executor;
 
 	/**
-	 * Create a new {@link CredHubCredentialTemplate}.
+	 * Create a new {@link CredHubCredentialTemplate}. Batch operations send concurrent
+	 * requests using {@link CredHubExecutors#getSharedExecutor()}.
 	 *
 	 * @param credHubOperations the {@link CredHubOperations} to use for interactions with CredHub
 	 */
 	public CredHubCredentialTemplate(CredHubOperations credHubOperations) {
+		this(credHubOperations, CredHubExecutors.getSharedExecutor());
+	}
+
+	/**
+	 * Create a new {@link CredHubCredentialTemplate}.
+	 *
+	 * @param credHubOperations the {@link CredHubOperations} to use for interactions with CredHub
+	 * @param executor the executor used by batch operations to send concurrent requests to
+	 * CredHub; must not be {@literal null}
+	 */
+	public CredHubCredentialTemplate(CredHubOperations credHubOperations, Executor executor) {
+		Assert.notNull(executor, "executor must not be null");
+
 		this.credHubOperations = credHubOperations;
+		this.executor = executor;
 	}
 
 	@Override
@@ -85,6 +109,23 @@ public class CredHubCredentialTemplate implements CredHubCredentialOperations {
 		});
 	}
 
+	@Override
+	public List<CredentialRequestResult<CredentialRequest<?>>> writeAll(
+			final Collection<? extends CredentialRequest<?>> credentialRequests, final int concurrency) {
+		Assert.notNull(credentialRequests, "credentialRequests must not be null");
+		Assert.isTrue(concurrency > 0, "concurrency must be greater than 0");
+
+		List<CredentialRequestResult<CredentialRequest<?>>> results = new ArrayList<>();
+
+		CredentialBatchSupport.executeAll(this.executor,
+				new ArrayList<CredentialRequest<?>>(credentialRequests), concurrency,
+				this::write,
+				(request, details) -> results.add(CredentialRequestResult.success(request, details)),
+				(request, error) -> results.add(CredentialRequestResult.failure(request, error)));
+
+		return results;
+	}
+
 	@Override
 	public <T, P> CredentialDetails<T> generate(final ParametersRequest<P> parametersRequest) {
 		Assert.notNull(parametersRequest, "parametersRequest must not be null");
@@ -103,6 +144,23 @@ public class CredHubCredentialTemplate implements CredHubCredentialOperations {
 		});
 	}
 
+	@Override
+	public List<CredentialRequestResult<ParametersRequest<?>>> generateAll(
+			final Collection<? extends ParametersRequest<?>> parametersRequests, final int concurrency) {
+		Assert.notNull(parametersRequests, "parametersRequests must not be null");
+		Assert.isTrue(concurrency > 0, "concurrency must be greater than 0");
+
+		List<CredentialRequestResult<ParametersRequest<?>>> results = new ArrayList<>();
+
+		CredentialBatchSupport.executeAll(this.executor,
+				new ArrayList<ParametersRequest<?>>(parametersRequests), concurrency,
+				this::generate,
+				(request, details) -> results.add(CredentialRequestResult.success(request, details)),
+				(request, error) -> results.add(CredentialRequestResult.failure(request, error)));
+
+		return results;
+	}
+
 	@Override
 	public <T> CredentialDetails<T> regenerate(final CredentialName name, Class<T> credentialType) {
 		Assert.notNull(name, "credential name must not be null");
@@ -162,6 +220,24 @@ public class CredHubCredentialTemplate implements CredHubCredentialOperations {
 		});
 	}
 
+	@Override
+	public <T> CredentialDetailsBatch<T> getByNames(final Collection<? extends CredentialName> names,
+													final int concurrency, final Class<T> credentialType) {
+		Assert.notNull(credentialType, "credential type must not be null");
+
+		Map<String, CredentialName> distinctNames = CredentialBatchSupport.distinctNames(names, concurrency);
+
+		Map<String, CredentialDetails<T>> credentials = new LinkedHashMap<>();
+		Map<String, Exception> errors = new LinkedHashMap<>();
+
+		CredentialBatchSupport.executeAll(this.executor, distinctNames.values(), concurrency,
+				name -> getByName(name, credentialType),
+				(name, details) -> credentials.put(name.getName(), details),
+				(name, error) -> errors.put(name.getName(), error));
+
+		return new CredentialDetailsBatch<>(credentials, errors);
+	}
+
 	@Override
 	public <T> List<CredentialDetails<T>> getByNameWithHistory(final CredentialName name, final Class<T> credentialType) {
 		Assert.notNull(name, "credential name must not be null");
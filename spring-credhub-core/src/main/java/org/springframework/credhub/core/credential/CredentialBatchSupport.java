@@ -0,0 +1,192 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.core.credential;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import org.springframework.credhub.support.CredentialDetails;
+import org.springframework.credhub.support.CredentialDetailsBatch;
+import org.springframework.credhub.support.CredentialName;
+import org.springframework.util.Assert;
+
+/**
+ * Support for batch operations on credentials.
+ */
+final class CredentialBatchSupport {
+	/**
+	 * The default number of credentials retrieved from CredHub concurrently.
+	 */
+	static final int DEFAULT_CONCURRENCY = 8;
+
+	private CredentialBatchSupport() {
+	}
+
+	/**
+	 * Remove repeated names from a batch request, preserving the order of the first
+	 * occurrence of each name.
+	 *
+	 * @param names the requested credential names; must not be {@literal null}
+	 * @param concurrency the requested concurrency; must be greater than {@literal 0}
+	 * @return the distinct credential names, indexed by name
+	 */
+	static Map<String, CredentialName> distinctNames(Collection<? extends CredentialName> names, int concurrency) {
+		Assert.notNull(names, "credential names must not be null");
+		Assert.isTrue(concurrency > 0, "concurrency must be greater than 0");
+
+		Map<String, CredentialName> distinctNames = new LinkedHashMap<>();
+		for (CredentialName name : names) {
+			Assert.notNull(name, "credential names must not contain null elements");
+			distinctNames.putIfAbsent(name.getName(), name);
+		}
+		return distinctNames;
+	}
+
+	/**
+	 * Cache the credentials retrieved for a batch request, unless they were evicted while
+	 * the batch was being retrieved.
+	 *
+	 * @param cache the credential cache
+	 * @param loaded the credentials retrieved from CredHub
+	 * @param generations the generations of the requested credentials, indexed by name
+	 */
+	static void cacheLoaded(CredentialCache cache, CredentialDetailsBatch<?> loaded, Map<String, Long> generations) {
+		loaded.getCredentials().forEach((name, details) -> {
+			Long generation = generations.get(name);
+			if (generation != null) {
+				cache.putByName(details, generation);
+			}
+		});
+	}
+
+	static <T> CredentialDetailsBatch<T> emptyBatch() {
+		return new CredentialDetailsBatch<>(Collections.emptyMap(), Collections.emptyMap());
+	}
+
+	/**
+	 * Combine cached credentials with the result of retrieving the remaining credentials
+	 * from CredHub, in the order the names were requested.
+	 *
+	 * @param names the distinct requested credential names
+	 * @param cached the credentials found in the cache, indexed by name
+	 * @param loaded the result of retrieving the credentials that were not cached
+	 * @param <T> the credential implementation type
+	 * @return the combined batch
+	 */
+	static <T> CredentialDetailsBatch<T> merge(Collection<String> names, Map<String, CredentialDetails<T>> cached,
+											   CredentialDetailsBatch<T> loaded) {
+		Map<String, CredentialDetails<T>> credentials = new LinkedHashMap<>();
+		Map<String, Exception> errors = new LinkedHashMap<>();
+
+		for (String name : names) {
+			if (cached.containsKey(name)) {
+				credentials.put(name, cached.get(name));
+			}
+			else if (loaded.getCredentials().containsKey(name)) {
+				credentials.put(name, loaded.getCredentials().get(name));
+			}
+			else if (loaded.getErrors().containsKey(name)) {
+				errors.put(name, loaded.getErrors().get(name));
+			}
+		}
+
+		return new CredentialDetailsBatch<>(credentials, errors);
+	}
+
+	/**
+	 * Apply an operation to each item using up to {@code concurrency} concurrent workers,
+	 * and report the outcome of each operation in the order of the items. The calling
+	 * thread is one of the workers, so that the batch completes even if the executor is
+	 * saturated or rejects the other workers.
+	 *
+	 * @param executor the executor running the workers other than the calling thread
+	 * @param items the items to apply the operation to
+	 * @param concurrency the maximum number of concurrent operations
+	 * @param operation the operation to apply
+	 * @param onSuccess receives each item and the result of its operation
+	 * @param onError receives each item and the exception thrown by its operation
+	 * @param <I> the item type
+	 * @param <V> the operation result type
+	 */
+	static <I, V> void executeAll(Executor executor, Collection<I> items, int concurrency,
+								  Function<I, V> operation, BiConsumer<I, V> onSuccess,
+								  BiConsumer<I, Exception> onError) {
+		List<I> pending = new ArrayList<>(items);
+		List<CompletableFuture<V>> results = new ArrayList<>(pending.size());
+		for (int i = 0; i < pending.size(); i++) {
+			results.add(new CompletableFuture<>());
+		}
+
+		AtomicInteger next = new AtomicInteger();
+		Runnable worker = () -> {
+			int index;
+			while ((index = next.getAndIncrement()) < pending.size()) {
+				try {
+					results.get(index).complete(operation.apply(pending.get(index)));
+				}
+				catch (Throwable e) {
+					results.get(index).completeExceptionally(e);
+				}
+			}
+		};
+
+		for (int i = 1; i < Math.min(concurrency, pending.size()); i++) {
+			try {
+				executor.execute(worker);
+			}
+			catch (RejectedExecutionException e) {
+				break;
+			}
+		}
+		worker.run();
+
+		for (int i = 0; i < pending.size(); i++) {
+			I item = pending.get(i);
+			try {
+				onSuccess.accept(item, results.get(i).get());
+			}
+			catch (ExecutionException e) {
+				onError.accept(item, asException(e.getCause()));
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				onError.accept(item, e);
+			}
+		}
+	}
+
+	private static Exception asException(Throwable throwable) {
+		if (throwable instanceof Exception) {
+			return (Exception) throwable;
+		}
+		if (throwable instanceof Error) {
+			throw (Error) throwable;
+		}
+		return new IllegalStateException(throwable);
+	}
+}
@@ -0,0 +1,495 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.core.credential;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.credhub.support.CredentialCacheOptions;
+import org.springframework.credhub.support.CredentialDetails;
+import org.springframework.credhub.support.StaleCredentialDetails;
+import org.springframework.util.Assert;
+
+/**
+ * A bounded, least-recently-used store of credentials with a per-entry time to live.
+ * Each credential is stored once and counts once towards the maximum size. The current
+ * value of a credential is indexed both by name and by ID, while other values retrieved
+ * by ID are indexed by ID only. Expired credentials are kept for the configured maximum
+ * staleness so that they can be returned if CredHub is unavailable. If a snapshot file
+ * is configured, the cache is populated from the snapshot when it is created and changes
+ * to the cache are written to the snapshot in the background.
+ *
+ * <p>Callers that retrieve a credential from CredHub obtain a generation with
+ * {@link #nameGeneration(String)} or {@link #idGeneration()} before the request and pass
+ * it when caching the result. Evicting a credential advances its generation, so that a
+ * value retrieved before the eviction is not cached after it.
+ */
+class CredentialCache {
+	private static final String NAME_KEY_PREFIX = "name:";
+	private static final String ID_KEY_PREFIX = "id:";
+
+	private static final int GENERATION_STRIPES = 64;
+
+	private final Map<String, Entry> entries;
+
+	private final Map<String, String> nameKeysById = new HashMap<>();
+
+	private final long[] nameGenerations = new long[GENERATION_STRIPES];
+
+	private long idGeneration;
+
+	private final Duration ttl;
+
+	private final Duration maxStaleness;
+
+	private final Clock clock;
+
+	private final CredentialCacheSnapshot snapshot;
+
+	private final AtomicBoolean closed = new AtomicBoolean();
+
+	CredentialCache(CredentialCacheOptions options) {
+		this(options, Clock.systemUTC());
+	}
+
+	CredentialCache(CredentialCacheOptions options, Clock clock) {
+		Assert.notNull(options, "options must not be null");
+		Assert.isTrue(options.getMaxSize() > 0, "maxSize must be greater than 0");
+		Assert.notNull(options.getTtl(), "ttl must not be null");
+
+		final int maxSize = options.getMaxSize();
+		this.entries = new LinkedHashMap<String, CredentialCache.Entry>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CredentialCache.Entry> eldest) {
+				if (size() > maxSize) {
+					unindex(eldest.getKey(), eldest.getValue());
+					return true;
+				}
+				return false;
+			}
+		};
+		this.ttl = options.getTtl();
+		this.maxStaleness = options.getMaxStaleness() == null ? Duration.ZERO : options.getMaxStaleness();
+		this.clock = clock;
+
+		if (options.getSnapshot().isEnabled()) {
+			this.snapshot = CredentialCacheSnapshot.forOptions(options.getSnapshot());
+			restore(this.snapshot.read());
+			this.snapshot.register(this);
+		}
+		else {
+			this.snapshot = null;
+		}
+	}
+
+	<T> CredentialDetails<T> getByName(String name) {
+		return get(NAME_KEY_PREFIX + name);
+	}
+
+	<T> CredentialDetails<T> getById(String id) {
+		synchronized (this.entries) {
+			return get(keyForId(id));
+		}
+	}
+
+	/**
+	 * Get the cached current value of a credential that has expired no longer ago than
+	 * the maximum staleness, for use when CredHub is unavailable.
+	 *
+	 * @param name the name of the credential
+	 * @return the cached value, marked as stale if it has expired, or {@literal null}
+	 */
+	<T> CredentialDetails<T> getStaleByName(String name) {
+		return getStale(NAME_KEY_PREFIX + name);
+	}
+
+	/**
+	 * Get a cached value of a credential that has expired no longer ago than the maximum
+	 * staleness, for use when CredHub is unavailable.
+	 *
+	 * @param id the ID of the credential
+	 * @return the cached value, marked as stale if it has expired, or {@literal null}
+	 */
+	<T> CredentialDetails<T> getStaleById(String id) {
+		synchronized (this.entries) {
+			return getStale(keyForId(id));
+		}
+	}
+	boolean isStaleIfErrorEnabled() {
+		return !this.maxStaleness.isZero() && !this.maxStaleness.isNegative();
+	}
+
+	/**
+	 * Get the cached current value of a credential, whether or not it has expired.
+	 *
+	 * @param name the name of the credential
+	 * @return the cache entry, or {@literal null} if the credential is not cached
+	 */
+	Entry getEntryByName(String name) {
+		synchronized (this.entries) {
+			return this.entries.get(NAME_KEY_PREFIX + name);
+		}
+	}
+
+	boolean isExpired(Entry entry) {
+		return entry.isExpired(this.clock.instant());
+	}
+
+	/**
+	 * Indicates whether an expired entry may still be returned when CredHub is unavailable.
+	 *
+	 * @param entry the cache entry
+	 * @return {@literal true} if the entry expired no longer ago than the maximum staleness
+	 */
+	boolean isWithinMaxStaleness(Entry entry) {
+		return entry.isUsable(this.clock.instant(), this.maxStaleness);
+	}
+
+	/**
+	 * Get the value of an entry, marked as stale if the entry has expired and a maximum
+	 * staleness is configured.
+	 *
+	 * @param entry the cache entry
+	 * @return the cached value
+	 */
+	<T> CredentialDetails<T> detailsOf(Entry entry) {
+		Instant now = this.clock.instant();
+		if (!entry.isExpired(now) || !isStaleIfErrorEnabled()) {
+			return entry.getDetails();
+		}
+		return new StaleCredentialDetails<>(entry.getDetails(), Duration.between(entry.expiresAt, now));
+	}
+
+	/**
+	 * Get the generation of the named credential, to be passed to
+	 * {@link #putByName(CredentialDetails, long)} when caching a value of the credential
+	 * retrieved from CredHub.
+	 *
+	 * @param name the name of the credential
+	 * @return the current generation
+	 */
+	long nameGeneration(String name) {
+		synchronized (this.entries) {
+			return this.nameGenerations[stripe(name)];
+		}
+	}
+
+	/**
+	 * Get the generation of values cached by ID, to be passed to
+	 * {@link #putById(CredentialDetails, long)} when caching a value of a credential
+	 * retrieved from CredHub. The generation advances whenever any credential is evicted.
+	 *
+	 * @return the current generation
+	 */
+	long idGeneration() {
+		synchronized (this.entries) {
+			return this.idGeneration;
+		}
+	}
+
+	/**
+	 * Cache the current value of a credential, indexed by both name and ID.
+	 *
+	 * @param details the current value of the credential
+	 */
+	void putByName(CredentialDetails<?> details) {
+		if (details != null && details.getName() != null) {
+			putByName(details, nameGeneration(details.getName().getName()));
+		}
+	}
+
+	/**
+	 * Cache the current value of a credential, indexed by both name and ID, unless the
+	 * credential has been evicted since the given generation was obtained.
+	 *
+	 * @param details the current value of the credential
+	 * @param generation the generation of the credential before it was retrieved
+	 */
+	void putByName(CredentialDetails<?> details, long generation) {
+		if (details == null || details.getName() == null) {
+			return;
+		}
+
+		String name = details.getName().getName();
+		Entry entry = newEntry(details);
+
+		synchronized (this.entries) {
+			if (this.nameGenerations[stripe(name)] != generation) {
+				return;
+			}
+			put(NAME_KEY_PREFIX + name, entry);
+		}
+		snapshotChanged();
+	}
+
+	/**
+	 * Cache a value of a credential indexed by ID only, since it is not necessarily
+	 * the current value.
+	 *
+	 * @param details a value of the credential
+	 */
+	void putById(CredentialDetails<?> details) {
+		putById(details, idGeneration());
+	}
+
+	/**
+	 * Cache a value of a credential indexed by ID only, unless a credential has been
+	 * evicted since the given generation was obtained.
+	 *
+	 * @param details a value of the credential
+	 * @param generation the generation of values cached by ID before it was retrieved
+	 */
+	void putById(CredentialDetails<?> details, long generation) {
+		if (details == null || details.getId() == null) {
+			return;
+		}
+
+		Entry entry = newEntry(details);
+
+		synchronized (this.entries) {
+			if (this.idGeneration != generation) {
+				return;
+			}
+			String nameKey = this.nameKeysById.get(details.getId());
+			if (nameKey != null && this.entries.containsKey(nameKey)) {
+				return;
+			}
+			put(ID_KEY_PREFIX + details.getId(), entry);
+		}
+		snapshotChanged();
+	}
+
+	/**
+	 * Remove all cached values of the named credential, whether they were cached by
+	 * name or by ID, and advance its generation.
+	 *
+	 * @param name the name of the credential
+	 */
+	void evict(String name) {
+		if (name == null) {
+			return;
+		}
+
+		synchronized (this.entries) {
+			this.nameGenerations[stripe(name)]++;
+			this.idGeneration++;
+
+			Iterator<Map.Entry<String, Entry>> iterator = this.entries.entrySet().iterator();
+			while (iterator.hasNext()) {
+				Map.Entry<String, Entry> cached = iterator.next();
+				CredentialDetails<?> details = cached.getValue().details;
+				if (details.getName() != null && name.equals(details.getName().getName())) {
+					iterator.remove();
+					unindex(cached.getKey(), cached.getValue());
+				}
+			}
+		}
+		snapshotChanged();
+	}
+
+	void clear() {
+		synchronized (this.entries) {
+			for (int i = 0; i < this.nameGenerations.length; i++) {
+				this.nameGenerations[i]++;
+			}
+			this.idGeneration++;
+
+			this.entries.clear();
+			this.nameKeysById.clear();
+		}
+		snapshotChanged();
+	}
+
+	/**
+	 * Stop keeping the contents of this cache in its snapshot file, if any. The snapshot
+	 * is written one final time when the last cache using the file is closed.
+	 */
+	void close() {
+		if (this.snapshot != null && this.closed.compareAndSet(false, true)) {
+			this.snapshot.release();
+		}
+	}
+
+	/**
+	 * Get the entries of this cache that are still usable, in least recently used order,
+	 * for writing to the snapshot file.
+	 *
+	 * @return the snapshot records
+	 */
+	List<CredentialCacheSnapshot.Record> snapshotRecords() {
+		Instant now = this.clock.instant();
+		List<CredentialCacheSnapshot.Record> records = new ArrayList<>();
+
+		synchronized (this.entries) {
+			this.entries.forEach((key, entry) -> {
+				if (entry.isUsable(now, this.maxStaleness)) {
+					records.add(new CredentialCacheSnapshot.Record(Collections.singletonList(key),
+							entry.expiresAt, entry.details));
+				}
+			});
+		}
+
+		return records;
+	}
+
+	/**
+	 * Get the number of cached credential values.
+	 *
+	 * @return the number of cache entries
+	 */
+	int size() {
+		synchronized (this.entries) {
+			return this.entries.size();
+		}
+	}
+
+	/**
+	 * Restore entries from a snapshot. Snapshots written by earlier versions list both the
+	 * name key and the ID key of a current value, and only the name key is restored.
+	 */
+	private void restore(List<CredentialCacheSnapshot.Record> records) {
+		Instant now = this.clock.instant();
+
+		synchronized (this.entries) {
+			for (CredentialCacheSnapshot.Record record : records) {
+				Entry entry = new Entry(record.getDetails(), record.getExpiresAt());
+				if (!entry.isUsable(now, this.maxStaleness)) {
+					continue;
+				}
+				String key = record.getKeys().stream()
+						.filter(k -> k.startsWith(NAME_KEY_PREFIX))
+						.findFirst()
+						.orElse(record.getKeys().isEmpty() ? null : record.getKeys().get(0));
+				if (key != null) {
+					put(key, entry);
+				}
+			}
+		}
+	}
+
+	private void put(String key, Entry entry) {
+		Entry previous = this.entries.put(key, entry);
+		if (previous != null) {
+			unindex(key, previous);
+		}
+
+		String id = entry.details.getId();
+		if (key.startsWith(NAME_KEY_PREFIX) && id != null) {
+			Entry byId = this.entries.remove(ID_KEY_PREFIX + id);
+			if (byId != null) {
+				unindex(ID_KEY_PREFIX + id, byId);
+			}
+			this.nameKeysById.put(id, key);
+		}
+	}
+
+	private void remove(String key) {
+		Entry entry = this.entries.remove(key);
+		if (entry != null) {
+			unindex(key, entry);
+		}
+	}
+
+	private void unindex(String key, Entry entry) {
+		String id = entry.details.getId();
+		if (id != null && key.equals(this.nameKeysById.get(id))) {
+			this.nameKeysById.remove(id);
+		}
+	}
+
+	private String keyForId(String id) {
+		String nameKey = this.nameKeysById.get(id);
+		return nameKey != null ? nameKey : ID_KEY_PREFIX + id;
+	}
+
+	private static int stripe(String name) {
+		String normalized = name.startsWith("/") ? name.substring(1) : name;
+		return (normalized.hashCode() & Integer.MAX_VALUE) % GENERATION_STRIPES;
+	}
+
+	private void snapshotChanged() {
+		if (this.snapshot != null) {
+			this.snapshot.markChanged();
+		}
+	}
+
+	private Entry newEntry(CredentialDetails<?> details) {
+		return new Entry(details, this.clock.instant().plus(this.ttl));
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> CredentialDetails<T> get(String key) {
+		Instant now = this.clock.instant();
+
+		synchronized (this.entries) {
+			Entry entry = this.entries.get(key);
+			if (entry == null) {
+				return null;
+			}
+			if (entry.isExpired(now)) {
+				if (!entry.isUsable(now, this.maxStaleness)) {
+					remove(key);
+				}
+				return null;
+			}
+			return (CredentialDetails<T>) entry.details;
+		}
+	}
+
+	private <T> CredentialDetails<T> getStale(String key) {
+		Entry entry;
+		synchronized (this.entries) {
+			entry = this.entries.get(key);
+		}
+		if (entry == null || !isWithinMaxStaleness(entry)) {
+			return null;
+		}
+		return detailsOf(entry);
+	}
+
+	static final class Entry {
+		private final CredentialDetails<?> details;
+		private final Instant expiresAt;
+
+		private Entry(CredentialDetails<?> details, Instant expiresAt) {
+			this.details = details;
+			this.expiresAt = expiresAt;
+		}
+
+		@SuppressWarnings("unchecked")
+		<T> CredentialDetails<T> getDetails() {
+			return (CredentialDetails<T>) this.details;
+		}
+
+		private boolean isExpired(Instant now) {
+			return !now.isBefore(this.expiresAt);
+		}
+
+		private boolean isUsable(Instant now, Duration maxStaleness) {
+			return now.isBefore(this.expiresAt.plus(maxStaleness));
+		}
+	}
+}
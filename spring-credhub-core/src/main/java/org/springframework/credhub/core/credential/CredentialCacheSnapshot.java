@@ -0,0 +1,382 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.credhub.core.credential;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.credhub.support.CredentialCacheOptions.SnapshotOptions;
+import org.springframework.credhub.support.CredentialDetails;
+import org.springframework.credhub.support.utils.JsonUtils;
+import org.springframework.util.Assert;
+
+/**
+ * An AES-GCM encrypted file holding the contents of the credential caches that use it,
+ * so that credentials which are still current survive a restart of the application.
+ *
+ * <p>The file is read through a memory mapping when a cache is created, and is rewritten
+ * in the background whenever one of its caches has changed. A new file is written next
+ * to the existing one and moved into place, so that a reader never sees a partially
+ * written snapshot. One snapshot is shared by all caches in the application that use
+ * the same file. When the last of these caches is closed, the snapshot is written one
+ * final time and its background writes are stopped.
+ */
+final class CredentialCacheSnapshot {
+	private static final Log logger = LogFactory.getLog(CredentialCacheSnapshot.class);
+
+	private static final byte[] HEADER = { 'C', 'H', 'C', 'S', 1 };
+
+	private static final String CIPHER = "AES/GCM/NoPadding";
+
+	private static final int IV_LENGTH = 12;
+
+	private static final int TAG_LENGTH = 128;
+
+	private static final String KEYS = "keys";
+
+	private static final String EXPIRES_AT = "expires_at";
+
+	private static final String DETAILS = "details";
+
+	private static final String NAME = "name";
+
+	private static final long TERMINATION_TIMEOUT_SECONDS = 30;
+
+	private static final Map<Path, CredentialCacheSnapshot> snapshots = new HashMap<>();
+
+	private static final SecureRandom random = new SecureRandom();
+
+	private static final ObjectMapper objectMapper = JsonUtils.buildObjectMapper();
+
+	private final Path path;
+
+	private final SecretKeySpec key;
+
+	private final Duration writeInterval;
+
+	private final Set<CredentialCache> caches = Collections.newSetFromMap(new WeakHashMap<>());
+
+	private final AtomicBoolean dirty = new AtomicBoolean();
+
+	private final ScheduledExecutorService executor;
+
+	// guarded by snapshots
+	private int references;
+
+	private CredentialCacheSnapshot(Path path, SecretKeySpec key, Duration writeInterval) {
+		this.path = path;
+		this.key = key;
+		this.writeInterval = writeInterval;
+		this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "credhub-credential-snapshot");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		long interval = writeInterval.toMillis();
+		this.executor.scheduleWithFixedDelay(this::writeIfChanged, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Get the snapshot for the file in the provided options, creating it if no cache is
+	 * using the file. Each call must be matched by a call to {@link #release()}.
+	 *
+	 * @param options the snapshot options; must be enabled
+	 * @return the snapshot
+	 */
+	static CredentialCacheSnapshot forOptions(SnapshotOptions options) {
+		Assert.notNull(options.getWriteInterval(), "snapshot writeInterval must not be null");
+		Assert.isTrue(!options.getWriteInterval().isNegative() && !options.getWriteInterval().isZero(),
+				"snapshot writeInterval must be greater than 0");
+
+		Path path = options.getPath().toPath().toAbsolutePath().normalize();
+		SecretKeySpec key = decodeKey(options.getKey());
+
+		synchronized (snapshots) {
+			CredentialCacheSnapshot snapshot = snapshots.get(path);
+			if (snapshot == null) {
+				snapshot = new CredentialCacheSnapshot(path, key, options.getWriteInterval());
+				snapshots.put(path, snapshot);
+			}
+			Assert.state(Arrays.equals(snapshot.key.getEncoded(), key.getEncoded()),
+					"snapshot file " + path + " is already used with a different key");
+			Assert.state(snapshot.writeInterval.equals(options.getWriteInterval()),
+					"snapshot file " + path + " is already used with a different write interval");
+			snapshot.references++;
+			return snapshot;
+		}
+	}
+
+	/**
+	 * Add a cache to the caches whose contents are written to this snapshot.
+	 *
+	 * @param cache the cache
+	 */
+	void register(CredentialCache cache) {
+		synchronized (this.caches) {
+			this.caches.add(cache);
+		}
+	}
+
+	/**
+	 * Release a use of this snapshot obtained from {@link #forOptions(SnapshotOptions)}.
+	 * When the last use is released, the background writes are stopped and the snapshot
+	 * is written one final time.
+	 */
+	void release() {
+		synchronized (snapshots) {
+			if (--this.references > 0) {
+				return;
+			}
+			snapshots.remove(this.path);
+		}
+
+		this.executor.shutdown();
+		try {
+			if (!this.executor.awaitTermination(TERMINATION_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+				logger.warn("Timed out waiting for background write of credential cache snapshot " + this.path);
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		write();
+	}
+
+	/**
+	 * Record that the contents of a cache have changed, so that the snapshot is rewritten.
+	 */
+	void markChanged() {
+		this.dirty.set(true);
+	}
+
+	/**
+	 * Read the entries from the snapshot file. A missing file results in no entries; a
+	 * file that cannot be decrypted or parsed is logged and ignored.
+	 *
+	 * @return the entries in the snapshot
+	 */
+	List<Record> read() {
+		try {
+			return parse(decrypt(map()));
+		}
+		catch (NoSuchFileException e) {
+			return Collections.emptyList();
+		}
+		catch (IOException | GeneralSecurityException | RuntimeException e) {
+			logger.warn("Error reading credential cache snapshot " + this.path + ", ignoring it", e);
+			return Collections.emptyList();
+		}
+	}
+
+	/**
+	 * Write the current entries of all caches using this snapshot to the snapshot file.
+	 */
+	void write() {
+		this.dirty.set(false);
+
+		List<Record> records = new ArrayList<>();
+		synchronized (this.caches) {
+			for (CredentialCache cache : this.caches) {
+				records.addAll(cache.snapshotRecords());
+			}
+		}
+
+		try {
+			store(encrypt(serialize(records)));
+		}
+		catch (IOException | GeneralSecurityException | RuntimeException e) {
+			this.dirty.set(true);
+			logger.warn("Error writing credential cache snapshot " + this.path, e);
+		}
+	}
+
+	private void writeIfChanged() {
+		if (this.dirty.get()) {
+			write();
+		}
+	}
+
+	private ByteBuffer map() throws IOException {
+		try (FileChannel channel = FileChannel.open(this.path, StandardOpenOption.READ)) {
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+	}
+
+	private void store(byte[] contents) throws IOException {
+		Path parent = this.path.getParent();
+		Files.createDirectories(parent);
+
+		// temporary files are created readable by the owner only
+		Path temp = Files.createTempFile(parent, this.path.getFileName().toString(), ".tmp");
+		try {
+			try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+				MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, contents.length);
+				buffer.put(contents);
+				buffer.force();
+			}
+			try {
+				Files.move(temp, this.path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			}
+			catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, this.path, StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+		finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	private byte[] encrypt(byte[] plaintext) throws GeneralSecurityException {
+		byte[] iv = new byte[IV_LENGTH];
+		random.nextBytes(iv);
+
+		Cipher cipher = Cipher.getInstance(CIPHER);
+		cipher.init(Cipher.ENCRYPT_MODE, this.key, new GCMParameterSpec(TAG_LENGTH, iv));
+		cipher.updateAAD(HEADER);
+		byte[] ciphertext = cipher.doFinal(plaintext);
+
+		return ByteBuffer.allocate(HEADER.length + IV_LENGTH + ciphertext.length)
+				.put(HEADER).put(iv).put(ciphertext)
+				.array();
+	}
+
+	private byte[] decrypt(ByteBuffer contents) throws GeneralSecurityException {
+		byte[] header = new byte[HEADER.length];
+		byte[] iv = new byte[IV_LENGTH];
+		if (contents.remaining() < HEADER.length + IV_LENGTH) {
+			throw new GeneralSecurityException("snapshot file is truncated");
+		}
+		contents.get(header).get(iv);
+		if (!Arrays.equals(header, HEADER)) {
+			throw new GeneralSecurityException("snapshot file has an unsupported format");
+		}
+
+		Cipher cipher = Cipher.getInstance(CIPHER);
+		cipher.init(Cipher.DECRYPT_MODE, this.key, new GCMParameterSpec(TAG_LENGTH, iv));
+		cipher.updateAAD(HEADER);
+		ByteBuffer plaintext = ByteBuffer.allocate(cipher.getOutputSize(contents.remaining()));
+		cipher.doFinal(contents, plaintext);
+		return Arrays.copyOf(plaintext.array(), plaintext.position());
+	}
+
+	private static byte[] serialize(List<Record> records) throws IOException {
+		ArrayNode array = objectMapper.createArrayNode();
+		for (Record record : records) {
+			ObjectNode node = array.addObject();
+			ArrayNode keys = node.putArray(KEYS);
+			record.keys.forEach(keys::add);
+			node.put(EXPIRES_AT, record.expiresAt.toEpochMilli());
+			ObjectNode details = objectMapper.valueToTree(record.details);
+			// credential names are read from a plain string, as in CredHub responses
+			details.put(NAME, record.details.getName().getName());
+			node.set(DETAILS, details);
+		}
+		return objectMapper.writeValueAsBytes(array);
+	}
+
+	private static List<Record> parse(byte[] json) throws IOException {
+		ObjectReader detailsReader = JsonUtils.getReader(CredentialDetails.class, Object.class);
+
+		List<Record> records = new ArrayList<>();
+		for (JsonNode node : objectMapper.readTree(json)) {
+			List<String> keys = new ArrayList<>();
+			node.get(KEYS).forEach(key -> keys.add(key.asText()));
+			Instant expiresAt = Instant.ofEpochMilli(node.get(EXPIRES_AT).asLong());
+			CredentialDetails<?> details = detailsReader.readValue(node.get(DETAILS));
+			records.add(new Record(keys, expiresAt, details));
+		}
+		return records;
+	}
+
+	private static SecretKeySpec decodeKey(String encodedKey) {
+		byte[] key;
+		try {
+			key = Base64.getDecoder().decode(encodedKey);
+		}
+		catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("snapshot key must be Base64-encoded", e);
+		}
+		Assert.isTrue(key.length == 16 || key.length == 24 || key.length == 32,
+				"snapshot key must be a 128, 192, or 256-bit AES key");
+		return new SecretKeySpec(key, "AES");
+	}
+
+	/**
+	 * A cached credential in a snapshot, with the cache keys it is stored under.
+	 */
+	static final class Record {
+		private final List<String> keys;
+		private final Instant expiresAt;
+		private final CredentialDetails<?> details;
+
+		Record(List<String> keys, Instant expiresAt, CredentialDetails<?> details) {
+			this.keys = keys;
+			this.expiresAt = expiresAt;
+			this.details = details;
+		}
+
+		List<String> getKeys() {
+			return this.keys;
+		}
+
+		Instant getExpiresAt() {
+			return this.expiresAt;
+		}
+
+		CredentialDetails<?> getDetails() {
+			return this.details;
+		}
+	}
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.core.credential;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.credhub.support.CredentialCacheOptions;
+import org.springframework.credhub.support.CredentialDetails;
+import org.springframework.credhub.support.CredentialDetailsBatch;
+import org.springframework.credhub.support.CredentialName;
+import org.springframework.credhub.support.CredentialRequest;
+import org.springframework.credhub.support.CredentialRequestResult;
+import org.springframework.credhub.support.CredentialSummary;
+import org.springframework.credhub.support.ParametersRequest;
+import org.springframework.util.Assert;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * A {@link ReactiveCredHubCredentialOperations} that caches credentials retrieved by
+ * name or ID and delegates all other interactions with CredHub.
+ *
+ * <p>Concurrent retrievals of a credential that is not cached share a single request
+ * to CredHub. Once a credential retrieved by name has expired, the cached value
+ * continues to be returned while the credential is refreshed in the background, so that
+ * subscribers do not wait on CredHub. Cached values of a credential are evicted when the
+ * credential is written, generated, regenerated, or deleted using this object.
+ *
+ * <p>If {@link CredentialCacheOptions#getMaxStaleness()} is set, expired values are
+ * returned as {@link org.springframework.credhub.support.StaleCredentialDetails}, and an
+ * expired cached value is also kept and returned when retrieving a credential fails
+ * because CredHub is unavailable.
+ */
+public class ReactiveCachingCredHubCredentialTemplate implements ReactiveCredHubCredentialOperations, DisposableBean {
+	private final ReactiveCredHubCredentialOperations delegate;
+
+	private final CredentialCache cache;
+
+	private final Map<String, Mono<CredentialDetails<?>>> inFlight = new ConcurrentHashMap<>();
+
+	/**
+	 * Create a new {@link ReactiveCachingCredHubCredentialTemplate}.
+	 *
+	 * @param delegate the {@link ReactiveCredHubCredentialOperations} to use for interactions
+	 *                 with CredHub; must not be {@literal null}
+	 * @param options  the cache options; must not be {@literal null}
+	 */
+	public ReactiveCachingCredHubCredentialTemplate(ReactiveCredHubCredentialOperations delegate,
+													CredentialCacheOptions options) {
+		this(delegate, new CredentialCache(options));
+	}
+
+	ReactiveCachingCredHubCredentialTemplate(ReactiveCredHubCredentialOperations delegate,
+											 CredentialCache cache) {
+		Assert.notNull(delegate, "delegate must not be null");
+
+		this.delegate = delegate;
+		this.cache = cache;
+	}
+
+	/**
+	 * Create a {@link ReactiveCachingCredHubCredentialTemplate} that shares the cache of
+	 * this object and uses the provided operations for interactions with CredHub.
+	 * Destroying either object closes the shared cache.
+	 *
+	 * @param delegate the {@link ReactiveCredHubCredentialOperations} to use for interactions
+	 *                 with CredHub; must not be {@literal null}
+	 * @return the caching credential operations
+	 */
+	public ReactiveCachingCredHubCredentialTemplate withDelegate(ReactiveCredHubCredentialOperations delegate) {
+		return new ReactiveCachingCredHubCredentialTemplate(delegate, this.cache);
+	}
+
+	@Override
+	public <T> Mono<CredentialDetails<T>> write(final CredentialRequest<T> credentialRequest) {
+		Assert.notNull(credentialRequest, "credentialRequest must not be null");
+
+		return delegate.write(credentialRequest)
+				.doFinally(signal -> cache.evict(credentialRequest.getName()));
+	}
+
+	@Override
+	public Flux<CredentialRequestResult<CredentialRequest<?>>> writeAll(
+			final Publisher<? extends CredentialRequest<?>> credentialRequests, final int concurrency,
+			final boolean ordered) {
+		return delegate.writeAll(credentialRequests, concurrency, ordered)
+				.doOnNext(result -> cache.evict(result.getRequest().getName()));
+	}
+
+	@Override
+	public <T, P> Mono<CredentialDetails<T>> generate(final ParametersRequest<P> parametersRequest,
+													  Class<T> credentialType) {
+		Assert.notNull(parametersRequest, "parametersRequest must not be null");
+
+		return delegate.generate(parametersRequest, credentialType)
+				.doFinally(signal -> cache.evict(parametersRequest.getName()));
+	}
+
+	@Override
+	public Flux<CredentialRequestResult<ParametersRequest<?>>> generateAll(
+			final Publisher<? extends ParametersRequest<?>> parametersRequests, final int concurrency,
+			final boolean ordered) {
+		return delegate.generateAll(parametersRequests, concurrency, ordered)
+				.doOnNext(result -> cache.evict(result.getRequest().getName()));
+	}
+
+	@Override
+	public <T> Mono<CredentialDetails<T>> regenerate(final CredentialName name, Class<T> credentialType) {
+		Assert.notNull(name, "credential name must not be null");
+
+		return delegate.regenerate(name, credentialType)
+				.doFinally(signal -> cache.evict(name.getName()));
+	}
+
+	@Override
+	public <T> Mono<CredentialDetails<T>> getById(final String id, final Class<T> credentialType) {
+		Assert.notNull(id, "credential id must not be null");
+
+		return Mono.defer(() -> {
+			CredentialDetails<T> details = cache.getById(id);
+			if (details != null) {
+				return Mono.just(details);
+			}
+			long generation = cache.idGeneration();
+			return delegate.getById(id, credentialType)
+					.doOnNext(loaded -> cache.putById(loaded, generation))
+					.onErrorResume(StaleIfErrorSupport::isUnavailable,
+							e -> Mono.justOrEmpty(cache.<T>getStaleById(id))
+									.switchIfEmpty(Mono.error(e)));
+		});
+	}
+
+	@Override
+	public <T> Mono<CredentialDetails<T>> getByName(final CredentialName name, final Class<T> credentialType) {
+		Assert.notNull(name, "credential name must not be null");
+
+		return Mono.defer(() -> {
+			CredentialCache.Entry entry = cache.getEntryByName(name.getName());
+			if (entry == null) {
+				return load(name, credentialType);
+			}
+
+			if (cache.isExpired(entry)) {
+				refresh(name, credentialType);
+			}
+			return Mono.just(cache.detailsOf(entry));
+		});
+	}
+
+	@Override
+	public <T> Mono<CredentialDetailsBatch<T>> getByNames(final Collection<? extends CredentialName> names,
+														  final int concurrency, final Class<T> credentialType) {
+		final Map<String, CredentialName> distinctNames = CredentialBatchSupport.distinctNames(names, concurrency);
+
+		return Mono.defer(() -> {
+			Map<String, CredentialDetails<T>> cached = new HashMap<>();
+			Map<String, Long> generations = new HashMap<>();
+			List<CredentialName> misses = new ArrayList<>();
+			distinctNames.forEach((key, name) -> {
+				CredentialDetails<T> details = cache.getByName(key);
+				if (details != null) {
+					cached.put(key, details);
+				}
+				else {
+					generations.put(key, cache.nameGeneration(key));
+					misses.add(name);
+				}
+			});
+
+			Mono<CredentialDetailsBatch<T>> loaded = misses.isEmpty()
+					? Mono.just(CredentialBatchSupport.emptyBatch())
+					: delegate.getByNames(misses, concurrency, credentialType)
+							.doOnNext(batch -> CredentialBatchSupport.cacheLoaded(cache, batch, generations))
+							.onErrorResume(e -> cache.isStaleIfErrorEnabled() && StaleIfErrorSupport.isUnavailable(e),
+									e -> Mono.just(StaleIfErrorSupport.failedBatch(misses, e)));
+
+			return loaded.map(batch -> StaleIfErrorSupport.withStaleValues(cache,
+					CredentialBatchSupport.merge(distinctNames.keySet(), cached, batch)));
+		});
+	}
+
+	@Override
+	public <T> Flux<CredentialDetails<T>> getByNameWithHistory(final CredentialName name,
+															   final Class<T> credentialType) {
+		return delegate.getByNameWithHistory(name, credentialType);
+	}
+
+	@Override
+	public <T> Flux<CredentialDetails<T>> getByNameWithHistory(final CredentialName name, final int versions,
+															   final Class<T> credentialType) {
+		return delegate.getByNameWithHistory(name, versions, credentialType);
+	}
+
+	@Override
+	public Flux<CredentialSummary> findByName(final CredentialName name) {
+		return delegate.findByName(name);
+	}
+
+	@Override
+	public Flux<CredentialSummary> findByPath(final String path) {
+		return delegate.findByPath(path);
+	}
+
+	@Override
+	public Mono<Void> deleteByName(final CredentialName name) {
+		Assert.notNull(name, "credential name must not be null");
+
+		return delegate.deleteByName(name)
+				.doFinally(signal -> cache.evict(name.getName()));
+	}
+
+	/**
+	 * Remove all credentials from the cache.
+	 */
+	public void clearCache() {
+		cache.clear();
+	}
+
+	/**
+	 * Close the cache. If the cache is kept in a snapshot file, the snapshot is written
+	 * when the last cache using the file is closed.
+	 */
+	@Override
+	public void destroy() {
+		cache.close();
+	}
+
+	/**
+	 * Retrieve a credential from CredHub and cache it. Concurrent subscribers share a
+	 * single request for the same credential name.
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> Mono<CredentialDetails<T>> load(CredentialName name, Class<T> credentialType) {
+		String key = name.getName();
+
+		Mono<CredentialDetails<?>> request = inFlight.computeIfAbsent(key, k -> {
+			long generation = cache.nameGeneration(k);
+			return delegate.getByName(name, credentialType)
+					.<CredentialDetails<?>>map(details -> details)
+					.doOnNext(details -> cache.putByName(details, generation))
+					.doFinally(signal -> inFlight.remove(k))
+					.cache();
+		});
+
+		return request.map(details -> (CredentialDetails<T>) details);
+	}
+
+	/**
+	 * Retrieve a credential from CredHub in the background. The cached credential is
+	 * evicted if the refresh fails, so that the next subscriber sees the error, unless
+	 * CredHub is unavailable and the cached credential has not exceeded the maximum
+	 * staleness.
+	 */
+	private <T> void refresh(CredentialName name, Class<T> credentialType) {
+		load(name, credentialType)
+				.subscribe(details -> { }, error -> {
+					CredentialCache.Entry entry = cache.getEntryByName(name.getName());
+					if (entry == null || !StaleIfErrorSupport.isUnavailable(error)
+							|| !cache.isWithinMaxStaleness(entry)) {
+						cache.evict(name.getName());
+					}
+				});
+	}
+}
@@ -17,13 +17,19 @@
 package org.springframework.credhub.core.credential;
 
 import org.springframework.credhub.support.CredentialDetails;
+import org.springframework.credhub.support.CredentialDetailsBatch;
 import org.springframework.credhub.support.CredentialName;
 import org.springframework.credhub.support.CredentialRequest;
+import org.springframework.credhub.support.CredentialRequestResult;
 import org.springframework.credhub.support.CredentialSummary;
 import org.springframework.credhub.support.ParametersRequest;
+import org.springframework.util.Assert;
+import org.reactivestreams.Publisher;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Collection;
+
 /**
  * Specifies the interactions with CredHub to save, generate, retrieve,
  * and delete credentials.
@@ -41,6 +47,40 @@ public interface ReactiveCredHubCredentialOperations {
 	 */
 	<T> Mono<CredentialDetails<T>> write(final CredentialRequest<T> credentialRequest);
 
+	/**
+	 * Write a stream of credentials to CredHub. Credentials are written using up to
+	 * {@literal 8} concurrent requests to CredHub, and results are emitted in the order
+	 * of the requests.
+	 *
+	 * @param credentialRequests the credentials to write to CredHub; must not be {@literal null}
+	 * @return the result of each request
+	 */
+	default Flux<CredentialRequestResult<CredentialRequest<?>>> writeAll(
+			final Publisher<? extends CredentialRequest<?>> credentialRequests) {
+		return writeAll(credentialRequests, CredentialBatchSupport.DEFAULT_CONCURRENCY, true);
+	}
+
+	/**
+	 * Write a stream of credentials to CredHub. No more than {@code concurrency}
+	 * requests are taken from {@code credentialRequests} before their results are
+	 * emitted. A request that fails produces a result containing the error and does not
+	 * terminate the stream.
+	 *
+	 * @param credentialRequests the credentials to write to CredHub; must not be {@literal null}
+	 * @param concurrency the maximum number of concurrent requests to CredHub; must be
+	 * greater than {@literal 0}
+	 * @param ordered {@literal true} to emit results in the order of the requests,
+	 * {@literal false} to emit results as requests complete
+	 * @return the result of each request
+	 */
+	default Flux<CredentialRequestResult<CredentialRequest<?>>> writeAll(
+			final Publisher<? extends CredentialRequest<?>> credentialRequests, int concurrency, boolean ordered) {
+		Assert.notNull(credentialRequests, "credentialRequests must not be null");
+		Assert.isTrue(concurrency > 0, "concurrency must be greater than 0");
+
+		return ReactiveCredentialBatchSupport.executeAll(credentialRequests, concurrency, ordered, this::write);
+	}
+
 	/**
 	 * Generate a new credential in CredHub, or overwrite an existing credential with a new
 	 * generated value.
@@ -55,6 +95,43 @@ public interface ReactiveCredHubCredentialOperations {
 	<T, P> Mono<CredentialDetails<T>> generate(final ParametersRequest<P> parametersRequest,
 											   Class<T> credentialType);
 
+	/**
+	 * Generate a stream of credentials in CredHub. Credentials are generated using up to
+	 * {@literal 8} concurrent requests to CredHub, and results are emitted in the order
+	 * of the requests.
+	 *
+	 * @param parametersRequests the parameters of the credentials to generate in CredHub;
+	 *                           must not be {@literal null}
+	 * @return the result of each request
+	 */
+	default Flux<CredentialRequestResult<ParametersRequest<?>>> generateAll(
+			final Publisher<? extends ParametersRequest<?>> parametersRequests) {
+		return generateAll(parametersRequests, CredentialBatchSupport.DEFAULT_CONCURRENCY, true);
+	}
+
+	/**
+	 * Generate a stream of credentials in CredHub. No more than {@code concurrency}
+	 * requests are taken from {@code parametersRequests} before their results are
+	 * emitted. A request that fails produces a result containing the error and does not
+	 * terminate the stream.
+	 *
+	 * @param parametersRequests the parameters of the credentials to generate in CredHub;
+	 *                           must not be {@literal null}
+	 * @param concurrency the maximum number of concurrent requests to CredHub; must be
+	 * greater than {@literal 0}
+	 * @param ordered {@literal true} to emit results in the order of the requests,
+	 * {@literal false} to emit results as requests complete
+	 * @return the result of each request
+	 */
+	default Flux<CredentialRequestResult<ParametersRequest<?>>> generateAll(
+			final Publisher<? extends ParametersRequest<?>> parametersRequests, int concurrency, boolean ordered) {
+		Assert.notNull(parametersRequests, "parametersRequests must not be null");
+		Assert.isTrue(concurrency > 0, "concurrency must be greater than 0");
+
+		return ReactiveCredentialBatchSupport.executeAll(parametersRequests, concurrency, ordered,
+				request -> generate(request, Object.class));
+	}
+
 	/**
 	 * Regenerate a credential in CredHub. Only credentials that were previously generated can be
 	 * re-generated.
@@ -87,6 +164,41 @@ public interface ReactiveCredHubCredentialOperations {
 	 */
 	<T> Mono<CredentialDetails<T>> getByName(final CredentialName name, final Class<T> credentialType);
 
+	/**
+	 * Retrieve a batch of credentials using their names, as passed to write requests.
+	 * Only the current value of each credential will be returned. Credentials are
+	 * retrieved using up to {@literal 8} concurrent requests to CredHub, and repeated
+	 * names are retrieved once.
+	 *
+	 * @param names the names of the credentials; must not be {@literal null}
+	 * @param credentialType the type of credentials expected to be returned
+	 * @param <T> the credential implementation type
+	 * @return a batch containing the retrieved credentials and the errors that prevented
+	 * other credentials from being retrieved
+	 */
+	default <T> Mono<CredentialDetailsBatch<T>> getByNames(final Collection<? extends CredentialName> names,
+														   final Class<T> credentialType) {
+		return getByNames(names, CredentialBatchSupport.DEFAULT_CONCURRENCY, credentialType);
+	}
+
+	/**
+	 * Retrieve a batch of credentials using their names, as passed to write requests.
+	 * Only the current value of each credential will be returned. Repeated names are
+	 * retrieved once.
+	 *
+	 * @param names the names of the credentials; must not be {@literal null}
+	 * @param concurrency the maximum number of concurrent requests to CredHub; must be
+	 * greater than {@literal 0}
+	 * @param credentialType the type of credentials expected to be returned
+	 * @param <T> the credential implementation type
+	 * @return a batch containing the retrieved credentials and the errors that prevented
+	 * other credentials from being retrieved
+	 */
+	default <T> Mono<CredentialDetailsBatch<T>> getByNames(final Collection<? extends CredentialName> names,
+														   int concurrency, final Class<T> credentialType) {
+		return ReactiveCredentialBatchSupport.getByNames(this, names, concurrency, credentialType);
+	}
+
 	/**
 	 * Retrieve a credential using its name, as passed to a write request.
 	 * A collection of all stored values for the named credential will be returned,
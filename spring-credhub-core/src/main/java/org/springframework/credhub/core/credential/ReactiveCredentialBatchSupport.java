@@ -0,0 +1,124 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.credhub.core.credential;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.credhub.support.CredHubRequest;
+import org.springframework.credhub.support.CredentialDetails;
+import org.springframework.credhub.support.CredentialDetailsBatch;
+import org.springframework.credhub.support.CredentialName;
+import org.springframework.credhub.support.CredentialRequestResult;
+import org.springframework.util.Assert;
+
+/**
+ * Support for reactive batch operations on credentials.
+ */
+final class ReactiveCredentialBatchSupport {
+	private ReactiveCredentialBatchSupport() {
+	}
+
+	/**
+	 * Retrieve a batch of credentials by name, using up to {@code concurrency} concurrent
+	 * {@link ReactiveCredHubCredentialOperations#getByName(CredentialName, Class)}
+	 * requests.
+	 *
+	 * @param operations the operations used to retrieve each credential
+	 * @param names the requested credential names
+	 * @param concurrency the maximum number of concurrent requests
+	 * @param credentialType the type of credentials expected to be returned
+	 * @param <T> the credential implementation type
+	 * @return the retrieved batch
+	 */
+	static <T> Mono<CredentialDetailsBatch<T>> getByNames(ReactiveCredHubCredentialOperations operations,
+														  Collection<? extends CredentialName> names,
+														  int concurrency, Class<T> credentialType) {
+		Assert.notNull(credentialType, "credential type must not be null");
+
+		final Map<String, CredentialName> distinctNames = CredentialBatchSupport.distinctNames(names, concurrency);
+
+		return Flux.fromIterable(distinctNames.values())
+				.flatMapSequential(name -> operations.getByName(name, credentialType)
+						.map(details -> new NamedResult<>(name, details, null))
+						.onErrorResume(Exception.class, e -> Mono.just(new NamedResult<>(name, null, e))),
+						concurrency)
+				.collect(BatchCollector<T>::new, BatchCollector::add)
+				.map(BatchCollector::toBatch);
+	}
+
+	/**
+	 * Apply an operation to each request with bounded concurrency, converting the
+	 * outcome of each operation to a result.
+	 *
+	 * @param requests the requests to apply the operation to
+	 * @param concurrency the maximum number of concurrent operations
+	 * @param ordered {@literal true} to emit results in the order of the requests
+	 * @param operation the operation to apply
+	 * @param <R> the request type
+	 * @return the result of each request
+	 */
+	static <R extends CredHubRequest<?>> Flux<CredentialRequestResult<R>> executeAll(
+			Publisher<? extends R> requests, int concurrency, boolean ordered,
+			Function<R, Mono<? extends CredentialDetails<?>>> operation) {
+		Function<R, Mono<CredentialRequestResult<R>>> execute = request -> operation.apply(request)
+				.<CredentialRequestResult<R>>map(details -> CredentialRequestResult.success(request, details))
+				.onErrorResume(Exception.class, e -> Mono.just(CredentialRequestResult.failure(request, e)));
+
+		Flux<R> flux = Flux.from(requests);
+		return ordered
+				? flux.flatMapSequential(execute, concurrency)
+				: flux.flatMap(execute, concurrency);
+	}
+
+	private static final class NamedResult<T> {
+		private final CredentialName name;
+		private final CredentialDetails<T> details;
+		private final Exception error;
+
+		private NamedResult(CredentialName name, CredentialDetails<T> details, Exception error) {
+			this.name = name;
+			this.details = details;
+			this.error = error;
+		}
+	}
+
+	private static final class BatchCollector<T> {
+		private final Map<String, CredentialDetails<T>> credentials = new LinkedHashMap<>();
+		private final Map<String, Exception> errors = new LinkedHashMap<>();
+
+		private void add(NamedResult<T> result) {
+			if (result.error == null) {
+				credentials.put(result.name.getName(), result.details);
+			}
+			else {
+				errors.put(result.name.getName(), result.error);
+			}
+		}
+
+		private CredentialDetailsBatch<T> toBatch() {
+			return new CredentialDetailsBatch<>(credentials, errors);
+		}
+	}
+}
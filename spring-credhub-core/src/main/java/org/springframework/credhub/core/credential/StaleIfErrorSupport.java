@@ -0,0 +1,108 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.core.credential;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.credhub.support.CredentialDetails;
+import org.springframework.credhub.support.CredentialDetailsBatch;
+import org.springframework.credhub.support.CredentialName;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+
+/**
+ * Support for returning expired cached credentials when CredHub is unavailable.
+ */
+final class StaleIfErrorSupport {
+	private static final String NETTY_TIMEOUT_PACKAGE = "io.netty.handler.timeout.";
+
+	private StaleIfErrorSupport() {
+	}
+
+	/**
+	 * Indicates whether an error means that CredHub is unavailable, as opposed to the
+	 * request being rejected. Server errors, open circuit breakers, I/O errors, and
+	 * timeouts are considered unavailability.
+	 *
+	 * @param error the error
+	 * @return {@literal true} if a stale credential may be returned instead of the error
+	 */
+	static boolean isUnavailable(Throwable error) {
+		for (Throwable e = error; e != null; e = e.getCause()) {
+			if (e instanceof HttpStatusCodeException) {
+				return ((HttpStatusCodeException) e).getStatusCode().is5xxServerError();
+			}
+			if (e instanceof ResourceAccessException || e instanceof IOException
+					|| e instanceof TimeoutException || e.getClass().getName().startsWith(NETTY_TIMEOUT_PACKAGE)) {
+				return true;
+			}
+			if (e.getCause() == e) {
+				break;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Replace the errors in a batch that mean CredHub is unavailable with cached values
+	 * of the credentials, where they are available.
+	 *
+	 * @param cache the credential cache
+	 * @param batch the batch of retrieved credentials
+	 * @return the batch with stale values in place of errors
+	 */
+	static <T> CredentialDetailsBatch<T> withStaleValues(CredentialCache cache, CredentialDetailsBatch<T> batch) {
+		if (!cache.isStaleIfErrorEnabled() || !batch.hasErrors()) {
+			return batch;
+		}
+
+		Map<String, CredentialDetails<T>> credentials = new LinkedHashMap<>(batch.getCredentials());
+		Map<String, Exception> errors = new LinkedHashMap<>();
+		batch.getErrors().forEach((name, error) -> {
+			CredentialDetails<T> stale = isUnavailable(error) ? cache.getStaleByName(name) : null;
+			if (stale != null) {
+				credentials.put(name, stale);
+			}
+			else {
+				errors.put(name, error);
+			}
+		});
+
+		return new CredentialDetailsBatch<>(credentials, errors);
+	}
+
+	/**
+	 * Create a batch in which retrieving each of the provided credentials failed with the
+	 * provided error.
+	 *
+	 * @param names the names of the credentials
+	 * @param error the error
+	 * @return the failed batch
+	 */
+	static <T> CredentialDetailsBatch<T> failedBatch(Collection<? extends CredentialName> names, Throwable error) {
+		Exception exception = error instanceof Exception ? (Exception) error : new RuntimeException(error);
+
+		Map<String, Exception> errors = new LinkedHashMap<>();
+		names.forEach(name -> errors.put(name.getName(), exception));
+		return new CredentialDetailsBatch<>(Collections.emptyMap(), errors);
+	}
+}
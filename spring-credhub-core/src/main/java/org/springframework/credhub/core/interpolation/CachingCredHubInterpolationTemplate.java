@@ -0,0 +1,79 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.credhub.core.interpolation;
+
+import org.springframework.credhub.core.credential.CredHubCredentialOperations;
+import org.springframework.credhub.support.CredentialDetailsBatch;
+import org.springframework.credhub.support.ServicesData;
+import org.springframework.credhub.support.json.JsonCredential;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link CredHubInterpolationOperations} that interpolates service binding credentials
+ * on the client, using credentials retrieved in bulk through a caching
+ * {@link CredHubCredentialOperations}. Bindings that reference credentials which cannot
+ * be retrieved or are not JSON credentials are interpolated by CredHub, and no request
+ * to the interpolation API is made when all references are resolved.
+ */
+public class CachingCredHubInterpolationTemplate implements CredHubInterpolationOperations {
+	private final CredHubInterpolationOperations delegate;
+
+	private final CredHubCredentialOperations credentialOperations;
+
+	/**
+	 * Create a new {@link CachingCredHubInterpolationTemplate}.
+	 *
+	 * @param delegate             the {@link CredHubInterpolationOperations} to use for
+	 *                             references that cannot be resolved on the client; must not
+	 *                             be {@literal null}
+	 * @param credentialOperations the {@link CredHubCredentialOperations} to retrieve
+	 *                             referenced credentials with; must not be {@literal null}
+	 */
+	public CachingCredHubInterpolationTemplate(CredHubInterpolationOperations delegate,
+			CredHubCredentialOperations credentialOperations) {
+		Assert.notNull(delegate, "delegate must not be null");
+		Assert.notNull(credentialOperations, "credentialOperations must not be null");
+
+		this.delegate = delegate;
+		this.credentialOperations = credentialOperations;
+	}
+
+	@Override
+	public ServicesData interpolateServiceData(final ServicesData serviceData) {
+		Assert.notNull(serviceData, "serviceData must not be null");
+
+		ClientSideInterpolation interpolation = new ClientSideInterpolation(serviceData);
+		if (interpolation.getReferences().isEmpty()) {
+			return serviceData;
+		}
+
+		CredentialDetailsBatch<JsonCredential> credentials;
+		try {
+			credentials = credentialOperations.getByNames(interpolation.getReferences(), JsonCredential.class);
+		}
+		catch (RuntimeException e) {
+			return delegate.interpolateServiceData(serviceData);
+		}
+
+		ServicesData interpolated = interpolation.resolve(credentials);
+		if (!interpolation.hasUnresolved()) {
+			return interpolated;
+		}
+		return interpolation.complete(delegate.interpolateServiceData(interpolation.getUnresolved()));
+	}
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.credhub.core.interpolation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.credhub.support.CredentialDetails;
+import org.springframework.credhub.support.CredentialDetailsBatch;
+import org.springframework.credhub.support.CredentialName;
+import org.springframework.credhub.support.CredentialType;
+import org.springframework.credhub.support.ServicesData;
+import org.springframework.credhub.support.SimpleCredentialName;
+import org.springframework.util.StringUtils;
+
+/**
+ * The state of interpolating one {@link ServicesData} structure on the client. The
+ * {@literal credhub-ref} references in the service bindings are collected, the bindings
+ * whose referenced JSON credentials were retrieved are interpolated locally, and the
+ * remaining bindings are collected so that they can be interpolated by CredHub.
+ */
+final class ClientSideInterpolation {
+	private static final String CREDENTIALS_KEY = "credentials";
+
+	private static final String CREDHUB_REF_KEY = "credhub-ref";
+
+	private final ServicesData serviceData;
+
+	private final Map<String, CredentialName> references = new LinkedHashMap<>();
+
+	private final ServicesData result = new ServicesData();
+
+	private final ServicesData unresolved = new ServicesData();
+
+	private final Map<String, List<Integer>> unresolvedPositions = new LinkedHashMap<>();
+
+	ClientSideInterpolation(ServicesData serviceData) {
+		this.serviceData = serviceData;
+
+		serviceData.forEach((offering, bindings) -> {
+			if (bindings != null) {
+				bindings.forEach(binding -> {
+					CredentialName name = referenceOf(binding);
+					if (name != null) {
+						this.references.putIfAbsent(name.getName(), name);
+					}
+				});
+			}
+		});
+	}
+
+	/**
+	 * Get the distinct names of the credentials referenced by the service bindings.
+	 *
+	 * @return the referenced credential names
+	 */
+	Collection<CredentialName> getReferences() {
+		return this.references.values();
+	}
+
+	/**
+	 * Interpolate the service bindings whose referenced credentials were retrieved. A
+	 * binding is left for CredHub to interpolate if its credential could not be retrieved
+	 * or is not a JSON credential.
+	 *
+	 * @param credentials the retrieved credentials
+	 * @return the service data with the resolved bindings interpolated
+	 */
+	ServicesData resolve(CredentialDetailsBatch<?> credentials) {
+		this.serviceData.forEach((offering, bindings) -> {
+			if (bindings == null) {
+				this.result.put(offering, null);
+				return;
+			}
+
+			List<Map<String, Object>> resolvedBindings = new ArrayList<>(bindings.size());
+			for (int i = 0; i < bindings.size(); i++) {
+				Map<String, Object> binding = bindings.get(i);
+				CredentialName name = referenceOf(binding);
+				if (name == null) {
+					resolvedBindings.add(binding);
+					continue;
+				}
+
+				Map<String, Object> value = jsonValueOf(credentials.getCredentials().get(name.getName()));
+				if (value != null) {
+					Map<String, Object> interpolated = new LinkedHashMap<>(binding);
+					interpolated.put(CREDENTIALS_KEY, new LinkedHashMap<>(value));
+					resolvedBindings.add(interpolated);
+				}
+				else {
+					resolvedBindings.add(binding);
+					this.unresolved.computeIfAbsent(offering, key -> new ArrayList<>()).add(binding);
+					this.unresolvedPositions.computeIfAbsent(offering, key -> new ArrayList<>()).add(i);
+				}
+			}
+			this.result.put(offering, resolvedBindings);
+		});
+
+		return this.result;
+	}
+
+	/**
+	 * Indicates whether any bindings could not be interpolated on the client.
+	 *
+	 * @return {@literal true} if there are bindings left for CredHub to interpolate
+	 */
+	boolean hasUnresolved() {
+		return !this.unresolved.isEmpty();
+	}
+
+	/**
+	 * Get the service bindings that could not be interpolated on the client.
+	 *
+	 * @return the unresolved bindings
+	 */
+	ServicesData getUnresolved() {
+		return this.unresolved;
+	}
+
+	/**
+	 * Replace the unresolved bindings with the bindings interpolated by CredHub.
+	 *
+	 * @param interpolated the unresolved bindings interpolated by CredHub
+	 * @return the fully interpolated service data
+	 */
+	ServicesData complete(ServicesData interpolated) {
+		this.unresolvedPositions.forEach((offering, positions) -> {
+			List<Map<String, Object>> bindings = interpolated == null ? null : interpolated.get(offering);
+			if (bindings == null || bindings.size() != positions.size()) {
+				return;
+			}
+			List<Map<String, Object>> resultBindings = this.result.get(offering);
+			for (int i = 0; i < positions.size(); i++) {
+				resultBindings.set(positions.get(i), bindings.get(i));
+			}
+		});
+		return this.result;
+	}
+
+	private static CredentialName referenceOf(Map<String, Object> binding) {
+		if (binding == null) {
+			return null;
+		}
+		Object credentials = binding.get(CREDENTIALS_KEY);
+		if (!(credentials instanceof Map)) {
+			return null;
+		}
+		Object reference = ((Map<?, ?>) credentials).get(CREDHUB_REF_KEY);
+		if (!(reference instanceof String)) {
+			return null;
+		}
+
+		String name = ((String) reference).trim();
+		if (name.startsWith("((") && name.endsWith("))")) {
+			name = name.substring(2, name.length() - 2).trim();
+		}
+		String[] segments = StringUtils.tokenizeToStringArray(name, "/");
+		return segments.length == 0 ? null : new SimpleCredentialName(segments);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<String, Object> jsonValueOf(CredentialDetails<?> details) {
+		if (details == null || details.getCredentialType() != CredentialType.JSON
+				|| !(details.getValue() instanceof Map)) {
+			return null;
+		}
+		return (Map<String, Object>) details.getValue();
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.credhub.core.interpolation;
+
+import java.util.Optional;
+
+import reactor.core.publisher.Mono;
+
+import org.springframework.credhub.core.credential.ReactiveCredHubCredentialOperations;
+import org.springframework.credhub.support.CredentialDetailsBatch;
+import org.springframework.credhub.support.ServicesData;
+import org.springframework.credhub.support.json.JsonCredential;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link ReactiveCredHubInterpolationOperations} that interpolates service binding
+ * credentials on the client, using credentials retrieved in bulk through a caching
+ * {@link ReactiveCredHubCredentialOperations}. Bindings that reference credentials which
+ * cannot be retrieved or are not JSON credentials are interpolated by CredHub, and no
+ * request to the interpolation API is made when all references are resolved.
+ */
+public class ReactiveCachingCredHubInterpolationTemplate implements ReactiveCredHubInterpolationOperations {
+	private final ReactiveCredHubInterpolationOperations delegate;
+
+	private final ReactiveCredHubCredentialOperations credentialOperations;
+
+	/**
+	 * Create a new {@link ReactiveCachingCredHubInterpolationTemplate}.
+	 *
+	 * @param delegate             the {@link ReactiveCredHubInterpolationOperations} to use
+	 *                             for references that cannot be resolved on the client; must
+	 *                             not be {@literal null}
+	 * @param credentialOperations the {@link ReactiveCredHubCredentialOperations} to retrieve
+	 *                             referenced credentials with; must not be {@literal null}
+	 */
+	public ReactiveCachingCredHubInterpolationTemplate(ReactiveCredHubInterpolationOperations delegate,
+			ReactiveCredHubCredentialOperations credentialOperations) {
+		Assert.notNull(delegate, "delegate must not be null");
+		Assert.notNull(credentialOperations, "credentialOperations must not be null");
+
+		this.delegate = delegate;
+		this.credentialOperations = credentialOperations;
+	}
+
+	@Override
+	public Mono<ServicesData> interpolateServiceData(final ServicesData serviceData) {
+		Assert.notNull(serviceData, "serviceData must not be null");
+
+		return Mono.defer(() -> {
+			ClientSideInterpolation interpolation = new ClientSideInterpolation(serviceData);
+			if (interpolation.getReferences().isEmpty()) {
+				return Mono.just(serviceData);
+			}
+
+			return credentialOperations
+					.<JsonCredential>getByNames(interpolation.getReferences(), JsonCredential.class)
+					.map(Optional::of)
+					.onErrorResume(e -> Mono.just(Optional.empty()))
+					.flatMap(credentials -> credentials
+							.map(batch -> interpolate(interpolation, batch))
+							.orElseGet(() -> delegate.interpolateServiceData(serviceData)));
+		});
+	}
+
+	private Mono<ServicesData> interpolate(ClientSideInterpolation interpolation,
+			CredentialDetailsBatch<JsonCredential> credentials) {
+		ServicesData interpolated = interpolation.resolve(credentials);
+		if (!interpolation.hasUnresolved()) {
+			return Mono.just(interpolated);
+		}
+		return delegate.interpolateServiceData(interpolation.getUnresolved())
+				.map(interpolation::complete);
+	}
+}
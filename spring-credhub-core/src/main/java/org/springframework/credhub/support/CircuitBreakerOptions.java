@@ -0,0 +1,256 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.support;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Options for the client-side circuit breakers that stop requests to CredHub while the
+ * server is failing.
+ *
+ * <p>A separate circuit breaker is kept for each group of operations: {@literal credentials},
+ * {@literal certificates}, {@literal permissions}, and {@literal interpolation}. The options
+ * of a group can be overridden using {@link #getGroups()}; any option that is not set for a
+ * group is taken from these options.
+ */
+public class CircuitBreakerOptions {
+	private static final double DEFAULT_FAILURE_RATE_THRESHOLD = 0.5;
+
+	private static final double DEFAULT_SLOW_CALL_RATE_THRESHOLD = 1.0;
+
+	private static final Duration DEFAULT_SLOW_CALL_DURATION_THRESHOLD = Duration.ofSeconds(10);
+
+	private static final int DEFAULT_SLIDING_WINDOW_SIZE = 20;
+
+	private static final int DEFAULT_MINIMUM_NUMBER_OF_CALLS = 10;
+
+	private static final Duration DEFAULT_WAIT_DURATION_IN_OPEN_STATE = Duration.ofSeconds(30);
+
+	private boolean enabled;
+
+	private double failureRateThreshold;
+
+	private double slowCallRateThreshold;
+
+	private Duration slowCallDurationThreshold;
+
+	private int slidingWindowSize;
+
+	private int minimumNumberOfCalls;
+
+	private Duration waitDurationInOpenState;
+
+	private final Map<String, GroupOptions> groups = new LinkedHashMap<>();
+
+	/**
+	 * Create new {@link CircuitBreakerOptions} with default values. Circuit breakers are
+	 * disabled by default.
+	 */
+	public CircuitBreakerOptions() {
+		this.enabled = false;
+		this.failureRateThreshold = DEFAULT_FAILURE_RATE_THRESHOLD;
+		this.slowCallRateThreshold = DEFAULT_SLOW_CALL_RATE_THRESHOLD;
+		this.slowCallDurationThreshold = DEFAULT_SLOW_CALL_DURATION_THRESHOLD;
+		this.slidingWindowSize = DEFAULT_SLIDING_WINDOW_SIZE;
+		this.minimumNumberOfCalls = DEFAULT_MINIMUM_NUMBER_OF_CALLS;
+		this.waitDurationInOpenState = DEFAULT_WAIT_DURATION_IN_OPEN_STATE;
+	}
+
+	/**
+	 * Indicates whether circuit breakers are used.
+	 *
+	 * @return {@literal true} if circuit breakers are enabled
+	 */
+	public boolean isEnabled() {
+		return this.enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Get the fraction of failed calls, between {@literal 0} and {@literal 1}, at which a
+	 * circuit breaker opens. A call fails if CredHub responds with a {@literal 5xx} status
+	 * or no response is received.
+	 *
+	 * @return the failure rate threshold
+	 */
+	public double getFailureRateThreshold() {
+		return this.failureRateThreshold;
+	}
+
+	public void setFailureRateThreshold(double failureRateThreshold) {
+		this.failureRateThreshold = failureRateThreshold;
+	}
+
+	/**
+	 * Get the fraction of slow calls, between {@literal 0} and {@literal 1}, at which a
+	 * circuit breaker opens.
+	 *
+	 * @return the slow call rate threshold
+	 */
+	public double getSlowCallRateThreshold() {
+		return this.slowCallRateThreshold;
+	}
+
+	public void setSlowCallRateThreshold(double slowCallRateThreshold) {
+		this.slowCallRateThreshold = slowCallRateThreshold;
+	}
+
+	/**
+	 * Get the time after which a call is considered slow.
+	 *
+	 * @return the slow call duration threshold
+	 */
+	public Duration getSlowCallDurationThreshold() {
+		return this.slowCallDurationThreshold;
+	}
+
+	public void setSlowCallDurationThreshold(Duration slowCallDurationThreshold) {
+		this.slowCallDurationThreshold = slowCallDurationThreshold;
+	}
+
+	/**
+	 * Get the number of most recent calls used to calculate the failure and slow call
+	 * rates.
+	 *
+	 * @return the sliding window size
+	 */
+	public int getSlidingWindowSize() {
+		return this.slidingWindowSize;
+	}
+
+	public void setSlidingWindowSize(int slidingWindowSize) {
+		this.slidingWindowSize = slidingWindowSize;
+	}
+
+	/**
+	 * Get the number of calls that must be recorded before a circuit breaker can open.
+	 *
+	 * @return the minimum number of calls
+	 */
+	public int getMinimumNumberOfCalls() {
+		return this.minimumNumberOfCalls;
+	}
+
+	public void setMinimumNumberOfCalls(int minimumNumberOfCalls) {
+		this.minimumNumberOfCalls = minimumNumberOfCalls;
+	}
+
+	/**
+	 * Get the time an open circuit breaker rejects calls before CredHub is probed to
+	 * decide whether the circuit breaker can close.
+	 *
+	 * @return the wait duration in the open state
+	 */
+	public Duration getWaitDurationInOpenState() {
+		return this.waitDurationInOpenState;
+	}
+
+	public void setWaitDurationInOpenState(Duration waitDurationInOpenState) {
+		this.waitDurationInOpenState = waitDurationInOpenState;
+	}
+
+	/**
+	 * Get the options that override these options for a group of operations, keyed by the
+	 * group name.
+	 *
+	 * @return the options of each group
+	 */
+	public Map<String, GroupOptions> getGroups() {
+		return this.groups;
+	}
+
+	/**
+	 * Circuit breaker options for a group of operations. Options that are {@literal null}
+	 * are taken from the enclosing {@link CircuitBreakerOptions}.
+	 */
+	public static class GroupOptions {
+		private Boolean enabled;
+
+		private Double failureRateThreshold;
+
+		private Double slowCallRateThreshold;
+
+		private Duration slowCallDurationThreshold;
+
+		private Integer slidingWindowSize;
+
+		private Integer minimumNumberOfCalls;
+
+		private Duration waitDurationInOpenState;
+
+		public Boolean getEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(Boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public Double getFailureRateThreshold() {
+			return this.failureRateThreshold;
+		}
+
+		public void setFailureRateThreshold(Double failureRateThreshold) {
+			this.failureRateThreshold = failureRateThreshold;
+		}
+
+		public Double getSlowCallRateThreshold() {
+			return this.slowCallRateThreshold;
+		}
+
+		public void setSlowCallRateThreshold(Double slowCallRateThreshold) {
+			this.slowCallRateThreshold = slowCallRateThreshold;
+		}
+
+		public Duration getSlowCallDurationThreshold() {
+			return this.slowCallDurationThreshold;
+		}
+
+		public void setSlowCallDurationThreshold(Duration slowCallDurationThreshold) {
+			this.slowCallDurationThreshold = slowCallDurationThreshold;
+		}
+
+		public Integer getSlidingWindowSize() {
+			return this.slidingWindowSize;
+		}
+
+		public void setSlidingWindowSize(Integer slidingWindowSize) {
+			this.slidingWindowSize = slidingWindowSize;
+		}
+
+		public Integer getMinimumNumberOfCalls() {
+			return this.minimumNumberOfCalls;
+		}
+
+		public void setMinimumNumberOfCalls(Integer minimumNumberOfCalls) {
+			this.minimumNumberOfCalls = minimumNumberOfCalls;
+		}
+
+		public Duration getWaitDurationInOpenState() {
+			return this.waitDurationInOpenState;
+		}
+
+		public void setWaitDurationInOpenState(Duration waitDurationInOpenState) {
+			this.waitDurationInOpenState = waitDurationInOpenState;
+		}
+	}
+}
@@ -30,8 +30,36 @@ public class ClientOptions {
 
 	private Duration readTimeout;
 
+	private Duration writeTimeout;
+
+	private Duration responseTimeout;
+
 	private String[] caCertFiles;
 
+	private String clientCertificateFile;
+
+	private String clientPrivateKeyFile;
+
+	private SslProvider sslProvider;
+
+	private Long sslSessionCacheSize;
+
+	private Duration sslSessionTimeout;
+
+	private HttpVersion httpVersion;
+
+	private boolean requestCoalescing;
+
+	private Integer maxConnections;
+
+	private Integer maxConnectionsPerRoute;
+
+	private Duration maxIdleTime;
+
+	private Duration keepAlive;
+
+	private Duration connectionTimeToLive;
+
 	/**
 	 * Create new {@link ClientOptions} with default values.
 	 */
@@ -100,6 +128,34 @@ public class ClientOptions {
 		this.readTimeout = readTimeout;
 	}
 
+	/**
+	 * Get the maximum time to wait for a request to be written to a connection. Applies
+	 * only to the reactive client.
+	 *
+	 * @return the write timeout; can be {@literal null} if not explicitly set
+	 */
+	public Duration getWriteTimeout() {
+		return this.writeTimeout;
+	}
+
+	public void setWriteTimeout(Duration writeTimeout) {
+		this.writeTimeout = writeTimeout;
+	}
+
+	/**
+	 * Get the maximum time to wait for the response status and headers after a request
+	 * is sent. Applies only to the reactive client.
+	 *
+	 * @return the response timeout; can be {@literal null} if not explicitly set
+	 */
+	public Duration getResponseTimeout() {
+		return this.responseTimeout;
+	}
+
+	public void setResponseTimeout(Duration responseTimeout) {
+		this.responseTimeout = responseTimeout;
+	}
+
 	public String[] getCaCertFiles() {
 		return caCertFiles;
 	}
@@ -107,4 +163,215 @@ public class ClientOptions {
 	public void setCaCertFiles(String[] caCertFiles) {
 		this.caCertFiles = caCertFiles;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Get the PEM-encoded client certificate file presented to the CredHub server for
+	 * mutual TLS authentication, such as the Cloud Foundry instance identity certificate
+	 * referenced by the {@code CF_INSTANCE_CERT} environment variable. The certificate is
+	 * reloaded when the file changes.
+	 *
+	 * @return the client certificate file; can be {@literal null} if not explicitly set
+	 */
+	public String getClientCertificateFile() {
+		return this.clientCertificateFile;
+	}
+
+	public void setClientCertificateFile(String clientCertificateFile) {
+		this.clientCertificateFile = clientCertificateFile;
+	}
+
+	/**
+	 * Get the PEM-encoded PKCS#1 RSA or PKCS#8 private key file for the
+	 * {@link #getClientCertificateFile() client certificate}, such as the file referenced
+	 * by the {@code CF_INSTANCE_KEY} environment variable.
+	 *
+	 * @return the client private key file; can be {@literal null} if not explicitly set
+	 */
+	public String getClientPrivateKeyFile() {
+		return this.clientPrivateKeyFile;
+	}
+
+	public void setClientPrivateKeyFile(String clientPrivateKeyFile) {
+		this.clientPrivateKeyFile = clientPrivateKeyFile;
+	}
+
+	/**
+	 * Get the TLS implementation used by the Netty-based HTTP clients. When
+	 * {@link SslProvider#OPENSSL} or {@link SslProvider#OPENSSL_REFCNT} is requested but
+	 * netty-tcnative is not on the classpath, the JDK implementation is used instead.
+	 *
+	 * @return the TLS provider; can be {@literal null} if not explicitly set, in which case
+	 * the JDK implementation is used
+	 */
+	public SslProvider getSslProvider() {
+		return this.sslProvider;
+	}
+
+	public void setSslProvider(SslProvider sslProvider) {
+		this.sslProvider = sslProvider;
+	}
+
+	/**
+	 * Get the maximum number of TLS sessions cached for resumption. Applies only to the
+	 * Netty-based HTTP clients.
+	 *
+	 * @return the TLS session cache size; can be {@literal null} if not explicitly set
+	 */
+	public Long getSslSessionCacheSize() {
+		return this.sslSessionCacheSize;
+	}
+
+	public void setSslSessionCacheSize(Long sslSessionCacheSize) {
+		this.sslSessionCacheSize = sslSessionCacheSize;
+	}
+
+	/**
+	 * Get the time a cached TLS session can be resumed. Applies only to the Netty-based
+	 * HTTP clients.
+	 *
+	 * @return the TLS session timeout; can be {@literal null} if not explicitly set
+	 */
+	public Duration getSslSessionTimeout() {
+		return this.sslSessionTimeout;
+	}
+
+	public void setSslSessionTimeout(Duration sslSessionTimeout) {
+		this.sslSessionTimeout = sslSessionTimeout;
+	}
+
+	/**
+	 * Get the HTTP protocol version requested from the CredHub server. Setting a version
+	 * selects the {@code java.net.http.HttpClient} of Java 11 or later for both blocking
+	 * and reactive requests, which can multiplex concurrent requests over a single HTTP/2
+	 * connection. On earlier Java versions a warning is logged and the version is ignored.
+	 *
+	 * @return the HTTP version; can be {@literal null} if not explicitly set, in which case
+	 * the HTTP client library is chosen based on the classpath
+	 */
+	public HttpVersion getHttpVersion() {
+		return this.httpVersion;
+	}
+
+	public void setHttpVersion(HttpVersion httpVersion) {
+		this.httpVersion = httpVersion;
+	}
+
+	/**
+	 * Indicates whether concurrent identical GET requests should share a single HTTP
+	 * exchange with the CredHub server.
+	 *
+	 * @return {@literal true} if request coalescing is enabled; {@literal false} by default
+	 */
+	public boolean isRequestCoalescing() {
+		return this.requestCoalescing;
+	}
+
+	public void setRequestCoalescing(boolean requestCoalescing) {
+		this.requestCoalescing = requestCoalescing;
+	}
+
+	/**
+	 * Get the maximum number of pooled connections to all CredHub servers.
+	 *
+	 * @return the maximum number of connections; can be {@literal null} if not explicitly set
+	 */
+	public Integer getMaxConnections() {
+		return this.maxConnections;
+	}
+
+	public void setMaxConnections(Integer maxConnections) {
+		this.maxConnections = maxConnections;
+	}
+
+	/**
+	 * Get the maximum number of pooled connections to a single CredHub server.
+	 *
+	 * @return the maximum number of connections per route; can be {@literal null} if not
+	 * explicitly set
+	 */
+	public Integer getMaxConnectionsPerRoute() {
+		return this.maxConnectionsPerRoute;
+	}
+
+	public void setMaxConnectionsPerRoute(Integer maxConnectionsPerRoute) {
+		this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+	}
+
+	/**
+	 * Get the time after which an idle pooled connection is evicted.
+	 *
+	 * @return the maximum idle time; can be {@literal null} if not explicitly set
+	 */
+	public Duration getMaxIdleTime() {
+		return this.maxIdleTime;
+	}
+
+	public void setMaxIdleTime(Duration maxIdleTime) {
+		this.maxIdleTime = maxIdleTime;
+	}
+
+	/**
+	 * Get the time a connection is kept alive for reuse when the CredHub server does not
+	 * specify a keep-alive time. A duration of {@literal 0} disables keep-alive.
+	 *
+	 * @return the keep-alive time; can be {@literal null} if not explicitly set
+	 */
+	public Duration getKeepAlive() {
+		return this.keepAlive;
+	}
+
+	public void setKeepAlive(Duration keepAlive) {
+		this.keepAlive = keepAlive;
+	}
+
+	/**
+	 * Get the maximum time a pooled connection is used, regardless of activity.
+	 *
+	 * @return the connection time to live; can be {@literal null} if not explicitly set
+	 */
+	public Duration getConnectionTimeToLive() {
+		return this.connectionTimeToLive;
+	}
+
+	public void setConnectionTimeToLive(Duration connectionTimeToLive) {
+		this.connectionTimeToLive = connectionTimeToLive;
+	}
+
+	/**
+	 * TLS implementations available to the Netty-based HTTP clients.
+	 */
+	public enum SslProvider {
+		/**
+		 * The TLS implementation of the JDK.
+		 */
+		JDK,
+
+		/**
+		 * OpenSSL or BoringSSL provided by netty-tcnative, with native resources released
+		 * by finalization.
+		 */
+		OPENSSL,
+
+		/**
+		 * OpenSSL or BoringSSL provided by netty-tcnative, with reference-counted native
+		 * resources that are held for the lifetime of the HTTP client.
+		 */
+		OPENSSL_REFCNT
+	}
+
+	/**
+	 * HTTP protocol versions supported by {@code java.net.http.HttpClient}.
+	 */
+	public enum HttpVersion {
+		/**
+		 * HTTP/1.1, with one connection per concurrent request.
+		 */
+		HTTP_1_1,
+
+		/**
+		 * HTTP/2, negotiated with ALPN over TLS and multiplexing concurrent requests over a
+		 * single connection. HTTP/1.1 is used if the server does not support HTTP/2.
+		 */
+		HTTP_2
+	}
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.support;
+
+import java.io.File;
+import java.time.Duration;
+
+/**
+ * Options for the client-side cache of credentials retrieved from CredHub.
+ */
+public class CredentialCacheOptions {
+	private static final int DEFAULT_MAX_SIZE = 1000;
+
+	private static final Duration DEFAULT_TTL = Duration.ofMinutes(1);
+
+	private boolean enabled;
+
+	private int maxSize;
+
+	private Duration ttl;
+
+	private Duration maxStaleness;
+
+	private boolean clientSideInterpolation;
+
+	private final SnapshotOptions snapshot = new SnapshotOptions();
+
+	/**
+	 * Create new {@link CredentialCacheOptions} with default values. Caching is
+	 * disabled by default.
+	 */
+	public CredentialCacheOptions() {
+		this.enabled = false;
+		this.maxSize = DEFAULT_MAX_SIZE;
+		this.ttl = DEFAULT_TTL;
+		this.maxStaleness = Duration.ZERO;
+	}
+
+	/**
+	 * Create {@link CredentialCacheOptions} with the provided values. Caching is enabled.
+	 *
+	 * @param maxSize the maximum number of cached credentials; must be greater than {@literal 0}
+	 * @param ttl     the time a cached credential is considered current
+	 */
+	public CredentialCacheOptions(int maxSize, Duration ttl) {
+		this.enabled = true;
+		this.maxSize = maxSize;
+		this.ttl = ttl;
+		this.maxStaleness = Duration.ZERO;
+	}
+
+	/**
+	 * Indicates whether credentials should be cached.
+	 *
+	 * @return {@literal true} if caching is enabled
+	 */
+	public boolean isEnabled() {
+		return this.enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Get the maximum number of cached credentials. The least recently used credential
+	 * is evicted when the cache is full.
+	 *
+	 * @return the maximum number of cached credentials
+	 */
+	public int getMaxSize() {
+		return this.maxSize;
+	}
+
+	public void setMaxSize(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Get the time a cached credential is considered current.
+	 *
+	 * @return the time to live for cached credentials
+	 */
+	public Duration getTtl() {
+		return this.ttl;
+	}
+
+	public void setTtl(Duration ttl) {
+		this.ttl = ttl;
+	}
+
+	/**
+	 * Get the time after a cached credential expires during which it is still returned
+	 * if retrieving the credential from CredHub fails because CredHub is unavailable.
+	 * A value of {@literal 0} disables returning expired credentials on failure.
+	 *
+	 * @return the maximum staleness of a credential returned on failure
+	 */
+	public Duration getMaxStaleness() {
+		return this.maxStaleness;
+	}
+
+	public void setMaxStaleness(Duration maxStaleness) {
+		this.maxStaleness = maxStaleness;
+	}
+
+	/**
+	 * Indicates whether CredHub references in service data are resolved on the client
+	 * using cached credentials, instead of sending all service data to the CredHub
+	 * interpolation API. References that cannot be resolved on the client are still
+	 * interpolated by CredHub.
+	 *
+	 * @return {@literal true} if service data is interpolated on the client
+	 */
+	public boolean isClientSideInterpolation() {
+		return this.clientSideInterpolation;
+	}
+
+	public void setClientSideInterpolation(boolean clientSideInterpolation) {
+		this.clientSideInterpolation = clientSideInterpolation;
+	}
+
+	/**
+	 * Get the options for persisting cached credentials to an encrypted snapshot file,
+	 * which is read when the cache is created so that credentials that are still current
+	 * do not have to be retrieved from CredHub after a restart.
+	 *
+	 * @return the snapshot options
+	 */
+	public SnapshotOptions getSnapshot() {
+		return this.snapshot;
+	}
+
+	/**
+	 * Options for the encrypted snapshot file of a credential cache. The snapshot is
+	 * enabled when both a {@link #getPath() path} and a {@link #getKey() key} are set.
+	 */
+	public static class SnapshotOptions {
+		private static final Duration DEFAULT_WRITE_INTERVAL = Duration.ofSeconds(10);
+
+		private File path;
+
+		private String key;
+
+		private Duration writeInterval = DEFAULT_WRITE_INTERVAL;
+
+		/**
+		 * Indicates whether cached credentials are persisted to a snapshot file.
+		 *
+		 * @return {@literal true} if the snapshot file is enabled
+		 */
+		public boolean isEnabled() {
+			return this.path != null && this.key != null && !this.key.isEmpty();
+		}
+
+		/**
+		 * Get the location of the snapshot file.
+		 *
+		 * @return the snapshot file
+		 */
+		public File getPath() {
+			return this.path;
+		}
+
+		public void setPath(File path) {
+			this.path = path;
+		}
+
+		/**
+		 * Get the Base64-encoded 128, 192, or 256-bit AES key used to encrypt the snapshot
+		 * file.
+		 *
+		 * @return the encryption key
+		 */
+		public String getKey() {
+			return this.key;
+		}
+
+		public void setKey(String key) {
+			this.key = key;
+		}
+
+		/**
+		 * Get the interval at which changes to the cache are written to the snapshot file
+		 * in the background.
+		 *
+		 * @return the write interval
+		 */
+		public Duration getWriteInterval() {
+			return this.writeInterval;
+		}
+
+		public void setWriteInterval(Duration writeInterval) {
+			this.writeInterval = writeInterval;
+		}
+	}
+}
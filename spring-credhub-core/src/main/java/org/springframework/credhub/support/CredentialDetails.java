@@ -16,6 +16,7 @@
 
 package org.springframework.credhub.support;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 
@@ -66,6 +67,18 @@ public class CredentialDetails<T> extends CredentialSummary {
 		this.value = value;
 	}
 
+	/**
+	 * Create a copy of the provided {@link CredentialDetails}. Intended for internal use.
+	 *
+	 * @param details the credential details to copy
+	 */
+	protected CredentialDetails(CredentialDetails<T> details) {
+		super(details.getName(), details.getVersionCreatedAt());
+		this.id = details.getId();
+		this.credentialType = details.getCredentialType();
+		this.value = details.getValue();
+	}
+
 	/**
 	 * Get the the CredHub-generated unique ID of the credential.
 	 *
@@ -93,6 +106,18 @@ public class CredentialDetails<T> extends CredentialSummary {
 		return this.value;
 	}
 
+	/**
+	 * Indicates whether this value of the credential was served from a client-side cache
+	 * after it expired, and so may not be the current value in CredHub.
+	 *
+	 * @return {@literal true} if the value is stale
+	 * @see StaleCredentialDetails
+	 */
+	@JsonIgnore
+	public boolean isStale() {
+		return false;
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (this == o)
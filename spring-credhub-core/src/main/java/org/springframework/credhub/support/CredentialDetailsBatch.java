@@ -0,0 +1,109 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.support;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.util.Assert;
+
+/**
+ * The result of retrieving a batch of credentials by name. Credentials that were
+ * retrieved successfully and the errors that prevented other credentials from being
+ * retrieved are both indexed by credential name, in the order the names were requested.
+ *
+ * @param <T> the credential implementation type
+ */
+public class CredentialDetailsBatch<T> {
+	private final Map<String, CredentialDetails<T>> credentials;
+
+	private final Map<String, Exception> errors;
+
+	/**
+	 * Create a new {@link CredentialDetailsBatch}.
+	 *
+	 * @param credentials the retrieved credentials, indexed by credential name; must not be
+	 *                    {@literal null}
+	 * @param errors      the errors that occurred retrieving credentials, indexed by
+	 *                    credential name; must not be {@literal null}
+	 */
+	public CredentialDetailsBatch(Map<String, CredentialDetails<T>> credentials, Map<String, Exception> errors) {
+		Assert.notNull(credentials, "credentials must not be null");
+		Assert.notNull(errors, "errors must not be null");
+
+		this.credentials = Collections.unmodifiableMap(new LinkedHashMap<>(credentials));
+		this.errors = Collections.unmodifiableMap(new LinkedHashMap<>(errors));
+	}
+
+	/**
+	 * Get the credentials that were retrieved successfully.
+	 *
+	 * @return the retrieved credentials, indexed by credential name
+	 */
+	public Map<String, CredentialDetails<T>> getCredentials() {
+		return this.credentials;
+	}
+
+	/**
+	 * Get the errors that prevented credentials from being retrieved.
+	 *
+	 * @return the errors, indexed by credential name
+	 */
+	public Map<String, Exception> getErrors() {
+		return this.errors;
+	}
+
+	/**
+	 * Get a retrieved credential.
+	 *
+	 * @param name the name of the credential; must not be {@literal null}
+	 * @return the details of the credential, or {@literal null} if it was not retrieved
+	 */
+	public CredentialDetails<T> getCredential(CredentialName name) {
+		Assert.notNull(name, "credential name must not be null");
+		return this.credentials.get(name.getName());
+	}
+
+	/**
+	 * Get the error that prevented a credential from being retrieved.
+	 *
+	 * @param name the name of the credential; must not be {@literal null}
+	 * @return the error, or {@literal null} if the credential was retrieved
+	 */
+	public Exception getError(CredentialName name) {
+		Assert.notNull(name, "credential name must not be null");
+		return this.errors.get(name.getName());
+	}
+
+	/**
+	 * Indicates whether any credential could not be retrieved.
+	 *
+	 * @return {@literal true} if there were errors retrieving credentials
+	 */
+	public boolean hasErrors() {
+		return !this.errors.isEmpty();
+	}
+
+	@Override
+	public String toString() {
+		return "CredentialDetailsBatch{"
+				+ "credentials=" + credentials.keySet()
+				+ ", errors=" + errors
+				+ '}';
+	}
+}
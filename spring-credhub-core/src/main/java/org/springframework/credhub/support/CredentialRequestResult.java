@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.support;
+
+import org.springframework.util.Assert;
+
+/**
+ * The result of one request in a bulk write or generate operation. A result contains
+ * either the details of the written or generated credential, or the error that
+ * prevented the request from completing.
+ *
+ * @param <R> the type of request
+ */
+public class CredentialRequestResult<R extends CredHubRequest<?>> {
+	private final R request;
+
+	private final CredentialDetails<?> details;
+
+	private final Exception error;
+
+	private CredentialRequestResult(R request, CredentialDetails<?> details, Exception error) {
+		Assert.notNull(request, "request must not be null");
+
+		this.request = request;
+		this.details = details;
+		this.error = error;
+	}
+
+	/**
+	 * Create a result for a request that completed successfully.
+	 *
+	 * @param request the request; must not be {@literal null}
+	 * @param details the details of the written or generated credential
+	 * @param <R> the type of request
+	 * @return the result
+	 */
+	public static <R extends CredHubRequest<?>> CredentialRequestResult<R> success(R request,
+																				   CredentialDetails<?> details) {
+		return new CredentialRequestResult<>(request, details, null);
+	}
+
+	/**
+	 * Create a result for a request that failed.
+	 *
+	 * @param request the request; must not be {@literal null}
+	 * @param error the error that prevented the request from completing; must not be
+	 * {@literal null}
+	 * @param <R> the type of request
+	 * @return the result
+	 */
+	public static <R extends CredHubRequest<?>> CredentialRequestResult<R> failure(R request, Exception error) {
+		Assert.notNull(error, "error must not be null");
+		return new CredentialRequestResult<>(request, null, error);
+	}
+
+	/**
+	 * Get the request this is the result of.
+	 *
+	 * @return the request
+	 */
+	public R getRequest() {
+		return this.request;
+	}
+
+	/**
+	 * Get the details of the written or generated credential.
+	 *
+	 * @return the credential details, or {@literal null} if the request failed
+	 */
+	public CredentialDetails<?> getDetails() {
+		return this.details;
+	}
+
+	/**
+	 * Get the error that prevented the request from completing.
+	 *
+	 * @return the error, or {@literal null} if the request completed successfully
+	 */
+	public Exception getError() {
+		return this.error;
+	}
+
+	/**
+	 * Indicates whether the request failed.
+	 *
+	 * @return {@literal true} if the request failed
+	 */
+	public boolean hasError() {
+		return this.error != null;
+	}
+
+	@Override
+	public String toString() {
+		return "CredentialRequestResult{"
+				+ "name=" + request.getName()
+				+ ", error=" + error
+				+ '}';
+	}
+}
@@ -50,6 +50,18 @@ public class CredentialSummary {
 		this.versionCreatedAt = new Date();
 	}
 
+	/**
+	 * Create a {@link CredentialSummary} with the provided name and creation date.
+	 * Intended for internal use.
+	 *
+	 * @param name the name of the credential
+	 * @param versionCreatedAt the creation date of this version of the credential
+	 */
+	protected CredentialSummary(CredentialName name, Date versionCreatedAt) {
+		this.name = name;
+		this.versionCreatedAt = versionCreatedAt;
+	}
+
 	/**
 	 * Get the client-provided name of the credential.
 	 *
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.support;
+
+import java.time.Duration;
+
+/**
+ * Options for retrying requests to CredHub that fail with a transient error.
+ *
+ * <p>A request is retried when CredHub responds with status {@literal 502},
+ * {@literal 503}, or {@literal 504}, or when an {@link java.io.IOException} such as a
+ * connection reset is thrown. Only requests that are safe to repeat are retried unless
+ * {@link #isRetryNonIdempotent()} is {@literal true}. Retries are limited by a retry
+ * budget so that they cannot amplify an outage of the CredHub server.
+ */
+public class RetryOptions {
+	private static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+	private static final Duration DEFAULT_INITIAL_BACKOFF = Duration.ofMillis(100);
+
+	private static final Duration DEFAULT_MAX_BACKOFF = Duration.ofSeconds(2);
+
+	private static final double DEFAULT_MULTIPLIER = 2.0;
+
+	private static final double DEFAULT_JITTER = 0.5;
+
+	private static final double DEFAULT_BUDGET_RATIO = 0.1;
+
+	private static final int DEFAULT_BUDGET_CAPACITY = 10;
+
+	private boolean enabled;
+
+	private int maxAttempts;
+
+	private Duration initialBackoff;
+
+	private Duration maxBackoff;
+
+	private double multiplier;
+
+	private double jitter;
+
+	private double budgetRatio;
+
+	private int budgetCapacity;
+
+	private boolean retryNonIdempotent;
+
+	/**
+	 * Create new {@link RetryOptions} with default values. Retries are disabled by
+	 * default.
+	 */
+	public RetryOptions() {
+		this.enabled = false;
+		this.maxAttempts = DEFAULT_MAX_ATTEMPTS;
+		this.initialBackoff = DEFAULT_INITIAL_BACKOFF;
+		this.maxBackoff = DEFAULT_MAX_BACKOFF;
+		this.multiplier = DEFAULT_MULTIPLIER;
+		this.jitter = DEFAULT_JITTER;
+		this.budgetRatio = DEFAULT_BUDGET_RATIO;
+		this.budgetCapacity = DEFAULT_BUDGET_CAPACITY;
+		this.retryNonIdempotent = false;
+	}
+
+	/**
+	 * Create {@link RetryOptions} with the provided maximum number of attempts and
+	 * default values for all other options. Retries are enabled.
+	 *
+	 * @param maxAttempts the maximum number of attempts for each request, including the
+	 *                    first attempt; must be greater than {@literal 0}
+	 */
+	public RetryOptions(int maxAttempts) {
+		this();
+		this.enabled = true;
+		this.maxAttempts = maxAttempts;
+	}
+
+	/**
+	 * Indicates whether failed requests should be retried.
+	 *
+	 * @return {@literal true} if retries are enabled
+	 */
+	public boolean isEnabled() {
+		return this.enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Get the maximum number of attempts for each request, including the first attempt.
+	 *
+	 * @return the maximum number of attempts
+	 */
+	public int getMaxAttempts() {
+		return this.maxAttempts;
+	}
+
+	public void setMaxAttempts(int maxAttempts) {
+		this.maxAttempts = maxAttempts;
+	}
+
+	/**
+	 * Get the time to wait before the first retry of a request.
+	 *
+	 * @return the initial backoff
+	 */
+	public Duration getInitialBackoff() {
+		return this.initialBackoff;
+	}
+
+	public void setInitialBackoff(Duration initialBackoff) {
+		this.initialBackoff = initialBackoff;
+	}
+
+	/**
+	 * Get the maximum time to wait before a retry of a request.
+	 *
+	 * @return the maximum backoff
+	 */
+	public Duration getMaxBackoff() {
+		return this.maxBackoff;
+	}
+
+	public void setMaxBackoff(Duration maxBackoff) {
+		this.maxBackoff = maxBackoff;
+	}
+
+	/**
+	 * Get the factor by which the backoff grows after each retry.
+	 *
+	 * @return the backoff multiplier
+	 */
+	public double getMultiplier() {
+		return this.multiplier;
+	}
+
+	public void setMultiplier(double multiplier) {
+		this.multiplier = multiplier;
+	}
+
+	/**
+	 * Get the fraction of each backoff that is randomized, between {@literal 0} and
+	 * {@literal 1}. A backoff of {@literal d} with a jitter of {@literal j} is chosen at
+	 * random between {@literal d * (1 - j)} and {@literal d}.
+	 *
+	 * @return the backoff jitter
+	 */
+	public double getJitter() {
+		return this.jitter;
+	}
+
+	public void setJitter(double jitter) {
+		this.jitter = jitter;
+	}
+
+	/**
+	 * Get the number of retries earned by each request. A ratio of {@literal 0.1}
+	 * allows at most one retry for every ten requests once the budget is exhausted.
+	 *
+	 * @return the retry budget ratio
+	 */
+	public double getBudgetRatio() {
+		return this.budgetRatio;
+	}
+
+	public void setBudgetRatio(double budgetRatio) {
+		this.budgetRatio = budgetRatio;
+	}
+
+	/**
+	 * Get the maximum number of retries that can be saved in the retry budget, and the
+	 * number of retries available before any requests are made.
+	 *
+	 * @return the retry budget capacity
+	 */
+	public int getBudgetCapacity() {
+		return this.budgetCapacity;
+	}
+
+	public void setBudgetCapacity(int budgetCapacity) {
+		this.budgetCapacity = budgetCapacity;
+	}
+
+	/**
+	 * Indicates whether requests that are not safe to repeat, such as generating or
+	 * regenerating a credential, should be retried.
+	 *
+	 * @return {@literal true} if all requests are retried
+	 */
+	public boolean isRetryNonIdempotent() {
+		return this.retryNonIdempotent;
+	}
+
+	public void setRetryNonIdempotent(boolean retryNonIdempotent) {
+		this.retryNonIdempotent = retryNonIdempotent;
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.support;
+
+import java.time.Duration;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import org.springframework.util.Assert;
+
+/**
+ * The details of a credential that were served from a client-side cache after the cached
+ * value expired, for example because CredHub could not be reached to retrieve the
+ * current value.
+ */
+public class StaleCredentialDetails<T> extends CredentialDetails<T> {
+	private final Duration staleness;
+
+	/**
+	 * Create a {@link StaleCredentialDetails} from a cached value. Intended for internal
+	 * use.
+	 *
+	 * @param details the cached credential details; must not be {@literal null}
+	 * @param staleness the time since the cached value expired
+	 */
+	public StaleCredentialDetails(CredentialDetails<T> details, Duration staleness) {
+		super(details);
+		Assert.notNull(staleness, "staleness must not be null");
+		this.staleness = staleness;
+	}
+
+	@Override
+	@JsonIgnore
+	public boolean isStale() {
+		return true;
+	}
+
+	/**
+	 * Get the time since the cached value expired.
+	 *
+	 * @return the staleness of the value
+	 */
+	@JsonIgnore
+	public Duration getStaleness() {
+		return this.staleness;
+	}
+
+	@Override
+	public String toString() {
+		return "StaleCredentialDetails{"
+				+ "id='" + getId() + '\''
+				+ ", name=" + name
+				+ ", credentialType=" + getCredentialType()
+				+ ", value=" + getValue()
+				+ ", versionCreatedAt='" + versionCreatedAt + '\''
+				+ ", staleness=" + staleness
+				+ '}';
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.credhub.support;
+
+import java.time.Duration;
+
+/**
+ * Options for warming up the connections to CredHub when an application starts, so that
+ * the first requests made by the application do not pay for connection setup, the TLS
+ * handshake, and the OAuth2 token request.
+ *
+ * <p>A warm-up requests the CredHub server version once, which also obtains an OAuth2
+ * access token if OAuth2 is used, and then requests it {@link #getConnections()} times
+ * concurrently to open that many pooled connections.
+ */
+public class WarmUpOptions {
+	private static final int DEFAULT_CONNECTIONS = 1;
+
+	private static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(30);
+
+	private boolean enabled;
+
+	private int connections;
+
+	private Duration timeout;
+
+	private boolean failOnError;
+
+	/**
+	 * Create new {@link WarmUpOptions} with default values. Warm-up is disabled by
+	 * default.
+	 */
+	public WarmUpOptions() {
+		this.enabled = false;
+		this.connections = DEFAULT_CONNECTIONS;
+		this.timeout = DEFAULT_TIMEOUT;
+		this.failOnError = false;
+	}
+
+	/**
+	 * Create {@link WarmUpOptions} that open the provided number of connections, with
+	 * default values for all other options. Warm-up is enabled.
+	 *
+	 * @param connections the number of connections to open; must be greater than
+	 *                    {@literal 0}
+	 */
+	public WarmUpOptions(int connections) {
+		this();
+		this.enabled = true;
+		this.connections = connections;
+	}
+
+	/**
+	 * Indicates whether connections should be warmed up when the application starts.
+	 *
+	 * @return {@literal true} if warm-up is enabled
+	 */
+	public boolean isEnabled() {
+		return this.enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Get the number of pooled connections to open.
+	 *
+	 * @return the number of connections
+	 */
+	public int getConnections() {
+		return this.connections;
+	}
+
+	public void setConnections(int connections) {
+		this.connections = connections;
+	}
+
+	/**
+	 * Get the maximum time to wait for the warm-up to complete.
+	 *
+	 * @return the warm-up timeout
+	 */
+	public Duration getTimeout() {
+		return this.timeout;
+	}
+
+	public void setTimeout(Duration timeout) {
+		this.timeout = timeout;
+	}
+
+	/**
+	 * Indicates whether application startup should fail when the warm-up fails. When
+	 * {@literal false}, a failed warm-up is logged and the application starts anyway.
+	 *
+	 * @return {@literal true} if a failed warm-up should fail application startup
+	 */
+	public boolean isFailOnError() {
+		return this.failOnError;
+	}
+
+	public void setFailOnError(boolean failOnError) {
+		this.failOnError = failOnError;
+	}
+}
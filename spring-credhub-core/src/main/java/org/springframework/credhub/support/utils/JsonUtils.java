@@ -18,15 +18,45 @@ package org.springframework.credhub.support.utils;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.PropertyNamingStrategy;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.jsontype.NamedType;
+import com.fasterxml.jackson.databind.type.TypeFactory;
 import com.fasterxml.jackson.databind.util.StdDateFormat;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import org.springframework.core.SpringProperties;
+import org.springframework.credhub.support.CredentialDetails;
+import org.springframework.credhub.support.CredentialDetailsData;
+import org.springframework.credhub.support.CredentialSummaryData;
 import org.springframework.credhub.support.CredentialType;
+import org.springframework.credhub.support.certificate.CertificateCredentialRequest;
+import org.springframework.credhub.support.certificate.CertificateParametersRequest;
+import org.springframework.credhub.support.json.JsonCredentialRequest;
+import org.springframework.credhub.support.password.PasswordCredentialRequest;
+import org.springframework.credhub.support.password.PasswordParametersRequest;
+import org.springframework.credhub.support.rsa.RsaCredentialRequest;
+import org.springframework.credhub.support.rsa.RsaParametersRequest;
+import org.springframework.credhub.support.ssh.SshCredentialRequest;
+import org.springframework.credhub.support.ssh.SshParametersRequest;
+import org.springframework.credhub.support.user.UserCredentialRequest;
+import org.springframework.credhub.support.user.UserParametersRequest;
+import org.springframework.credhub.support.value.ValueCredentialRequest;
+import org.springframework.http.codec.CodecConfigurer;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.util.ClassUtils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Utility methods for configuring JSON serialization and deserialization.
@@ -34,9 +64,73 @@ import java.util.List;
  * @author Scott Frederick
  */
 public class JsonUtils {
+	/**
+	 * The name of the Spring property that enables the Jackson Afterburner module when it
+	 * is on the classpath. Afterburner 2.9 can not access the non-public constructors of
+	 * some CredHub types on Java 16 and later, so it is disabled by default.
+	 *
+	 * @see SpringProperties
+	 */
+	public static final String AFTERBURNER_PROPERTY_NAME = "spring.credhub.json.afterburner";
+
+	private static final boolean afterburnerPresent = ClassUtils.isPresent(
+			"com.fasterxml.jackson.module.afterburner.AfterburnerModule", JsonUtils.class.getClassLoader());
+
+	/**
+	 * Create an {@link HttpMessageConverter} that serializes and deserializes JSON
+	 * requests and responses using a shared {@link ObjectMapper}. Serializers and
+	 * deserializers for the most frequently used request and response types are resolved
+	 * when the shared {@link ObjectMapper} is first used.
+	 *
+	 * @return a JSON {@link HttpMessageConverter}
+	 */
+	public static HttpMessageConverter<Object> createHttpMessageConverter() {
+		return new MappingJackson2HttpMessageConverter(SharedObjectMapper.objectMapper);
+	}
+
+	/**
+	 * Configure the JSON codecs of a reactive client to serialize and deserialize JSON
+	 * requests and responses using the shared {@link ObjectMapper} used by
+	 * {@link #createHttpMessageConverter()}.
+	 *
+	 * @param configurer the codec configurer
+	 */
+	public static void configureCodecs(CodecConfigurer configurer) {
+		CodecConfigurer.DefaultCodecs codecs = configurer.defaultCodecs();
+		codecs.jackson2JsonDecoder(new Jackson2JsonDecoder(SharedObjectMapper.objectMapper));
+		codecs.jackson2JsonEncoder(new Jackson2JsonEncoder(SharedObjectMapper.objectMapper));
+	}
+
+	/**
+	 * Get an {@link ObjectReader} for the given type from the shared {@link ObjectMapper}.
+	 * Readers are immutable, and are created once for each type and then reused.
+	 *
+	 * @param type the raw type to read
+	 * @param parameterTypes the type parameters of the type to read, if the type is generic
+	 * @return an {@link ObjectReader} for the type
+	 */
+	public static ObjectReader getReader(Class<?> type, Class<?>... parameterTypes) {
+		return SharedObjectMapper.readers.computeIfAbsent(javaType(type, parameterTypes),
+				SharedObjectMapper.objectMapper::readerFor);
+	}
+
+	/**
+	 * Get an {@link ObjectWriter} for the given type from the shared {@link ObjectMapper}.
+	 * Writers are immutable, and are created once for each type and then reused.
+	 *
+	 * @param type the raw type to write
+	 * @param parameterTypes the type parameters of the type to write, if the type is generic
+	 * @return an {@link ObjectWriter} for the type
+	 */
+	public static ObjectWriter getWriter(Class<?> type, Class<?>... parameterTypes) {
+		return SharedObjectMapper.writers.computeIfAbsent(javaType(type, parameterTypes),
+				SharedObjectMapper.objectMapper::writerFor);
+	}
+
 	/**
 	 * Create and configure the {@link ObjectMapper} used for serializing and deserializing
-	 * JSON requests and responses.
+	 * JSON requests and responses. The Jackson Afterburner module is registered if it is on
+	 * the classpath and the {@link #AFTERBURNER_PROPERTY_NAME} property is set.
 	 *
 	 * @return a configured {@link ObjectMapper}
 	 */
@@ -51,6 +145,10 @@ public class JsonUtils {
 
 		configureCredentialDetailTypeMapping(objectMapper);
 
+		if (afterburnerPresent && SpringProperties.getFlag(AFTERBURNER_PROPERTY_NAME)) {
+			AfterburnerModuleRegistrar.registerModule(objectMapper);
+		}
+
 		return objectMapper;
 	}
 
@@ -72,4 +170,59 @@ public class JsonUtils {
 	private static void registerSubtypes(ObjectMapper objectMapper, List<NamedType> subtypes) {
 		objectMapper.registerSubtypes(subtypes.toArray(new NamedType[]{}));
 	}
+
+	private static JavaType javaType(Class<?> type, Class<?>... parameterTypes) {
+		TypeFactory typeFactory = SharedObjectMapper.objectMapper.getTypeFactory();
+		return parameterTypes.length == 0
+				? typeFactory.constructType(type)
+				: typeFactory.constructParametricType(type, parameterTypes);
+	}
+
+	/**
+	 * Registers the Jackson Afterburner module, which replaces reflection with generated
+	 * bytecode for property access. Kept in a separate class so that the module is only
+	 * loaded when it is enabled.
+	 */
+	private static final class AfterburnerModuleRegistrar {
+		private static void registerModule(ObjectMapper objectMapper) {
+			objectMapper.registerModule(new AfterburnerModule());
+		}
+	}
+
+	/**
+	 * Holder for the shared {@link ObjectMapper}, with readers and writers for the most
+	 * frequently used types created up front.
+	 */
+	private static final class SharedObjectMapper {
+		private static final ObjectMapper objectMapper = buildObjectMapper();
+
+		private static final Map<JavaType, ObjectReader> readers = new ConcurrentHashMap<>();
+
+		private static final Map<JavaType, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+		static {
+			List<Class<?>> credentialTypes = new ArrayList<>();
+			credentialTypes.add(Object.class);
+			for (CredentialType type : CredentialType.values()) {
+				credentialTypes.add(type.getModelClass());
+			}
+
+			for (Class<?> credentialType : credentialTypes) {
+				getReader(CredentialDetails.class, credentialType);
+				getReader(CredentialDetailsData.class, credentialType);
+			}
+			getReader(CredentialSummaryData.class);
+
+			for (Class<?> requestType : Arrays.asList(
+					CertificateCredentialRequest.class, CertificateParametersRequest.class,
+					JsonCredentialRequest.class,
+					PasswordCredentialRequest.class, PasswordParametersRequest.class,
+					RsaCredentialRequest.class, RsaParametersRequest.class,
+					SshCredentialRequest.class, SshParametersRequest.class,
+					UserCredentialRequest.class, UserParametersRequest.class,
+					ValueCredentialRequest.class)) {
+				getWriter(requestType);
+			}
+		}
+	}
 }
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.credhub.configuration;
+
+import java.net.HttpCookie;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+import java.util.function.Function;
+
+import org.reactivestreams.Publisher;
+import reactor.adapter.JdkFlowAdapter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseCookie;
+import org.springframework.http.client.reactive.AbstractClientHttpRequest;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.http.client.reactive.ClientHttpResponse;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+/**
+ * {@link ClientHttpConnector} using {@link HttpClient}. Requests are sent asynchronously
+ * and request and response bodies are streamed through {@link JdkFlowAdapter}.
+ */
+final class JdkClientHttpConnector implements ClientHttpConnector {
+	private final HttpClient httpClient;
+
+	private final Duration timeout;
+
+	private final DataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+
+	JdkClientHttpConnector(HttpClient httpClient, Duration timeout) {
+		this.httpClient = httpClient;
+		this.timeout = timeout;
+	}
+
+	@Override
+	public Mono<ClientHttpResponse> connect(HttpMethod method, URI uri,
+			Function<? super ClientHttpRequest, Mono<Void>> requestCallback) {
+		JdkClientHttpRequest request = new JdkClientHttpRequest(method, uri, this.bufferFactory, this.timeout);
+
+		return requestCallback.apply(request)
+				.then(Mono.defer(() -> Mono.fromCompletionStage(this.httpClient.sendAsync(request.build(),
+						HttpResponse.BodyHandlers.ofPublisher()))))
+				.onErrorMap(CompletionException.class, e -> e.getCause() != null ? e.getCause() : e)
+				.map(response -> new JdkClientHttpResponse(response, this.bufferFactory));
+	}
+
+	private static final class JdkClientHttpRequest extends AbstractClientHttpRequest {
+		private final HttpMethod method;
+
+		private final URI uri;
+
+		private final DataBufferFactory bufferFactory;
+
+		private final HttpRequest.Builder builder;
+
+		private HttpRequest.BodyPublisher body = HttpRequest.BodyPublishers.noBody();
+
+		private JdkClientHttpRequest(HttpMethod method, URI uri, DataBufferFactory bufferFactory,
+				Duration timeout) {
+			this.method = method;
+			this.uri = uri;
+			this.bufferFactory = bufferFactory;
+			this.builder = HttpRequest.newBuilder(uri);
+
+			if (timeout != null) {
+				this.builder.timeout(timeout);
+			}
+		}
+
+		@Override
+		public HttpMethod getMethod() {
+			return this.method;
+		}
+
+		@Override
+		public URI getURI() {
+			return this.uri;
+		}
+
+		@Override
+		public DataBufferFactory bufferFactory() {
+			return this.bufferFactory;
+		}
+
+		@Override
+		public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+			return doCommit(() -> {
+				Flow.Publisher<ByteBuffer> publisher = JdkFlowAdapter.publisherToFlowPublisher(
+						Flux.from(body).map(JdkClientHttpRequest::toByteBuffer));
+				long contentLength = getHeaders().getContentLength();
+
+				this.body = contentLength > 0
+						? HttpRequest.BodyPublishers.fromPublisher(publisher, contentLength)
+						: HttpRequest.BodyPublishers.fromPublisher(publisher);
+				return Mono.empty();
+			});
+		}
+
+		@Override
+		public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+			return writeWith(Flux.from(body).flatMap(Function.identity()));
+		}
+
+		@Override
+		public Mono<Void> setComplete() {
+			return doCommit();
+		}
+
+		@Override
+		protected void applyHeaders() {
+			JdkClientHttpRequestFactory.copyHeaders(getHeaders(), this.builder);
+		}
+
+		@Override
+		protected void applyCookies() {
+			getCookies().values().forEach(cookies -> cookies.forEach(cookie ->
+					this.builder.header(HttpHeaders.COOKIE, cookie.toString())));
+		}
+
+		private HttpRequest build() {
+			return this.builder.method(this.method.name(), this.body).build();
+		}
+
+		private static ByteBuffer toByteBuffer(DataBuffer dataBuffer) {
+			ByteBuffer byteBuffer = ByteBuffer.allocate(dataBuffer.readableByteCount());
+			byteBuffer.put(dataBuffer.asByteBuffer());
+			byteBuffer.flip();
+			DataBufferUtils.release(dataBuffer);
+			return byteBuffer;
+		}
+	}
+
+	private static final class JdkClientHttpResponse implements ClientHttpResponse {
+		private final HttpResponse<Flow.Publisher<List<ByteBuffer>>> response;
+
+		private final DataBufferFactory bufferFactory;
+
+		private final HttpHeaders headers;
+
+		private JdkClientHttpResponse(HttpResponse<Flow.Publisher<List<ByteBuffer>>> response,
+				DataBufferFactory bufferFactory) {
+			this.response = response;
+			this.bufferFactory = bufferFactory;
+			this.headers = JdkClientHttpRequestFactory.toHttpHeaders(response);
+		}
+
+		@Override
+		public HttpStatus getStatusCode() {
+			return HttpStatus.valueOf(getRawStatusCode());
+		}
+
+		@Override
+		public int getRawStatusCode() {
+			return this.response.statusCode();
+		}
+
+		@Override
+		public HttpHeaders getHeaders() {
+			return this.headers;
+		}
+
+		@Override
+		public MultiValueMap<String, ResponseCookie> getCookies() {
+			MultiValueMap<String, ResponseCookie> cookies = new LinkedMultiValueMap<>();
+			for (String header : this.headers.getOrDefault(HttpHeaders.SET_COOKIE, Collections.emptyList())) {
+				for (HttpCookie cookie : HttpCookie.parse(header)) {
+					cookies.add(cookie.getName(), ResponseCookie.from(cookie.getName(), cookie.getValue())
+							.domain(cookie.getDomain())
+							.path(cookie.getPath())
+							.maxAge(cookie.getMaxAge())
+							.secure(cookie.getSecure())
+							.httpOnly(cookie.isHttpOnly())
+							.build());
+				}
+			}
+			return cookies;
+		}
+
+		@Override
+		public Flux<DataBuffer> getBody() {
+			return JdkFlowAdapter.flowPublisherToFlux(this.response.body())
+					.flatMapIterable(Function.identity())
+					.map(this.bufferFactory::wrap);
+		}
+	}
+}
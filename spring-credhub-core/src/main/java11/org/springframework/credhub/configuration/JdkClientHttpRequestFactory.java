@@ -0,0 +1,199 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.credhub.configuration;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.AbstractClientHttpRequest;
+import org.springframework.http.client.AbstractClientHttpResponse;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * {@link ClientHttpRequestFactory} using {@link HttpClient}. Request bodies are buffered
+ * and each request is sent synchronously, so concurrent requests from different threads
+ * share the connections of the {@link HttpClient}.
+ */
+final class JdkClientHttpRequestFactory implements ClientHttpRequestFactory {
+
+	/**
+	 * Headers that are set by {@link HttpClient} and must not be set by the caller.
+	 */
+	static final Set<String> DISALLOWED_HEADERS = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+	static {
+		DISALLOWED_HEADERS.addAll(Arrays.asList("connection", "content-length", "date", "expect",
+				"from", "host", "upgrade", "via", "warning"));
+	}
+
+	private final HttpClient httpClient;
+
+	private final Duration readTimeout;
+
+	JdkClientHttpRequestFactory(HttpClient httpClient, Duration readTimeout) {
+		this.httpClient = httpClient;
+		this.readTimeout = readTimeout;
+	}
+
+	@Override
+	public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) {
+		return new JdkClientHttpRequest(this.httpClient, uri, httpMethod, this.readTimeout);
+	}
+
+	/**
+	 * Copy the given headers to an {@link HttpRequest.Builder}, skipping the headers that
+	 * are managed by {@link HttpClient}.
+	 */
+	static void copyHeaders(HttpHeaders headers, HttpRequest.Builder builder) {
+		headers.forEach((name, values) -> {
+			if (!DISALLOWED_HEADERS.contains(name)) {
+				values.forEach(value -> builder.header(name, value));
+			}
+		});
+	}
+
+	/**
+	 * Create {@link HttpHeaders} from the headers of an {@link HttpResponse}.
+	 */
+	static HttpHeaders toHttpHeaders(HttpResponse<?> response) {
+		HttpHeaders headers = new HttpHeaders();
+		for (Map.Entry<String, List<String>> header : response.headers().map().entrySet()) {
+			if (!header.getKey().startsWith(":")) {
+				headers.addAll(header.getKey(), header.getValue());
+			}
+		}
+		return headers;
+	}
+
+	private static final class JdkClientHttpRequest extends AbstractClientHttpRequest {
+		private final HttpClient httpClient;
+
+		private final URI uri;
+
+		private final HttpMethod method;
+
+		private final Duration readTimeout;
+
+		private final ByteArrayOutputStream body = new ByteArrayOutputStream(1024);
+
+		private JdkClientHttpRequest(HttpClient httpClient, URI uri, HttpMethod method, Duration readTimeout) {
+			this.httpClient = httpClient;
+			this.uri = uri;
+			this.method = method;
+			this.readTimeout = readTimeout;
+		}
+
+		@Override
+		public String getMethodValue() {
+			return this.method.name();
+		}
+
+		@Override
+		public URI getURI() {
+			return this.uri;
+		}
+
+		@Override
+		protected OutputStream getBodyInternal(HttpHeaders headers) {
+			return this.body;
+		}
+
+		@Override
+		protected ClientHttpResponse executeInternal(HttpHeaders headers) throws IOException {
+			byte[] content = this.body.toByteArray();
+
+			HttpRequest.Builder builder = HttpRequest.newBuilder(this.uri)
+					.method(this.method.name(), content.length > 0
+							? HttpRequest.BodyPublishers.ofByteArray(content)
+							: HttpRequest.BodyPublishers.noBody());
+
+			if (this.readTimeout != null) {
+				builder.timeout(this.readTimeout);
+			}
+
+			copyHeaders(headers, builder);
+
+			try {
+				return new JdkClientHttpResponse(this.httpClient.send(builder.build(),
+						HttpResponse.BodyHandlers.ofInputStream()));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for a response from " + this.uri);
+			}
+		}
+	}
+
+	private static final class JdkClientHttpResponse extends AbstractClientHttpResponse {
+		private final HttpResponse<InputStream> response;
+
+		private final HttpHeaders headers;
+
+		private JdkClientHttpResponse(HttpResponse<InputStream> response) {
+			this.response = response;
+			this.headers = toHttpHeaders(response);
+		}
+
+		@Override
+		public int getRawStatusCode() {
+			return this.response.statusCode();
+		}
+
+		@Override
+		public String getStatusText() {
+			HttpStatus status = HttpStatus.resolve(this.response.statusCode());
+			return status != null ? status.getReasonPhrase() : "";
+		}
+
+		@Override
+		public HttpHeaders getHeaders() {
+			return this.headers;
+		}
+
+		@Override
+		public InputStream getBody() {
+			return this.response.body();
+		}
+
+		@Override
+		public void close() {
+			try {
+				this.response.body().close();
+			} catch (IOException e) {
+				// ignore
+			}
+		}
+	}
+}
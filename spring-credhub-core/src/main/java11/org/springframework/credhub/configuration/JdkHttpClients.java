@@ -0,0 +1,145 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.credhub.configuration;
+
+import java.net.http.HttpClient;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+
+import javax.net.ssl.SSLContext;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.credhub.support.ClientOptions;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+
+/**
+ * Creates HTTP clients based on {@link HttpClient}, applying the HTTP version, the
+ * connection timeout and the trust material and client certificate from
+ * {@link ClientOptions}. This is the implementation for Java 11 or later.
+ *
+ * <p>Each client shares one {@link HttpClient}, which keeps a single connection per
+ * CredHub server when HTTP/2 is negotiated and multiplexes concurrent requests over it.
+ */
+final class JdkHttpClients {
+	private static final Log logger = LogFactory.getLog(JdkHttpClients.class);
+
+	private JdkHttpClients() {
+	}
+
+	/**
+	 * Indicates whether {@link HttpClient} can be used.
+	 *
+	 * @return {@literal true}
+	 */
+	static boolean isAvailable() {
+		return true;
+	}
+
+	/**
+	 * Create a {@link ClientHttpRequestFactory} using {@link HttpClient}.
+	 *
+	 * @param options the client options
+	 * @param sslCertificateUtils used to create trust and key material
+	 * @return a new {@link ClientHttpRequestFactory}
+	 */
+	static ClientHttpRequestFactory createRequestFactory(ClientOptions options,
+			SslCertificateUtils sslCertificateUtils) {
+		if (options.getWriteTimeout() != null || options.getResponseTimeout() != null) {
+			logger.warn("Write and response timeouts will not be configured when using " +
+					"java.net.http.HttpClient with CredHubTemplate. The read timeout " +
+					"limits the time until the response headers are received.");
+		}
+
+		return new JdkClientHttpRequestFactory(createHttpClient(options, sslCertificateUtils),
+				options.getReadTimeout());
+	}
+
+	/**
+	 * Create a {@link ClientHttpConnector} using {@link HttpClient}.
+	 *
+	 * @param options the client options
+	 * @param sslCertificateUtils used to create trust and key material
+	 * @return a new {@link ClientHttpConnector}
+	 */
+	static ClientHttpConnector createConnector(ClientOptions options,
+			SslCertificateUtils sslCertificateUtils) {
+		if (options.getWriteTimeout() != null) {
+			logger.warn("A write timeout will not be configured when using " +
+					"java.net.http.HttpClient.");
+		}
+
+		Duration timeout = options.getResponseTimeout() != null
+				? options.getResponseTimeout()
+				: options.getReadTimeout();
+
+		return new JdkClientHttpConnector(createHttpClient(options, sslCertificateUtils), timeout);
+	}
+
+	private static HttpClient createHttpClient(ClientOptions options,
+			SslCertificateUtils sslCertificateUtils) {
+		if (usingConnectionPoolOptions(options)) {
+			logger.warn("Connection pool options will not be configured when using " +
+					"java.net.http.HttpClient.");
+		}
+		if (options.getSslProvider() != null || options.getSslSessionCacheSize() != null
+				|| options.getSslSessionTimeout() != null) {
+			logger.warn("TLS provider and TLS session options will not be configured when " +
+					"using java.net.http.HttpClient.");
+		}
+
+		HttpClient.Builder builder = HttpClient.newBuilder()
+				.version(httpVersion(options.getHttpVersion()))
+				.followRedirects(HttpClient.Redirect.NEVER)
+				.sslContext(sslContext(options, sslCertificateUtils));
+
+		if (options.getConnectionTimeout() != null) {
+			builder.connectTimeout(options.getConnectionTimeout());
+		}
+
+		return builder.build();
+	}
+
+	private static HttpClient.Version httpVersion(ClientOptions.HttpVersion httpVersion) {
+		return httpVersion == ClientOptions.HttpVersion.HTTP_1_1
+				? HttpClient.Version.HTTP_1_1
+				: HttpClient.Version.HTTP_2;
+	}
+
+	private static SSLContext sslContext(ClientOptions options, SslCertificateUtils sslCertificateUtils) {
+		if (options.getCaCertFiles() != null || options.getClientCertificateFile() != null) {
+			return sslCertificateUtils.getSSLContext(options);
+		}
+
+		try {
+			return SSLContext.getDefault();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("Error creating SSLContext: " + e.getMessage(), e);
+		}
+	}
+
+	private static boolean usingConnectionPoolOptions(ClientOptions options) {
+		return options.getMaxConnections() != null
+				|| options.getMaxConnectionsPerRoute() != null
+				|| options.getMaxIdleTime() != null
+				|| options.getKeepAlive() != null
+				|| options.getConnectionTimeToLive() != null;
+	}
+}
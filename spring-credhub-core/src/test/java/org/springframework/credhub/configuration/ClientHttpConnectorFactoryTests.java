@@ -16,9 +16,21 @@
 
 package org.springframework.credhub.configuration;
 
+import java.io.File;
+import java.time.Duration;
+
+import io.netty.handler.ssl.ClientAuth;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.timeout.ReadTimeoutException;
 import org.junit.Test;
 import org.springframework.credhub.support.ClientOptions;
 import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.test.StepVerifier;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -27,6 +39,139 @@ public class ClientHttpConnectorFactoryTests {
 	public void nettyClientIsCreated() {
 		ClientHttpConnector clientHttpConnector = ClientHttpConnectorFactory.create(new ClientOptions());
 
-		assertThat(clientHttpConnector).isNotNull();
+		assertThat(clientHttpConnector).isInstanceOf(ReactorClientHttpConnector.class);
+	}
+
+	@Test
+	public void requestCoalescingConnectorIsCreated() {
+		ClientOptions options = new ClientOptions();
+		options.setRequestCoalescing(true);
+
+		ClientHttpConnector clientHttpConnector = ClientHttpConnectorFactory.create(options);
+
+		assertThat(clientHttpConnector).isInstanceOf(RequestCoalescingClientHttpConnector.class);
+	}
+
+	@Test
+	public void nettyClientIsCreatedWithConnectionPoolOptions() {
+		ClientOptions options = new ClientOptions();
+		options.setMaxConnectionsPerRoute(10);
+		options.setKeepAlive(Duration.ZERO);
+
+		ClientHttpConnector clientHttpConnector = ClientHttpConnectorFactory.create(options);
+
+		assertThat(clientHttpConnector).isInstanceOf(ReactorClientHttpConnector.class);
+	}
+
+	@Test
+	public void connectorsWithTheSameConnectionLimitShareConnectionPool() {
+		assertThat(ClientHttpConnectorFactory.connectionProvider(10))
+				.isSameAs(ClientHttpConnectorFactory.connectionProvider(10));
+		assertThat(ClientHttpConnectorFactory.connectionProvider(10))
+				.isNotSameAs(ClientHttpConnectorFactory.connectionProvider(20));
+	}
+
+	@Test
+	public void requestFailsWhenResponseTimeoutExpires() {
+		ClientOptions options = new ClientOptions();
+		options.setResponseTimeout(Duration.ofMillis(100));
+
+		DisposableServer server = delayingServer(Duration.ofSeconds(5));
+		try {
+			StepVerifier.create(get(server, options))
+					.expectError(ReadTimeoutException.class)
+					.verify(Duration.ofSeconds(5));
+		}
+		finally {
+			server.disposeNow();
+		}
+	}
+
+	@Test
+	public void requestSucceedsWithinTimeouts() {
+		ClientOptions options = new ClientOptions();
+		options.setReadTimeout(Duration.ofSeconds(5));
+		options.setWriteTimeout(Duration.ofSeconds(5));
+		options.setResponseTimeout(Duration.ofSeconds(5));
+
+		DisposableServer server = delayingServer(Duration.ofMillis(10));
+		try {
+			StepVerifier.create(get(server, options))
+					.expectNext("ok")
+					.verifyComplete();
+		}
+		finally {
+			server.disposeNow();
+		}
+	}
+
+	@Test
+	public void requestSucceedsWithClientCertificate() {
+		ClientOptions options = new ClientOptions();
+		options.setCaCertFiles(new String[] { resource("server.crt") });
+		options.setClientCertificateFile(resource("instance-2.crt"));
+		options.setClientPrivateKeyFile(resource("instance-2.key"));
+
+		assertSecureRequestSucceeds(options);
+	}
+
+	@Test
+	public void requestSucceedsWithOpenSslProviderAndSessionOptions() {
+		ClientOptions options = new ClientOptions();
+		options.setCaCertFiles(new String[] { resource("server.crt") });
+		options.setClientCertificateFile(resource("instance-2.crt"));
+		options.setClientPrivateKeyFile(resource("instance-2.key"));
+		options.setSslProvider(ClientOptions.SslProvider.OPENSSL);
+		options.setSslSessionCacheSize(100L);
+		options.setSslSessionTimeout(Duration.ofMinutes(5));
+
+		assertSecureRequestSucceeds(options);
+	}
+
+	private static void assertSecureRequestSucceeds(ClientOptions options) {
+		DisposableServer server = HttpServer.create()
+				.host("localhost")
+				.port(0)
+				.secure(sslContextSpec -> sslContextSpec.sslContext(SslContextBuilder
+						.forServer(new File(resource("server.crt")), new File(resource("server.key")))
+						.trustManager(new File(resource("instance-2.crt")))
+						.clientAuth(ClientAuth.REQUIRE)))
+				.handle((request, response) -> response.sendString(Mono.just("ok")))
+				.bindNow();
+		try {
+			StepVerifier.create(get(server, options, "https"))
+					.expectNext("ok")
+					.verifyComplete();
+		}
+		finally {
+			server.disposeNow();
+		}
+	}
+
+	private static Mono<String> get(DisposableServer server, ClientOptions options) {
+		return get(server, options, "http");
+	}
+
+	private static Mono<String> get(DisposableServer server, ClientOptions options, String scheme) {
+		return WebClient.builder()
+				.clientConnector(ClientHttpConnectorFactory.create(options))
+				.baseUrl(scheme + "://localhost:" + server.port())
+				.build()
+				.get()
+				.retrieve()
+				.bodyToMono(String.class);
+	}
+
+	private static String resource(String name) {
+		return ClientHttpConnectorFactoryTests.class.getResource("/ssl/" + name).getFile();
+	}
+
+	private static DisposableServer delayingServer(Duration delay) {
+		return HttpServer.create()
+				.host("localhost")
+				.port(0)
+				.handle((request, response) -> Mono.delay(delay)
+						.then(response.sendString(Mono.just("ok")).then()))
+				.bindNow();
 	}
-}
\ No newline at end of file
+}
@@ -16,6 +16,10 @@
 
 package org.springframework.credhub.configuration;
 
+import java.time.Duration;
+
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
 import org.apache.http.client.HttpClient;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.junit.Test;
@@ -24,11 +28,14 @@ import org.springframework.beans.factory.DisposableBean;
 import org.springframework.credhub.support.ClientOptions;
 import org.springframework.http.client.ClientHttpRequestFactory;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.InterceptingClientHttpRequestFactory;
 import org.springframework.http.client.Netty4ClientHttpRequestFactory;
 import org.springframework.http.client.OkHttp3ClientHttpRequestFactory;
 import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeFalse;
 import static org.springframework.credhub.configuration.ClientHttpRequestFactoryFactory.HttpComponents.usingHttpComponents;
 import static org.springframework.credhub.configuration.ClientHttpRequestFactoryFactory.HttpURLConnection.usingJdk;
 import static org.springframework.credhub.configuration.ClientHttpRequestFactoryFactory.Netty.usingNetty;
@@ -42,6 +49,20 @@ public class ClientHttpRequestFactoryFactoryTests {
 		assertThat(factory).isInstanceOf(SimpleClientHttpRequestFactory.class);
 	}
 
+	@Test
+	public void classpathClientCreatedWhenJdkHttpClientIsUnavailable() throws Exception {
+		assumeFalse(JdkHttpClients.isAvailable());
+
+		ClientOptions options = new ClientOptions();
+		options.setHttpVersion(ClientOptions.HttpVersion.HTTP_2);
+
+		ClientHttpRequestFactory factory = ClientHttpRequestFactoryFactory.create(options);
+
+		assertThat(factory).isInstanceOf(HttpComponentsClientHttpRequestFactory.class);
+
+		((DisposableBean) factory).destroy();
+	}
+
 	@Test
 	public void httpComponentsClientCreated() throws Exception {
 		ClientHttpRequestFactory factory = usingHttpComponents(new ClientOptions());
@@ -64,6 +85,60 @@ public class ClientHttpRequestFactoryFactoryTests {
 		((DisposableBean) factory).destroy();
 	}
 
+	@Test
+	public void httpComponentsClientCreatedWithConnectionPoolOptions() throws Exception {
+		ClientHttpRequestFactory factory = usingHttpComponents(connectionPoolOptions());
+
+		assertThat(factory).isInstanceOf(HttpComponentsClientHttpRequestFactory.class);
+
+		((DisposableBean) factory).destroy();
+	}
+
+	@Test
+	public void okHttp3ClientCreatedWithConnectionPoolOptions() throws Exception {
+		ClientHttpRequestFactory factory = usingOkHttp3(connectionPoolOptions());
+
+		assertThat(factory).isInstanceOf(OkHttp3ClientHttpRequestFactory.class);
+
+		OkHttpClient client = (OkHttpClient) ReflectionTestUtils.getField(factory, "client");
+
+		assertThat(client.dispatcher().getMaxRequests()).isEqualTo(new Dispatcher().getMaxRequests());
+		assertThat(client.dispatcher().getMaxRequestsPerHost()).isEqualTo(new Dispatcher().getMaxRequestsPerHost());
+
+		((DisposableBean) factory).destroy();
+	}
+
+	@Test
+	public void requestCoalescingFactoryCreated() {
+		ClientOptions options = new ClientOptions();
+		options.setRequestCoalescing(true);
+
+		ClientHttpRequestFactory factory = ClientHttpRequestFactoryFactory.create(options);
+
+		assertThat(factory).isInstanceOf(InterceptingClientHttpRequestFactory.class);
+	}
+
+	@Test
+	public void requestedClientLibraryCreated() throws Exception {
+		ClientHttpRequestFactory factory = ClientHttpRequestFactoryFactory.create(new ClientOptions(),
+				ClientHttpRequestFactoryFactory.ClientLibrary.OKHTTP3);
+
+		assertThat(factory).isInstanceOf(OkHttp3ClientHttpRequestFactory.class);
+
+		((DisposableBean) factory).destroy();
+	}
+
+	@Test
+	public void requestedClientLibraryCreatedWithRequestCoalescing() {
+		ClientOptions options = new ClientOptions();
+		options.setRequestCoalescing(true);
+
+		ClientHttpRequestFactory factory = ClientHttpRequestFactoryFactory.create(options,
+				ClientHttpRequestFactoryFactory.ClientLibrary.JDK);
+
+		assertThat(factory).isInstanceOf(InterceptingClientHttpRequestFactory.class);
+	}
+
 	@Test
 	public void nettyClientCreated() throws Exception {
 		ClientHttpRequestFactory factory = usingNetty(new ClientOptions());
@@ -72,4 +147,53 @@ public class ClientHttpRequestFactoryFactoryTests {
 
 		((DisposableBean) factory).destroy();
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void okHttp3ClientCreatedWithCustomCaCerts() throws Exception {
+		ClientOptions options = new ClientOptions();
+		options.setCaCertFiles(new String[] { getClass().getResource("/ssl/ca-1.pem").getFile() });
+
+		ClientHttpRequestFactory factory = usingOkHttp3(options);
+
+		OkHttpClient client = (OkHttpClient) ReflectionTestUtils.getField(factory, "client");
+
+		assertThat(client.sslSocketFactory()).isNotNull();
+
+		((DisposableBean) factory).destroy();
+	}
+
+	@Test
+	public void httpComponentsClientCreatedWithClientCertificate() throws Exception {
+		ClientHttpRequestFactory factory = usingHttpComponents(clientCertificateOptions());
+
+		assertThat(factory).isInstanceOf(HttpComponentsClientHttpRequestFactory.class);
+
+		((DisposableBean) factory).destroy();
+	}
+
+	@Test
+	public void nettyClientCreatedWithClientCertificate() throws Exception {
+		ClientHttpRequestFactory factory = usingNetty(clientCertificateOptions());
+
+		assertThat(factory).isInstanceOf(Netty4ClientHttpRequestFactory.class);
+
+		((DisposableBean) factory).destroy();
+	}
+
+	private ClientOptions clientCertificateOptions() {
+		ClientOptions options = new ClientOptions();
+		options.setClientCertificateFile(getClass().getResource("/ssl/instance-1.crt").getFile());
+		options.setClientPrivateKeyFile(getClass().getResource("/ssl/instance-1.key").getFile());
+		return options;
+	}
+
+	private ClientOptions connectionPoolOptions() {
+		ClientOptions options = new ClientOptions();
+		options.setMaxConnections(20);
+		options.setMaxConnectionsPerRoute(10);
+		options.setMaxIdleTime(Duration.ofSeconds(30));
+		options.setKeepAlive(Duration.ofMinutes(1));
+		options.setConnectionTimeToLive(Duration.ofMinutes(5));
+		return options;
+	}
+}
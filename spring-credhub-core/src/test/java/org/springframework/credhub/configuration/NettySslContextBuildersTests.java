@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.credhub.configuration;
+
+import java.time.Duration;
+
+import io.netty.handler.ssl.OpenSsl;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslProvider;
+import org.junit.Test;
+
+import org.springframework.credhub.support.ClientOptions;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NettySslContextBuildersTests {
+	private final SslCertificateUtils sslCertificateUtils = new SslCertificateUtils();
+
+	@Test
+	public void jdkProviderIsUsedByDefault() {
+		assertThat(NettySslContextBuilders.sslProvider(null)).isEqualTo(SslProvider.JDK);
+		assertThat(NettySslContextBuilders.sslProvider(ClientOptions.SslProvider.JDK)).isEqualTo(SslProvider.JDK);
+	}
+
+	@Test
+	public void openSslProviderFallsBackToJdkWhenUnavailable() {
+		SslProvider openSsl = OpenSsl.isAvailable() ? SslProvider.OPENSSL : SslProvider.JDK;
+		SslProvider openSslRefCnt = OpenSsl.isAvailable() ? SslProvider.OPENSSL_REFCNT : SslProvider.JDK;
+
+		assertThat(NettySslContextBuilders.sslProvider(ClientOptions.SslProvider.OPENSSL))
+				.isEqualTo(openSsl);
+		assertThat(NettySslContextBuilders.sslProvider(ClientOptions.SslProvider.OPENSSL_REFCNT))
+				.isEqualTo(openSslRefCnt);
+	}
+
+	@Test
+	public void sessionOptionsAreApplied() throws Exception {
+		ClientOptions options = new ClientOptions();
+		options.setSslProvider(ClientOptions.SslProvider.OPENSSL);
+		options.setSslSessionCacheSize(500L);
+		options.setSslSessionTimeout(Duration.ofMinutes(10));
+
+		SslContext sslContext = NettySslContextBuilders.forClient(options, sslCertificateUtils).build();
+
+		assertThat(sslContext.isClient()).isTrue();
+		assertThat(sslContext.sessionCacheSize()).isEqualTo(500L);
+		assertThat(sslContext.sessionTimeout()).isEqualTo(600L);
+	}
+
+	@Test
+	public void defaultOptionsAreNotCustomized() {
+		assertThat(NettySslContextBuilders.isCustomized(new ClientOptions())).isFalse();
+
+		ClientOptions options = new ClientOptions();
+		options.setSslProvider(ClientOptions.SslProvider.JDK);
+		assertThat(NettySslContextBuilders.isCustomized(options)).isFalse();
+
+		options.setSslSessionTimeout(Duration.ofMinutes(10));
+		assertThat(NettySslContextBuilders.isCustomized(options)).isTrue();
+	}
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.credhub.configuration;
+
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+public class ReloadableTrustMaterialTests {
+	static final String OPEN_FILES_DIRECTORY = "/proc/self/fd";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final SslCertificateUtils sslCertificateUtils = new SslCertificateUtils();
+
+	@After
+	public void tearDown() {
+		ReloadableTrustMaterial.clearCache();
+	}
+
+	@Test
+	public void trustMaterialIsSharedForTheSameFiles() throws Exception {
+		File ca1 = copyCertificate("ca-1.pem", "first.pem");
+		File ca2 = copyCertificate("ca-2.pem", "second.pem");
+		AtomicInteger loads = new AtomicInteger();
+
+		ReloadableTrustMaterial material = ReloadableTrustMaterial.forFiles(
+				new String[] { ca1.getPath(), ca2.getPath() }, files -> countingLoad(files, loads));
+		ReloadableTrustMaterial reordered = ReloadableTrustMaterial.forFiles(
+				new String[] { ca2.getPath(), ca1.getPath() }, files -> countingLoad(files, loads));
+
+		assertThat(reordered).isSameAs(material);
+		assertThat(loads).hasValue(1);
+		assertThat(subjects(material.getTrustManager())).containsExactlyInAnyOrder("CN=Test CA 1", "CN=Test CA 2");
+	}
+
+	@Test
+	public void factoriesShareTheSameTrustManager() throws Exception {
+		String[] files = { copyCertificate("ca-1.pem", "ca.pem").getPath() };
+
+		X509TrustManager trustManager = sslCertificateUtils.createTrustManager(files);
+		TrustManager[] factoryTrustManagers = sslCertificateUtils.createTrustManagerFactory(files).getTrustManagers();
+
+		assertThat(factoryTrustManagers).containsExactly(trustManager);
+		assertThat(sslCertificateUtils.getSSLContext(files))
+				.isSameAs(sslCertificateUtils.getSSLContext(files));
+	}
+
+	@Test
+	public void rotatedCertificateIsPickedUpByExistingTrustManager() throws Exception {
+		File file = copyCertificate("ca-1.pem", "ca.pem");
+		String[] files = { file.getPath() };
+
+		X509TrustManager trustManager = sslCertificateUtils.createTrustManager(files);
+		assertThat(subjects(trustManager)).containsExactly("CN=Test CA 1");
+
+		replaceCertificate("ca-2.pem", file);
+
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+		while (!subjects(trustManager)[0].equals("CN=Test CA 2") && System.nanoTime() < deadline) {
+			Thread.sleep(50);
+		}
+
+		assertThat(subjects(trustManager)).containsExactly("CN=Test CA 2");
+	}
+
+	@Test
+	public void rotatedCertificateIsDetectedWhenRequested() throws Exception {
+		File file = copyCertificate("ca-1.pem", "ca.pem");
+		String[] files = { file.getPath() };
+
+		X509TrustManager trustManager = sslCertificateUtils.createTrustManager(files);
+
+		replaceCertificate("ca-2.pem", file);
+
+		assertThat(sslCertificateUtils.createTrustManager(files)).isSameAs(trustManager);
+		assertThat(subjects(trustManager)).containsExactly("CN=Test CA 2");
+	}
+
+	@Test
+	public void invalidCertificateKeepsPreviousTrustMaterial() throws Exception {
+		File file = copyCertificate("ca-1.pem", "ca.pem");
+		AtomicInteger loads = new AtomicInteger();
+
+		ReloadableTrustMaterial material = ReloadableTrustMaterial.forFiles(
+				new String[] { file.getPath() }, files -> countingLoad(files, loads));
+
+		Files.write(file.toPath(), "-----BEGIN CERTIFICATE-----\ninvalid".getBytes());
+		Files.setLastModifiedTime(file.toPath(), FileTime.fromMillis(file.lastModified() + 60_000));
+
+		assertThat(material.reloadIfModified()).isFalse();
+		assertThat(subjects(material.getTrustManager())).containsExactly("CN=Test CA 1");
+	}
+
+	@Test
+	public void certificateFilesAreClosedAfterReload() throws Exception {
+		assumeTrue(new File(OPEN_FILES_DIRECTORY).isDirectory());
+		File file = copyCertificate("ca-1.pem", "ca.pem");
+		String[] files = { file.getPath() };
+
+		X509TrustManager trustManager = sslCertificateUtils.createTrustManager(files);
+		replaceCertificate("ca-2.pem", file);
+
+		assertThat(sslCertificateUtils.createTrustManager(files)).isSameAs(trustManager);
+		assertThat(openFiles()).noneMatch(path -> path.startsWith(folderPath()));
+
+		Files.delete(file.toPath());
+
+		assertThat(openFiles()).noneMatch(path -> path.startsWith(folderPath()));
+	}
+
+	private X509TrustManager countingLoad(String[] files, AtomicInteger loads) {
+		loads.incrementAndGet();
+		return sslCertificateUtils.loadTrustManager(files);
+	}
+
+	private File copyCertificate(String resource, String fileName) throws IOException {
+		File file = new File(this.folder.getRoot(), fileName);
+		try (InputStream in = getClass().getResourceAsStream("/ssl/" + resource)) {
+			Files.copy(in, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		return file;
+	}
+
+	private void replaceCertificate(String resource, File file) throws IOException {
+		long previous = file.lastModified();
+		File replacement = copyCertificate(resource, file.getName() + ".new");
+		Files.setLastModifiedTime(replacement.toPath(), FileTime.fromMillis(previous + 60_000));
+		Files.move(replacement.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private String folderPath() {
+		try {
+			return this.folder.getRoot().getCanonicalPath();
+		}
+		catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Get the paths of the files opened by this process.
+	 */
+	static List<String> openFiles() throws IOException {
+		List<String> files = new ArrayList<>();
+		try (DirectoryStream<Path> descriptors = Files.newDirectoryStream(Paths.get(OPEN_FILES_DIRECTORY))) {
+			for (Path descriptor : descriptors) {
+				try {
+					files.add(Files.readSymbolicLink(descriptor).toString());
+				}
+				catch (IOException e) {
+					// the descriptor was closed after it was listed
+				}
+			}
+		}
+		return files;
+	}
+
+	private static String[] subjects(X509TrustManager trustManager) {
+		X509Certificate[] issuers = trustManager.getAcceptedIssuers();
+		String[] subjects = new String[issuers.length];
+		for (int i = 0; i < issuers.length; i++) {
+			subjects[i] = issuers[i].getSubjectX500Principal().getName();
+		}
+		return subjects;
+	}
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.credhub.configuration;
+
+import java.net.URI;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.ClientHttpResponse;
+import org.springframework.mock.http.client.reactive.MockClientHttpResponse;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.test.StepVerifier;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RequestCoalescingClientHttpConnectorTests {
+	private static final URI CREDENTIAL_URI = URI.create("https://credhub.example.com/api/v1/data?name=/example");
+
+	@Mock
+	private ClientHttpConnector delegate;
+
+	private RequestCoalescingClientHttpConnector connector;
+
+	@Before
+	public void setUp() {
+		connector = new RequestCoalescingClientHttpConnector(delegate);
+	}
+
+	@Test
+	public void concurrentGetRequestsShareExchange() {
+		MonoProcessor<ClientHttpResponse> exchange = MonoProcessor.create();
+		when(delegate.connect(eq(HttpMethod.GET), eq(CREDENTIAL_URI), any())).thenReturn(exchange);
+
+		MonoProcessor<String> first = connect(HttpMethod.GET).toProcessor();
+		MonoProcessor<String> second = connect(HttpMethod.GET).toProcessor();
+
+		exchange.onNext(response());
+
+		assertThat(first.block()).isEqualTo("{\"value\":\"secret\"}");
+		assertThat(second.block()).isEqualTo("{\"value\":\"secret\"}");
+		assertThat(connector.inFlightCount()).isEqualTo(0);
+
+		verify(delegate, times(1)).connect(eq(HttpMethod.GET), eq(CREDENTIAL_URI), any());
+	}
+
+	@Test
+	public void concurrentGetRequestsWithDifferentAuthorizationAreNotCoalesced() {
+		MonoProcessor<ClientHttpResponse> exchange = MonoProcessor.create();
+		when(delegate.connect(eq(HttpMethod.GET), eq(CREDENTIAL_URI), any())).thenReturn(exchange);
+
+		MonoProcessor<String> first = connect(HttpMethod.GET, "Bearer first-token").toProcessor();
+		MonoProcessor<String> second = connect(HttpMethod.GET, "Bearer second-token").toProcessor();
+		MonoProcessor<String> third = connect(HttpMethod.GET, "Bearer first-token").toProcessor();
+
+		exchange.onNext(response());
+
+		assertThat(first.block()).isEqualTo("{\"value\":\"secret\"}");
+		assertThat(third.block()).isEqualTo("{\"value\":\"secret\"}");
+		assertThat(second.isTerminated()).isTrue();
+
+		verify(delegate, times(2)).connect(eq(HttpMethod.GET), eq(CREDENTIAL_URI), any());
+	}
+
+	@Test
+	public void sequentialGetRequestsAreNotCoalesced() {
+		when(delegate.connect(eq(HttpMethod.GET), eq(CREDENTIAL_URI), any()))
+				.thenAnswer(invocation -> Mono.just(response()));
+
+		StepVerifier.create(connect(HttpMethod.GET))
+				.expectNext("{\"value\":\"secret\"}")
+				.verifyComplete();
+		StepVerifier.create(connect(HttpMethod.GET))
+				.expectNext("{\"value\":\"secret\"}")
+				.verifyComplete();
+
+		verify(delegate, times(2)).connect(eq(HttpMethod.GET), eq(CREDENTIAL_URI), any());
+	}
+
+	@Test
+	public void nonGetRequestsAreNotCoalesced() {
+		when(delegate.connect(eq(HttpMethod.PUT), eq(CREDENTIAL_URI), any()))
+				.thenAnswer(invocation -> Mono.just(response()));
+
+		connect(HttpMethod.PUT).block();
+		connect(HttpMethod.PUT).block();
+
+		verify(delegate, times(2)).connect(eq(HttpMethod.PUT), eq(CREDENTIAL_URI), any());
+	}
+
+	@Test
+	public void errorIsPropagatedToAllSubscribers() {
+		MonoProcessor<ClientHttpResponse> exchange = MonoProcessor.create();
+		when(delegate.connect(eq(HttpMethod.GET), eq(CREDENTIAL_URI), any())).thenReturn(exchange);
+
+		MonoProcessor<String> first = connect(HttpMethod.GET).toProcessor();
+		MonoProcessor<String> second = connect(HttpMethod.GET).toProcessor();
+
+		exchange.onError(new IllegalStateException("connection reset"));
+
+		assertThat(first.getError()).isInstanceOf(IllegalStateException.class);
+		assertThat(second.getError()).isInstanceOf(IllegalStateException.class);
+		assertThat(connector.inFlightCount()).isEqualTo(0);
+	}
+
+	private Mono<String> connect(HttpMethod method) {
+		return connect(method, null);
+	}
+
+	private Mono<String> connect(HttpMethod method, String authorization) {
+		return connector.connect(method, CREDENTIAL_URI, request -> {
+					if (authorization != null) {
+						request.getHeaders().set(HttpHeaders.AUTHORIZATION, authorization);
+					}
+					return request.setComplete();
+				})
+				.flatMap(response -> DataBufferUtils.join(response.getBody()))
+				.map(dataBuffer -> {
+					byte[] bytes = new byte[dataBuffer.readableByteCount()];
+					dataBuffer.read(bytes);
+					DataBufferUtils.release(dataBuffer);
+					return new String(bytes, UTF_8);
+				});
+	}
+
+	private static ClientHttpResponse response() {
+		MockClientHttpResponse response = new MockClientHttpResponse(HttpStatus.OK);
+		response.setBody("{\"value\":\"secret\"}");
+		return response;
+	}
+}
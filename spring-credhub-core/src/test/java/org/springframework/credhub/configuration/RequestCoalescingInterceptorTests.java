@@ -0,0 +1,263 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.credhub.configuration;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.util.StreamUtils;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RequestCoalescingInterceptorTests {
+	private static final URI CREDENTIAL_URI = URI.create("https://credhub.example.com/api/v1/data?name=/example");
+
+	private final RequestCoalescingInterceptor interceptor = new RequestCoalescingInterceptor(Duration.ofSeconds(5));
+
+	private final List<Thread> threads = new CopyOnWriteArrayList<>();
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(2, runnable -> {
+		Thread thread = new Thread(runnable);
+		threads.add(thread);
+		return thread;
+	});
+
+	private final CountDownLatch exchangeStarted = new CountDownLatch(1);
+
+	private final CountDownLatch releaseExchange = new CountDownLatch(1);
+
+	private final AtomicInteger exchanges = new AtomicInteger();
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void concurrentIdenticalGetRequestsShareExchange() throws Exception {
+		Future<ClientHttpResponse> first = executor.submit(() ->
+				interceptor.intercept(request(HttpMethod.GET, "bearer token"), new byte[0], blockingExecution()));
+		exchangeStarted.await(5, TimeUnit.SECONDS);
+
+		Future<ClientHttpResponse> second = executor.submit(() ->
+				interceptor.intercept(request(HttpMethod.GET, "bearer token"), new byte[0], blockingExecution()));
+		awaitWaitingThreads();
+		releaseExchange.countDown();
+
+		assertResponseBody(first.get(5, TimeUnit.SECONDS));
+		assertResponseBody(second.get(5, TimeUnit.SECONDS));
+		assertThat(exchanges.get()).isEqualTo(1);
+		assertThat(interceptor.inFlightCount()).isEqualTo(0);
+	}
+
+	@Test
+	public void requestsWithDifferentAuthorizationAreNotCoalesced() throws Exception {
+		Future<ClientHttpResponse> first = executor.submit(() ->
+				interceptor.intercept(request(HttpMethod.GET, "bearer token"), new byte[0], blockingExecution()));
+		exchangeStarted.await(5, TimeUnit.SECONDS);
+
+		ClientHttpResponse second = interceptor.intercept(request(HttpMethod.GET, "bearer other"), new byte[0],
+				(request, body) -> {
+					exchanges.incrementAndGet();
+					return response();
+				});
+		releaseExchange.countDown();
+
+		assertResponseBody(first.get(5, TimeUnit.SECONDS));
+		assertResponseBody(second);
+		assertThat(exchanges.get()).isEqualTo(2);
+	}
+
+	@Test
+	public void requestsWithDifferentCookiesAreNotCoalesced() throws Exception {
+		Future<ClientHttpResponse> first = executor.submit(() ->
+				interceptor.intercept(request(HttpMethod.GET, "bearer token", "session=first"), new byte[0],
+						blockingExecution()));
+		exchangeStarted.await(5, TimeUnit.SECONDS);
+
+		ClientHttpResponse second = interceptor.intercept(request(HttpMethod.GET, "bearer token", "session=second"),
+				new byte[0], (request, body) -> {
+					exchanges.incrementAndGet();
+					return response();
+				});
+		releaseExchange.countDown();
+
+		assertResponseBody(first.get(5, TimeUnit.SECONDS));
+		assertResponseBody(second);
+		assertThat(exchanges.get()).isEqualTo(2);
+	}
+
+	@Test
+	public void sequentialGetRequestsAreNotCoalesced() throws Exception {
+		releaseExchange.countDown();
+
+		interceptor.intercept(request(HttpMethod.GET, null), new byte[0], blockingExecution());
+		interceptor.intercept(request(HttpMethod.GET, null), new byte[0], blockingExecution());
+
+		assertThat(exchanges.get()).isEqualTo(2);
+	}
+
+	@Test
+	public void nonGetRequestsAreNotCoalesced() throws Exception {
+		ClientHttpResponse response = response();
+
+		assertThat(interceptor.intercept(request(HttpMethod.PUT, null), new byte[0], (request, body) -> response))
+				.isSameAs(response);
+	}
+
+	@Test
+	public void exceptionIsPropagatedToAllWaiters() throws Exception {
+		ClientHttpRequestExecution failingExecution = (request, body) -> {
+			exchanges.incrementAndGet();
+			exchangeStarted.countDown();
+			awaitRelease();
+			throw new IOException("connection reset");
+		};
+
+		Future<ClientHttpResponse> first = executor.submit(() ->
+				interceptor.intercept(request(HttpMethod.GET, null), new byte[0], failingExecution));
+		exchangeStarted.await(5, TimeUnit.SECONDS);
+
+		Future<ClientHttpResponse> second = executor.submit(() ->
+				interceptor.intercept(request(HttpMethod.GET, null), new byte[0], failingExecution));
+		awaitWaitingThreads();
+		releaseExchange.countDown();
+
+		assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS)).hasRootCauseInstanceOf(IOException.class);
+		assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS)).hasRootCauseInstanceOf(IOException.class);
+		assertThat(exchanges.get()).isEqualTo(1);
+		assertThat(interceptor.inFlightCount()).isEqualTo(0);
+	}
+
+	@Test
+	public void errorIsPropagatedToAllWaiters() throws Exception {
+		ClientHttpRequestExecution failingExecution = (request, body) -> {
+			exchanges.incrementAndGet();
+			exchangeStarted.countDown();
+			awaitRelease();
+			throw new OutOfMemoryError("no memory for response");
+		};
+
+		Future<ClientHttpResponse> first = executor.submit(() ->
+				interceptor.intercept(request(HttpMethod.GET, null), new byte[0], failingExecution));
+		exchangeStarted.await(5, TimeUnit.SECONDS);
+
+		Future<ClientHttpResponse> second = executor.submit(() ->
+				interceptor.intercept(request(HttpMethod.GET, null), new byte[0], failingExecution));
+		awaitWaitingThreads();
+		releaseExchange.countDown();
+
+		assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS)).hasRootCauseInstanceOf(OutOfMemoryError.class);
+		assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS)).hasRootCauseInstanceOf(OutOfMemoryError.class);
+		assertThat(exchanges.get()).isEqualTo(1);
+		assertThat(interceptor.inFlightCount()).isEqualTo(0);
+	}
+
+	@Test
+	public void waitForSharedExchangeIsBounded() throws Exception {
+		RequestCoalescingInterceptor interceptor = new RequestCoalescingInterceptor(Duration.ofMillis(50));
+		Future<ClientHttpResponse> first = executor.submit(() ->
+				interceptor.intercept(request(HttpMethod.GET, null), new byte[0], blockingExecution()));
+		exchangeStarted.await(5, TimeUnit.SECONDS);
+
+		assertThatThrownBy(() -> interceptor.intercept(request(HttpMethod.GET, null), new byte[0],
+				blockingExecution()))
+				.isInstanceOf(SocketTimeoutException.class);
+
+		releaseExchange.countDown();
+		assertResponseBody(first.get(5, TimeUnit.SECONDS));
+		assertThat(exchanges.get()).isEqualTo(1);
+	}
+
+	private ClientHttpRequestExecution blockingExecution() {
+		return (request, body) -> {
+			exchanges.incrementAndGet();
+			exchangeStarted.countDown();
+			awaitRelease();
+			return response();
+		};
+	}
+
+	private void awaitRelease() throws IOException {
+		try {
+			releaseExchange.await(5, TimeUnit.SECONDS);
+		}
+		catch (InterruptedException e) {
+			throw new IOException(e);
+		}
+	}
+
+	private void awaitWaitingThreads() throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!allThreadsWaiting() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+	}
+
+	private boolean allThreadsWaiting() {
+		return threads.size() == 2 && threads.stream()
+				.allMatch(thread -> thread.getState() == Thread.State.WAITING
+						|| thread.getState() == Thread.State.TIMED_WAITING);
+	}
+
+	private static MockClientHttpRequest request(HttpMethod method, String authorization) {
+		return request(method, authorization, null);
+	}
+
+	private static MockClientHttpRequest request(HttpMethod method, String authorization, String cookie) {
+		MockClientHttpRequest request = new MockClientHttpRequest(method, CREDENTIAL_URI);
+		if (authorization != null) {
+			request.getHeaders().set(HttpHeaders.AUTHORIZATION, authorization);
+		}
+		if (cookie != null) {
+			request.getHeaders().set(HttpHeaders.COOKIE, cookie);
+		}
+		return request;
+	}
+
+	private static ClientHttpResponse response() {
+		return new MockClientHttpResponse("{\"value\":\"secret\"}".getBytes(UTF_8), HttpStatus.OK);
+	}
+
+	private static void assertResponseBody(ClientHttpResponse response) throws IOException {
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(StreamUtils.copyToString(response.getBody(), UTF_8)).isEqualTo("{\"value\":\"secret\"}");
+	}
+}
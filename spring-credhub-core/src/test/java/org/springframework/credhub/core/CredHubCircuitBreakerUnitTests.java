@@ -0,0 +1,324 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.core;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import org.springframework.credhub.support.CircuitBreakerOptions;
+import org.springframework.credhub.support.CircuitBreakerOptions.GroupOptions;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.DefaultUriBuilderFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.client.ExpectedCount.times;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+public class CredHubCircuitBreakerUnitTests {
+	private static final String BASE_URL = "https://credhub.example.com";
+	private static final String VERSION_RESPONSE = "{\"version\":\"2.0.0\"}";
+	private static final URI CREDENTIALS_URI = URI.create(BASE_URL + "/api/v1/data?path=/app");
+
+	private final AtomicLong nanoTime = new AtomicLong();
+
+	@Test
+	public void circuitBreakerOpensWhenFailureRateIsReached() {
+		CredHubCircuitBreakers circuitBreakers = new CredHubCircuitBreakers(options(), nanoTime::get);
+		List<CredHubCircuitBreakerEvent> events = new ArrayList<>();
+		circuitBreakers.addListener(events::add);
+		CredHubCircuitBreaker circuitBreaker = circuitBreakers.forRequest(CREDENTIALS_URI);
+
+		recordCalls(circuitBreaker, false, 2);
+		recordCalls(circuitBreaker, true, 1);
+		assertThat(circuitBreaker.getState()).isEqualTo(CredHubCircuitBreakerState.CLOSED);
+
+		recordCalls(circuitBreaker, true, 1);
+		assertThat(circuitBreaker.getState()).isEqualTo(CredHubCircuitBreakerState.OPEN);
+		assertThat(circuitBreaker.tryAcquire()).isEqualTo(CredHubCircuitBreaker.Permission.REJECTED);
+
+		assertThat(events).hasSize(1);
+		assertThat(events.get(0).getGroup()).isEqualTo(CredHubCircuitBreakers.CREDENTIALS);
+		assertThat(events.get(0).getPreviousState()).isEqualTo(CredHubCircuitBreakerState.CLOSED);
+		assertThat(events.get(0).getState()).isEqualTo(CredHubCircuitBreakerState.OPEN);
+	}
+
+	@Test
+	public void circuitBreakerOpensWhenSlowCallRateIsReached() {
+		CircuitBreakerOptions options = options();
+		options.setSlowCallDurationThreshold(Duration.ofSeconds(1));
+		options.setSlowCallRateThreshold(0.5);
+		CredHubCircuitBreaker circuitBreaker =
+				new CredHubCircuitBreakers(options, nanoTime::get).forRequest(CREDENTIALS_URI);
+
+		for (int i = 0; i < 4; i++) {
+			long startTime = circuitBreaker.now();
+			nanoTime.addAndGet(Duration.ofSeconds(2).toNanos());
+			circuitBreaker.onResult(startTime, false);
+		}
+
+		assertThat(circuitBreaker.getState()).isEqualTo(CredHubCircuitBreakerState.OPEN);
+	}
+
+	@Test
+	public void openCircuitBreakerProbesAfterWaitDuration() {
+		CredHubCircuitBreaker circuitBreaker =
+				new CredHubCircuitBreakers(options(), nanoTime::get).forRequest(CREDENTIALS_URI);
+		recordCalls(circuitBreaker, true, 4);
+
+		nanoTime.addAndGet(Duration.ofSeconds(29).toNanos());
+		assertThat(circuitBreaker.tryAcquire()).isEqualTo(CredHubCircuitBreaker.Permission.REJECTED);
+
+		nanoTime.addAndGet(Duration.ofSeconds(1).toNanos());
+		assertThat(circuitBreaker.tryAcquire()).isEqualTo(CredHubCircuitBreaker.Permission.PROBE);
+		assertThat(circuitBreaker.getState()).isEqualTo(CredHubCircuitBreakerState.HALF_OPEN);
+		assertThat(circuitBreaker.tryAcquire()).isEqualTo(CredHubCircuitBreaker.Permission.REJECTED);
+
+		circuitBreaker.onProbeResult(false);
+		assertThat(circuitBreaker.getState()).isEqualTo(CredHubCircuitBreakerState.OPEN);
+
+		nanoTime.addAndGet(Duration.ofSeconds(30).toNanos());
+		assertThat(circuitBreaker.tryAcquire()).isEqualTo(CredHubCircuitBreaker.Permission.PROBE);
+		circuitBreaker.onProbeResult(true);
+		assertThat(circuitBreaker.getState()).isEqualTo(CredHubCircuitBreakerState.CLOSED);
+		assertThat(circuitBreaker.tryAcquire()).isEqualTo(CredHubCircuitBreaker.Permission.PERMITTED);
+
+		recordCalls(circuitBreaker, true, 3);
+		assertThat(circuitBreaker.getState()).isEqualTo(CredHubCircuitBreakerState.CLOSED);
+	}
+
+	@Test
+	public void groupsAreConfiguredIndependently() {
+		CircuitBreakerOptions options = options();
+		GroupOptions interpolation = new GroupOptions();
+		interpolation.setEnabled(false);
+		GroupOptions certificates = new GroupOptions();
+		certificates.setMinimumNumberOfCalls(1);
+		options.getGroups().put("interpolation", interpolation);
+		options.getGroups().put("certificates", certificates);
+		CredHubCircuitBreakers circuitBreakers = new CredHubCircuitBreakers(options, nanoTime::get);
+
+		assertThat(circuitBreakers.forRequest(URI.create(BASE_URL + "/api/v1/interpolate"))).isNull();
+		assertThat(circuitBreakers.forRequest(URI.create(BASE_URL + "/version"))).isNull();
+		assertThat(circuitBreakers.getGroups()).containsExactly("credentials", "certificates", "permissions");
+
+		recordCalls(circuitBreakers.forRequest(URI.create(BASE_URL + "/api/v1/certificates")), true, 1);
+		assertThat(circuitBreakers.getState("certificates")).isEqualTo(CredHubCircuitBreakerState.OPEN);
+		assertThat(circuitBreakers.getState("credentials")).isEqualTo(CredHubCircuitBreakerState.CLOSED);
+	}
+
+	@Test
+	public void unknownGroupIsRejected() {
+		CircuitBreakerOptions options = options();
+		options.getGroups().put("secrets", new GroupOptions());
+
+		assertThatThrownBy(() -> new CredHubCircuitBreakers(options))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("secrets");
+	}
+
+	@Test
+	public void requestsFailFastWhileCircuitBreakerIsOpen() {
+		RestTemplate restTemplate = restTemplate();
+		MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+		server.expect(times(4), requestTo(BASE_URL + "/api/v1/data?path=%2Fapp"))
+				.andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE));
+
+		CredHubTemplate credHubTemplate = new CredHubTemplate(restTemplate);
+		credHubTemplate.setCircuitBreakerOptions(options());
+
+		for (int i = 0; i < 4; i++) {
+			assertThatThrownBy(() -> credHubTemplate.credentials().findByPath("/app"))
+					.isInstanceOf(CredHubException.class)
+					.isNotInstanceOf(CredHubCircuitBreakerOpenException.class);
+		}
+		assertThat(credHubTemplate.getCircuitBreakerState("credentials")).isEqualTo(CredHubCircuitBreakerState.OPEN);
+
+		assertThatThrownBy(() -> credHubTemplate.credentials().findByPath("/app"))
+				.isInstanceOf(CredHubCircuitBreakerOpenException.class)
+				.hasFieldOrPropertyWithValue("group", "credentials")
+				.hasFieldOrPropertyWithValue("statusCode", HttpStatus.SERVICE_UNAVAILABLE);
+		server.verify();
+	}
+
+	@Test
+	public void circuitBreakerClosesWhenVersionProbeSucceeds() {
+		RestTemplate restTemplate = restTemplate();
+		MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+		server.expect(requestTo(BASE_URL + "/api/v1/data?path=%2Fapp"))
+				.andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE));
+		server.expect(requestTo(BASE_URL + "/version"))
+				.andRespond(withSuccess(VERSION_RESPONSE, MediaType.APPLICATION_JSON));
+		server.expect(requestTo(BASE_URL + "/api/v1/data?path=%2Fapp"))
+				.andRespond(withSuccess("{\"credentials\":[]}", MediaType.APPLICATION_JSON));
+
+		CircuitBreakerOptions options = options();
+		options.setMinimumNumberOfCalls(1);
+		options.setWaitDurationInOpenState(Duration.ZERO);
+		CredHubTemplate credHubTemplate = new CredHubTemplate(restTemplate);
+		credHubTemplate.setCircuitBreakerOptions(options);
+		List<CredHubCircuitBreakerState> states = new ArrayList<>();
+		credHubTemplate.addCircuitBreakerListener(event -> states.add(event.getState()));
+
+		assertThatThrownBy(() -> credHubTemplate.credentials().findByPath("/app"))
+				.isInstanceOf(CredHubException.class);
+		assertThat(credHubTemplate.credentials().findByPath("/app")).isEmpty();
+
+		assertThat(states).containsExactly(CredHubCircuitBreakerState.OPEN,
+				CredHubCircuitBreakerState.HALF_OPEN, CredHubCircuitBreakerState.CLOSED);
+		server.verify();
+	}
+
+	@Test
+	public void reactiveRequestsFailFastWhileCircuitBreakerIsOpen() {
+		AtomicInteger requests = new AtomicInteger();
+		ReactiveCredHubTemplate credHubTemplate = new ReactiveCredHubTemplate(webClient(() -> {
+			requests.incrementAndGet();
+			return Mono.just(ClientResponse.create(HttpStatus.BAD_GATEWAY).build());
+		}));
+		CircuitBreakerOptions options = options();
+		options.setMinimumNumberOfCalls(1);
+		credHubTemplate.setCircuitBreakerOptions(options);
+
+		StepVerifier.create(credHubTemplate.credentials().findByPath("/app"))
+				.expectError(CredHubException.class)
+				.verify();
+		StepVerifier.create(credHubTemplate.credentials().findByPath("/app"))
+				.expectError(CredHubCircuitBreakerOpenException.class)
+				.verify();
+
+		assertThat(requests).hasValue(1);
+		assertThat(credHubTemplate.getCircuitBreakerState("credentials")).isEqualTo(CredHubCircuitBreakerState.OPEN);
+		assertThat(credHubTemplate.getCircuitBreakerState("certificates")).isEqualTo(CredHubCircuitBreakerState.CLOSED);
+	}
+
+	@Test
+	public void reactiveCircuitBreakerStaysOpenWhenVersionProbeFails() {
+		AtomicInteger requests = new AtomicInteger();
+		ReactiveCredHubTemplate credHubTemplate = new ReactiveCredHubTemplate(webClient(() -> {
+			requests.incrementAndGet();
+			return Mono.just(ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build());
+		}));
+		CircuitBreakerOptions options = options();
+		options.setMinimumNumberOfCalls(1);
+		options.setWaitDurationInOpenState(Duration.ZERO);
+		credHubTemplate.setCircuitBreakerOptions(options);
+
+		StepVerifier.create(credHubTemplate.credentials().findByPath("/app"))
+				.expectError(CredHubException.class)
+				.verify();
+		StepVerifier.create(credHubTemplate.credentials().findByPath("/app"))
+				.expectError(CredHubCircuitBreakerOpenException.class)
+				.verify();
+
+		assertThat(requests).hasValue(2);
+		assertThat(credHubTemplate.getCircuitBreakerState("credentials")).isEqualTo(CredHubCircuitBreakerState.OPEN);
+	}
+
+	@Test
+	public void stateChangesAreRecordedAsMetrics() {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		RestTemplate restTemplate = restTemplate();
+		MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+		server.expect(requestTo(BASE_URL + "/api/v1/data?path=%2Fapp"))
+				.andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE));
+
+		CircuitBreakerOptions options = options();
+		options.setMinimumNumberOfCalls(1);
+		CredHubTemplate credHubTemplate = new CredHubTemplate(restTemplate);
+		credHubTemplate.setCircuitBreakerOptions(options);
+		credHubTemplate.setMetrics(new CredHubMetrics(registry));
+
+		assertThat(circuitBreakerState(registry, "CLOSED")).isEqualTo(1);
+
+		assertThatThrownBy(() -> credHubTemplate.credentials().findByPath("/app"))
+				.isInstanceOf(CredHubException.class);
+
+		assertThat(circuitBreakerState(registry, "CLOSED")).isEqualTo(0);
+		assertThat(circuitBreakerState(registry, "OPEN")).isEqualTo(1);
+		assertThat(registry.get(CredHubMetrics.CIRCUIT_BREAKER_TRANSITIONS_METRIC)
+				.tag("group", "credentials")
+				.tag("from", "CLOSED")
+				.tag("to", "OPEN")
+				.counter().count()).isEqualTo(1);
+	}
+
+	@Test
+	public void circuitBreakersAreNotConfiguredWhenDisabled() {
+		CredHubTemplate credHubTemplate = new CredHubTemplate(restTemplate());
+		credHubTemplate.setCircuitBreakerOptions(new CircuitBreakerOptions());
+
+		assertThat(credHubTemplate.isUsingCircuitBreakers()).isFalse();
+		assertThat(credHubTemplate.getCircuitBreakerState("credentials")).isNull();
+		assertThatThrownBy(() -> credHubTemplate.addCircuitBreakerListener(event -> { }))
+				.isInstanceOf(IllegalStateException.class);
+	}
+
+	private static double circuitBreakerState(SimpleMeterRegistry registry, String state) {
+		return registry.get(CredHubMetrics.CIRCUIT_BREAKER_STATE_METRIC)
+				.tag("client", CredHubMetrics.REST_CLIENT)
+				.tag("group", "credentials")
+				.tag("state", state)
+				.gauge().value();
+	}
+
+	private static void recordCalls(CredHubCircuitBreaker circuitBreaker, boolean failed, int count) {
+		for (int i = 0; i < count; i++) {
+			circuitBreaker.onResult(circuitBreaker.now(), failed);
+		}
+	}
+
+	private static CircuitBreakerOptions options() {
+		CircuitBreakerOptions options = new CircuitBreakerOptions();
+		options.setEnabled(true);
+		options.setFailureRateThreshold(0.5);
+		options.setMinimumNumberOfCalls(4);
+		options.setSlidingWindowSize(10);
+		options.setWaitDurationInOpenState(Duration.ofSeconds(30));
+		return options;
+	}
+
+	private static RestTemplate restTemplate() {
+		RestTemplate restTemplate = new RestTemplate();
+		restTemplate.setUriTemplateHandler(new DefaultUriBuilderFactory(BASE_URL));
+		return restTemplate;
+	}
+
+	private static WebClient webClient(Supplier<Mono<ClientResponse>> responses) {
+		return WebClient.builder()
+				.baseUrl(BASE_URL)
+				.exchangeFunction(request -> Mono.defer(responses))
+				.build();
+	}
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.core;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import org.springframework.credhub.support.SimpleCredentialName;
+import org.springframework.credhub.support.value.ValueCredential;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.DefaultUriBuilderFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+public class CredHubMetricsUnitTests {
+	private static final String BASE_URL = "https://credhub.example.com";
+	private static final String VERSION_RESPONSE = "{\"version\":\"2.0.0\"}";
+
+	private SimpleMeterRegistry registry;
+	private CredHubMetrics metrics;
+
+	@Before
+	public void setUp() {
+		registry = new SimpleMeterRegistry();
+		metrics = new CredHubMetrics(registry);
+	}
+
+	@Test
+	public void successfulRequestsAreTimedByOperation() {
+		RestTemplate restTemplate = restTemplate();
+		MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+		server.expect(requestTo(BASE_URL + "/version"))
+				.andRespond(withSuccess(VERSION_RESPONSE, MediaType.APPLICATION_JSON));
+		server.expect(requestTo(BASE_URL + "/api/v1/data?path=%2Fapp"))
+				.andRespond(withSuccess("{\"credentials\":[]}", MediaType.APPLICATION_JSON));
+
+		CredHubTemplate credHubTemplate = new CredHubTemplate(restTemplate);
+		credHubTemplate.setMetrics(metrics);
+
+		credHubTemplate.info().version();
+		credHubTemplate.credentials().findByPath("/app");
+
+		server.verify();
+		assertThat(registry.get(CredHubMetrics.REQUESTS_METRIC)
+				.tag("operation", "info.version")
+				.tag("method", "GET")
+				.tag("status", "200")
+				.tag("outcome", "SUCCESS")
+				.timer().count()).isEqualTo(1);
+		assertThat(registry.get(CredHubMetrics.REQUESTS_METRIC)
+				.tag("operation", "credentials.findByPath")
+				.timer().count()).isEqualTo(1);
+		assertThat(registry.find(CredHubMetrics.ERRORS_METRIC).counter()).isNull();
+		assertThat(activeRequests(CredHubMetrics.REST_CLIENT)).isZero();
+	}
+
+	@Test
+	public void errorResponsesAreCounted() {
+		RestTemplate restTemplate = restTemplate();
+		MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+		server.expect(method(HttpMethod.GET))
+				.andRespond(withStatus(HttpStatus.NOT_FOUND));
+
+		CredHubTemplate credHubTemplate = new CredHubTemplate(restTemplate);
+		credHubTemplate.setMetrics(metrics);
+
+		assertThatThrownBy(() -> credHubTemplate.credentials()
+				.getByName(new SimpleCredentialName("example", "credential"), ValueCredential.class))
+				.isInstanceOf(CredHubException.class);
+
+		assertThat(registry.get(CredHubMetrics.REQUESTS_METRIC)
+				.tag("operation", "credentials.getByName")
+				.tag("status", "404")
+				.tag("outcome", "CLIENT_ERROR")
+				.timer().count()).isEqualTo(1);
+		assertThat(registry.get(CredHubMetrics.ERRORS_METRIC)
+				.tag("operation", "credentials.getByName")
+				.counter().count()).isEqualTo(1);
+	}
+
+	@Test
+	public void requestsNotMadeByTemplatesHaveUnknownOperation() {
+		RestTemplate restTemplate = restTemplate();
+		MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+		server.expect(requestTo(BASE_URL + "/health"))
+				.andRespond(withSuccess());
+
+		CredHubTemplate credHubTemplate = new CredHubTemplate(restTemplate);
+		credHubTemplate.setMetrics(metrics);
+
+		credHubTemplate.doWithRest(restOperations -> restOperations.getForEntity("/health", String.class));
+
+		assertThat(registry.get(CredHubMetrics.REQUESTS_METRIC)
+				.tag("operation", CredHubOperationNames.UNKNOWN)
+				.timer().count()).isEqualTo(1);
+	}
+
+	@Test
+	public void uriTemplateOfRequestNotSentIsNotReused() {
+		RestTemplate restTemplate = restTemplate();
+		MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+		server.expect(requestTo(BASE_URL + "/health"))
+				.andRespond(withSuccess());
+
+		CredHubTemplate credHubTemplate = new CredHubTemplate(restTemplate);
+		credHubTemplate.setMetrics(metrics);
+
+		assertThatThrownBy(() -> credHubTemplate.doWithRest(restOperations -> {
+			restTemplate.getUriTemplateHandler().expand("/api/v1/data?path={path}", "/app");
+			throw new IllegalStateException("request not sent");
+		})).isInstanceOf(IllegalStateException.class);
+
+		credHubTemplate.doWithRest(restOperations ->
+				restOperations.getForEntity(URI.create(BASE_URL + "/health"), String.class));
+
+		assertThat(registry.get(CredHubMetrics.REQUESTS_METRIC)
+				.tag("operation", CredHubOperationNames.UNKNOWN)
+				.timer().count()).isEqualTo(1);
+	}
+
+	@Test
+	public void metricsCanBeConfiguredOnlyOnce() {
+		CredHubTemplate credHubTemplate = new CredHubTemplate(restTemplate());
+		credHubTemplate.setMetrics(metrics);
+
+		assertThat(credHubTemplate.isRecordingMetrics()).isTrue();
+		assertThatThrownBy(() -> credHubTemplate.setMetrics(metrics))
+				.isInstanceOf(IllegalStateException.class);
+	}
+
+	@Test
+	public void reactiveRequestsAreTimedByOperation() {
+		ReactiveCredHubTemplate credHubTemplate = new ReactiveCredHubTemplate(webClient(
+				Mono.just(ClientResponse.create(HttpStatus.OK)
+						.header("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+						.body(VERSION_RESPONSE)
+						.build())));
+		credHubTemplate.setMetrics(metrics);
+
+		StepVerifier.create(credHubTemplate.info().version())
+				.expectNextCount(1)
+				.verifyComplete();
+
+		assertThat(registry.get(CredHubMetrics.REQUESTS_METRIC)
+				.tag("operation", "info.version")
+				.tag("status", "200")
+				.tag("outcome", "SUCCESS")
+				.timer().count()).isEqualTo(1);
+		assertThat(activeRequests(CredHubMetrics.WEB_CLIENT)).isZero();
+	}
+
+	@Test
+	public void reactiveErrorResponsesAreCounted() {
+		ReactiveCredHubTemplate credHubTemplate = new ReactiveCredHubTemplate(webClient(
+				Mono.just(ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build())));
+		credHubTemplate.setMetrics(metrics);
+
+		StepVerifier.create(credHubTemplate.credentials().findByPath("/app"))
+				.expectError(CredHubException.class)
+				.verify();
+
+		assertThat(registry.get(CredHubMetrics.ERRORS_METRIC)
+				.tag("operation", "credentials.findByPath")
+				.tag("status", "503")
+				.tag("outcome", "SERVER_ERROR")
+				.counter().count()).isEqualTo(1);
+	}
+
+	@Test
+	public void reactiveExceptionsAreCounted() {
+		ReactiveCredHubTemplate credHubTemplate = new ReactiveCredHubTemplate(webClient(
+				Mono.error(new ConnectException("Connection refused"))));
+		credHubTemplate.setMetrics(metrics);
+
+		StepVerifier.create(credHubTemplate.info().version())
+				.expectError(IOException.class)
+				.verify();
+
+		assertThat(registry.get(CredHubMetrics.ERRORS_METRIC)
+				.tag("operation", "info.version")
+				.tag("status", "none")
+				.tag("outcome", "ERROR")
+				.tag("exception", "ConnectException")
+				.counter().count()).isEqualTo(1);
+		assertThat(activeRequests(CredHubMetrics.WEB_CLIENT)).isZero();
+	}
+
+	private double activeRequests(String client) {
+		return registry.get(CredHubMetrics.ACTIVE_REQUESTS_METRIC).tag("client", client).gauge().value();
+	}
+
+	private static RestTemplate restTemplate() {
+		RestTemplate restTemplate = new RestTemplate();
+		restTemplate.setUriTemplateHandler(new DefaultUriBuilderFactory(BASE_URL));
+		return restTemplate;
+	}
+
+	private static WebClient webClient(Mono<ClientResponse> response) {
+		return WebClient.builder()
+				.baseUrl(BASE_URL)
+				.exchangeFunction(request -> response)
+				.build();
+	}
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.core;
+
+import java.net.URI;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.endpoint.OAuth2ClientCredentialsGrantRequest;
+import org.springframework.security.oauth2.client.endpoint.ReactiveOAuth2AccessTokenResponseClient;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.registration.InMemoryReactiveClientRegistrationRepository;
+import org.springframework.security.oauth2.client.web.server.UnAuthenticatedServerOAuth2AuthorizedClientRepository;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2AuthorizationException;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AccessTokenResponse;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CredHubOAuth2ExchangeFilterFunctionUnitTests {
+	private static final String REGISTRATION_ID = "credhub-client";
+
+	private final List<ClientRequest> requests = new CopyOnWriteArrayList<>();
+	private final ExchangeFunction exchange = request -> {
+		requests.add(request);
+		return Mono.just(ClientResponse.create(HttpStatus.OK).build());
+	};
+
+	private UnAuthenticatedServerOAuth2AuthorizedClientRepository authorizedClientRepository;
+	private TokenResponseClient tokenResponseClient;
+	private MutableClock clock;
+	private CredHubOAuth2ExchangeFilterFunction filter;
+
+	@Before
+	public void setUp() {
+		ClientRegistration clientRegistration = ClientRegistration.withRegistrationId(REGISTRATION_ID)
+				.clientId("client-id")
+				.clientSecret("client-secret")
+				.authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+				.tokenUri("https://uaa.example.com/oauth/token")
+				.build();
+
+		authorizedClientRepository = new UnAuthenticatedServerOAuth2AuthorizedClientRepository();
+		tokenResponseClient = new TokenResponseClient(Duration.ofMinutes(10));
+		clock = new MutableClock();
+
+		filter = new CredHubOAuth2ExchangeFilterFunction(
+				new InMemoryReactiveClientRegistrationRepository(clientRegistration), REGISTRATION_ID,
+				authorizedClientRepository, tokenResponseClient, clock);
+	}
+
+	@Test
+	public void bearerTokenIsAddedToRequest() {
+		StepVerifier.create(filter.filter(request(), exchange))
+				.expectNextCount(1)
+				.verifyComplete();
+
+		assertThat(requests).hasSize(1);
+		assertThat(requests.get(0).headers().getFirst(HttpHeaders.AUTHORIZATION)).isEqualTo("Bearer token-1");
+		assertThat(tokenResponseClient.calls.get()).isEqualTo(1);
+
+		StepVerifier.create(authorizedClientRepository.<OAuth2AuthorizedClient>loadAuthorizedClient(REGISTRATION_ID, null, null))
+				.assertNext(client -> assertThat(client.getAccessToken().getTokenValue()).isEqualTo("token-1"))
+				.verifyComplete();
+	}
+
+	@Test
+	public void currentTokenIsReused() {
+		StepVerifier.create(filter.filter(request(), exchange).then(filter.filter(request(), exchange)))
+				.expectNextCount(1)
+				.verifyComplete();
+
+		assertThat(requests).extracting(request -> request.headers().getFirst(HttpHeaders.AUTHORIZATION))
+				.containsExactly("Bearer token-1", "Bearer token-1");
+		assertThat(tokenResponseClient.calls.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void concurrentSubscribersShareSingleTokenRequest() {
+		tokenResponseClient.delay = Duration.ofMillis(100);
+
+		StepVerifier.create(Flux.range(0, 10)
+				.flatMap(i -> filter.filter(request(), exchange)))
+				.expectNextCount(10)
+				.verifyComplete();
+
+		assertThat(tokenResponseClient.calls.get()).isEqualTo(1);
+		assertThat(requests).extracting(request -> request.headers().getFirst(HttpHeaders.AUTHORIZATION))
+				.containsOnly("Bearer token-1");
+	}
+
+	@Test
+	public void tokenCloseToExpiringIsRefreshedInBackground() {
+		StepVerifier.create(filter.getAccessToken())
+				.assertNext(token -> assertThat(token.getTokenValue()).isEqualTo("token-1"))
+				.verifyComplete();
+
+		clock.advance(Duration.ofSeconds(510));
+
+		StepVerifier.create(filter.getAccessToken())
+				.assertNext(token -> assertThat(token.getTokenValue()).isEqualTo("token-1"))
+				.verifyComplete();
+
+		assertThat(tokenResponseClient.calls.get()).isEqualTo(2);
+
+		StepVerifier.create(filter.getAccessToken())
+				.assertNext(token -> assertThat(token.getTokenValue()).isEqualTo("token-2"))
+				.verifyComplete();
+	}
+
+	@Test
+	public void expiringTokenIsRequestedInline() {
+		StepVerifier.create(filter.getAccessToken())
+				.expectNextCount(1)
+				.verifyComplete();
+
+		clock.advance(Duration.ofMinutes(9).plusSeconds(30));
+
+		StepVerifier.create(filter.getAccessToken())
+				.assertNext(token -> assertThat(token.getTokenValue()).isEqualTo("token-2"))
+				.verifyComplete();
+	}
+
+	@Test
+	public void failedTokenRequestIsPropagatedAndRetried() {
+		tokenResponseClient.failing = true;
+
+		StepVerifier.create(filter.filter(request(), exchange))
+				.expectError(OAuth2AuthorizationException.class)
+				.verify();
+
+		assertThat(requests).isEmpty();
+
+		tokenResponseClient.failing = false;
+
+		StepVerifier.create(filter.filter(request(), exchange))
+				.expectNextCount(1)
+				.verifyComplete();
+
+		assertThat(requests.get(0).headers().getFirst(HttpHeaders.AUTHORIZATION)).isEqualTo("Bearer token-1");
+	}
+
+	@Test
+	public void failedBackgroundRefreshKeepsCurrentToken() {
+		StepVerifier.create(filter.getAccessToken())
+				.expectNextCount(1)
+				.verifyComplete();
+
+		clock.advance(Duration.ofSeconds(510));
+		tokenResponseClient.failing = true;
+
+		StepVerifier.create(filter.getAccessToken())
+				.assertNext(token -> assertThat(token.getTokenValue()).isEqualTo("token-1"))
+				.verifyComplete();
+		StepVerifier.create(filter.getAccessToken())
+				.assertNext(token -> assertThat(token.getTokenValue()).isEqualTo("token-1"))
+				.verifyComplete();
+	}
+
+	@Test
+	public void tokenRequestsAreRecordedInMetrics() {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		filter.setMetrics(new CredHubMetrics(registry));
+
+		tokenResponseClient.failing = true;
+		StepVerifier.create(filter.filter(request(), exchange))
+				.expectError(OAuth2AuthorizationException.class)
+				.verify();
+
+		tokenResponseClient.failing = false;
+		StepVerifier.create(filter.filter(request(), exchange).then(filter.filter(request(), exchange)))
+				.expectNextCount(1)
+				.verifyComplete();
+
+		assertThat(registry.get(CredHubMetrics.TOKEN_REFRESHES_METRIC).tag("outcome", "SUCCESS").counter().count())
+				.isEqualTo(1);
+		assertThat(registry.get(CredHubMetrics.TOKEN_REFRESHES_METRIC).tag("outcome", "ERROR").counter().count())
+				.isEqualTo(1);
+	}
+
+	private static ClientRequest request() {
+		return ClientRequest.create(HttpMethod.GET, URI.create("https://credhub.example.com/api/v1/data")).build();
+	}
+
+	private static class TokenResponseClient
+			implements ReactiveOAuth2AccessTokenResponseClient<OAuth2ClientCredentialsGrantRequest> {
+		private final AtomicInteger calls = new AtomicInteger();
+		private final Duration expiresIn;
+		private volatile Duration delay = Duration.ZERO;
+		private volatile boolean failing;
+
+		private TokenResponseClient(Duration expiresIn) {
+			this.expiresIn = expiresIn;
+		}
+
+		@Override
+		public Mono<OAuth2AccessTokenResponse> getTokenResponse(OAuth2ClientCredentialsGrantRequest request) {
+			return Mono.defer(() -> {
+				if (failing) {
+					return Mono.error(new OAuth2AuthorizationException(new OAuth2Error("server_error")));
+				}
+
+				OAuth2AccessTokenResponse response = OAuth2AccessTokenResponse.withToken("token-" + calls.incrementAndGet())
+						.tokenType(OAuth2AccessToken.TokenType.BEARER)
+						.expiresIn(expiresIn.getSeconds())
+						.build();
+
+				return delay.isZero() ? Mono.just(response) : Mono.just(response).delayElement(delay);
+			});
+		}
+	}
+
+	private static class MutableClock extends Clock {
+		private volatile Instant instant = Instant.now();
+
+		private void advance(Duration duration) {
+			instant = instant.plus(duration);
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return instant;
+		}
+	}
+}
@@ -0,0 +1,340 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.core;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import io.netty.channel.ConnectTimeoutException;
+import io.netty.handler.timeout.ReadTimeoutException;
+import io.netty.handler.timeout.WriteTimeoutException;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import org.springframework.credhub.support.RetryOptions;
+import org.springframework.credhub.support.ServicesData;
+import org.springframework.credhub.support.SimpleCredentialName;
+import org.springframework.credhub.support.password.PasswordCredential;
+import org.springframework.credhub.support.password.PasswordParameters;
+import org.springframework.credhub.support.password.PasswordParametersRequest;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.DefaultUriBuilderFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.client.ExpectedCount.times;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+public class CredHubRetryUnitTests {
+	private static final String BASE_URL = "https://credhub.example.com";
+	private static final String VERSION_RESPONSE = "{\"version\":\"2.0.0\"}";
+
+	@Test
+	public void idempotentRequestIsRetried() {
+		RestTemplate restTemplate = restTemplate();
+		MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+		server.expect(requestTo(BASE_URL + "/version"))
+				.andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE));
+		server.expect(requestTo(BASE_URL + "/version"))
+				.andRespond(withStatus(HttpStatus.BAD_GATEWAY));
+		server.expect(requestTo(BASE_URL + "/version"))
+				.andRespond(withSuccess(VERSION_RESPONSE, MediaType.APPLICATION_JSON));
+
+		CredHubTemplate credHubTemplate = new CredHubTemplate(restTemplate);
+		credHubTemplate.setRetryOptions(retryOptions(3));
+
+		assertThat(credHubTemplate.info().version().getVersion()).isEqualTo("2.0.0");
+		server.verify();
+	}
+
+	@Test
+	public void requestFailsWhenAttemptsAreExhausted() {
+		RestTemplate restTemplate = restTemplate();
+		MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+		server.expect(times(2), requestTo(BASE_URL + "/version"))
+				.andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE));
+
+		CredHubTemplate credHubTemplate = new CredHubTemplate(restTemplate);
+		credHubTemplate.setRetryOptions(retryOptions(2));
+
+		assertThatThrownBy(() -> credHubTemplate.info().version())
+				.isInstanceOf(CredHubException.class);
+		server.verify();
+	}
+
+	@Test
+	public void clientErrorIsNotRetried() {
+		RestTemplate restTemplate = restTemplate();
+		MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+		server.expect(requestTo(BASE_URL + "/version"))
+				.andRespond(withStatus(HttpStatus.NOT_FOUND));
+
+		CredHubTemplate credHubTemplate = new CredHubTemplate(restTemplate);
+		credHubTemplate.setRetryOptions(retryOptions(3));
+
+		assertThatThrownBy(() -> credHubTemplate.info().version())
+				.isInstanceOf(CredHubException.class);
+		server.verify();
+	}
+
+	@Test
+	public void interpolationIsRetried() {
+		RestTemplate restTemplate = restTemplate();
+		MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+		server.expect(requestTo(BASE_URL + "/api/v1/interpolate"))
+				.andRespond(withStatus(HttpStatus.GATEWAY_TIMEOUT));
+		server.expect(requestTo(BASE_URL + "/api/v1/interpolate"))
+				.andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+
+		CredHubTemplate credHubTemplate = new CredHubTemplate(restTemplate);
+		credHubTemplate.setRetryOptions(retryOptions(3));
+
+		credHubTemplate.interpolation().interpolateServiceData(new ServicesData());
+		server.verify();
+	}
+
+	@Test
+	public void generateIsNotRetriedByDefault() {
+		RestTemplate restTemplate = restTemplate();
+		MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+		server.expect(method(HttpMethod.POST))
+				.andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE));
+
+		CredHubTemplate credHubTemplate = new CredHubTemplate(restTemplate);
+		credHubTemplate.setRetryOptions(retryOptions(3));
+
+		assertThatThrownBy(() -> credHubTemplate.credentials().generate(passwordRequest()))
+				.isInstanceOf(CredHubException.class);
+		server.verify();
+	}
+
+	@Test
+	public void generateIsRetriedWhenOptedIn() {
+		RestTemplate restTemplate = restTemplate();
+		MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+		server.expect(times(3), method(HttpMethod.POST))
+				.andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE));
+
+		RetryOptions retryOptions = retryOptions(3);
+		retryOptions.setRetryNonIdempotent(true);
+		CredHubTemplate credHubTemplate = new CredHubTemplate(restTemplate);
+		credHubTemplate.setRetryOptions(retryOptions);
+
+		assertThatThrownBy(() -> credHubTemplate.credentials().generate(passwordRequest()))
+				.isInstanceOf(CredHubException.class);
+		server.verify();
+	}
+
+	@Test
+	public void retriesAreNotConfiguredWhenDisabled() {
+		CredHubTemplate credHubTemplate = new CredHubTemplate(restTemplate());
+		credHubTemplate.setRetryOptions(new RetryOptions());
+		credHubTemplate.setRetryOptions(null);
+
+		assertThat(credHubTemplate.isRetryingRequests()).isFalse();
+	}
+
+	@Test
+	public void reactiveRequestIsRetriedAfterErrorResponseAndException() {
+		AtomicInteger attempts = new AtomicInteger();
+		ReactiveCredHubTemplate credHubTemplate = new ReactiveCredHubTemplate(webClient(() -> {
+			switch (attempts.incrementAndGet()) {
+				case 1:
+					return Mono.just(ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build());
+				case 2:
+					return Mono.error(new ConnectException("Connection refused"));
+				default:
+					return Mono.just(ClientResponse.create(HttpStatus.OK)
+							.header("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+							.body(VERSION_RESPONSE)
+							.build());
+			}
+		}));
+		credHubTemplate.setRetryOptions(retryOptions(3));
+
+		StepVerifier.create(credHubTemplate.info().version())
+				.assertNext(info -> assertThat(info.getVersion()).isEqualTo("2.0.0"))
+				.verifyComplete();
+		assertThat(attempts).hasValue(3);
+	}
+
+	@Test
+	public void reactiveRequestIsRetriedAfterTimeouts() {
+		AtomicInteger attempts = new AtomicInteger();
+		ReactiveCredHubTemplate credHubTemplate = new ReactiveCredHubTemplate(webClient(() -> {
+			switch (attempts.incrementAndGet()) {
+				case 1:
+					return Mono.error(ReadTimeoutException.INSTANCE);
+				case 2:
+					return Mono.<ClientResponse>never().timeout(Duration.ofMillis(10));
+				default:
+					return Mono.just(ClientResponse.create(HttpStatus.OK)
+							.header("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+							.body(VERSION_RESPONSE)
+							.build());
+			}
+		}));
+		credHubTemplate.setRetryOptions(retryOptions(3));
+
+		StepVerifier.create(credHubTemplate.info().version())
+				.assertNext(info -> assertThat(info.getVersion()).isEqualTo("2.0.0"))
+				.verifyComplete();
+		assertThat(attempts).hasValue(3);
+	}
+
+	@Test
+	public void reactiveRequestFailsWhenAttemptsAreExhausted() {
+		AtomicInteger attempts = new AtomicInteger();
+		ReactiveCredHubTemplate credHubTemplate = new ReactiveCredHubTemplate(webClient(() -> {
+			attempts.incrementAndGet();
+			return Mono.just(ClientResponse.create(HttpStatus.BAD_GATEWAY).build());
+		}));
+		credHubTemplate.setRetryOptions(retryOptions(2));
+
+		StepVerifier.create(credHubTemplate.info().version())
+				.expectError(CredHubException.class)
+				.verify(Duration.ofSeconds(5));
+		assertThat(attempts).hasValue(2);
+	}
+
+	@Test
+	public void reactiveGenerateIsNotRetriedByDefault() {
+		AtomicInteger attempts = new AtomicInteger();
+		ReactiveCredHubTemplate credHubTemplate = new ReactiveCredHubTemplate(webClient(() -> {
+			attempts.incrementAndGet();
+			return Mono.error(new ConnectException("Connection refused"));
+		}));
+		credHubTemplate.setRetryOptions(retryOptions(3));
+
+		StepVerifier.create(credHubTemplate.credentials().generate(passwordRequest(), PasswordCredential.class))
+				.expectError(ConnectException.class)
+				.verify(Duration.ofSeconds(5));
+		assertThat(attempts).hasValue(1);
+	}
+
+	@Test
+	public void retriesAreLimitedByBudget() {
+		RetryOptions retryOptions = retryOptions(3);
+		retryOptions.setBudgetCapacity(1);
+		retryOptions.setBudgetRatio(0.5);
+		CredHubRetryPolicy retryPolicy = new CredHubRetryPolicy(retryOptions);
+
+		assertThat(retryPolicy.acquireRetry(1)).isTrue();
+		assertThat(retryPolicy.acquireRetry(1)).isFalse();
+
+		retryPolicy.requestStarted();
+		assertThat(retryPolicy.acquireRetry(1)).isFalse();
+		retryPolicy.requestStarted();
+		assertThat(retryPolicy.acquireRetry(1)).isTrue();
+
+		retryPolicy.requestStarted();
+		retryPolicy.requestStarted();
+		retryPolicy.requestStarted();
+		retryPolicy.requestStarted();
+		assertThat(retryPolicy.acquireRetry(1)).isTrue();
+		assertThat(retryPolicy.acquireRetry(1)).isFalse();
+	}
+
+	@Test
+	public void retriesAreLimitedByMaxAttempts() {
+		CredHubRetryPolicy retryPolicy = new CredHubRetryPolicy(retryOptions(3));
+
+		assertThat(retryPolicy.acquireRetry(2)).isTrue();
+		assertThat(retryPolicy.acquireRetry(3)).isFalse();
+	}
+
+	@Test
+	public void backoffGrowsExponentiallyWithJitter() {
+		RetryOptions retryOptions = new RetryOptions(5);
+		retryOptions.setInitialBackoff(Duration.ofMillis(100));
+		retryOptions.setMaxBackoff(Duration.ofMillis(300));
+		retryOptions.setJitter(0.5);
+		CredHubRetryPolicy retryPolicy = new CredHubRetryPolicy(retryOptions);
+
+		for (int i = 0; i < 100; i++) {
+			assertThat(retryPolicy.backoff(1).toMillis()).isBetween(50L, 100L);
+			assertThat(retryPolicy.backoff(2).toMillis()).isBetween(100L, 200L);
+			assertThat(retryPolicy.backoff(4).toMillis()).isBetween(150L, 300L);
+		}
+	}
+
+	@Test
+	public void idempotentRequestsAreRecognized() {
+		CredHubRetryPolicy retryPolicy = new CredHubRetryPolicy(retryOptions(3));
+
+		assertThat(retryPolicy.isRetryable(HttpMethod.GET, URI.create(BASE_URL + "/api/v1/data?path=/app"))).isTrue();
+		assertThat(retryPolicy.isRetryable(HttpMethod.POST, URI.create(BASE_URL + "/api/v1/interpolate"))).isTrue();
+		assertThat(retryPolicy.isRetryable(HttpMethod.POST, URI.create(BASE_URL + "/api/v1/data"))).isFalse();
+		assertThat(retryPolicy.isRetryable(HttpMethod.POST, URI.create(BASE_URL + "/api/v1/regenerate"))).isFalse();
+		assertThat(retryPolicy.isRetryable(HttpMethod.PUT, URI.create(BASE_URL + "/api/v1/data"))).isFalse();
+		assertThat(retryPolicy.isRetryable(HttpMethod.DELETE, URI.create(BASE_URL + "/api/v1/data?name=a"))).isFalse();
+	}
+
+	@Test
+	public void timeoutsAreRetryable() {
+		CredHubRetryPolicy retryPolicy = new CredHubRetryPolicy(retryOptions(3));
+
+		assertThat(retryPolicy.isRetryableException(new SocketTimeoutException())).isTrue();
+		assertThat(retryPolicy.isRetryableException(new ConnectTimeoutException())).isTrue();
+		assertThat(retryPolicy.isRetryableException(ReadTimeoutException.INSTANCE)).isTrue();
+		assertThat(retryPolicy.isRetryableException(WriteTimeoutException.INSTANCE)).isTrue();
+		assertThat(retryPolicy.isRetryableException(new TimeoutException())).isTrue();
+		assertThat(retryPolicy.isRetryableException(new IllegalStateException())).isFalse();
+	}
+
+	private static RetryOptions retryOptions(int maxAttempts) {
+		RetryOptions retryOptions = new RetryOptions(maxAttempts);
+		retryOptions.setInitialBackoff(Duration.ofMillis(1));
+		retryOptions.setMaxBackoff(Duration.ofMillis(5));
+		return retryOptions;
+	}
+
+	private static PasswordParametersRequest passwordRequest() {
+		return PasswordParametersRequest.builder()
+				.name(new SimpleCredentialName("example", "password"))
+				.parameters(new PasswordParameters())
+				.build();
+	}
+
+	private static RestTemplate restTemplate() {
+		RestTemplate restTemplate = new RestTemplate();
+		restTemplate.setUriTemplateHandler(new DefaultUriBuilderFactory(BASE_URL));
+		return restTemplate;
+	}
+
+	private static WebClient webClient(Supplier<Mono<ClientResponse>> responses) {
+		return WebClient.builder()
+				.baseUrl(BASE_URL)
+				.exchangeFunction(request -> Mono.defer(responses))
+				.build();
+	}
+}
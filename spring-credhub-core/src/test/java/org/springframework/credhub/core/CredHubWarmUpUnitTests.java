@@ -0,0 +1,195 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.credhub.core;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import org.springframework.credhub.support.WarmUpOptions;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.DefaultUriBuilderFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+public class CredHubWarmUpUnitTests {
+	private static final String BASE_URL = "https://credhub.example.com";
+	private static final String VERSION_RESPONSE = "{\"version\":\"2.0.0\"}";
+
+	private SimpleMeterRegistry registry;
+	private CredHubMetrics metrics;
+
+	@Before
+	public void setUp() {
+		registry = new SimpleMeterRegistry();
+		metrics = new CredHubMetrics(registry);
+	}
+
+	@Test
+	public void warmUpRequestsVersionForEachConnection() {
+		RestTemplate restTemplate = restTemplate();
+		MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+		server.expect(ExpectedCount.times(4), requestTo(BASE_URL + "/version"))
+				.andRespond(withSuccess(VERSION_RESPONSE, MediaType.APPLICATION_JSON));
+
+		CredHubTemplate credHubTemplate = new CredHubTemplate(restTemplate);
+		credHubTemplate.setMetrics(metrics);
+
+		Duration duration = credHubTemplate.warmUp(new WarmUpOptions(3));
+
+		server.verify();
+		assertThat(duration).isGreaterThan(Duration.ZERO);
+		assertThat(registry.get(CredHubMetrics.WARM_UP_METRIC)
+				.tag("client", CredHubMetrics.REST_CLIENT)
+				.tag("outcome", "SUCCESS")
+				.timer().count()).isEqualTo(1);
+	}
+
+	@Test
+	public void warmUpSendsRequestsUsingConfiguredExecutor() {
+		RestTemplate restTemplate = restTemplate();
+		MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+		server.expect(ExpectedCount.times(3), requestTo(BASE_URL + "/version"))
+				.andRespond(withSuccess(VERSION_RESPONSE, MediaType.APPLICATION_JSON));
+
+		AtomicInteger executedTasks = new AtomicInteger();
+		CredHubTemplate credHubTemplate = new CredHubTemplate(restTemplate);
+		credHubTemplate.setExecutor(task -> {
+			executedTasks.incrementAndGet();
+			new Thread(task).start();
+		});
+
+		credHubTemplate.warmUp(new WarmUpOptions(2));
+
+		server.verify();
+		assertThat(executedTasks).hasValue(3);
+	}
+
+	@Test
+	public void failedWarmUpIsRecorded() {
+		RestTemplate restTemplate = restTemplate();
+		MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+		server.expect(requestTo(BASE_URL + "/version"))
+				.andRespond(withServerError());
+
+		CredHubTemplate credHubTemplate = new CredHubTemplate(restTemplate);
+		credHubTemplate.setMetrics(metrics);
+
+		assertThatThrownBy(() -> credHubTemplate.warmUp(new WarmUpOptions(2)))
+				.isInstanceOf(CredHubException.class);
+
+		assertThat(registry.get(CredHubMetrics.WARM_UP_METRIC)
+				.tag("client", CredHubMetrics.REST_CLIENT)
+				.tag("outcome", "ERROR")
+				.timer().count()).isEqualTo(1);
+	}
+
+	@Test
+	public void warmUpFailsWhenTimeoutExpires() {
+		RestTemplate restTemplate = restTemplate();
+		restTemplate.getInterceptors().add((request, body, execution) -> {
+			try {
+				Thread.sleep(2000);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return execution.execute(request, body);
+		});
+
+		WarmUpOptions warmUpOptions = new WarmUpOptions(1);
+		warmUpOptions.setTimeout(Duration.ofMillis(50));
+
+		assertThatThrownBy(() -> new CredHubTemplate(restTemplate).warmUp(warmUpOptions))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessageContaining("did not complete within");
+	}
+
+	@Test
+	public void reactiveWarmUpRequestsVersionForEachConnection() {
+		AtomicInteger requests = new AtomicInteger();
+		WebClient webClient = WebClient.builder()
+				.baseUrl(BASE_URL)
+				.exchangeFunction(request -> {
+					requests.incrementAndGet();
+					return Mono.just(ClientResponse.create(HttpStatus.OK)
+							.header("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+							.body(VERSION_RESPONSE)
+							.build());
+				})
+				.build();
+
+		ReactiveCredHubTemplate credHubTemplate = new ReactiveCredHubTemplate(webClient);
+		credHubTemplate.setMetrics(metrics);
+
+		StepVerifier.create(credHubTemplate.warmUp(new WarmUpOptions(3)))
+				.expectNextCount(1)
+				.verifyComplete();
+
+		assertThat(requests).hasValue(4);
+		assertThat(registry.get(CredHubMetrics.WARM_UP_METRIC)
+				.tag("client", CredHubMetrics.WEB_CLIENT)
+				.tag("outcome", "SUCCESS")
+				.timer().count()).isEqualTo(1);
+	}
+
+	@Test
+	public void reactiveWarmUpFailsWhenTimeoutExpires() {
+		WebClient webClient = WebClient.builder()
+				.baseUrl(BASE_URL)
+				.exchangeFunction(request -> Mono.never())
+				.build();
+
+		ReactiveCredHubTemplate credHubTemplate = new ReactiveCredHubTemplate(webClient);
+		credHubTemplate.setMetrics(metrics);
+
+		WarmUpOptions warmUpOptions = new WarmUpOptions(2);
+		warmUpOptions.setTimeout(Duration.ofMillis(50));
+
+		StepVerifier.create(credHubTemplate.warmUp(warmUpOptions))
+				.expectError(TimeoutException.class)
+				.verify(Duration.ofSeconds(5));
+
+		assertThat(registry.get(CredHubMetrics.WARM_UP_METRIC)
+				.tag("client", CredHubMetrics.WEB_CLIENT)
+				.tag("outcome", "ERROR")
+				.timer().count()).isEqualTo(1);
+	}
+
+	private static RestTemplate restTemplate() {
+		RestTemplate restTemplate = new RestTemplate();
+		restTemplate.setUriTemplateHandler(new DefaultUriBuilderFactory(BASE_URL));
+		return restTemplate;
+	}
+}
@@ -0,0 +1,323 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.core;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.assertj.core.data.Offset;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.client.InMemoryOAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.client.endpoint.OAuth2AccessTokenResponseClient;
+import org.springframework.security.oauth2.client.endpoint.OAuth2ClientCredentialsGrantRequest;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.registration.InMemoryClientRegistrationRepository;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2AuthorizationException;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AccessTokenResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class OAuth2TokenManagerUnitTests {
+	@Mock
+	private ScheduledExecutorService scheduler;
+
+	private ClientRegistration clientRegistration;
+	private OAuth2AuthorizedClientService authorizedClientService;
+	private TokenResponseClient tokenResponseClient;
+	private OAuth2TokenManager tokenManager;
+
+	@Before
+	public void setUp() {
+		clientRegistration = ClientRegistration.withRegistrationId("credhub-client")
+				.clientId("client-id")
+				.clientSecret("client-secret")
+				.authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+				.tokenUri("https://uaa.example.com/oauth/token")
+				.build();
+
+		authorizedClientService = new InMemoryOAuth2AuthorizedClientService(
+				new InMemoryClientRegistrationRepository(clientRegistration));
+
+		tokenResponseClient = new TokenResponseClient();
+
+		tokenManager = new OAuth2TokenManager(clientRegistration, authorizedClientService,
+				tokenResponseClient, scheduler, Clock.systemUTC());
+	}
+
+	@Test
+	public void tokenIsFetchedOnFirstUseAndRefreshIsScheduled() {
+		tokenResponseClient.expiresIn(Duration.ofHours(1));
+		stubScheduler();
+
+		OAuth2AccessToken accessToken = tokenManager.getAccessToken();
+
+		assertThat(accessToken.getTokenValue()).isEqualTo("token-1");
+		assertThat(tokenResponseClient.calls.get()).isEqualTo(1);
+		assertThat(scheduledDelay()).isCloseTo(Duration.ofMinutes(58).toMillis(), offset());
+	}
+
+	@Test
+	public void validTokenIsReusedWithoutFetching() {
+		tokenResponseClient.expiresIn(Duration.ofHours(1));
+		stubScheduler();
+
+		OAuth2AccessToken first = tokenManager.getAccessToken();
+		OAuth2AccessToken second = tokenManager.getAccessToken();
+
+		assertThat(second.getTokenValue()).isEqualTo(first.getTokenValue());
+		assertThat(tokenResponseClient.calls.get()).isEqualTo(1);
+		verify(scheduler, times(1)).schedule(any(Runnable.class), anyLong(), eq(TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void expiringTokenIsFetchedInline() {
+		Instant now = Instant.now();
+		saveAuthorizedClient(new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "expiring-token",
+				now.minus(Duration.ofMinutes(10)), now.plus(Duration.ofSeconds(30))));
+		tokenResponseClient.expiresIn(Duration.ofHours(1));
+		stubScheduler();
+
+		OAuth2AccessToken accessToken = tokenManager.getAccessToken();
+
+		assertThat(accessToken.getTokenValue()).isEqualTo("token-1");
+		assertThat(tokenResponseClient.calls.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void refreshIsScheduledForExistingToken() {
+		Instant now = Instant.now();
+		saveAuthorizedClient(new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "existing-token",
+				now, now.plus(Duration.ofMinutes(30))));
+		stubScheduler();
+
+		OAuth2AccessToken accessToken = tokenManager.getAccessToken();
+
+		assertThat(accessToken.getTokenValue()).isEqualTo("existing-token");
+		assertThat(tokenResponseClient.calls.get()).isEqualTo(0);
+		assertThat(scheduledDelay()).isCloseTo(Duration.ofMinutes(28).toMillis(), offset());
+	}
+
+	@Test
+	public void shortLivedTokenIsRefreshedHalfwayThroughItsLifetime() {
+		tokenResponseClient.expiresIn(Duration.ofSeconds(90));
+		stubScheduler();
+
+		tokenManager.getAccessToken();
+
+		assertThat(scheduledDelay()).isCloseTo(Duration.ofSeconds(45).toMillis(), offset());
+	}
+
+	@Test
+	public void backgroundRefreshFetchesNewTokenWhenTokenIsUsed() {
+		tokenResponseClient.expiresIn(Duration.ofHours(1));
+		stubScheduler();
+
+		tokenManager.getAccessToken();
+		scheduledTask().run();
+
+		assertThat(tokenResponseClient.calls.get()).isEqualTo(2);
+		assertThat(tokenManager.getAccessToken().getTokenValue()).isEqualTo("token-2");
+		assertThat(tokenResponseClient.calls.get()).isEqualTo(2);
+	}
+
+	@Test
+	public void backgroundRefreshIsSkippedWhenTokenIsNotUsed() {
+		tokenResponseClient.expiresIn(Duration.ofHours(1));
+		stubScheduler();
+
+		tokenManager.refresh();
+		scheduledTask().run();
+
+		assertThat(tokenResponseClient.calls.get()).isEqualTo(1);
+		verify(scheduler, times(1)).schedule(any(Runnable.class), anyLong(), eq(TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void failedBackgroundRefreshIsRetried() {
+		tokenResponseClient.expiresIn(Duration.ofHours(1));
+		stubScheduler();
+
+		tokenManager.getAccessToken();
+		tokenResponseClient.failing = true;
+		scheduledTask().run();
+
+		ArgumentCaptor<Long> delay = ArgumentCaptor.forClass(Long.class);
+		verify(scheduler, times(2)).schedule(any(Runnable.class), delay.capture(), eq(TimeUnit.MILLISECONDS));
+		assertThat(delay.getValue()).isEqualTo(OAuth2TokenManager.REFRESH_RETRY_DELAY.toMillis());
+		assertThat(tokenManager.getAccessToken().getTokenValue()).isEqualTo("token-1");
+	}
+
+	@Test
+	public void failedInlineFetchIsPropagated() {
+		tokenResponseClient.failing = true;
+
+		assertThatThrownBy(() -> tokenManager.getAccessToken())
+				.isInstanceOf(OAuth2AuthorizationException.class);
+
+		verify(scheduler, never()).schedule(any(Runnable.class), anyLong(), any());
+	}
+
+	@Test
+	public void tokenFetchesAreRecordedInMetrics() {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		tokenManager.setMetrics(new CredHubMetrics(registry));
+
+		tokenResponseClient.failing = true;
+		assertThatThrownBy(() -> tokenManager.getAccessToken())
+				.isInstanceOf(OAuth2AuthorizationException.class);
+
+		tokenResponseClient.failing = false;
+		tokenResponseClient.expiresIn(Duration.ofHours(1));
+		stubScheduler();
+		tokenManager.getAccessToken();
+
+		assertThat(registry.get(CredHubMetrics.TOKEN_REFRESHES_METRIC).tag("outcome", "SUCCESS").counter().count())
+				.isEqualTo(1);
+		assertThat(registry.get(CredHubMetrics.TOKEN_REFRESHES_METRIC).tag("outcome", "ERROR").counter().count())
+				.isEqualTo(1);
+	}
+
+	@Test
+	public void concurrentRequestsShareSingleFetch() throws Exception {
+		tokenResponseClient.expiresIn(Duration.ofHours(1));
+		tokenResponseClient.latch = new CountDownLatch(1);
+		stubScheduler();
+
+		int threads = 8;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<OAuth2AccessToken>> results = new ArrayList<>();
+			for (int i = 0; i < threads; i++) {
+				results.add(executor.submit(tokenManager::getAccessToken));
+			}
+
+			Thread.sleep(200);
+			tokenResponseClient.latch.countDown();
+
+			Set<String> tokenValues = ConcurrentHashMap.newKeySet();
+			for (Future<OAuth2AccessToken> result : results) {
+				tokenValues.add(result.get(5, TimeUnit.SECONDS).getTokenValue());
+			}
+
+			assertThat(tokenValues).containsExactly("token-1");
+			assertThat(tokenResponseClient.calls.get()).isEqualTo(1);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private void saveAuthorizedClient(OAuth2AccessToken accessToken) {
+		OAuth2AuthorizedClient authorizedClient = new OAuth2AuthorizedClient(clientRegistration,
+				clientRegistration.getClientId(), accessToken);
+		Authentication principal = mock(Authentication.class);
+		when(principal.getName()).thenReturn(clientRegistration.getClientId());
+		authorizedClientService.saveAuthorizedClient(authorizedClient, principal);
+	}
+
+	private void stubScheduler() {
+		when(scheduler.schedule(any(Runnable.class), anyLong(), eq(TimeUnit.MILLISECONDS)))
+				.thenAnswer(invocation -> mock(ScheduledFuture.class));
+	}
+
+	private long scheduledDelay() {
+		ArgumentCaptor<Long> delay = ArgumentCaptor.forClass(Long.class);
+		verify(scheduler).schedule(any(Runnable.class), delay.capture(), eq(TimeUnit.MILLISECONDS));
+		return delay.getValue();
+	}
+
+	private Runnable scheduledTask() {
+		ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+		verify(scheduler).schedule(task.capture(), anyLong(), eq(TimeUnit.MILLISECONDS));
+		return task.getValue();
+	}
+
+	private static Offset<Long> offset() {
+		return Offset.offset(Duration.ofSeconds(5).toMillis());
+	}
+
+	private static class TokenResponseClient
+			implements OAuth2AccessTokenResponseClient<OAuth2ClientCredentialsGrantRequest> {
+		private final AtomicInteger calls = new AtomicInteger();
+		private volatile Duration expiresIn;
+		private volatile boolean failing;
+		private volatile CountDownLatch latch;
+
+		private void expiresIn(Duration expiresIn) {
+			this.expiresIn = expiresIn;
+		}
+
+		@Override
+		public OAuth2AccessTokenResponse getTokenResponse(OAuth2ClientCredentialsGrantRequest request) {
+			if (failing) {
+				throw new OAuth2AuthorizationException(new OAuth2Error("server_error"));
+			}
+
+			int call = calls.incrementAndGet();
+
+			if (latch != null) {
+				try {
+					latch.await(5, TimeUnit.SECONDS);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+
+			return OAuth2AccessTokenResponse.withToken("token-" + call)
+					.tokenType(OAuth2AccessToken.TokenType.BEARER)
+					.expiresIn(expiresIn.getSeconds())
+					.build();
+		}
+	}
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.core;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import org.springframework.credhub.core.certificate.ReactiveCredHubCertificateOperations;
+import org.springframework.credhub.core.certificate.ReactiveCredHubCertificateTemplate;
+import org.springframework.credhub.core.credential.ReactiveCredHubCredentialOperations;
+import org.springframework.credhub.core.credential.ReactiveCredHubCredentialTemplate;
+import org.springframework.credhub.core.info.ReactiveCredHubInfoOperations;
+import org.springframework.credhub.core.info.ReactiveCredHubInfoTemplate;
+import org.springframework.credhub.core.interpolation.ReactiveCredHubInterpolationOperations;
+import org.springframework.credhub.core.interpolation.ReactiveCredHubInterpolationTemplate;
+import org.springframework.credhub.core.permission.ReactiveCredHubPermissionOperations;
+import org.springframework.credhub.core.permission.ReactiveCredHubPermissionTemplate;
+import org.springframework.credhub.core.permissionV2.ReactiveCredHubPermissionV2Operations;
+import org.springframework.credhub.core.permissionV2.ReactiveCredHubPermissionV2Template;
+import org.springframework.credhub.support.CircuitBreakerOptions;
+import org.springframework.credhub.support.CredentialCacheOptions;
+import org.springframework.credhub.support.RetryOptions;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ReactiveCredHubTemplateTimeoutUnitTests {
+	private static final String VERSION_RESPONSE = "{\"version\":\"2.0.0\"}";
+
+	@Test
+	public void requestFailsWhenTimeoutExpires() {
+		ReactiveCredHubTemplate credHubTemplate = new ReactiveCredHubTemplate(webClient(Mono.never()));
+
+		StepVerifier.create(credHubTemplate.withTimeout(Duration.ofMillis(50)).info().version())
+				.expectError(TimeoutException.class)
+				.verify(Duration.ofSeconds(5));
+	}
+
+	@Test
+	public void fluxFailsWhenFirstElementTimeoutExpires() {
+		ReactiveCredHubTemplate credHubTemplate = new ReactiveCredHubTemplate(webClient(Mono.never()));
+
+		StepVerifier.create(credHubTemplate.withTimeout(Duration.ofMillis(50)).credentials().findByPath("/app"))
+				.expectError(TimeoutException.class)
+				.verify(Duration.ofSeconds(5));
+	}
+
+	@Test
+	public void requestSucceedsWithinTimeout() {
+		ReactiveCredHubTemplate credHubTemplate = new ReactiveCredHubTemplate(webClient(
+				Mono.just(ClientResponse.create(HttpStatus.OK)
+						.header("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+						.body(VERSION_RESPONSE)
+						.build())));
+
+		StepVerifier.create(credHubTemplate.withTimeout(Duration.ofSeconds(5)).info().version())
+				.assertNext(info -> assertThat(info.getVersion()).isEqualTo("2.0.0"))
+				.verifyComplete();
+	}
+
+	@Test
+	public void timeoutViewSharesConfiguration() {
+		ReactiveCredHubTemplate credHubTemplate = new ReactiveCredHubTemplate(webClient(Mono.never()));
+		CredentialCacheOptions cacheOptions = new CredentialCacheOptions();
+		cacheOptions.setEnabled(true);
+		credHubTemplate.setCredentialCacheOptions(cacheOptions);
+
+		ReactiveCredHubTemplate timeoutTemplate = credHubTemplate.withTimeout(Duration.ofSeconds(1));
+
+		assertThat(timeoutTemplate.isCachingCredentials()).isTrue();
+		assertThat(timeoutTemplate.isUsingOAuth2()).isEqualTo(credHubTemplate.isUsingOAuth2());
+	}
+
+	@Test
+	public void timeoutViewUsesConfigurationAppliedAfterItIsCreated() {
+		ReactiveCredHubTemplate credHubTemplate = new ReactiveCredHubTemplate(webClient(
+				Mono.just(ClientResponse.create(HttpStatus.OK)
+						.header("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+						.body(VERSION_RESPONSE)
+						.build())));
+		ReactiveCredHubTemplate timeoutTemplate = credHubTemplate.withTimeout(Duration.ofSeconds(5));
+
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		credHubTemplate.setMetrics(new CredHubMetrics(registry));
+		credHubTemplate.setRetryOptions(new RetryOptions(3));
+
+		assertThat(timeoutTemplate.isRecordingMetrics()).isTrue();
+		assertThat(timeoutTemplate.isRetryingRequests()).isTrue();
+
+		StepVerifier.create(timeoutTemplate.info().version())
+				.expectNextCount(1)
+				.verifyComplete();
+
+		assertThat(registry.get(CredHubMetrics.REQUESTS_METRIC)
+				.tag("operation", "info.version")
+				.timer().count()).isEqualTo(1);
+	}
+
+	@Test
+	public void configuringTimeoutViewConfiguresTemplate() {
+		ReactiveCredHubTemplate credHubTemplate = new ReactiveCredHubTemplate(webClient(Mono.never()));
+		ReactiveCredHubTemplate timeoutTemplate = credHubTemplate.withTimeout(Duration.ofSeconds(1));
+
+		CircuitBreakerOptions circuitBreakerOptions = new CircuitBreakerOptions();
+		circuitBreakerOptions.setEnabled(true);
+		timeoutTemplate.setCircuitBreakerOptions(circuitBreakerOptions);
+
+		assertThat(credHubTemplate.isUsingCircuitBreakers()).isTrue();
+		assertThat(timeoutTemplate.isUsingCircuitBreakers()).isTrue();
+	}
+
+	@Test
+	public void defaultTimeoutViewFailsWhenTimeoutExpires() {
+		WebClient webClient = webClient(Mono.never());
+		ReactiveCredHubOperations operations = new ReactiveCredHubOperations() {
+			@Override
+			public ReactiveCredHubCredentialOperations credentials() {
+				return new ReactiveCredHubCredentialTemplate(this);
+			}
+
+			@Override
+			public ReactiveCredHubPermissionOperations permissions() {
+				return new ReactiveCredHubPermissionTemplate(this);
+			}
+
+			@Override
+			public ReactiveCredHubPermissionV2Operations permissionsV2() {
+				return new ReactiveCredHubPermissionV2Template(this);
+			}
+
+			@Override
+			public ReactiveCredHubCertificateOperations certificates() {
+				return new ReactiveCredHubCertificateTemplate(this);
+			}
+
+			@Override
+			public ReactiveCredHubInterpolationOperations interpolation() {
+				return new ReactiveCredHubInterpolationTemplate(this);
+			}
+
+			@Override
+			public ReactiveCredHubInfoOperations info() {
+				return new ReactiveCredHubInfoTemplate(this);
+			}
+
+			@Override
+			public <V, T extends Publisher<V>> T doWithWebClient(Function<WebClient, ? extends T> callback) {
+				return callback.apply(webClient);
+			}
+		};
+
+		StepVerifier.create(operations.withTimeout(Duration.ofMillis(50)).info().version())
+				.expectError(TimeoutException.class)
+				.verify(Duration.ofSeconds(5));
+		StepVerifier.create(operations.withTimeout(Duration.ofMillis(50)).credentials().findByPath("/app"))
+				.expectError(TimeoutException.class)
+				.verify(Duration.ofSeconds(5));
+	}
+
+	@Test
+	public void timeoutMustBePositive() {
+		ReactiveCredHubTemplate credHubTemplate = new ReactiveCredHubTemplate(webClient(Mono.never()));
+
+		assertThatThrownBy(() -> credHubTemplate.withTimeout(Duration.ZERO))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> credHubTemplate.withTimeout(null))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	private static WebClient webClient(Mono<ClientResponse> response) {
+		return WebClient.builder()
+				.baseUrl("https://credhub.example.com")
+				.exchangeFunction(request -> response)
+				.build();
+	}
+}
@@ -0,0 +1,377 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.core.credential;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import org.springframework.credhub.core.CredHubException;
+import org.springframework.credhub.support.CredentialCacheOptions;
+import org.springframework.credhub.support.CredentialDetails;
+import org.springframework.credhub.support.CredentialDetailsBatch;
+import org.springframework.credhub.support.CredentialType;
+import org.springframework.credhub.support.SimpleCredentialName;
+import org.springframework.credhub.support.StaleCredentialDetails;
+import org.springframework.credhub.support.password.PasswordParametersRequest;
+import org.springframework.credhub.support.value.ValueCredential;
+import org.springframework.credhub.support.value.ValueCredentialRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.ResourceAccessException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CachingCredHubCredentialTemplateUnitTests {
+	private static final SimpleCredentialName NAME = new SimpleCredentialName("example", "credential");
+	private static final SimpleCredentialName OTHER_NAME = new SimpleCredentialName("example", "other");
+	private static final SimpleCredentialName MISSING_NAME = new SimpleCredentialName("example", "missing");
+	private static final String CREDENTIAL_ID = "1111-1111-1111-1111";
+	private static final Duration TTL = Duration.ofSeconds(30);
+
+	private static final CredentialDetails<ValueCredential> CREDENTIAL =
+			new CredentialDetails<>(CREDENTIAL_ID, NAME, CredentialType.VALUE, new ValueCredential("secret"));
+
+	@Mock
+	private CredHubCredentialOperations delegate;
+
+	private MutableClock clock;
+
+	private CachingCredHubCredentialTemplate credHubTemplate;
+
+	@Before
+	public void setUp() {
+		clock = new MutableClock();
+		credHubTemplate = new CachingCredHubCredentialTemplate(delegate,
+				new CredentialCache(new CredentialCacheOptions(2, TTL), clock));
+	}
+
+	@Test
+	public void getByNameCachesCredential() {
+		when(delegate.getByName(NAME, ValueCredential.class)).thenReturn(CREDENTIAL);
+
+		assertThat(credHubTemplate.getByName(NAME, ValueCredential.class)).isEqualTo(CREDENTIAL);
+		assertThat(credHubTemplate.getByName(new SimpleCredentialName("example", "credential"), ValueCredential.class))
+				.isEqualTo(CREDENTIAL);
+
+		verify(delegate, times(1)).getByName(NAME, ValueCredential.class);
+	}
+
+	@Test
+	public void getByNameCachesCredentialById() {
+		when(delegate.getByName(NAME, ValueCredential.class)).thenReturn(CREDENTIAL);
+
+		credHubTemplate.getByName(NAME, ValueCredential.class);
+
+		assertThat(credHubTemplate.getById(CREDENTIAL_ID, ValueCredential.class)).isEqualTo(CREDENTIAL);
+	}
+
+	@Test
+	public void getByNameReloadsExpiredCredential() {
+		when(delegate.getByName(NAME, ValueCredential.class)).thenReturn(CREDENTIAL);
+
+		credHubTemplate.getByName(NAME, ValueCredential.class);
+		clock.advance(TTL);
+		credHubTemplate.getByName(NAME, ValueCredential.class);
+
+		verify(delegate, times(2)).getByName(NAME, ValueCredential.class);
+	}
+
+	@Test
+	public void maxSizeCountsEachCredentialOnce() {
+		CredentialDetails<ValueCredential> other = new CredentialDetails<>("2222-2222-2222-2222", OTHER_NAME,
+				CredentialType.VALUE, new ValueCredential("other-secret"));
+		when(delegate.getByName(NAME, ValueCredential.class)).thenReturn(CREDENTIAL);
+		when(delegate.getByName(OTHER_NAME, ValueCredential.class)).thenReturn(other);
+
+		credHubTemplate.getByName(NAME, ValueCredential.class);
+		credHubTemplate.getByName(OTHER_NAME, ValueCredential.class);
+
+		assertThat(credHubTemplate.getByName(NAME, ValueCredential.class)).isEqualTo(CREDENTIAL);
+		assertThat(credHubTemplate.getById(CREDENTIAL_ID, ValueCredential.class)).isEqualTo(CREDENTIAL);
+		assertThat(credHubTemplate.getByName(OTHER_NAME, ValueCredential.class)).isEqualTo(other);
+
+		verify(delegate, times(1)).getByName(NAME, ValueCredential.class);
+		verify(delegate, times(1)).getByName(OTHER_NAME, ValueCredential.class);
+		verify(delegate, never()).getById(CREDENTIAL_ID, ValueCredential.class);
+	}
+
+	@Test
+	public void credentialEvictedWhileLoadingIsNotCached() {
+		when(delegate.getByName(NAME, ValueCredential.class)).thenAnswer(invocation -> {
+			credHubTemplate.deleteByName(NAME);
+			return CREDENTIAL;
+		});
+
+		assertThat(credHubTemplate.getByName(NAME, ValueCredential.class)).isEqualTo(CREDENTIAL);
+		credHubTemplate.getByName(NAME, ValueCredential.class);
+		credHubTemplate.getById(CREDENTIAL_ID, ValueCredential.class);
+
+		verify(delegate, times(2)).getByName(NAME, ValueCredential.class);
+		verify(delegate, times(1)).getById(CREDENTIAL_ID, ValueCredential.class);
+	}
+
+	@Test
+	public void getByNameReturnsStaleCredentialWhenCredHubIsUnavailable() {
+		CachingCredHubCredentialTemplate credHubTemplate = staleIfErrorTemplate();
+		when(delegate.getByName(NAME, ValueCredential.class))
+				.thenReturn(CREDENTIAL)
+				.thenThrow(new CredHubException(HttpStatus.SERVICE_UNAVAILABLE))
+				.thenThrow(new ResourceAccessException("Connection refused"));
+		when(delegate.getById(CREDENTIAL_ID, ValueCredential.class))
+				.thenThrow(new CredHubException(HttpStatus.GATEWAY_TIMEOUT));
+
+		assertThat(credHubTemplate.getByName(NAME, ValueCredential.class).isStale()).isFalse();
+		clock.advance(TTL.plusSeconds(10));
+
+		CredentialDetails<ValueCredential> stale = credHubTemplate.getByName(NAME, ValueCredential.class);
+		assertThat(stale.isStale()).isTrue();
+		assertThat(stale).isEqualTo(CREDENTIAL);
+		assertThat(((StaleCredentialDetails<ValueCredential>) stale).getStaleness()).isEqualTo(Duration.ofSeconds(10));
+		assertThat(stale.getValue().getValue()).isEqualTo("secret");
+
+		assertThat(credHubTemplate.getById(CREDENTIAL_ID, ValueCredential.class).isStale()).isTrue();
+		assertThat(credHubTemplate.getByName(NAME, ValueCredential.class).isStale()).isTrue();
+	}
+
+	@Test
+	public void getByNameFailsWhenStaleCredentialExceedsMaxStaleness() {
+		CachingCredHubCredentialTemplate credHubTemplate = staleIfErrorTemplate();
+		CredHubException error = new CredHubException(HttpStatus.SERVICE_UNAVAILABLE);
+		when(delegate.getByName(NAME, ValueCredential.class))
+				.thenReturn(CREDENTIAL)
+				.thenThrow(error);
+
+		credHubTemplate.getByName(NAME, ValueCredential.class);
+		clock.advance(TTL.plus(Duration.ofMinutes(1)));
+
+		assertThatThrownBy(() -> credHubTemplate.getByName(NAME, ValueCredential.class)).isSameAs(error);
+	}
+
+	@Test
+	public void getByNameDoesNotReturnStaleCredentialForClientError() {
+		CachingCredHubCredentialTemplate credHubTemplate = staleIfErrorTemplate();
+		CredHubException error = new CredHubException(HttpStatus.NOT_FOUND);
+		when(delegate.getByName(NAME, ValueCredential.class))
+				.thenReturn(CREDENTIAL)
+				.thenThrow(error);
+
+		credHubTemplate.getByName(NAME, ValueCredential.class);
+		clock.advance(TTL);
+
+		assertThatThrownBy(() -> credHubTemplate.getByName(NAME, ValueCredential.class)).isSameAs(error);
+	}
+
+	@Test
+	public void getByNameDoesNotReturnStaleCredentialByDefault() {
+		CredHubException error = new CredHubException(HttpStatus.SERVICE_UNAVAILABLE);
+		when(delegate.getByName(NAME, ValueCredential.class))
+				.thenReturn(CREDENTIAL)
+				.thenThrow(error);
+
+		credHubTemplate.getByName(NAME, ValueCredential.class);
+		clock.advance(TTL);
+
+		assertThatThrownBy(() -> credHubTemplate.getByName(NAME, ValueCredential.class)).isSameAs(error);
+	}
+
+	@Test
+	public void getByNamesReturnsStaleCredentialsWhenCredHubIsUnavailable() {
+		CachingCredHubCredentialTemplate credHubTemplate = staleIfErrorTemplate();
+		when(delegate.getByName(NAME, ValueCredential.class)).thenReturn(CREDENTIAL);
+		when(delegate.getByNames(anyCollection(), anyInt(), any()))
+				.thenThrow(new ResourceAccessException("Connection refused"));
+
+		credHubTemplate.getByName(NAME, ValueCredential.class);
+		clock.advance(TTL);
+
+		CredentialDetailsBatch<ValueCredential> batch =
+				credHubTemplate.getByNames(Arrays.asList(NAME, OTHER_NAME), ValueCredential.class);
+
+		assertThat(batch.getCredential(NAME).isStale()).isTrue();
+		assertThat(batch.getError(OTHER_NAME)).isInstanceOf(ResourceAccessException.class);
+	}
+
+	@Test
+	public void getByIdDoesNotCacheCredentialByName() {
+		when(delegate.getById(CREDENTIAL_ID, ValueCredential.class)).thenReturn(CREDENTIAL);
+		when(delegate.getByName(NAME, ValueCredential.class)).thenReturn(CREDENTIAL);
+
+		credHubTemplate.getById(CREDENTIAL_ID, ValueCredential.class);
+		credHubTemplate.getById(CREDENTIAL_ID, ValueCredential.class);
+		credHubTemplate.getByName(NAME, ValueCredential.class);
+
+		verify(delegate, times(1)).getById(CREDENTIAL_ID, ValueCredential.class);
+		verify(delegate, times(1)).getByName(NAME, ValueCredential.class);
+	}
+
+	@Test
+	public void getByNamesRetrievesOnlyCredentialsThatAreNotCached() {
+		CredentialDetails<ValueCredential> other =
+				new CredentialDetails<>("2222-2222-2222-2222", OTHER_NAME, CredentialType.VALUE,
+						new ValueCredential("other"));
+		CredHubException error = new CredHubException(HttpStatus.NOT_FOUND);
+
+		when(delegate.getByName(NAME, ValueCredential.class)).thenReturn(CREDENTIAL);
+		when(delegate.getByNames(Arrays.asList(OTHER_NAME, MISSING_NAME), 4, ValueCredential.class))
+				.thenReturn(new CredentialDetailsBatch<>(
+						Collections.singletonMap(OTHER_NAME.getName(), other),
+						Collections.singletonMap(MISSING_NAME.getName(), error)));
+
+		credHubTemplate.getByName(NAME, ValueCredential.class);
+		CredentialDetailsBatch<ValueCredential> batch = credHubTemplate.getByNames(
+				Arrays.asList(OTHER_NAME, NAME, MISSING_NAME, NAME), 4, ValueCredential.class);
+
+		assertThat(batch.getCredentials().keySet()).containsExactly(OTHER_NAME.getName(), NAME.getName());
+		assertThat(batch.getCredential(NAME)).isEqualTo(CREDENTIAL);
+		assertThat(batch.getCredential(OTHER_NAME)).isEqualTo(other);
+		assertThat(batch.getError(MISSING_NAME)).isSameAs(error);
+
+		assertThat(credHubTemplate.getByName(OTHER_NAME, ValueCredential.class)).isEqualTo(other);
+		verify(delegate, never()).getByName(OTHER_NAME, ValueCredential.class);
+	}
+
+	@Test
+	public void getByNamesDoesNotCallDelegateWhenAllCredentialsAreCached() {
+		when(delegate.getByName(NAME, ValueCredential.class)).thenReturn(CREDENTIAL);
+
+		credHubTemplate.getByName(NAME, ValueCredential.class);
+		CredentialDetailsBatch<ValueCredential> batch =
+				credHubTemplate.getByNames(Collections.singletonList(NAME), ValueCredential.class);
+
+		assertThat(batch.getCredential(NAME)).isEqualTo(CREDENTIAL);
+		verify(delegate, never()).getByNames(anyCollection(), anyInt(), any());
+	}
+
+	@Test
+	public void leastRecentlyUsedCredentialIsEvicted() {
+		CredentialDetails<ValueCredential> other =
+				new CredentialDetails<>("2222-2222-2222-2222", OTHER_NAME, CredentialType.VALUE,
+						new ValueCredential("other"));
+
+		when(delegate.getById(CREDENTIAL_ID, ValueCredential.class)).thenReturn(CREDENTIAL);
+		when(delegate.getById("2222-2222-2222-2222", ValueCredential.class)).thenReturn(other);
+		when(delegate.getById("3333-3333-3333-3333", ValueCredential.class)).thenReturn(
+				new CredentialDetails<>("3333-3333-3333-3333", OTHER_NAME, CredentialType.VALUE,
+						new ValueCredential("newest")));
+
+		credHubTemplate.getById(CREDENTIAL_ID, ValueCredential.class);
+		credHubTemplate.getById("2222-2222-2222-2222", ValueCredential.class);
+		credHubTemplate.getById(CREDENTIAL_ID, ValueCredential.class);
+		credHubTemplate.getById("3333-3333-3333-3333", ValueCredential.class);
+
+		credHubTemplate.getById(CREDENTIAL_ID, ValueCredential.class);
+		credHubTemplate.getById("2222-2222-2222-2222", ValueCredential.class);
+
+		verify(delegate, times(1)).getById(CREDENTIAL_ID, ValueCredential.class);
+		verify(delegate, times(2)).getById("2222-2222-2222-2222", ValueCredential.class);
+	}
+
+	@Test
+	public void writeEvictsCredential() {
+		ValueCredentialRequest request = ValueCredentialRequest.builder()
+				.name(NAME)
+				.value("new-secret")
+				.build();
+
+		assertEvictedBy(() -> credHubTemplate.write(request));
+
+		verify(delegate).write(request);
+	}
+
+	@Test
+	public void generateEvictsCredential() {
+		PasswordParametersRequest request = PasswordParametersRequest.builder()
+				.name(NAME)
+				.build();
+
+		assertEvictedBy(() -> credHubTemplate.generate(request));
+
+		verify(delegate).generate(request);
+	}
+
+	@Test
+	public void writeAllEvictsCredentials() {
+		List<ValueCredentialRequest> requests = Collections.singletonList(ValueCredentialRequest.builder()
+				.name(NAME)
+				.value("new-secret")
+				.build());
+
+		assertEvictedBy(() -> credHubTemplate.writeAll(requests));
+
+		verify(delegate).writeAll(requests, 8);
+	}
+
+	@Test
+	public void generateAllEvictsCredentials() {
+		List<PasswordParametersRequest> requests = Collections.singletonList(PasswordParametersRequest.builder()
+				.name(NAME)
+				.build());
+
+		assertEvictedBy(() -> credHubTemplate.generateAll(requests, 2));
+
+		verify(delegate).generateAll(requests, 2);
+	}
+
+	@Test
+	public void regenerateEvictsCredential() {
+		assertEvictedBy(() -> credHubTemplate.regenerate(NAME, ValueCredential.class));
+
+		verify(delegate).regenerate(NAME, ValueCredential.class);
+	}
+
+	@Test
+	public void deleteByNameEvictsCredential() {
+		assertEvictedBy(() -> credHubTemplate.deleteByName(NAME));
+
+		verify(delegate).deleteByName(NAME);
+	}
+
+	private void assertEvictedBy(Runnable operation) {
+		when(delegate.getByName(NAME, ValueCredential.class)).thenReturn(CREDENTIAL);
+		when(delegate.getById(CREDENTIAL_ID, ValueCredential.class)).thenReturn(CREDENTIAL);
+
+		credHubTemplate.getByName(NAME, ValueCredential.class);
+		operation.run();
+		credHubTemplate.getById(CREDENTIAL_ID, ValueCredential.class);
+		credHubTemplate.getByName(NAME, ValueCredential.class);
+
+		verify(delegate, times(2)).getByName(NAME, ValueCredential.class);
+		verify(delegate, times(1)).getById(CREDENTIAL_ID, ValueCredential.class);
+	}
+
+	private CachingCredHubCredentialTemplate staleIfErrorTemplate() {
+		CredentialCacheOptions options = new CredentialCacheOptions(2, TTL);
+		options.setMaxStaleness(Duration.ofMinutes(1));
+		return new CachingCredHubCredentialTemplate(delegate, new CredentialCache(options, clock));
+	}
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.core.credential;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.credhub.core.CredHubException;
+import org.springframework.credhub.support.CredHubRequest;
+import org.springframework.credhub.support.CredentialDetails;
+import org.springframework.credhub.support.CredentialRequest;
+import org.springframework.credhub.support.CredentialRequestResult;
+import org.springframework.credhub.support.CredentialType;
+import org.springframework.credhub.support.ParametersRequest;
+import org.springframework.credhub.support.SimpleCredentialName;
+import org.springframework.credhub.support.password.PasswordParametersRequest;
+import org.springframework.credhub.support.value.ValueCredential;
+import org.springframework.credhub.support.value.ValueCredentialRequest;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpClientErrorException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.credhub.core.credential.CredHubCredentialTemplate.BASE_URL_PATH;
+import static org.springframework.http.HttpMethod.POST;
+import static org.springframework.http.HttpMethod.PUT;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.OK;
+
+public class CredHubCredentialTemplateBulkUnitTests extends CredHubCredentialTemplateUnitTestsBase {
+	private static final SimpleCredentialName OTHER_NAME = new SimpleCredentialName("example", "other");
+	private static final SimpleCredentialName INVALID_NAME = new SimpleCredentialName("example", "invalid");
+
+	@Test
+	public void writeAllReturnsResultsInRequestOrder() {
+		stubExchange(PUT);
+
+		List<CredentialRequestResult<CredentialRequest<?>>> results = credHubTemplate.writeAll(
+				Arrays.asList(valueRequest(OTHER_NAME), valueRequest(NAME)), 2);
+
+		assertThat(results).extracting(result -> result.getRequest().getName())
+				.containsExactly(OTHER_NAME.getName(), NAME.getName());
+		assertThat(results).noneMatch(CredentialRequestResult::hasError);
+		assertThat(results.get(1).getDetails().getName().getName()).isEqualTo(NAME.getName());
+	}
+
+	@Test
+	public void writeAllReportsErrorsPerRequest() {
+		stubExchange(PUT);
+
+		List<CredentialRequestResult<CredentialRequest<?>>> results = credHubTemplate.writeAll(
+				Arrays.asList(valueRequest(NAME), valueRequest(INVALID_NAME), valueRequest(OTHER_NAME)));
+
+		assertThat(results).hasSize(3);
+		assertThat(results.get(0).hasError()).isFalse();
+		assertThat(results.get(1).hasError()).isTrue();
+		assertThat(results.get(1).getError()).isInstanceOf(CredHubException.class);
+		assertThat(results.get(1).getDetails()).isNull();
+		assertThat(results.get(2).hasError()).isFalse();
+	}
+
+	@Test
+	public void generateAllReturnsResultsInRequestOrder() {
+		stubExchange(POST);
+
+		List<CredentialRequestResult<ParametersRequest<?>>> results = credHubTemplate.generateAll(
+				Arrays.asList(passwordRequest(NAME), passwordRequest(INVALID_NAME), passwordRequest(OTHER_NAME)), 3);
+
+		assertThat(results).extracting(result -> result.getRequest().getName())
+				.containsExactly(NAME.getName(), INVALID_NAME.getName(), OTHER_NAME.getName());
+		assertThat(results).extracting(CredentialRequestResult::hasError)
+				.containsExactly(false, true, false);
+	}
+
+	@Test
+	public void generateAllWithNoRequestsReturnsNoResults() {
+		assertThat(credHubTemplate.generateAll(Arrays.asList())).isEmpty();
+	}
+
+	@Test
+	public void defaultWriteAllWritesEachCredential() {
+		CredHubCredentialOperations operations = mock(CredHubCredentialOperations.class, CALLS_REAL_METHODS);
+		doAnswer(invocation -> {
+			CredentialRequest<?> request = invocation.getArgument(0);
+			if (INVALID_NAME.getName().equals(request.getName())) {
+				throw new CredHubException(BAD_REQUEST);
+			}
+			return new CredentialDetails<>("id-" + request.getName(), new SimpleCredentialName(request.getName()),
+					CredentialType.VALUE, new ValueCredential("secret"));
+		}).when(operations).write(any());
+
+		List<CredentialRequestResult<CredentialRequest<?>>> results = operations.writeAll(
+				Arrays.asList(valueRequest(NAME), valueRequest(INVALID_NAME), valueRequest(OTHER_NAME)));
+
+		assertThat(results).extracting(result -> result.getRequest().getName())
+				.containsExactly(NAME.getName(), INVALID_NAME.getName(), OTHER_NAME.getName());
+		assertThat(results).extracting(CredentialRequestResult::hasError)
+				.containsExactly(false, true, false);
+	}
+
+	private void stubExchange(HttpMethod method) {
+		when(restTemplate.exchange(eq(BASE_URL_PATH), eq(method), any(HttpEntity.class),
+				isA(ParameterizedTypeReference.class)))
+				.thenAnswer(invocation -> {
+					CredHubRequest<?> request = (CredHubRequest<?>) invocation.<HttpEntity<?>>getArgument(2).getBody();
+					if (INVALID_NAME.getName().equals(request.getName())) {
+						throw new HttpClientErrorException(BAD_REQUEST);
+					}
+					return new ResponseEntity<>(new CredentialDetails<>("id-" + request.getName(),
+							new SimpleCredentialName(request.getName()), CredentialType.VALUE,
+							new ValueCredential("secret")), OK);
+				});
+	}
+
+	private static ValueCredentialRequest valueRequest(SimpleCredentialName name) {
+		return ValueCredentialRequest.builder()
+				.name(name)
+				.value(new ValueCredential("secret"))
+				.build();
+	}
+
+	private static PasswordParametersRequest passwordRequest(SimpleCredentialName name) {
+		return PasswordParametersRequest.builder()
+				.name(name)
+				.build();
+	}
+}
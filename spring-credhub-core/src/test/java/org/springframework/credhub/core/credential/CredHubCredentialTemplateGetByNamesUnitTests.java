@@ -0,0 +1,196 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.core.credential;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.mockito.stubbing.Answer;
+
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.credhub.core.CredHubException;
+import org.springframework.credhub.core.CredHubTemplate;
+import org.springframework.credhub.support.CredentialDetails;
+import org.springframework.credhub.support.CredentialDetailsBatch;
+import org.springframework.credhub.support.CredentialDetailsData;
+import org.springframework.credhub.support.CredentialName;
+import org.springframework.credhub.support.CredentialType;
+import org.springframework.credhub.support.SimpleCredentialName;
+import org.springframework.credhub.support.value.ValueCredential;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpClientErrorException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.credhub.core.credential.CredHubCredentialTemplate.NAME_URL_QUERY_CURRENT;
+import static org.springframework.http.HttpMethod.GET;
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.OK;
+
+public class CredHubCredentialTemplateGetByNamesUnitTests extends CredHubCredentialTemplateUnitTestsBase {
+	private static final SimpleCredentialName OTHER_NAME = new SimpleCredentialName("example", "other");
+	private static final SimpleCredentialName MISSING_NAME = new SimpleCredentialName("example", "missing");
+
+	@Test
+	public void getByNamesRetrievesCredentialsInRequestOrder() {
+		stubGetByName(invocation -> response(invocation.getArgument(4)));
+
+		CredentialDetailsBatch<ValueCredential> batch =
+				credHubTemplate.getByNames(Arrays.asList(OTHER_NAME, NAME), ValueCredential.class);
+
+		assertThat(batch.hasErrors()).isFalse();
+		assertThat(batch.getCredentials()).containsOnlyKeys(OTHER_NAME.getName(), NAME.getName());
+		assertThat(batch.getCredentials().keySet()).containsExactly(OTHER_NAME.getName(), NAME.getName());
+		assertThat(batch.getCredential(NAME).getValue().getValue()).isEqualTo(NAME.getName());
+		assertThat(batch.getCredential(OTHER_NAME).getValue().getValue()).isEqualTo(OTHER_NAME.getName());
+	}
+
+	@Test
+	public void getByNamesRetrievesRepeatedNamesOnce() {
+		stubGetByName(invocation -> response(invocation.getArgument(4)));
+
+		CredentialDetailsBatch<ValueCredential> batch = credHubTemplate.getByNames(
+				Arrays.asList(NAME, new SimpleCredentialName("example", "credential"), NAME), ValueCredential.class);
+
+		assertThat(batch.getCredentials()).containsOnlyKeys(NAME.getName());
+		verifyGetByName(NAME, 1);
+	}
+
+	@Test
+	public void getByNamesReturnsPartialResults() {
+		stubGetByName(invocation -> {
+			if (MISSING_NAME.getName().equals(invocation.getArgument(4))) {
+				throw new HttpClientErrorException(NOT_FOUND);
+			}
+			return response(invocation.getArgument(4));
+		});
+
+		CredentialDetailsBatch<ValueCredential> batch =
+				credHubTemplate.getByNames(Arrays.asList(NAME, MISSING_NAME), ValueCredential.class);
+
+		assertThat(batch.hasErrors()).isTrue();
+		assertThat(batch.getCredentials()).containsOnlyKeys(NAME.getName());
+		assertThat(batch.getError(MISSING_NAME)).isInstanceOf(CredHubException.class);
+		assertThat(batch.getError(NAME)).isNull();
+	}
+
+	@Test
+	public void getByNamesLimitsConcurrentRequests() {
+		List<CredentialName> names = Arrays.asList(
+				new SimpleCredentialName("example", "one"),
+				new SimpleCredentialName("example", "two"),
+				new SimpleCredentialName("example", "three"),
+				new SimpleCredentialName("example", "four"),
+				new SimpleCredentialName("example", "five"));
+
+		AtomicInteger active = new AtomicInteger();
+		AtomicInteger maxActive = new AtomicInteger();
+		Answer<ResponseEntity<CredentialDetailsData<ValueCredential>>> slowResponse = invocation -> {
+			maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+			Thread.sleep(50);
+			active.decrementAndGet();
+			return response(invocation.getArgument(4));
+		};
+		stubGetByName(slowResponse);
+
+		CredentialDetailsBatch<ValueCredential> batch = credHubTemplate.getByNames(names, 2, ValueCredential.class);
+
+		assertThat(batch.getCredentials()).hasSize(5);
+		assertThat(maxActive.get()).isLessThanOrEqualTo(2);
+	}
+
+	@Test
+	public void getByNamesSendsConcurrentRequestsUsingConfiguredExecutor() {
+		stubGetByName(invocation -> response(invocation.getArgument(4)));
+
+		AtomicInteger executedTasks = new AtomicInteger();
+		CredHubTemplate template = new CredHubTemplate(restTemplate);
+		template.setExecutor(task -> {
+			executedTasks.incrementAndGet();
+			new Thread(task).start();
+		});
+
+		CredentialDetailsBatch<ValueCredential> batch = template.credentials()
+				.getByNames(Arrays.asList(NAME, OTHER_NAME, MISSING_NAME), 2, ValueCredential.class);
+
+		assertThat(batch.getCredentials()).hasSize(3);
+		assertThat(executedTasks.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void defaultGetByNamesRetrievesEachCredentialByName() {
+		CredHubCredentialOperations operations = mock(CredHubCredentialOperations.class, CALLS_REAL_METHODS);
+		doReturn(response(NAME.getName()).getBody().getData().get(0))
+				.when(operations).getByName(NAME, ValueCredential.class);
+		doThrow(new CredHubException(NOT_FOUND))
+				.when(operations).getByName(MISSING_NAME, ValueCredential.class);
+
+		CredentialDetailsBatch<ValueCredential> batch =
+				operations.getByNames(Arrays.asList(NAME, MISSING_NAME, NAME), ValueCredential.class);
+
+		assertThat(batch.getCredentials()).containsOnlyKeys(NAME.getName());
+		assertThat(batch.getErrors()).containsOnlyKeys(MISSING_NAME.getName());
+		verify(operations).getByName(NAME, ValueCredential.class);
+	}
+
+	@Test
+	public void getByNamesWithNoNamesReturnsEmptyBatch() {
+		CredentialDetailsBatch<ValueCredential> batch =
+				credHubTemplate.getByNames(Collections.emptyList(), ValueCredential.class);
+
+		assertThat(batch.getCredentials()).isEmpty();
+		assertThat(batch.getErrors()).isEmpty();
+	}
+
+	@Test
+	public void getByNamesRequiresPositiveConcurrency() {
+		assertThatThrownBy(() -> credHubTemplate.getByNames(Collections.singletonList(NAME), 0, ValueCredential.class))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	private void stubGetByName(Answer<ResponseEntity<CredentialDetailsData<ValueCredential>>> answer) {
+		when(restTemplate.exchange(eq(NAME_URL_QUERY_CURRENT), eq(GET), isNull(),
+				isA(ParameterizedTypeReference.class), anyString()))
+				.thenAnswer(answer);
+	}
+
+	private void verifyGetByName(CredentialName name, int invocations) {
+		verify(restTemplate, times(invocations)).exchange(eq(NAME_URL_QUERY_CURRENT), eq(GET),
+				isNull(HttpEntity.class), isA(ParameterizedTypeReference.class), eq(name.getName()));
+	}
+
+	private static ResponseEntity<CredentialDetailsData<ValueCredential>> response(String name) {
+		CredentialDetails<ValueCredential> details = new CredentialDetails<>("id-" + name,
+				new SimpleCredentialName(name), CredentialType.VALUE, new ValueCredential(name));
+		return new ResponseEntity<>(new CredentialDetailsData<>(details), OK);
+	}
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.credhub.core.credential;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Base64;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.credhub.core.CredHubTemplate;
+import org.springframework.credhub.support.CredentialCacheOptions;
+import org.springframework.credhub.support.CredentialDetails;
+import org.springframework.credhub.support.CredentialType;
+import org.springframework.credhub.support.SimpleCredentialName;
+import org.springframework.credhub.support.password.PasswordCredential;
+import org.springframework.credhub.support.value.ValueCredential;
+import org.springframework.web.client.RestTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class CredentialCacheSnapshotUnitTests {
+	private static final SimpleCredentialName NAME = new SimpleCredentialName("example", "credential");
+	private static final SimpleCredentialName OTHER_NAME = new SimpleCredentialName("example", "other");
+	private static final Duration TTL = Duration.ofSeconds(30);
+	private static final String KEY = Base64.getEncoder().encodeToString(new byte[32]);
+
+	private static final CredentialDetails<ValueCredential> CREDENTIAL = new CredentialDetails<>(
+			"1111-1111-1111-1111", NAME, CredentialType.VALUE, new ValueCredential("secret-value"));
+
+	private static final CredentialDetails<PasswordCredential> OTHER_CREDENTIAL = new CredentialDetails<>(
+			"2222-2222-2222-2222", OTHER_NAME, CredentialType.PASSWORD, new PasswordCredential("secret-password"));
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File snapshotFile;
+
+	private MutableClock clock;
+
+	@Before
+	public void setUp() throws Exception {
+		snapshotFile = new File(folder.newFolder(), "credentials.snapshot");
+		clock = new MutableClock();
+	}
+
+	@Test
+	public void restoresCachedCredentialsFromSnapshot() {
+		CredentialCache cache = new CredentialCache(options(), clock);
+		cache.putByName(CREDENTIAL);
+		cache.putByName(OTHER_CREDENTIAL);
+		CredentialCacheSnapshot.forOptions(options().getSnapshot()).write();
+
+		CredentialCache restored = new CredentialCache(options(), clock);
+
+		assertThat(restored.<ValueCredential>getByName(NAME.getName())).isEqualTo(CREDENTIAL);
+		assertThat(restored.<ValueCredential>getByName(NAME.getName()).getValue().getValue())
+				.isEqualTo("secret-value");
+		assertThat(restored.<ValueCredential>getById(CREDENTIAL.getId())).isEqualTo(CREDENTIAL);
+		assertThat(restored.<PasswordCredential>getByName(OTHER_NAME.getName()).getValue().getPassword())
+				.isEqualTo("secret-password");
+	}
+
+	@Test
+	public void restoredCredentialsKeepTheirExpiry() {
+		CredentialCache cache = new CredentialCache(options(), clock);
+		cache.putByName(CREDENTIAL);
+		clock.advance(Duration.ofSeconds(20));
+		cache.putByName(OTHER_CREDENTIAL);
+		CredentialCacheSnapshot.forOptions(options().getSnapshot()).write();
+
+		clock.advance(Duration.ofSeconds(15));
+		CredentialCache restored = new CredentialCache(options(), clock);
+
+		assertThat(restored.<ValueCredential>getByName(NAME.getName())).isNull();
+		assertThat(restored.<PasswordCredential>getByName(OTHER_NAME.getName())).isEqualTo(OTHER_CREDENTIAL);
+		assertThat(restored.size()).isEqualTo(1);
+	}
+
+	@Test
+	public void expiredCredentialsWithinMaxStalenessAreRestored() {
+		CredentialCacheOptions options = options();
+		options.setMaxStaleness(Duration.ofMinutes(5));
+		CredentialCache cache = new CredentialCache(options, clock);
+		cache.putByName(CREDENTIAL);
+		CredentialCacheSnapshot.forOptions(options.getSnapshot()).write();
+
+		clock.advance(Duration.ofMinutes(2));
+		CredentialCache restored = new CredentialCache(options, clock);
+
+		assertThat(restored.<ValueCredential>getByName(NAME.getName())).isNull();
+		assertThat(restored.<ValueCredential>getStaleByName(NAME.getName()).isStale()).isTrue();
+	}
+
+	@Test
+	public void snapshotIsEncrypted() throws Exception {
+		CredentialCache cache = new CredentialCache(options(), clock);
+		cache.putByName(CREDENTIAL);
+		CredentialCacheSnapshot.forOptions(options().getSnapshot()).write();
+
+		String contents = new String(Files.readAllBytes(snapshotFile.toPath()), StandardCharsets.ISO_8859_1);
+
+		assertThat(contents).startsWith("CHCS");
+		assertThat(contents).doesNotContain("secret-value");
+		assertThat(contents).doesNotContain(NAME.getName());
+	}
+
+	@Test
+	public void corruptSnapshotIsIgnored() throws Exception {
+		CredentialCache cache = new CredentialCache(options(), clock);
+		cache.putByName(CREDENTIAL);
+		CredentialCacheSnapshot.forOptions(options().getSnapshot()).write();
+
+		byte[] contents = Files.readAllBytes(snapshotFile.toPath());
+		contents[contents.length - 1] ^= 1;
+		Files.write(snapshotFile.toPath(), contents);
+
+		CredentialCache restored = new CredentialCache(options(), clock);
+
+		assertThat(restored.size()).isEqualTo(0);
+	}
+
+	@Test
+	public void changesAreWrittenInBackground() throws Exception {
+		CredentialCacheOptions options = options();
+		options.getSnapshot().setWriteInterval(Duration.ofMillis(20));
+		CredentialCache cache = new CredentialCache(options, clock);
+		cache.putByName(CREDENTIAL);
+
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!snapshotFile.exists() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(20);
+		}
+
+		assertThat(snapshotFile).exists();
+		assertThat(new CredentialCache(options, clock).<ValueCredential>getByName(NAME.getName()))
+				.isEqualTo(CREDENTIAL);
+	}
+
+	@Test
+	public void snapshotFileCannotBeSharedWithDifferentKey() {
+		new CredentialCache(options(), clock);
+
+		CredentialCacheOptions options = options();
+		options.getSnapshot().setKey(Base64.getEncoder().encodeToString(new byte[16]));
+
+		assertThatThrownBy(() -> new CredentialCache(options, clock))
+				.isInstanceOf(IllegalStateException.class);
+	}
+
+	@Test
+	public void snapshotFileCannotBeSharedWithDifferentWriteInterval() {
+		new CredentialCache(options(), clock);
+
+		CredentialCacheOptions options = options();
+		options.getSnapshot().setWriteInterval(Duration.ofMinutes(1));
+
+		assertThatThrownBy(() -> new CredentialCache(options, clock))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessageContaining("write interval");
+	}
+
+	@Test
+	public void snapshotIsWrittenWhenLastCacheIsClosed() {
+		CredentialCache cache = new CredentialCache(options(), clock);
+		CredentialCache otherCache = new CredentialCache(options(), clock);
+		cache.putByName(CREDENTIAL);
+		otherCache.putByName(OTHER_CREDENTIAL);
+
+		cache.close();
+		cache.close();
+
+		assertThat(snapshotFile).doesNotExist();
+
+		otherCache.close();
+
+		assertThat(snapshotFile).exists();
+		CredentialCache restored = new CredentialCache(options(), clock);
+		assertThat(restored.<ValueCredential>getByName(NAME.getName())).isEqualTo(CREDENTIAL);
+		assertThat(restored.<PasswordCredential>getByName(OTHER_NAME.getName())).isEqualTo(OTHER_CREDENTIAL);
+	}
+
+	@Test
+	public void closedSnapshotFileCanBeUsedWithDifferentOptions() {
+		new CredentialCache(options(), clock).close();
+
+		CredentialCacheOptions options = options();
+		options.getSnapshot().setWriteInterval(Duration.ofMinutes(1));
+
+		new CredentialCache(options, clock).close();
+	}
+
+	@Test
+	public void destroyingTemplateClosesCache() {
+		CredHubTemplate credHubTemplate = new CredHubTemplate(new RestTemplate());
+		credHubTemplate.setCredentialCacheOptions(options());
+
+		credHubTemplate.destroy();
+
+		assertThat(credHubTemplate.isCachingCredentials()).isFalse();
+		assertThat(snapshotFile).exists();
+	}
+
+	@Test
+	public void keyMustBeAnAesKey() {
+		CredentialCacheOptions options = options();
+		options.getSnapshot().setKey(Base64.getEncoder().encodeToString(new byte[10]));
+
+		assertThatThrownBy(() -> new CredentialCache(options, clock))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("AES key");
+	}
+
+	private CredentialCacheOptions options() {
+		CredentialCacheOptions options = new CredentialCacheOptions(10, TTL);
+		options.getSnapshot().setPath(snapshotFile);
+		options.getSnapshot().setKey(KEY);
+		options.getSnapshot().setWriteInterval(Duration.ofHours(1));
+		return options;
+	}
+}
@@ -0,0 +1,382 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.credhub.core.credential;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.test.StepVerifier;
+
+import org.springframework.credhub.core.CredHubException;
+import org.springframework.credhub.support.CredentialCacheOptions;
+import org.springframework.credhub.support.CredentialDetails;
+import org.springframework.credhub.support.CredentialDetailsBatch;
+import org.springframework.credhub.support.CredentialRequest;
+import org.springframework.credhub.support.CredentialRequestResult;
+import org.springframework.credhub.support.CredentialType;
+import org.springframework.credhub.support.ParametersRequest;
+import org.springframework.credhub.support.SimpleCredentialName;
+import org.springframework.credhub.support.StaleCredentialDetails;
+import org.springframework.credhub.support.password.PasswordParametersRequest;
+import org.springframework.credhub.support.value.ValueCredential;
+import org.springframework.credhub.support.value.ValueCredentialRequest;
+import org.springframework.http.HttpStatus;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReactiveCachingCredHubCredentialTemplateUnitTests {
+	private static final SimpleCredentialName NAME = new SimpleCredentialName("example", "credential");
+	private static final SimpleCredentialName OTHER_NAME = new SimpleCredentialName("example", "other");
+	private static final String CREDENTIAL_ID = "1111-1111-1111-1111";
+	private static final Duration TTL = Duration.ofSeconds(30);
+
+	private static final CredentialDetails<ValueCredential> CREDENTIAL =
+			new CredentialDetails<>(CREDENTIAL_ID, NAME, CredentialType.VALUE, new ValueCredential("secret"));
+
+	private static final CredentialDetails<ValueCredential> UPDATED_CREDENTIAL =
+			new CredentialDetails<>("2222-2222-2222-2222", NAME, CredentialType.VALUE, new ValueCredential("updated"));
+
+	@Mock
+	private ReactiveCredHubCredentialOperations delegate;
+
+	private MutableClock clock;
+
+	private ReactiveCachingCredHubCredentialTemplate credHubTemplate;
+
+	@Before
+	public void setUp() {
+		clock = new MutableClock();
+		credHubTemplate = new ReactiveCachingCredHubCredentialTemplate(delegate,
+				new CredentialCache(new CredentialCacheOptions(10, TTL), clock));
+	}
+
+	@Test
+	public void getByNameCachesCredential() {
+		AtomicInteger requests = new AtomicInteger();
+		when(delegate.getByName(NAME, ValueCredential.class))
+				.thenReturn(Mono.fromCallable(() -> {
+					requests.incrementAndGet();
+					return CREDENTIAL;
+				}));
+
+		StepVerifier.create(credHubTemplate.getByName(NAME, ValueCredential.class))
+				.expectNext(CREDENTIAL)
+				.verifyComplete();
+		StepVerifier.create(credHubTemplate.getByName(NAME, ValueCredential.class))
+				.expectNext(CREDENTIAL)
+				.verifyComplete();
+
+		assertThat(requests.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void concurrentGetByNameSharesRequest() {
+		MonoProcessor<CredentialDetails<ValueCredential>> response = MonoProcessor.create();
+		when(delegate.getByName(NAME, ValueCredential.class)).thenReturn(response);
+
+		Mono<CredentialDetails<ValueCredential>> first = credHubTemplate.getByName(NAME, ValueCredential.class);
+		Mono<CredentialDetails<ValueCredential>> second = credHubTemplate.getByName(NAME, ValueCredential.class);
+
+		StepVerifier.create(Mono.zip(first, second))
+				.then(() -> response.onNext(CREDENTIAL))
+				.assertNext(results -> {
+					assertThat(results.getT1()).isEqualTo(CREDENTIAL);
+					assertThat(results.getT2()).isEqualTo(CREDENTIAL);
+				})
+				.verifyComplete();
+
+		verify(delegate, times(1)).getByName(NAME, ValueCredential.class);
+	}
+
+	@Test
+	public void expiredCredentialIsServedWhileRefreshing() {
+		MonoProcessor<CredentialDetails<ValueCredential>> refresh = MonoProcessor.create();
+		when(delegate.getByName(NAME, ValueCredential.class))
+				.thenReturn(Mono.just(CREDENTIAL), refresh);
+
+		StepVerifier.create(credHubTemplate.getByName(NAME, ValueCredential.class))
+				.expectNext(CREDENTIAL)
+				.verifyComplete();
+
+		clock.advance(TTL);
+
+		StepVerifier.create(credHubTemplate.getByName(NAME, ValueCredential.class))
+				.expectNext(CREDENTIAL)
+				.verifyComplete();
+
+		refresh.onNext(UPDATED_CREDENTIAL);
+
+		StepVerifier.create(credHubTemplate.getByName(NAME, ValueCredential.class))
+				.expectNext(UPDATED_CREDENTIAL)
+				.verifyComplete();
+
+		verify(delegate, times(2)).getByName(NAME, ValueCredential.class);
+	}
+
+	@Test
+	public void failedRefreshEvictsCredential() {
+		when(delegate.getByName(NAME, ValueCredential.class))
+				.thenReturn(Mono.just(CREDENTIAL),
+						Mono.error(new CredHubException(HttpStatus.INTERNAL_SERVER_ERROR)),
+						Mono.just(UPDATED_CREDENTIAL));
+
+		credHubTemplate.getByName(NAME, ValueCredential.class).block();
+		clock.advance(TTL);
+
+		StepVerifier.create(credHubTemplate.getByName(NAME, ValueCredential.class))
+				.expectNext(CREDENTIAL)
+				.verifyComplete();
+		StepVerifier.create(credHubTemplate.getByName(NAME, ValueCredential.class))
+				.expectNext(UPDATED_CREDENTIAL)
+				.verifyComplete();
+	}
+
+	@Test
+	public void expiredCredentialIsMarkedStale() {
+		credHubTemplate = staleIfErrorTemplate();
+		when(delegate.getByName(NAME, ValueCredential.class))
+				.thenReturn(Mono.just(CREDENTIAL), MonoProcessor.create());
+
+		credHubTemplate.getByName(NAME, ValueCredential.class).block();
+		clock.advance(TTL.plusSeconds(5));
+
+		StepVerifier.create(credHubTemplate.getByName(NAME, ValueCredential.class))
+				.assertNext(details -> {
+					assertThat(details.isStale()).isTrue();
+					assertThat(((StaleCredentialDetails<ValueCredential>) details).getStaleness())
+							.isEqualTo(Duration.ofSeconds(5));
+				})
+				.verifyComplete();
+	}
+
+	@Test
+	public void expiredCredentialIsNotMarkedStaleWithoutMaxStaleness() {
+		when(delegate.getByName(NAME, ValueCredential.class))
+				.thenReturn(Mono.just(CREDENTIAL), MonoProcessor.create());
+
+		credHubTemplate.getByName(NAME, ValueCredential.class).block();
+		clock.advance(TTL.plusSeconds(5));
+
+		StepVerifier.create(credHubTemplate.getByName(NAME, ValueCredential.class))
+				.assertNext(details -> {
+					assertThat(details).isNotInstanceOf(StaleCredentialDetails.class);
+					assertThat(details.isStale()).isFalse();
+				})
+				.verifyComplete();
+	}
+
+	@Test
+	public void failedRefreshKeepsCredentialWhenCredHubIsUnavailable() {
+		credHubTemplate = staleIfErrorTemplate();
+		when(delegate.getByName(NAME, ValueCredential.class))
+				.thenReturn(Mono.just(CREDENTIAL),
+						Mono.error(new CredHubException(HttpStatus.SERVICE_UNAVAILABLE)),
+						Mono.error(new CredHubException(HttpStatus.SERVICE_UNAVAILABLE)));
+
+		credHubTemplate.getByName(NAME, ValueCredential.class).block();
+		clock.advance(TTL);
+
+		StepVerifier.create(credHubTemplate.getByName(NAME, ValueCredential.class))
+				.assertNext(details -> assertThat(details.isStale()).isTrue())
+				.verifyComplete();
+		StepVerifier.create(credHubTemplate.getByName(NAME, ValueCredential.class))
+				.assertNext(details -> assertThat(details).isEqualTo(CREDENTIAL))
+				.verifyComplete();
+
+		clock.advance(Duration.ofMinutes(1));
+
+		StepVerifier.create(credHubTemplate.getByName(NAME, ValueCredential.class))
+				.assertNext(details -> assertThat(details.isStale()).isTrue())
+				.verifyComplete();
+		StepVerifier.create(credHubTemplate.getByName(NAME, ValueCredential.class))
+				.expectError(CredHubException.class)
+				.verify();
+	}
+
+	@Test
+	public void getByIdReturnsStaleCredentialWhenCredHubIsUnavailable() {
+		credHubTemplate = staleIfErrorTemplate();
+		when(delegate.getById(CREDENTIAL_ID, ValueCredential.class))
+				.thenReturn(Mono.just(CREDENTIAL), Mono.error(new IOException("Connection reset")));
+
+		credHubTemplate.getById(CREDENTIAL_ID, ValueCredential.class).block();
+		clock.advance(TTL);
+
+		StepVerifier.create(credHubTemplate.getById(CREDENTIAL_ID, ValueCredential.class))
+				.assertNext(details -> assertThat(details.isStale()).isTrue())
+				.verifyComplete();
+	}
+
+	@Test
+	public void getByNamesReturnsStaleCredentialsWhenCredHubIsUnavailable() {
+		credHubTemplate = staleIfErrorTemplate();
+		when(delegate.getByName(NAME, ValueCredential.class)).thenReturn(Mono.just(CREDENTIAL));
+		when(delegate.getByNames(Collections.singletonList(NAME), 8, ValueCredential.class))
+				.thenReturn(Mono.error(new CredHubException(HttpStatus.BAD_GATEWAY)));
+
+		credHubTemplate.getByName(NAME, ValueCredential.class).block();
+		clock.advance(TTL);
+
+		StepVerifier.create(credHubTemplate.getByNames(Collections.singletonList(NAME), ValueCredential.class))
+				.assertNext(batch -> {
+					assertThat(batch.hasErrors()).isFalse();
+					assertThat(batch.getCredential(NAME).isStale()).isTrue();
+				})
+				.verifyComplete();
+	}
+
+	@Test
+	public void getByIdCachesCredential() {
+		when(delegate.getById(CREDENTIAL_ID, ValueCredential.class)).thenReturn(Mono.just(CREDENTIAL));
+
+		credHubTemplate.getById(CREDENTIAL_ID, ValueCredential.class).block();
+
+		StepVerifier.create(credHubTemplate.getById(CREDENTIAL_ID, ValueCredential.class))
+				.expectNext(CREDENTIAL)
+				.verifyComplete();
+
+		verify(delegate, times(1)).getById(CREDENTIAL_ID, ValueCredential.class);
+	}
+
+	@Test
+	public void getByNamesRetrievesOnlyCredentialsThatAreNotCached() {
+		CredentialDetails<ValueCredential> other =
+				new CredentialDetails<>("3333-3333-3333-3333", OTHER_NAME, CredentialType.VALUE,
+						new ValueCredential("other"));
+
+		when(delegate.getByName(NAME, ValueCredential.class)).thenReturn(Mono.just(CREDENTIAL));
+		when(delegate.getByNames(Collections.singletonList(OTHER_NAME), 4, ValueCredential.class))
+				.thenReturn(Mono.just(new CredentialDetailsBatch<>(
+						Collections.singletonMap(OTHER_NAME.getName(), other), Collections.emptyMap())));
+
+		StepVerifier.create(credHubTemplate.getByName(NAME, ValueCredential.class))
+				.expectNext(CREDENTIAL)
+				.verifyComplete();
+
+		StepVerifier.create(credHubTemplate.getByNames(Arrays.asList(OTHER_NAME, NAME), 4, ValueCredential.class))
+				.assertNext(batch -> {
+					assertThat(batch.getCredentials().keySet()).containsExactly(OTHER_NAME.getName(), NAME.getName());
+					assertThat(batch.getCredential(NAME)).isEqualTo(CREDENTIAL);
+					assertThat(batch.getCredential(OTHER_NAME)).isEqualTo(other);
+				})
+				.verifyComplete();
+
+		StepVerifier.create(credHubTemplate.getByName(OTHER_NAME, ValueCredential.class))
+				.expectNext(other)
+				.verifyComplete();
+
+		verify(delegate, never()).getByName(OTHER_NAME, ValueCredential.class);
+	}
+
+	@Test
+	public void writeEvictsCredential() {
+		ValueCredentialRequest request = ValueCredentialRequest.builder()
+				.name(NAME)
+				.value("updated")
+				.build();
+
+		when(delegate.getByName(NAME, ValueCredential.class))
+				.thenReturn(Mono.just(CREDENTIAL), Mono.just(UPDATED_CREDENTIAL));
+		when(delegate.write(request)).thenReturn(Mono.just(UPDATED_CREDENTIAL));
+
+		credHubTemplate.getByName(NAME, ValueCredential.class).block();
+		credHubTemplate.write(request).block();
+
+		StepVerifier.create(credHubTemplate.getByName(NAME, ValueCredential.class))
+				.expectNext(UPDATED_CREDENTIAL)
+				.verifyComplete();
+	}
+
+	@Test
+	public void writeAllEvictsCredentials() {
+		ValueCredentialRequest request = ValueCredentialRequest.builder()
+				.name(NAME)
+				.value("updated")
+				.build();
+		Flux<CredentialRequest<?>> requests = Flux.just(request);
+
+		when(delegate.getByName(NAME, ValueCredential.class))
+				.thenReturn(Mono.just(CREDENTIAL), Mono.just(UPDATED_CREDENTIAL));
+		when(delegate.writeAll(requests, 2, false))
+				.thenReturn(Flux.just(CredentialRequestResult.success(request, UPDATED_CREDENTIAL)));
+
+		credHubTemplate.getByName(NAME, ValueCredential.class).block();
+		credHubTemplate.writeAll(requests, 2, false).blockLast();
+
+		StepVerifier.create(credHubTemplate.getByName(NAME, ValueCredential.class))
+				.expectNext(UPDATED_CREDENTIAL)
+				.verifyComplete();
+	}
+
+	@Test
+	public void failedGenerateAllEvictsCredentials() {
+		PasswordParametersRequest request = PasswordParametersRequest.builder()
+				.name(NAME)
+				.build();
+		Flux<ParametersRequest<?>> requests = Flux.just(request);
+
+		when(delegate.getByName(NAME, ValueCredential.class))
+				.thenReturn(Mono.just(CREDENTIAL), Mono.just(UPDATED_CREDENTIAL));
+		when(delegate.generateAll(requests, 8, true))
+				.thenReturn(Flux.just(CredentialRequestResult.failure(request,
+						new CredHubException(HttpStatus.INTERNAL_SERVER_ERROR))));
+
+		credHubTemplate.getByName(NAME, ValueCredential.class).block();
+		credHubTemplate.generateAll(requests).blockLast();
+
+		StepVerifier.create(credHubTemplate.getByName(NAME, ValueCredential.class))
+				.expectNext(UPDATED_CREDENTIAL)
+				.verifyComplete();
+	}
+
+	@Test
+	public void deleteByNameEvictsCredential() {
+		when(delegate.getByName(NAME, ValueCredential.class))
+				.thenReturn(Mono.just(CREDENTIAL), Mono.just(UPDATED_CREDENTIAL));
+		when(delegate.deleteByName(NAME)).thenReturn(Mono.empty());
+
+		credHubTemplate.getByName(NAME, ValueCredential.class).block();
+		credHubTemplate.deleteByName(NAME).block();
+
+		StepVerifier.create(credHubTemplate.getByName(NAME, ValueCredential.class))
+				.expectNext(UPDATED_CREDENTIAL)
+				.verifyComplete();
+	}
+
+	private ReactiveCachingCredHubCredentialTemplate staleIfErrorTemplate() {
+		CredentialCacheOptions options = new CredentialCacheOptions(10, TTL);
+		options.setMaxStaleness(Duration.ofMinutes(1));
+		return new ReactiveCachingCredHubCredentialTemplate(delegate, new CredentialCache(options, clock));
+	}
+}
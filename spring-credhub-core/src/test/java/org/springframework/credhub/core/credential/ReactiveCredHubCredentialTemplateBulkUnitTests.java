@@ -0,0 +1,141 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.core.credential;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.credhub.core.CredHubException;
+import org.springframework.credhub.core.ReactiveCredHubTemplate;
+import org.springframework.credhub.support.CredHubRequest;
+import org.springframework.credhub.support.CredentialDetails;
+import org.springframework.credhub.support.CredentialRequest;
+import org.springframework.credhub.support.CredentialRequestResult;
+import org.springframework.credhub.support.CredentialType;
+import org.springframework.credhub.support.ParametersRequest;
+import org.springframework.credhub.support.SimpleCredentialName;
+import org.springframework.credhub.support.password.PasswordParametersRequest;
+import org.springframework.credhub.support.value.ValueCredential;
+import org.springframework.credhub.support.value.ValueCredentialRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReactiveCredHubCredentialTemplateBulkUnitTests {
+	private static final SimpleCredentialName SLOW_NAME = new SimpleCredentialName("example", "slow");
+	private static final SimpleCredentialName FAST_NAME = new SimpleCredentialName("example", "fast");
+	private static final SimpleCredentialName INVALID_NAME = new SimpleCredentialName("example", "invalid");
+
+	private final AtomicInteger active = new AtomicInteger();
+
+	private final AtomicInteger maxActive = new AtomicInteger();
+
+	private ReactiveCredHubCredentialOperations credHubTemplate;
+
+	@Before
+	public void setUp() {
+		credHubTemplate = new ReactiveCredHubCredentialTemplate(new ReactiveCredHubTemplate(WebClient.create())) {
+			@Override
+			public <T> Mono<CredentialDetails<T>> write(CredentialRequest<T> credentialRequest) {
+				return respond(credentialRequest);
+			}
+
+			@Override
+			public <T, P> Mono<CredentialDetails<T>> generate(ParametersRequest<P> parametersRequest,
+															  Class<T> credentialType) {
+				return respond(parametersRequest);
+			}
+		};
+	}
+
+	@Test
+	public void writeAllEmitsResultsInRequestOrder() {
+		StepVerifier.create(credHubTemplate.writeAll(Flux.just(valueRequest(SLOW_NAME), valueRequest(FAST_NAME)),
+				2, true))
+				.assertNext(result -> assertThat(result.getRequest().getName()).isEqualTo(SLOW_NAME.getName()))
+				.assertNext(result -> assertThat(result.getRequest().getName()).isEqualTo(FAST_NAME.getName()))
+				.verifyComplete();
+	}
+
+	@Test
+	public void writeAllEmitsUnorderedResultsAsRequestsComplete() {
+		StepVerifier.create(credHubTemplate.writeAll(Flux.just(valueRequest(SLOW_NAME), valueRequest(FAST_NAME)),
+				2, false))
+				.assertNext(result -> assertThat(result.getRequest().getName()).isEqualTo(FAST_NAME.getName()))
+				.assertNext(result -> assertThat(result.getRequest().getName()).isEqualTo(SLOW_NAME.getName()))
+				.verifyComplete();
+	}
+
+	@Test
+	public void generateAllReportsErrorsPerRequest() {
+		StepVerifier.create(credHubTemplate.generateAll(
+				Flux.just(passwordRequest(FAST_NAME), passwordRequest(INVALID_NAME), passwordRequest(SLOW_NAME))))
+				.assertNext(result -> assertThat(result.hasError()).isFalse())
+				.assertNext(result -> {
+					assertThat(result.getRequest().getName()).isEqualTo(INVALID_NAME.getName());
+					assertThat(result.getError()).isInstanceOf(CredHubException.class);
+				})
+				.assertNext(result -> assertThat(result.getDetails().getName().getName()).isEqualTo(SLOW_NAME.getName()))
+				.verifyComplete();
+	}
+
+	@Test
+	public void generateAllLimitsConcurrentRequests() {
+		Flux<ParametersRequest<?>> requests = Flux.range(0, 6)
+				.map(i -> passwordRequest(new SimpleCredentialName("example", "slow-" + i)));
+
+		StepVerifier.create(credHubTemplate.generateAll(requests, 2, false))
+				.expectNextCount(6)
+				.verifyComplete();
+
+		assertThat(maxActive.get()).isEqualTo(2);
+	}
+
+	private <T> Mono<CredentialDetails<T>> respond(CredHubRequest<?> request) {
+		if (INVALID_NAME.getName().equals(request.getName())) {
+			return Mono.error(new CredHubException(HttpStatus.BAD_REQUEST));
+		}
+
+		Duration latency = request.getName().contains("slow") ? Duration.ofMillis(100) : Duration.ofMillis(10);
+
+		return Mono.delay(latency)
+				.doOnSubscribe(subscription -> maxActive.accumulateAndGet(active.incrementAndGet(), Math::max))
+				.doOnNext(tick -> active.decrementAndGet())
+				.map(tick -> new CredentialDetails<>("id-" + request.getName(),
+						new SimpleCredentialName(request.getName()), CredentialType.VALUE, null));
+	}
+
+	private static CredentialRequest<?> valueRequest(SimpleCredentialName name) {
+		return ValueCredentialRequest.builder()
+				.name(name)
+				.value(new ValueCredential("secret"))
+				.build();
+	}
+
+	private static ParametersRequest<?> passwordRequest(SimpleCredentialName name) {
+		return PasswordParametersRequest.builder()
+				.name(name)
+				.build();
+	}
+}
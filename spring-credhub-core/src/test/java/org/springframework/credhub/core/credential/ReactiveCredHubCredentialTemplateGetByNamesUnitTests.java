@@ -0,0 +1,130 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.core.credential;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.credhub.core.CredHubException;
+import org.springframework.credhub.core.ReactiveCredHubTemplate;
+import org.springframework.credhub.support.CredentialName;
+import org.springframework.credhub.support.SimpleCredentialName;
+import org.springframework.credhub.support.utils.JsonUtils;
+import org.springframework.credhub.support.value.ValueCredential;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.util.UriUtils;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReactiveCredHubCredentialTemplateGetByNamesUnitTests {
+	private static final SimpleCredentialName NAME = new SimpleCredentialName("example", "credential");
+	private static final SimpleCredentialName OTHER_NAME = new SimpleCredentialName("example", "other");
+	private static final SimpleCredentialName MISSING_NAME = new SimpleCredentialName("example", "missing");
+
+	private static final ExchangeStrategies STRATEGIES = ExchangeStrategies.builder()
+			.codecs(configurer -> configurer.defaultCodecs()
+					.jackson2JsonDecoder(new Jackson2JsonDecoder(JsonUtils.buildObjectMapper())))
+			.build();
+
+	private final AtomicInteger requests = new AtomicInteger();
+
+	private ReactiveCredHubCredentialOperations credHubTemplate;
+
+	@Before
+	public void setUp() {
+		WebClient webClient = WebClient.builder()
+				.exchangeFunction(this::exchange)
+				.build();
+		credHubTemplate = new ReactiveCredHubTemplate(webClient).credentials();
+	}
+
+	@Test
+	public void getByNamesRetrievesCredentialsInRequestOrder() {
+		StepVerifier.create(credHubTemplate.getByNames(Arrays.asList(OTHER_NAME, NAME), ValueCredential.class))
+				.assertNext(batch -> {
+					assertThat(batch.hasErrors()).isFalse();
+					assertThat(batch.getCredentials().keySet()).containsExactly(OTHER_NAME.getName(), NAME.getName());
+					assertThat(batch.getCredential(NAME).getValue().getValue()).isEqualTo(NAME.getName());
+				})
+				.verifyComplete();
+	}
+
+	@Test
+	public void getByNamesRetrievesRepeatedNamesOnce() {
+		StepVerifier.create(credHubTemplate.getByNames(
+				Arrays.asList(NAME, new SimpleCredentialName("example", "credential"), NAME), ValueCredential.class))
+				.assertNext(batch -> assertThat(batch.getCredentials()).containsOnlyKeys(NAME.getName()))
+				.verifyComplete();
+
+		assertThat(requests.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void getByNamesReturnsPartialResults() {
+		StepVerifier.create(credHubTemplate.getByNames(Arrays.asList(NAME, MISSING_NAME), ValueCredential.class))
+				.assertNext(batch -> {
+					assertThat(batch.getCredentials()).containsOnlyKeys(NAME.getName());
+					assertThat(batch.getErrors()).containsOnlyKeys(MISSING_NAME.getName());
+					assertThat(batch.getError(MISSING_NAME)).isInstanceOf(CredHubException.class);
+				})
+				.verifyComplete();
+	}
+
+	@Test
+	public void getByNamesWithNoNamesReturnsEmptyBatch() {
+		StepVerifier.create(credHubTemplate.getByNames(Collections.<CredentialName>emptyList(), ValueCredential.class))
+				.assertNext(batch -> {
+					assertThat(batch.getCredentials()).isEmpty();
+					assertThat(batch.getErrors()).isEmpty();
+				})
+				.verifyComplete();
+	}
+
+	private Mono<ClientResponse> exchange(ClientRequest request) {
+		requests.incrementAndGet();
+
+		String name = UriComponentsBuilder.fromUri(request.url()).build().getQueryParams().getFirst("name");
+		name = UriUtils.decode(name, StandardCharsets.UTF_8);
+		if (MISSING_NAME.getName().equals(name)) {
+			return Mono.just(ClientResponse.create(HttpStatus.NOT_FOUND, STRATEGIES).build());
+		}
+
+		return Mono.just(ClientResponse.create(HttpStatus.OK, STRATEGIES)
+				.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+				.body("{\"data\":[{" +
+						"\"id\":\"id-" + name + "\"," +
+						"\"name\":\"" + name + "\"," +
+						"\"type\":\"value\"," +
+						"\"value\":\"" + name + "\"}]}")
+				.build());
+	}
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.credhub.core.interpolation;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import org.springframework.credhub.core.CredHubException;
+import org.springframework.credhub.core.CredHubTemplate;
+import org.springframework.credhub.core.credential.CredHubCredentialOperations;
+import org.springframework.credhub.support.CredentialCacheOptions;
+import org.springframework.credhub.support.CredentialDetails;
+import org.springframework.credhub.support.CredentialDetailsBatch;
+import org.springframework.credhub.support.CredentialType;
+import org.springframework.credhub.support.ServicesData;
+import org.springframework.credhub.support.SimpleCredentialName;
+import org.springframework.credhub.support.json.JsonCredential;
+import org.springframework.credhub.support.password.PasswordCredential;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.RestTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CachingCredHubInterpolationTemplateUnitTests {
+	private static final SimpleCredentialName NAME = new SimpleCredentialName("c", "broker", "offering", "1111", "credentials");
+	private static final SimpleCredentialName OTHER_NAME = new SimpleCredentialName("c", "broker", "offering", "2222", "credentials");
+
+	@Mock
+	private CredHubInterpolationOperations delegate;
+
+	@Mock
+	private CredHubCredentialOperations credentialOperations;
+
+	private CachingCredHubInterpolationTemplate interpolationTemplate;
+
+	@Before
+	public void setUp() {
+		interpolationTemplate = new CachingCredHubInterpolationTemplate(delegate, credentialOperations);
+	}
+
+	@Test
+	public void interpolateServiceDataResolvesReferencesOnClient() {
+		Map<String, Object> plainBinding = binding("plain", plainCredentials());
+		ServicesData serviceData = servicesData(plainBinding, binding("first", reference(NAME)),
+				binding("second", reference(NAME)));
+
+		when(credentialOperations.<JsonCredential>getByNames(anyCollection(), eq(JsonCredential.class)))
+				.thenReturn(batch(jsonCredential(NAME), null));
+
+		ServicesData interpolated = interpolationTemplate.interpolateServiceData(serviceData);
+
+		List<Map<String, Object>> bindings = interpolated.get("service-offering");
+		assertThat(bindings.get(0)).isSameAs(plainBinding);
+		assertThat(bindings.get(1)).containsEntry("name", "first")
+				.containsEntry("credentials", jsonCredential(NAME).getValue());
+		assertThat(bindings.get(2)).containsEntry("name", "second")
+				.containsEntry("credentials", jsonCredential(NAME).getValue());
+		assertThat(serviceData.get("service-offering").get(1)).containsEntry("credentials", reference(NAME));
+		verifyZeroInteractions(delegate);
+	}
+
+	@Test
+	public void interpolateServiceDataSendsUnresolvedReferencesToCredHub() {
+		Map<String, Object> resolvable = binding("resolvable", reference(NAME));
+		Map<String, Object> unresolvable = binding("unresolvable", reference(OTHER_NAME));
+		Map<String, Object> interpolatedByCredHub = binding("unresolvable", plainCredentials());
+		ServicesData serviceData = servicesData(resolvable, unresolvable);
+
+		when(credentialOperations.<JsonCredential>getByNames(anyCollection(), eq(JsonCredential.class)))
+				.thenReturn(batch(jsonCredential(NAME), OTHER_NAME.getName()));
+		when(delegate.interpolateServiceData(servicesData(unresolvable)))
+				.thenReturn(servicesData(interpolatedByCredHub));
+
+		ServicesData interpolated = interpolationTemplate.interpolateServiceData(serviceData);
+
+		List<Map<String, Object>> bindings = interpolated.get("service-offering");
+		assertThat(bindings.get(0)).containsEntry("credentials", jsonCredential(NAME).getValue());
+		assertThat(bindings.get(1)).isEqualTo(interpolatedByCredHub);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void interpolateServiceDataSendsNonJsonCredentialsToCredHub() {
+		ServicesData serviceData = servicesData(binding("password", reference(NAME)));
+		ServicesData interpolatedByCredHub = servicesData(binding("password", plainCredentials()));
+		CredentialDetails<JsonCredential> password = (CredentialDetails<JsonCredential>) (CredentialDetails<?>)
+				new CredentialDetails<>("id", NAME, CredentialType.PASSWORD, new PasswordCredential("secret"));
+
+		when(credentialOperations.<JsonCredential>getByNames(anyCollection(), eq(JsonCredential.class)))
+				.thenReturn(batch(password, null));
+		when(delegate.interpolateServiceData(serviceData)).thenReturn(interpolatedByCredHub);
+
+		assertThat(interpolationTemplate.interpolateServiceData(serviceData)).isEqualTo(interpolatedByCredHub);
+	}
+
+	@Test
+	public void interpolateServiceDataWithoutReferences() {
+		ServicesData serviceData = servicesData(binding("plain", plainCredentials()));
+
+		assertThat(interpolationTemplate.interpolateServiceData(serviceData)).isSameAs(serviceData);
+		verifyZeroInteractions(delegate, credentialOperations);
+	}
+
+	@Test
+	public void interpolateServiceDataFallsBackToCredHubWhenCredentialsCannotBeRetrieved() {
+		ServicesData serviceData = servicesData(binding("credhub", reference(NAME)));
+		ServicesData interpolatedByCredHub = servicesData(binding("credhub", plainCredentials()));
+
+		when(credentialOperations.<JsonCredential>getByNames(anyCollection(), any()))
+				.thenThrow(new CredHubException(HttpStatus.SERVICE_UNAVAILABLE));
+		when(delegate.interpolateServiceData(serviceData)).thenReturn(interpolatedByCredHub);
+
+		assertThat(interpolationTemplate.interpolateServiceData(serviceData)).isEqualTo(interpolatedByCredHub);
+	}
+
+	@Test
+	public void credHubTemplateInterpolatesOnClientWhenConfigured() {
+		CredHubTemplate credHubTemplate = new CredHubTemplate(new RestTemplate());
+		assertThat(credHubTemplate.interpolation()).isInstanceOf(CredHubInterpolationTemplate.class);
+
+		CredentialCacheOptions cacheOptions = new CredentialCacheOptions(10, Duration.ofMinutes(1));
+		credHubTemplate.setCredentialCacheOptions(cacheOptions);
+		assertThat(credHubTemplate.interpolation()).isInstanceOf(CredHubInterpolationTemplate.class);
+
+		cacheOptions.setClientSideInterpolation(true);
+		credHubTemplate.setCredentialCacheOptions(cacheOptions);
+		assertThat(credHubTemplate.interpolation()).isInstanceOf(CachingCredHubInterpolationTemplate.class);
+	}
+
+	static ServicesData servicesData(Map<?, ?>... bindings) {
+		List<Map<String, Object>> list = new ArrayList<>();
+		for (Map<?, ?> binding : bindings) {
+			@SuppressWarnings("unchecked")
+			Map<String, Object> typed = (Map<String, Object>) binding;
+			list.add(typed);
+		}
+		ServicesData servicesData = new ServicesData();
+		servicesData.put("service-offering", list);
+		return servicesData;
+	}
+
+	static Map<String, Object> binding(String name, Map<String, ?> credentials) {
+		Map<String, Object> binding = new HashMap<>();
+		binding.put("credentials", credentials);
+		binding.put("label", "service-offering");
+		binding.put("name", name);
+		return binding;
+	}
+
+	static Map<String, String> reference(SimpleCredentialName name) {
+		return Collections.singletonMap("credhub-ref", "((" + name.getName() + "))");
+	}
+
+	static Map<String, String> plainCredentials() {
+		return Collections.singletonMap("uri", "https://example.com");
+	}
+
+	static CredentialDetails<JsonCredential> jsonCredential(SimpleCredentialName name) {
+		JsonCredential value = new JsonCredential();
+		value.put("username", "user");
+		value.put("password", "secret");
+		return new CredentialDetails<>("id", name, CredentialType.JSON, value);
+	}
+
+	static CredentialDetailsBatch<JsonCredential> batch(CredentialDetails<JsonCredential> credential, String failedName) {
+		Map<String, CredentialDetails<JsonCredential>> credentials = new HashMap<>();
+		credentials.put(credential.getName().getName(), credential);
+		Map<String, Exception> errors = new HashMap<>();
+		if (failedName != null) {
+			errors.put(failedName, new CredHubException(HttpStatus.NOT_FOUND));
+		}
+		return new CredentialDetailsBatch<>(credentials, errors);
+	}
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.credhub.core.interpolation;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import org.springframework.credhub.core.CredHubException;
+import org.springframework.credhub.core.ReactiveCredHubTemplate;
+import org.springframework.credhub.core.credential.ReactiveCredHubCredentialOperations;
+import org.springframework.credhub.support.CredentialCacheOptions;
+import org.springframework.credhub.support.ServicesData;
+import org.springframework.credhub.support.SimpleCredentialName;
+import org.springframework.credhub.support.json.JsonCredential;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.credhub.core.interpolation.CachingCredHubInterpolationTemplateUnitTests.batch;
+import static org.springframework.credhub.core.interpolation.CachingCredHubInterpolationTemplateUnitTests.binding;
+import static org.springframework.credhub.core.interpolation.CachingCredHubInterpolationTemplateUnitTests.jsonCredential;
+import static org.springframework.credhub.core.interpolation.CachingCredHubInterpolationTemplateUnitTests.plainCredentials;
+import static org.springframework.credhub.core.interpolation.CachingCredHubInterpolationTemplateUnitTests.reference;
+import static org.springframework.credhub.core.interpolation.CachingCredHubInterpolationTemplateUnitTests.servicesData;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReactiveCachingCredHubInterpolationTemplateUnitTests {
+	private static final SimpleCredentialName NAME = new SimpleCredentialName("c", "broker", "offering", "1111", "credentials");
+	private static final SimpleCredentialName OTHER_NAME = new SimpleCredentialName("c", "broker", "offering", "2222", "credentials");
+
+	@Mock
+	private ReactiveCredHubInterpolationOperations delegate;
+
+	@Mock
+	private ReactiveCredHubCredentialOperations credentialOperations;
+
+	private ReactiveCachingCredHubInterpolationTemplate interpolationTemplate;
+
+	@Before
+	public void setUp() {
+		interpolationTemplate = new ReactiveCachingCredHubInterpolationTemplate(delegate, credentialOperations);
+	}
+
+	@Test
+	public void interpolateServiceDataResolvesReferencesOnClient() {
+		ServicesData serviceData = servicesData(binding("credhub", reference(NAME)));
+
+		when(credentialOperations.<JsonCredential>getByNames(anyCollection(), eq(JsonCredential.class)))
+				.thenReturn(Mono.just(batch(jsonCredential(NAME), null)));
+
+		StepVerifier.create(interpolationTemplate.interpolateServiceData(serviceData))
+				.assertNext(interpolated -> assertThat(interpolated.get("service-offering").get(0))
+						.containsEntry("credentials", jsonCredential(NAME).getValue()))
+				.verifyComplete();
+
+		verifyZeroInteractions(delegate);
+	}
+
+	@Test
+	public void interpolateServiceDataSendsUnresolvedReferencesToCredHub() {
+		Map<String, Object> unresolvable = binding("unresolvable", reference(OTHER_NAME));
+		Map<String, Object> interpolatedByCredHub = binding("unresolvable", plainCredentials());
+		ServicesData serviceData = servicesData(binding("resolvable", reference(NAME)), unresolvable);
+
+		when(credentialOperations.<JsonCredential>getByNames(anyCollection(), eq(JsonCredential.class)))
+				.thenReturn(Mono.just(batch(jsonCredential(NAME), OTHER_NAME.getName())));
+		when(delegate.interpolateServiceData(servicesData(unresolvable)))
+				.thenReturn(Mono.just(servicesData(interpolatedByCredHub)));
+
+		StepVerifier.create(interpolationTemplate.interpolateServiceData(serviceData))
+				.assertNext(interpolated -> {
+					List<Map<String, Object>> bindings = interpolated.get("service-offering");
+					assertThat(bindings.get(0)).containsEntry("credentials", jsonCredential(NAME).getValue());
+					assertThat(bindings.get(1)).isEqualTo(interpolatedByCredHub);
+				})
+				.verifyComplete();
+	}
+
+	@Test
+	public void interpolateServiceDataFallsBackToCredHubWhenCredentialsCannotBeRetrieved() {
+		ServicesData serviceData = servicesData(binding("credhub", reference(NAME)));
+		ServicesData interpolatedByCredHub = servicesData(binding("credhub", plainCredentials()));
+
+		when(credentialOperations.<JsonCredential>getByNames(anyCollection(), eq(JsonCredential.class)))
+				.thenReturn(Mono.error(new CredHubException(HttpStatus.SERVICE_UNAVAILABLE)));
+		when(delegate.interpolateServiceData(serviceData)).thenReturn(Mono.just(interpolatedByCredHub));
+
+		StepVerifier.create(interpolationTemplate.interpolateServiceData(serviceData))
+				.expectNext(interpolatedByCredHub)
+				.verifyComplete();
+	}
+
+	@Test
+	public void interpolateServiceDataWithoutReferences() {
+		ServicesData serviceData = servicesData(binding("plain", plainCredentials()));
+
+		StepVerifier.create(interpolationTemplate.interpolateServiceData(serviceData))
+				.expectNext(serviceData)
+				.verifyComplete();
+
+		verifyZeroInteractions(delegate, credentialOperations);
+	}
+
+	@Test
+	public void reactiveCredHubTemplateInterpolatesOnClientWhenConfigured() {
+		ReactiveCredHubTemplate credHubTemplate = new ReactiveCredHubTemplate(WebClient.create());
+		CredentialCacheOptions cacheOptions = new CredentialCacheOptions(10, Duration.ofMinutes(1));
+		cacheOptions.setClientSideInterpolation(true);
+		credHubTemplate.setCredentialCacheOptions(cacheOptions);
+
+		assertThat(credHubTemplate.interpolation()).isInstanceOf(ReactiveCachingCredHubInterpolationTemplate.class);
+		assertThat(credHubTemplate.withTimeout(Duration.ofSeconds(1)).interpolation())
+				.isInstanceOf(ReactiveCachingCredHubInterpolationTemplate.class);
+	}
+}
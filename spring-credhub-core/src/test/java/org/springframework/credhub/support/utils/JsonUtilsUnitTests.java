@@ -0,0 +1,114 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.support.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ser.BasicSerializerFactory;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import org.junit.Test;
+
+import org.springframework.core.SpringProperties;
+import org.springframework.credhub.support.CredentialDetails;
+import org.springframework.credhub.support.CredentialDetailsData;
+import org.springframework.credhub.support.CredentialType;
+import org.springframework.credhub.support.SimpleCredentialName;
+import org.springframework.credhub.support.password.PasswordCredential;
+import org.springframework.credhub.support.password.PasswordCredentialRequest;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JsonUtilsUnitTests {
+	private static final String PASSWORD_DETAILS_DATA = "{" +
+			"  \"data\": [{" +
+			"    \"version_created_at\": \"2017-01-31T11:22:33Z\"," +
+			"    \"id\": \"80cbb13f-7562-4e72-92de-f3ccf69eaa59\"," +
+			"    \"name\": \"/example/password\"," +
+			"    \"type\": \"password\"," +
+			"    \"value\": \"secret\"" +
+			"  }]" +
+			"}";
+
+	@Test
+	public void httpMessageConvertersShareObjectMapper() {
+		assertThat(objectMapper(JsonUtils.createHttpMessageConverter()))
+				.isSameAs(objectMapper(JsonUtils.createHttpMessageConverter()))
+				.isNotSameAs(JsonUtils.buildObjectMapper());
+	}
+
+	@Test
+	public void afterburnerModuleIsNotRegisteredByDefault() {
+		ObjectMapper objectMapper = JsonUtils.buildObjectMapper();
+
+		// Afterburner customizes bean serializers, which are otherwise not modified
+		assertThat(((BasicSerializerFactory) objectMapper.getSerializerFactory())
+				.getFactoryConfig().hasSerializerModifiers()).isFalse();
+	}
+
+	@Test
+	public void afterburnerModuleIsRegisteredWhenEnabled() {
+		SpringProperties.setProperty(JsonUtils.AFTERBURNER_PROPERTY_NAME, "true");
+		try {
+			assertThat(JsonUtils.buildObjectMapper().getRegisteredModuleIds())
+					.contains(new AfterburnerModule().getTypeId());
+		}
+		finally {
+			SpringProperties.setProperty(JsonUtils.AFTERBURNER_PROPERTY_NAME, null);
+		}
+	}
+
+	@Test
+	public void readersAreReused() {
+		ObjectReader reader = JsonUtils.getReader(CredentialDetailsData.class, PasswordCredential.class);
+
+		assertThat(JsonUtils.getReader(CredentialDetailsData.class, PasswordCredential.class)).isSameAs(reader);
+		assertThat(JsonUtils.getReader(CredentialDetailsData.class, Object.class)).isNotSameAs(reader);
+	}
+
+	@Test
+	public void readerDeserializesResponse() throws Exception {
+		CredentialDetailsData<PasswordCredential> data = JsonUtils
+				.getReader(CredentialDetailsData.class, PasswordCredential.class)
+				.readValue(PASSWORD_DETAILS_DATA);
+
+		assertThat(data.getData()).hasSize(1);
+
+		CredentialDetails<PasswordCredential> details = data.getData().get(0);
+		assertThat(details.getName().getName()).isEqualTo("/example/password");
+		assertThat(details.getCredentialType()).isEqualTo(CredentialType.PASSWORD);
+		assertThat(details.getValue().getPassword()).isEqualTo("secret");
+	}
+
+	@Test
+	public void writerSerializesRequest() throws Exception {
+		PasswordCredentialRequest request = PasswordCredentialRequest.builder()
+				.name(new SimpleCredentialName("example", "password"))
+				.value(new PasswordCredential("secret"))
+				.build();
+
+		String json = JsonUtils.getWriter(PasswordCredentialRequest.class).writeValueAsString(request);
+
+		assertThat(json).isEqualTo(JsonUtils.buildObjectMapper().writeValueAsString(request));
+		assertThat(json).contains("\"name\":\"/example/password\"", "\"type\":\"password\"");
+	}
+
+	private static ObjectMapper objectMapper(HttpMessageConverter<Object> converter) {
+		return ((MappingJackson2HttpMessageConverter) converter).getObjectMapper();
+	}
+}
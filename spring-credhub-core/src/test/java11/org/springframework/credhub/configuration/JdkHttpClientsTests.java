@@ -0,0 +1,276 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.credhub.configuration;
+
+import java.io.File;
+import java.net.InetSocketAddress;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http2.DefaultHttp2DataFrame;
+import io.netty.handler.codec.http2.DefaultHttp2Headers;
+import io.netty.handler.codec.http2.DefaultHttp2HeadersFrame;
+import io.netty.handler.codec.http2.Http2HeadersFrame;
+import io.netty.handler.codec.http2.Http2MultiplexCodecBuilder;
+import io.netty.handler.codec.http2.Http2SecurityUtil;
+import io.netty.handler.ssl.ApplicationProtocolConfig;
+import io.netty.handler.ssl.ApplicationProtocolNames;
+import io.netty.handler.ssl.ClientAuth;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SupportedCipherSuiteFilter;
+import io.netty.util.CharsetUtil;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.test.StepVerifier;
+
+import org.springframework.credhub.support.ClientOptions;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class JdkHttpClientsTests {
+
+	@Test
+	public void jdkHttpClientIsCreatedWhenHttpVersionIsSet() {
+		ClientOptions options = new ClientOptions();
+		options.setHttpVersion(ClientOptions.HttpVersion.HTTP_2);
+
+		assertThat(JdkHttpClients.isAvailable()).isTrue();
+		assertThat(ClientHttpRequestFactoryFactory.create(options))
+				.isInstanceOf(JdkClientHttpRequestFactory.class);
+		assertThat(ClientHttpConnectorFactory.create(options))
+				.isInstanceOf(JdkClientHttpConnector.class);
+	}
+
+	@Test
+	public void blockingRequestSucceedsWithClientCertificate() {
+		DisposableServer server = secureServer();
+		try {
+			RestTemplate restTemplate = new RestTemplate(ClientHttpRequestFactoryFactory.create(secureOptions()));
+
+			assertThat(restTemplate.getForObject(url(server, "https"), String.class)).isEqualTo("ok");
+			assertThat(restTemplate.postForObject(url(server, "https"), "credential", String.class))
+					.isEqualTo("credential");
+		}
+		finally {
+			server.disposeNow();
+		}
+	}
+
+	@Test
+	public void blockingRequestFailsWhenReadTimeoutExpires() {
+		ClientOptions options = new ClientOptions();
+		options.setHttpVersion(ClientOptions.HttpVersion.HTTP_1_1);
+		options.setReadTimeout(Duration.ofMillis(100));
+
+		DisposableServer server = delayingServer(Duration.ofSeconds(5));
+		try {
+			RestTemplate restTemplate = new RestTemplate(ClientHttpRequestFactoryFactory.create(options));
+
+			assertThatThrownBy(() -> restTemplate.getForObject(url(server, "http"), String.class))
+					.isInstanceOf(ResourceAccessException.class);
+		}
+		finally {
+			server.disposeNow();
+		}
+	}
+
+	@Test
+	public void reactiveRequestSucceedsWithClientCertificate() {
+		DisposableServer server = secureServer();
+		try {
+			WebClient webClient = WebClient.builder()
+					.clientConnector(ClientHttpConnectorFactory.create(secureOptions()))
+					.baseUrl(url(server, "https"))
+					.build();
+
+			StepVerifier.create(webClient.get().retrieve().bodyToMono(String.class))
+					.expectNext("ok")
+					.verifyComplete();
+			StepVerifier.create(webClient.post().syncBody("credential").retrieve().bodyToMono(String.class))
+					.expectNext("credential")
+					.verifyComplete();
+		}
+		finally {
+			server.disposeNow();
+		}
+	}
+
+	@Test
+	public void reactiveRequestFailsWhenResponseTimeoutExpires() {
+		ClientOptions options = new ClientOptions();
+		options.setHttpVersion(ClientOptions.HttpVersion.HTTP_1_1);
+		options.setResponseTimeout(Duration.ofMillis(100));
+
+		DisposableServer server = delayingServer(Duration.ofSeconds(5));
+		try {
+			ClientHttpConnector connector = ClientHttpConnectorFactory.create(options);
+
+			StepVerifier.create(WebClient.builder().clientConnector(connector).build()
+					.get().uri(url(server, "http")).retrieve().bodyToMono(String.class))
+					.expectError(HttpTimeoutException.class)
+					.verify(Duration.ofSeconds(5));
+		}
+		finally {
+			server.disposeNow();
+		}
+	}
+
+	@Test
+	public void concurrentRequestsAreMultiplexedOverOneHttp2Connection() throws Exception {
+		AtomicInteger connections = new AtomicInteger();
+		EventLoopGroup group = new NioEventLoopGroup(1);
+		ExecutorService executor = Executors.newFixedThreadPool(10);
+		try {
+			Channel server = http2Server(group, connections);
+			String url = "https://localhost:" + ((InetSocketAddress) server.localAddress()).getPort();
+
+			ClientOptions options = new ClientOptions();
+			options.setHttpVersion(ClientOptions.HttpVersion.HTTP_2);
+			options.setCaCertFiles(new String[] { resource("server.crt") });
+			RestTemplate restTemplate = new RestTemplate(ClientHttpRequestFactoryFactory.create(options));
+
+			assertThat(restTemplate.getForObject(url, String.class)).isEqualTo("h2");
+
+			List<Future<String>> responses = new ArrayList<>();
+			for (int i = 0; i < 10; i++) {
+				responses.add(executor.submit(() -> restTemplate.getForObject(url, String.class)));
+			}
+			for (Future<String> response : responses) {
+				assertThat(response.get(10, TimeUnit.SECONDS)).isEqualTo("h2");
+			}
+
+			assertThat(connections.get()).isEqualTo(1);
+
+			server.close().sync();
+		}
+		finally {
+			executor.shutdownNow();
+			group.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+		}
+	}
+
+	private static ClientOptions secureOptions() {
+		ClientOptions options = new ClientOptions();
+		options.setHttpVersion(ClientOptions.HttpVersion.HTTP_2);
+		options.setCaCertFiles(new String[] { resource("server.crt") });
+		options.setClientCertificateFile(resource("instance-2.crt"));
+		options.setClientPrivateKeyFile(resource("instance-2.key"));
+		return options;
+	}
+
+	private static DisposableServer secureServer() {
+		return HttpServer.create()
+				.host("localhost")
+				.port(0)
+				.secure(sslContextSpec -> sslContextSpec.sslContext(SslContextBuilder
+						.forServer(new File(resource("server.crt")), new File(resource("server.key")))
+						.trustManager(new File(resource("instance-2.crt")))
+						.clientAuth(ClientAuth.REQUIRE)))
+				.route(routes -> routes
+						.get("/", (request, response) -> response.sendString(Mono.just("ok")))
+						.post("/", (request, response) -> response.send(request.receive().retain())))
+				.bindNow();
+	}
+
+	private static DisposableServer delayingServer(Duration delay) {
+		return HttpServer.create()
+				.host("localhost")
+				.port(0)
+				.handle((request, response) -> Mono.delay(delay)
+						.then(response.sendString(Mono.just("ok")).then()))
+				.bindNow();
+	}
+
+	/**
+	 * Start an HTTP/2-only server that counts accepted connections and delays each
+	 * response, so that concurrent requests overlap.
+	 */
+	private static Channel http2Server(EventLoopGroup group, AtomicInteger connections) throws Exception {
+		SslContext sslContext = SslContextBuilder
+				.forServer(new File(resource("server.crt")), new File(resource("server.key")))
+				.ciphers(Http2SecurityUtil.CIPHERS, SupportedCipherSuiteFilter.INSTANCE)
+				.applicationProtocolConfig(new ApplicationProtocolConfig(
+						ApplicationProtocolConfig.Protocol.ALPN,
+						ApplicationProtocolConfig.SelectorFailureBehavior.NO_ADVERTISE,
+						ApplicationProtocolConfig.SelectedListenerFailureBehavior.ACCEPT,
+						ApplicationProtocolNames.HTTP_2))
+				.build();
+
+		return new ServerBootstrap()
+				.group(group)
+				.channel(NioServerSocketChannel.class)
+				.childHandler(new ChannelInitializer<Channel>() {
+					@Override
+					protected void initChannel(Channel channel) {
+						connections.incrementAndGet();
+						channel.pipeline().addLast(sslContext.newHandler(channel.alloc()),
+								Http2MultiplexCodecBuilder.forServer(new DelayedResponseHandler()).build());
+					}
+				})
+				.bind("localhost", 0)
+				.sync()
+				.channel();
+	}
+
+	private static String url(DisposableServer server, String scheme) {
+		return scheme + "://localhost:" + server.port() + "/";
+	}
+
+	private static String resource(String name) {
+		return JdkHttpClientsTests.class.getResource("/ssl/" + name).getFile();
+	}
+
+	private static class DelayedResponseHandler extends SimpleChannelInboundHandler<Http2HeadersFrame> {
+		@Override
+		public boolean isSharable() {
+			return true;
+		}
+
+		@Override
+		protected void channelRead0(ChannelHandlerContext ctx, Http2HeadersFrame frame) {
+			ctx.executor().schedule(() -> {
+				ctx.write(new DefaultHttp2HeadersFrame(new DefaultHttp2Headers().status("200")));
+				ctx.writeAndFlush(new DefaultHttp2DataFrame(Unpooled.copiedBuffer("h2", CharsetUtil.UTF_8), true));
+			}, 200, TimeUnit.MILLISECONDS);
+		}
+	}
+}
@@ -24,7 +24,11 @@ import org.springframework.boot.context.properties.EnableConfigurationProperties
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.credhub.core.CredHubProperties;
+import org.springframework.credhub.support.CircuitBreakerOptions;
 import org.springframework.credhub.support.ClientOptions;
+import org.springframework.credhub.support.CredentialCacheOptions;
+import org.springframework.credhub.support.RetryOptions;
+import org.springframework.credhub.support.WarmUpOptions;
 
 /**
  * {@link EnableAutoConfiguration Auto-configuration} for Spring CredHub support beans.
@@ -60,4 +64,56 @@ public class CredHubAutoConfiguration {
 	public ClientOptions clientOptions() {
 		return new ClientOptions();
 	}
+
+	/**
+	 * Create a {@link CredentialCacheOptions} bean and populate it from properties.
+	 *
+	 * @return a {@link CredentialCacheOptions} bean
+	 */
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(value = "spring.credhub.url")
+	@ConfigurationProperties(prefix = "spring.credhub.cache")
+	public CredentialCacheOptions credentialCacheOptions() {
+		return new CredentialCacheOptions();
+	}
+
+	/**
+	 * Create a {@link RetryOptions} bean and populate it from properties.
+	 *
+	 * @return a {@link RetryOptions} bean
+	 */
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(value = "spring.credhub.url")
+	@ConfigurationProperties(prefix = "spring.credhub.retry")
+	public RetryOptions retryOptions() {
+		return new RetryOptions();
+	}
+
+	/**
+	 * Create a {@link CircuitBreakerOptions} bean and populate it from properties.
+	 *
+	 * @return a {@link CircuitBreakerOptions} bean
+	 */
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(value = "spring.credhub.url")
+	@ConfigurationProperties(prefix = "spring.credhub.circuit-breaker")
+	public CircuitBreakerOptions circuitBreakerOptions() {
+		return new CircuitBreakerOptions();
+	}
+
+	/**
+	 * Create a {@link WarmUpOptions} bean and populate it from properties.
+	 *
+	 * @return a {@link WarmUpOptions} bean
+	 */
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(value = "spring.credhub.url")
+	@ConfigurationProperties(prefix = "spring.credhub.warm-up")
+	public WarmUpOptions warmUpOptions() {
+		return new WarmUpOptions();
+	}
 }
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.autoconfig;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.credhub.core.CredHubMetrics;
+import org.springframework.credhub.core.CredHubProperties;
+import org.springframework.credhub.core.CredHubTemplate;
+import org.springframework.credhub.core.ReactiveCredHubTemplate;
+
+/**
+ * {@link EnableAutoConfiguration Auto-configuration} for recording {@link CredHubMetrics}
+ * from the {@link CredHubTemplate} and {@link ReactiveCredHubTemplate} when a
+ * {@link MeterRegistry} is available.
+ */
+@Configuration
+@AutoConfigureAfter(value = CredHubAutoConfiguration.class, name = {
+		"org.springframework.boot.actuate.autoconfigure.metrics.MetricsAutoConfiguration",
+		"org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration",
+		"org.springframework.boot.actuate.autoconfigure.metrics.export.simple.SimpleMetricsExportAutoConfiguration"})
+@ConditionalOnClass(MeterRegistry.class)
+@ConditionalOnBean({MeterRegistry.class, CredHubProperties.class})
+@ConditionalOnProperty(value = "spring.credhub.metrics.enabled", matchIfMissing = true)
+public class CredHubMetricsAutoConfiguration {
+	/**
+	 * Create the {@link CredHubMetrics} that records metrics for CredHub requests.
+	 *
+	 * @param meterRegistry the registry to record metrics with
+	 * @return the {@link CredHubMetrics} bean
+	 */
+	@Bean
+	@ConditionalOnMissingBean
+	public CredHubMetrics credHubMetrics(MeterRegistry meterRegistry) {
+		return new CredHubMetrics(meterRegistry);
+	}
+
+	/**
+	 * Create a {@link BeanPostProcessor} that configures CredHub templates to record
+	 * metrics.
+	 *
+	 * @param credHubMetrics the {@link CredHubMetrics} to configure
+	 * @return the {@link BeanPostProcessor} bean
+	 */
+	@Bean
+	public static BeanPostProcessor credHubMetricsPostProcessor(ObjectProvider<CredHubMetrics> credHubMetrics) {
+		return new CredHubMetricsPostProcessor(credHubMetrics);
+	}
+
+	/**
+	 * Configures {@link CredHubTemplate} and {@link ReactiveCredHubTemplate} beans to record
+	 * metrics. The {@link CredHubMetrics} bean is resolved lazily so that the
+	 * {@link MeterRegistry} is not created before other post-processors are registered.
+	 */
+	private static class CredHubMetricsPostProcessor implements BeanPostProcessor {
+		private final ObjectProvider<CredHubMetrics> credHubMetrics;
+
+		CredHubMetricsPostProcessor(ObjectProvider<CredHubMetrics> credHubMetrics) {
+			this.credHubMetrics = credHubMetrics;
+		}
+
+		@Override
+		public Object postProcessAfterInitialization(Object bean, String beanName) {
+			if (bean instanceof CredHubTemplate) {
+				CredHubTemplate credHubTemplate = (CredHubTemplate) bean;
+				if (!credHubTemplate.isRecordingMetrics()) {
+					credHubTemplate.setMetrics(credHubMetrics.getObject());
+				}
+			}
+			else if (bean instanceof ReactiveCredHubTemplate) {
+				ReactiveCredHubTemplate credHubTemplate = (ReactiveCredHubTemplate) bean;
+				if (!credHubTemplate.isRecordingMetrics()) {
+					credHubTemplate.setMetrics(credHubMetrics.getObject());
+				}
+			}
+			return bean;
+		}
+	}
+}
@@ -16,23 +16,32 @@
 
 package org.springframework.credhub.autoconfig;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.security.oauth2.client.reactive.ReactiveOAuth2ClientAutoConfiguration;
 import org.springframework.boot.autoconfigure.security.oauth2.client.servlet.OAuth2ClientAutoConfiguration;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.credhub.configuration.CredHubTemplateFactory;
+import org.springframework.credhub.core.CredHubCircuitBreakerListener;
 import org.springframework.credhub.core.CredHubOperations;
 import org.springframework.credhub.core.CredHubProperties;
 import org.springframework.credhub.core.CredHubTemplate;
 import org.springframework.credhub.core.ReactiveCredHubOperations;
 import org.springframework.credhub.core.ReactiveCredHubTemplate;
+import org.springframework.credhub.support.CircuitBreakerOptions;
 import org.springframework.credhub.support.ClientOptions;
+import org.springframework.credhub.support.CredentialCacheOptions;
+import org.springframework.credhub.support.RetryOptions;
+import org.springframework.credhub.support.WarmUpOptions;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClientService;
 import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
 import org.springframework.security.oauth2.client.registration.ReactiveClientRegistrationRepository;
@@ -61,6 +70,11 @@ public class CredHubTemplateAutoConfiguration {
 	 * @param clientOptions                client connection options
 	 * @param clientRegistrationRepository a repository of OAuth2 client registrations
 	 * @param authorizedClientService      a repository of authorized OAuth2 clients
+	 * @param credentialCacheOptions       credential cache options
+	 * @param retryOptions                 request retry options
+	 * @param circuitBreakerOptions        circuit breaker options
+	 * @param circuitBreakerListeners      listeners for circuit breaker state changes
+	 * @param eventPublisher               publisher of circuit breaker state change events
 	 * @return the {@link CredHubOperations} bean
 	 */
 	@Bean
@@ -68,18 +82,36 @@ public class CredHubTemplateAutoConfiguration {
 	public CredHubOperations credHubTemplate(
 			CredHubProperties credHubProperties, ClientOptions clientOptions,
 			@Autowired(required = false) ClientRegistrationRepository clientRegistrationRepository,
-			@Autowired(required = false) OAuth2AuthorizedClientService authorizedClientService) {
+			@Autowired(required = false) OAuth2AuthorizedClientService authorizedClientService,
+			@Autowired(required = false) CredentialCacheOptions credentialCacheOptions,
+			@Autowired(required = false) RetryOptions retryOptions,
+			@Autowired(required = false) CircuitBreakerOptions circuitBreakerOptions,
+			ObjectProvider<CredHubCircuitBreakerListener> circuitBreakerListeners,
+			ApplicationEventPublisher eventPublisher) {
+
+		CredHubTemplate credHubTemplate;
 
 		if (credHubProperties.getOauth2() == null || credHubProperties.getOauth2().getRegistrationId() == null) {
-			return credHubTemplateFactory.credHubTemplate(credHubProperties, clientOptions);
+			credHubTemplate = credHubTemplateFactory.credHubTemplate(credHubProperties, clientOptions);
+		}
+		else {
+			if (clientRegistrationRepository == null || authorizedClientService == null) {
+				throw misconfiguredException();
+			}
+
+			credHubTemplate = credHubTemplateFactory.credHubTemplate(credHubProperties, clientOptions,
+					clientRegistrationRepository, authorizedClientService);
 		}
 
-		if (clientRegistrationRepository == null || authorizedClientService == null) {
-			throw misconfiguredException();
+		credHubTemplate.setCredentialCacheOptions(credentialCacheOptions);
+		credHubTemplate.setRetryOptions(retryOptions);
+		credHubTemplate.setCircuitBreakerOptions(circuitBreakerOptions);
+		if (credHubTemplate.isUsingCircuitBreakers()) {
+			credHubTemplate.addCircuitBreakerListener(eventPublisher::publishEvent);
+			circuitBreakerListeners.orderedStream().forEach(credHubTemplate::addCircuitBreakerListener);
 		}
 
-		return credHubTemplateFactory.credHubTemplate(credHubProperties, clientOptions,
-				clientRegistrationRepository, authorizedClientService);
+		return credHubTemplate;
 	}
 
 	/**
@@ -90,6 +122,11 @@ public class CredHubTemplateAutoConfiguration {
 	 * @param clientOptions                client connection options
 	 * @param clientRegistrationRepository a repository of OAuth2 client registrations
 	 * @param authorizedClientRepository   a repository of OAuth2 authorized clients
+	 * @param credentialCacheOptions       credential cache options
+	 * @param retryOptions                 request retry options
+	 * @param circuitBreakerOptions        circuit breaker options
+	 * @param circuitBreakerListeners      listeners for circuit breaker state changes
+	 * @param eventPublisher               publisher of circuit breaker state change events
 	 * @return the {@link CredHubTemplate} bean
 	 */
 	@Bean
@@ -98,17 +135,54 @@ public class CredHubTemplateAutoConfiguration {
 	public ReactiveCredHubOperations reactiveCredHubTemplate(
 			CredHubProperties credHubProperties, ClientOptions clientOptions,
 			@Autowired(required = false) ReactiveClientRegistrationRepository clientRegistrationRepository,
-			@Autowired(required = false) ServerOAuth2AuthorizedClientRepository authorizedClientRepository) {
+			@Autowired(required = false) ServerOAuth2AuthorizedClientRepository authorizedClientRepository,
+			@Autowired(required = false) CredentialCacheOptions credentialCacheOptions,
+			@Autowired(required = false) RetryOptions retryOptions,
+			@Autowired(required = false) CircuitBreakerOptions circuitBreakerOptions,
+			ObjectProvider<CredHubCircuitBreakerListener> circuitBreakerListeners,
+			ApplicationEventPublisher eventPublisher) {
+
+		ReactiveCredHubTemplate credHubTemplate;
 
 		if (credHubProperties.getOauth2() == null || credHubProperties.getOauth2().getRegistrationId() == null) {
-			return credHubTemplateFactory.reactiveCredHubTemplate(credHubProperties, clientOptions);
+			credHubTemplate = credHubTemplateFactory.reactiveCredHubTemplate(credHubProperties, clientOptions);
 		}
+		else {
+			if (clientRegistrationRepository == null || authorizedClientRepository == null) {
+				throw misconfiguredException();
+			}
 
-		if (clientRegistrationRepository == null || authorizedClientRepository == null) {
-			throw misconfiguredException();
+			credHubTemplate = (ReactiveCredHubTemplate) credHubTemplateFactory.reactiveCredHubTemplate(
+					credHubProperties, clientOptions, clientRegistrationRepository, authorizedClientRepository);
 		}
-		return credHubTemplateFactory.reactiveCredHubTemplate(credHubProperties, clientOptions,
-				clientRegistrationRepository, authorizedClientRepository);
+
+		credHubTemplate.setCredentialCacheOptions(credentialCacheOptions);
+		credHubTemplate.setRetryOptions(retryOptions);
+		credHubTemplate.setCircuitBreakerOptions(circuitBreakerOptions);
+		if (credHubTemplate.isUsingCircuitBreakers()) {
+			credHubTemplate.addCircuitBreakerListener(eventPublisher::publishEvent);
+			circuitBreakerListeners.orderedStream().forEach(credHubTemplate::addCircuitBreakerListener);
+		}
+
+		return credHubTemplate;
+	}
+
+	/**
+	 * Create a bean that warms up the connections of the CredHub templates before the
+	 * application context finishes refreshing.
+	 *
+	 * @param warmUpOptions             connection warm-up options
+	 * @param credHubOperations         the {@link CredHubOperations} beans to warm up
+	 * @param reactiveCredHubOperations the {@link ReactiveCredHubOperations} beans to warm up
+	 * @return the {@link SmartInitializingSingleton} bean
+	 */
+	@Bean
+	@ConditionalOnBean(WarmUpOptions.class)
+	@ConditionalOnProperty(value = "spring.credhub.warm-up.enabled")
+	public SmartInitializingSingleton credHubWarmUp(WarmUpOptions warmUpOptions,
+			ObjectProvider<CredHubOperations> credHubOperations,
+			ObjectProvider<ReactiveCredHubOperations> reactiveCredHubOperations) {
+		return new CredHubWarmUp(warmUpOptions, credHubOperations, reactiveCredHubOperations);
 	}
 
 	private IllegalArgumentException misconfiguredException() {
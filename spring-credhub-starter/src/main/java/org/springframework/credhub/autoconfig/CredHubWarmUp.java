@@ -0,0 +1,94 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.credhub.autoconfig;
+
+import java.time.Duration;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.credhub.core.CredHubOperations;
+import org.springframework.credhub.core.CredHubTemplate;
+import org.springframework.credhub.core.ReactiveCredHubOperations;
+import org.springframework.credhub.core.ReactiveCredHubTemplate;
+import org.springframework.credhub.support.WarmUpOptions;
+
+/**
+ * Warms up the connections of the {@link CredHubTemplate} and
+ * {@link ReactiveCredHubTemplate} beans once all singletons have been created, so that
+ * the warm-up completes before the application context finishes refreshing and the
+ * application starts accepting traffic. Templates are warmed up after other
+ * post-processors such as metrics have been applied to them.
+ */
+class CredHubWarmUp implements SmartInitializingSingleton {
+	private static final Log logger = LogFactory.getLog(CredHubWarmUp.class);
+
+	private final WarmUpOptions warmUpOptions;
+
+	private final ObjectProvider<CredHubOperations> credHubOperations;
+
+	private final ObjectProvider<ReactiveCredHubOperations> reactiveCredHubOperations;
+
+	CredHubWarmUp(WarmUpOptions warmUpOptions, ObjectProvider<CredHubOperations> credHubOperations,
+			ObjectProvider<ReactiveCredHubOperations> reactiveCredHubOperations) {
+		this.warmUpOptions = warmUpOptions;
+		this.credHubOperations = credHubOperations;
+		this.reactiveCredHubOperations = reactiveCredHubOperations;
+	}
+
+	@Override
+	public void afterSingletonsInstantiated() {
+		if (!this.warmUpOptions.isEnabled()) {
+			return;
+		}
+
+		this.credHubOperations.orderedStream()
+				.filter(CredHubTemplate.class::isInstance)
+				.map(CredHubTemplate.class::cast)
+				.forEach(template -> warmUp("CredHubTemplate", () -> template.warmUp(this.warmUpOptions)));
+
+		this.reactiveCredHubOperations.orderedStream()
+				.filter(ReactiveCredHubTemplate.class::isInstance)
+				.map(ReactiveCredHubTemplate.class::cast)
+				.forEach(template -> warmUp("ReactiveCredHubTemplate",
+						() -> template.warmUp(this.warmUpOptions).block()));
+	}
+
+	private void warmUp(String client, WarmUpAction action) {
+		try {
+			Duration duration = action.warmUp();
+			if (logger.isInfoEnabled()) {
+				logger.info("Warmed up " + this.warmUpOptions.getConnections() + " CredHub connection(s) for "
+						+ client + " in " + duration.toMillis() + "ms");
+			}
+		} catch (RuntimeException e) {
+			if (this.warmUpOptions.isFailOnError()) {
+				throw new IllegalStateException("Unable to warm up CredHub connections for " + client, e);
+			}
+			logger.warn("Unable to warm up CredHub connections for " + client + "; continuing startup: "
+					+ e.getMessage());
+		}
+	}
+
+	@FunctionalInterface
+	private interface WarmUpAction {
+		Duration warmUp();
+	}
+}
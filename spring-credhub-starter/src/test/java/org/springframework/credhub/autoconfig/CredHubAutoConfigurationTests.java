@@ -49,6 +49,12 @@ public class CredHubAutoConfigurationTests {
 						"spring.credhub.oauth2.registration-id=test-client",
 						"spring.credhub.connection-timeout=30",
 						"spring.credhub.read-timeout=60",
+						"spring.credhub.write-timeout=70",
+						"spring.credhub.response-timeout=80",
+						"spring.credhub.request-coalescing=true",
+						"spring.credhub.max-connections=20",
+						"spring.credhub.max-connections-per-route=10",
+						"spring.credhub.keep-alive=1m",
 						"debug=true"
 				)
 				.run(this::assertPropertiesConfigured);
@@ -62,11 +68,53 @@ public class CredHubAutoConfigurationTests {
 						"my.custom.credhub.url=https://localhost",
 						"my.custom.credhub.oauth2.registration-id=test-client",
 						"my.custom.credhub.connection-timeout=30",
-						"my.custom.credhub.read-timeout=60"
+						"my.custom.credhub.read-timeout=60",
+						"my.custom.credhub.write-timeout=70",
+						"my.custom.credhub.response-timeout=80",
+						"my.custom.credhub.request-coalescing=true",
+						"my.custom.credhub.max-connections=20",
+						"my.custom.credhub.max-connections-per-route=10",
+						"my.custom.credhub.keep-alive=1m"
 				)
 				.run(this::assertPropertiesConfigured);
 	}
 
+	@Test
+	public void autoConfiguredWithTlsOptions() {
+		context
+				.withPropertyValues(
+						"spring.credhub.url=https://localhost",
+						"spring.credhub.client-certificate-file=/etc/cf-instance-credentials/instance.crt",
+						"spring.credhub.client-private-key-file=/etc/cf-instance-credentials/instance.key",
+						"spring.credhub.ssl-provider=openssl",
+						"spring.credhub.ssl-session-cache-size=1000",
+						"spring.credhub.ssl-session-timeout=1h"
+				)
+				.run(context -> {
+					ClientOptions options = context.getBean(ClientOptions.class);
+					assertThat(options.getClientCertificateFile())
+							.isEqualTo("/etc/cf-instance-credentials/instance.crt");
+					assertThat(options.getClientPrivateKeyFile())
+							.isEqualTo("/etc/cf-instance-credentials/instance.key");
+					assertThat(options.getSslProvider()).isEqualTo(ClientOptions.SslProvider.OPENSSL);
+					assertThat(options.getSslSessionCacheSize()).isEqualTo(1000L);
+					assertThat(options.getSslSessionTimeout()).isEqualTo(Duration.ofHours(1));
+				});
+	}
+
+	@Test
+	public void autoConfiguredWithHttpVersion() {
+		context
+				.withPropertyValues(
+						"spring.credhub.url=https://localhost",
+						"spring.credhub.http-version=http-2"
+				)
+				.run(context -> {
+					ClientOptions options = context.getBean(ClientOptions.class);
+					assertThat(options.getHttpVersion()).isEqualTo(ClientOptions.HttpVersion.HTTP_2);
+				});
+	}
+
 	@Test
 	public void webClientConnectorNotConfigured() {
 		context
@@ -90,6 +138,12 @@ public class CredHubAutoConfigurationTests {
 		ClientOptions options = context.getBean(ClientOptions.class);
 		assertThat(options.getConnectionTimeout()).isEqualTo(Duration.ofMillis(30));
 		assertThat(options.getReadTimeout()).isEqualTo(Duration.ofMillis(60));
+		assertThat(options.getWriteTimeout()).isEqualTo(Duration.ofMillis(70));
+		assertThat(options.getResponseTimeout()).isEqualTo(Duration.ofMillis(80));
+		assertThat(options.isRequestCoalescing()).isTrue();
+		assertThat(options.getMaxConnections()).isEqualTo(20);
+		assertThat(options.getMaxConnectionsPerRoute()).isEqualTo(10);
+		assertThat(options.getKeepAlive()).isEqualTo(Duration.ofMinutes(1));
 	}
 
 	@Configuration
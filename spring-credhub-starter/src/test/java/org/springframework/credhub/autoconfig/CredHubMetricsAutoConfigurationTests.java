@@ -0,0 +1,103 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.autoconfig;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.FilteredClassLoader;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.credhub.core.CredHubMetrics;
+import org.springframework.credhub.core.CredHubTemplate;
+import org.springframework.credhub.core.ReactiveCredHubTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CredHubMetricsAutoConfigurationTests {
+
+	private static final FilteredClassLoader SPRING_SECURITY_FILTERED_CLASS_LOADER =
+			new FilteredClassLoader("org.springframework.security.oauth2.client");
+
+	private final ApplicationContextRunner context = new ApplicationContextRunner()
+			.withConfiguration(AutoConfigurations.of(
+					CredHubAutoConfiguration.class,
+					CredHubOAuth2AutoConfiguration.class,
+					CredHubTemplateAutoConfiguration.class,
+					CredHubMetricsAutoConfiguration.class
+			))
+			.withClassLoader(SPRING_SECURITY_FILTERED_CLASS_LOADER)
+			.withPropertyValues(
+					"spring.credhub.url=https://localhost"
+			);
+
+	@Test
+	public void credHubTemplatesRecordMetrics() {
+		context
+				.withUserConfiguration(MeterRegistryConfiguration.class)
+				.run(context -> {
+					assertThat(context).hasSingleBean(CredHubMetrics.class);
+					assertThat(context.getBean(CredHubTemplate.class).isRecordingMetrics()).isTrue();
+					assertThat(context.getBean(ReactiveCredHubTemplate.class).isRecordingMetrics()).isTrue();
+
+					MeterRegistry registry = context.getBean(MeterRegistry.class);
+					assertThat(registry.find(CredHubMetrics.ACTIVE_REQUESTS_METRIC).gauges()).hasSize(2);
+				});
+	}
+
+	@Test
+	public void metricsNotConfiguredWithoutMeterRegistry() {
+		context
+				.run(context -> {
+					assertThat(context).doesNotHaveBean(CredHubMetrics.class);
+					assertThat(context.getBean(CredHubTemplate.class).isRecordingMetrics()).isFalse();
+				});
+	}
+
+	@Test
+	public void metricsNotConfiguredWithoutMicrometer() {
+		context
+				.withClassLoader(new FilteredClassLoader(MeterRegistry.class))
+				.run(context -> {
+					assertThat(context).hasNotFailed();
+					assertThat(context).doesNotHaveBean(CredHubMetrics.class);
+					assertThat(context.getBean(CredHubTemplate.class).isRecordingMetrics()).isFalse();
+				});
+	}
+
+	@Test
+	public void metricsNotConfiguredWhenDisabled() {
+		context
+				.withUserConfiguration(MeterRegistryConfiguration.class)
+				.withPropertyValues("spring.credhub.metrics.enabled=false")
+				.run(context -> {
+					assertThat(context).doesNotHaveBean(CredHubMetrics.class);
+					assertThat(context.getBean(CredHubTemplate.class).isRecordingMetrics()).isFalse();
+				});
+	}
+
+	@Configuration
+	static class MeterRegistryConfiguration {
+		@Bean
+		public MeterRegistry meterRegistry() {
+			return new SimpleMeterRegistry();
+		}
+	}
+}
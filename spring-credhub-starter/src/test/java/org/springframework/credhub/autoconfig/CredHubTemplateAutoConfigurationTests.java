@@ -21,13 +21,28 @@ import org.springframework.boot.autoconfigure.AutoConfigurations;
 import org.springframework.boot.autoconfigure.security.oauth2.client.reactive.ReactiveOAuth2ClientAutoConfiguration;
 import org.springframework.boot.test.context.FilteredClassLoader;
 import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.credhub.core.CredHubCircuitBreakerState;
 import org.springframework.credhub.core.CredHubTemplate;
 import org.springframework.credhub.core.ReactiveCredHubTemplate;
+import org.springframework.credhub.core.credential.CachingCredHubCredentialTemplate;
+import org.springframework.credhub.core.credential.ReactiveCachingCredHubCredentialTemplate;
+import org.springframework.credhub.core.interpolation.CachingCredHubInterpolationTemplate;
+import org.springframework.credhub.core.interpolation.ReactiveCachingCredHubInterpolationTemplate;
+import org.springframework.credhub.support.CircuitBreakerOptions;
+import org.springframework.credhub.support.CredentialCacheOptions;
+import org.springframework.credhub.support.RetryOptions;
+import org.springframework.credhub.support.WarmUpOptions;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import java.io.File;
+import java.time.Duration;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class CredHubTemplateAutoConfigurationTests {
+	private static final String SNAPSHOT_FILE =
+			new File(System.getProperty("java.io.tmpdir"), "credhub-autoconfig-test.snapshot").getAbsolutePath();
+
 
 	private static final FilteredClassLoader SPRING_SECURITY_FILTERED_CLASS_LOADER =
 			new FilteredClassLoader("org.springframework.security.oauth2.client");
@@ -54,6 +69,9 @@ public class CredHubTemplateAutoConfigurationTests {
 					assertThat(context).hasSingleBean(CredHubTemplate.class);
 					CredHubTemplate credHubTemplate = context.getBean(CredHubTemplate.class);
 					assertThat(credHubTemplate.isUsingOAuth2()).isFalse();
+					assertThat(credHubTemplate.isCachingCredentials()).isFalse();
+					assertThat(credHubTemplate.isRetryingRequests()).isFalse();
+					assertThat(credHubTemplate.isUsingCircuitBreakers()).isFalse();
 
 					assertThat(context).hasSingleBean(ReactiveCredHubTemplate.class);
 					ReactiveCredHubTemplate reactiveCredHubTemplate = context.getBean(ReactiveCredHubTemplate.class);
@@ -61,6 +79,143 @@ public class CredHubTemplateAutoConfigurationTests {
 				});
 	}
 
+	@Test
+	public void failedWarmUpDoesNotFailStartup() {
+		context
+				.withPropertyValues(
+						"spring.credhub.url=https://localhost:1",
+						"spring.credhub.warm-up.enabled=true",
+						"spring.credhub.warm-up.connections=2",
+						"spring.credhub.warm-up.timeout=5s"
+				)
+				.withClassLoader(SPRING_SECURITY_FILTERED_CLASS_LOADER)
+				.run(context -> {
+					assertThat(context).hasNotFailed();
+					assertThat(context).hasBean("credHubWarmUp");
+
+					WarmUpOptions warmUpOptions = context.getBean(WarmUpOptions.class);
+					assertThat(warmUpOptions.getConnections()).isEqualTo(2);
+					assertThat(warmUpOptions.getTimeout()).isEqualTo(Duration.ofSeconds(5));
+				});
+	}
+
+	@Test
+	public void failedWarmUpFailsStartupWhenConfigured() {
+		context
+				.withPropertyValues(
+						"spring.credhub.url=https://localhost:1",
+						"spring.credhub.warm-up.enabled=true",
+						"spring.credhub.warm-up.fail-on-error=true"
+				)
+				.withClassLoader(SPRING_SECURITY_FILTERED_CLASS_LOADER)
+				.run(context -> assertThat(context).getFailure()
+						.hasMessageContaining("Unable to warm up CredHub connections"));
+	}
+
+	@Test
+	public void warmUpNotConfiguredByDefault() {
+		context
+				.withPropertyValues(
+						"spring.credhub.url=https://localhost"
+				)
+				.withClassLoader(SPRING_SECURITY_FILTERED_CLASS_LOADER)
+				.run(context -> assertThat(context).doesNotHaveBean("credHubWarmUp"));
+	}
+
+	@Test
+	public void credHubTemplatesConfiguredWithCredentialCache() {
+		context
+				.withPropertyValues(
+						"spring.credhub.url=https://localhost",
+						"spring.credhub.cache.enabled=true",
+						"spring.credhub.cache.max-size=100",
+						"spring.credhub.cache.ttl=30s",
+						"spring.credhub.cache.max-staleness=5m",
+						"spring.credhub.cache.client-side-interpolation=true",
+						"spring.credhub.cache.snapshot.path=" + SNAPSHOT_FILE,
+						"spring.credhub.cache.snapshot.key=AAAAAAAAAAAAAAAAAAAAAA==",
+						"spring.credhub.cache.snapshot.write-interval=1m"
+				)
+				.withClassLoader(SPRING_SECURITY_FILTERED_CLASS_LOADER)
+				.run(context -> {
+					assertThat(context).hasSingleBean(CredHubTemplate.class);
+					CredHubTemplate credHubTemplate = context.getBean(CredHubTemplate.class);
+					assertThat(credHubTemplate.isCachingCredentials()).isTrue();
+					assertThat(credHubTemplate.credentials()).isInstanceOf(CachingCredHubCredentialTemplate.class);
+
+					assertThat(context).hasSingleBean(ReactiveCredHubTemplate.class);
+					ReactiveCredHubTemplate reactiveCredHubTemplate = context.getBean(ReactiveCredHubTemplate.class);
+					assertThat(reactiveCredHubTemplate.isCachingCredentials()).isTrue();
+					assertThat(reactiveCredHubTemplate.credentials())
+							.isInstanceOf(ReactiveCachingCredHubCredentialTemplate.class);
+
+					assertThat(context).hasSingleBean(CredentialCacheOptions.class);
+					CredentialCacheOptions cacheOptions = context.getBean(CredentialCacheOptions.class);
+					assertThat(cacheOptions.getMaxSize()).isEqualTo(100);
+					assertThat(cacheOptions.getTtl()).isEqualTo(Duration.ofSeconds(30));
+					assertThat(cacheOptions.getMaxStaleness()).isEqualTo(Duration.ofMinutes(5));
+					assertThat(cacheOptions.isClientSideInterpolation()).isTrue();
+					assertThat(credHubTemplate.interpolation())
+							.isInstanceOf(CachingCredHubInterpolationTemplate.class);
+					assertThat(reactiveCredHubTemplate.interpolation())
+							.isInstanceOf(ReactiveCachingCredHubInterpolationTemplate.class);
+					assertThat(cacheOptions.getSnapshot().isEnabled()).isTrue();
+					assertThat(cacheOptions.getSnapshot().getPath()).isEqualTo(new File(SNAPSHOT_FILE));
+					assertThat(cacheOptions.getSnapshot().getWriteInterval()).isEqualTo(Duration.ofMinutes(1));
+				});
+	}
+
+	@Test
+	public void credHubTemplatesConfiguredWithRetries() {
+		context
+				.withPropertyValues(
+						"spring.credhub.url=https://localhost",
+						"spring.credhub.retry.enabled=true",
+						"spring.credhub.retry.max-attempts=5",
+						"spring.credhub.retry.initial-backoff=50ms",
+						"spring.credhub.retry.budget-ratio=0.2"
+				)
+				.withClassLoader(SPRING_SECURITY_FILTERED_CLASS_LOADER)
+				.run(context -> {
+					assertThat(context.getBean(CredHubTemplate.class).isRetryingRequests()).isTrue();
+					assertThat(context.getBean(ReactiveCredHubTemplate.class).isRetryingRequests()).isTrue();
+
+					assertThat(context).hasSingleBean(RetryOptions.class);
+					RetryOptions retryOptions = context.getBean(RetryOptions.class);
+					assertThat(retryOptions.getMaxAttempts()).isEqualTo(5);
+					assertThat(retryOptions.getInitialBackoff()).isEqualTo(Duration.ofMillis(50));
+					assertThat(retryOptions.getBudgetRatio()).isEqualTo(0.2);
+					assertThat(retryOptions.isRetryNonIdempotent()).isFalse();
+				});
+	}
+
+	@Test
+	public void credHubTemplatesConfiguredWithCircuitBreakers() {
+		context
+				.withPropertyValues(
+						"spring.credhub.url=https://localhost",
+						"spring.credhub.circuit-breaker.enabled=true",
+						"spring.credhub.circuit-breaker.failure-rate-threshold=0.25",
+						"spring.credhub.circuit-breaker.groups.interpolation.enabled=false",
+						"spring.credhub.circuit-breaker.groups.credentials.wait-duration-in-open-state=5s"
+				)
+				.withClassLoader(SPRING_SECURITY_FILTERED_CLASS_LOADER)
+				.run(context -> {
+					CredHubTemplate credHubTemplate = context.getBean(CredHubTemplate.class);
+					assertThat(credHubTemplate.isUsingCircuitBreakers()).isTrue();
+					assertThat(credHubTemplate.getCircuitBreakerState("credentials"))
+							.isEqualTo(CredHubCircuitBreakerState.CLOSED);
+					assertThat(credHubTemplate.getCircuitBreakerState("interpolation")).isNull();
+					assertThat(context.getBean(ReactiveCredHubTemplate.class).isUsingCircuitBreakers()).isTrue();
+
+					CircuitBreakerOptions options = context.getBean(CircuitBreakerOptions.class);
+					assertThat(options.getFailureRateThreshold()).isEqualTo(0.25);
+					assertThat(options.getGroups().get("interpolation").getEnabled()).isFalse();
+					assertThat(options.getGroups().get("credentials").getWaitDurationInOpenState())
+							.isEqualTo(Duration.ofSeconds(5));
+				});
+	}
+
 	@Test
 	public void reactiveCredHubTemplateNotConfiguredWithoutWebClient() {
 		context
@@ -0,0 +1,367 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.testserver;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.netty.handler.codec.http.QueryStringDecoder;
+
+/**
+ * Routes CredHub API requests to the in-memory credential and permission stores.
+ *
+ * <p>Requests are handled synchronously and independently of the HTTP transport, so that
+ * the server can apply fault injection around them.
+ */
+class CredHubApi {
+	static final String VERSION = "2.1.0";
+
+	private static final String DATA_PATH = "/api/v1/data";
+	private static final String CERTIFICATES_PATH = "/api/v1/certificates";
+	private static final String PERMISSIONS_V1_PATH = "/api/v1/permissions";
+	private static final String PERMISSIONS_V2_PATH = "/api/v2/permissions";
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private final CredentialStore credentials = new CredentialStore();
+	private final PermissionStore permissions = new PermissionStore();
+
+	private volatile String baseUrl = "";
+	private volatile Duration accessTokenValidity = Duration.ofHours(1);
+
+	/**
+	 * Handle a request.
+	 *
+	 * @param method the HTTP method
+	 * @param uri the request URI, including any query string
+	 * @param body the request body; can be empty
+	 * @return the response
+	 */
+	Response handle(String method, String uri, String body) {
+		try {
+			QueryStringDecoder decoder = new QueryStringDecoder(uri);
+			return route(method, decoder.path(), decoder.parameters(), body);
+		}
+		catch (CredHubApiException e) {
+			return error(e.getStatus(), e.getMessage());
+		}
+		catch (RuntimeException e) {
+			return error(500, e.toString());
+		}
+	}
+
+	byte[] serialize(JsonNode body) {
+		try {
+			return objectMapper.writeValueAsBytes(body);
+		}
+		catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	void setBaseUrl(String baseUrl) {
+		this.baseUrl = baseUrl;
+	}
+
+	void setAccessTokenValidity(Duration accessTokenValidity) {
+		this.accessTokenValidity = accessTokenValidity;
+	}
+
+	void reset() {
+		credentials.clear();
+		permissions.clear();
+	}
+
+	private Response route(String method, String path, Map<String, List<String>> query, String body) {
+		switch (path) {
+			case "/info":
+				return get(method, this::info);
+			case "/version":
+				return get(method, () -> JsonNodeFactory.instance.objectNode().put("version", VERSION));
+			case "/health":
+				return get(method, () -> JsonNodeFactory.instance.objectNode().put("status", "UP"));
+			case "/oauth/token":
+				return method.equals("POST") ? ok(accessToken()) : methodNotAllowed();
+			case DATA_PATH:
+				return data(method, query, body);
+			case "/api/v1/regenerate":
+				return method.equals("POST")
+						? ok(credentials.regenerate(requiredText(json(body), "name")))
+						: methodNotAllowed();
+			case CERTIFICATES_PATH:
+				return get(method, () -> certificates(query));
+			case "/api/v1/bulk-regenerate":
+				return method.equals("POST")
+						? ok(bulkRegenerate(requiredText(json(body), "signed_by")))
+						: methodNotAllowed();
+			case "/api/v1/interpolate":
+				return method.equals("POST") ? ok(credentials.interpolate(json(body))) : methodNotAllowed();
+			case PERMISSIONS_V1_PATH:
+				return permissionsV1(method, query, body);
+			case PERMISSIONS_V2_PATH:
+				return permissionsV2(method, query, body);
+			default:
+				return subResource(method, path, body);
+		}
+	}
+
+	private Response data(String method, Map<String, List<String>> query, String body) {
+		switch (method) {
+			case "GET":
+				return getData(query);
+			case "PUT":
+				JsonNode setRequest = json(body);
+				return ok(addPermissions(credentials.set(setRequest), setRequest));
+			case "POST":
+				JsonNode generateRequest = json(body);
+				return ok(addPermissions(credentials.generate(generateRequest), generateRequest));
+			case "DELETE":
+				credentials.delete(requiredParameter(query, "name"));
+				return new Response(204, null);
+			default:
+				return methodNotAllowed();
+		}
+	}
+
+	private ObjectNode addPermissions(ObjectNode details, JsonNode request) {
+		JsonNode additionalPermissions = request.get("additional_permissions");
+		if (additionalPermissions != null && additionalPermissions.size() > 0) {
+			ObjectNode permissionsRequest = JsonNodeFactory.instance.objectNode()
+					.put("credential_name", details.get("name").asText());
+			permissionsRequest.set("permissions", additionalPermissions);
+			permissions.addCredentialPermissions(permissionsRequest);
+		}
+		return details;
+	}
+
+	private Response getData(Map<String, List<String>> query) {
+		ObjectNode response = JsonNodeFactory.instance.objectNode();
+
+		if (query.containsKey("name")) {
+			int limit = 0;
+			if (query.containsKey("current") && Boolean.parseBoolean(parameter(query, "current"))) {
+				limit = 1;
+			}
+			else if (query.containsKey("versions")) {
+				limit = parseVersions(parameter(query, "versions"));
+			}
+			response.set("data", credentials.getByName(parameter(query, "name"), limit));
+		}
+		else if (query.containsKey("name-like")) {
+			response.set("credentials", credentials.findByNameLike(parameter(query, "name-like")));
+		}
+		else if (query.containsKey("path")) {
+			response.set("credentials", credentials.findByPath(parameter(query, "path")));
+		}
+		else if (query.containsKey("paths")) {
+			response.set("paths", credentials.paths());
+		}
+		else {
+			throw CredHubApiException.badRequest("The query parameter name is required for this request.");
+		}
+
+		return ok(response);
+	}
+
+	private ObjectNode certificates(Map<String, List<String>> query) {
+		ObjectNode response = JsonNodeFactory.instance.objectNode();
+		response.set("certificates", credentials.certificates(parameter(query, "name")));
+		return response;
+	}
+
+	private ObjectNode bulkRegenerate(String signedBy) {
+		ObjectNode response = JsonNodeFactory.instance.objectNode();
+		response.set("regenerated_credentials", credentials.bulkRegenerate(signedBy));
+		return response;
+	}
+
+	private Response permissionsV1(String method, Map<String, List<String>> query, String body) {
+		switch (method) {
+			case "GET":
+				String credentialName = requiredParameter(query, "credential_name");
+				if (!credentials.exists(credentialName)) {
+					throw CredHubApiException.notFound(CredHubApiException.CREDENTIAL_NOT_FOUND);
+				}
+				return ok(permissions.getCredentialPermissions(credentialName));
+			case "POST":
+				return new Response(201, permissions.addCredentialPermissions(json(body)));
+			case "DELETE":
+				permissions.deleteCredentialPermission(requiredParameter(query, "credential_name"),
+						requiredParameter(query, "actor"));
+				return new Response(204, null);
+			default:
+				return methodNotAllowed();
+		}
+	}
+
+	private Response permissionsV2(String method, Map<String, List<String>> query, String body) {
+		switch (method) {
+			case "GET":
+				return ok(permissions.getPermission(requiredParameter(query, "path"),
+						requiredParameter(query, "actor")));
+			case "POST":
+				return new Response(201, permissions.addPermission(json(body)));
+			default:
+				return methodNotAllowed();
+		}
+	}
+
+	private Response subResource(String method, String path, String body) {
+		String[] segments = path.substring(1).split("/");
+
+		if (path.startsWith(DATA_PATH + "/") && segments.length == 4) {
+			return get(method, () -> credentials.getById(segments[3]));
+		}
+
+		if (path.startsWith(CERTIFICATES_PATH + "/") && segments.length == 5) {
+			String certificateId = segments[3];
+			if (segments[4].equals("regenerate") && method.equals("POST")) {
+				boolean setAsTransitional = !body.isEmpty() && json(body).path("set_as_transitional").asBoolean(false);
+				return ok(credentials.regenerateCertificate(certificateId, setAsTransitional));
+			}
+			if (segments[4].equals("update_transitional_version") && method.equals("PUT")) {
+				JsonNode version = json(body).get("version");
+				return ok(credentials.updateTransitionalVersion(certificateId,
+						version == null || version.isNull() ? null : version.asText()));
+			}
+		}
+
+		if (path.startsWith(PERMISSIONS_V2_PATH + "/") && segments.length == 4) {
+			String uuid = segments[3];
+			switch (method) {
+				case "GET":
+					return ok(permissions.getPermission(uuid));
+				case "PUT":
+					return ok(permissions.updatePermission(uuid, json(body)));
+				case "DELETE":
+					return ok(permissions.deletePermission(uuid));
+				default:
+					return methodNotAllowed();
+			}
+		}
+
+		return error(404, "The request path is not recognized.");
+	}
+
+	private ObjectNode info() {
+		ObjectNode info = JsonNodeFactory.instance.objectNode();
+		info.putObject("app").put("name", "CredHub");
+		info.putObject("auth-server").put("url", baseUrl);
+		return info;
+	}
+
+	private ObjectNode accessToken() {
+		return JsonNodeFactory.instance.objectNode()
+				.put("access_token", UUID.randomUUID().toString())
+				.put("token_type", "bearer")
+				.put("expires_in", accessTokenValidity.getSeconds())
+				.put("scope", "credhub.read credhub.write")
+				.put("jti", UUID.randomUUID().toString());
+	}
+
+	private JsonNode json(String body) {
+		try {
+			JsonNode json = objectMapper.readTree(body);
+			if (json == null || json.isMissingNode()) {
+				throw CredHubApiException.badRequest(CredHubApiException.INVALID_REQUEST);
+			}
+			return json;
+		}
+		catch (IOException e) {
+			throw CredHubApiException.badRequest(CredHubApiException.INVALID_REQUEST);
+		}
+	}
+
+	private static Response get(String method, Supplier<JsonNode> supplier) {
+		return method.equals("GET") ? ok(supplier.get()) : methodNotAllowed();
+	}
+
+	private static Response ok(JsonNode body) {
+		return new Response(200, body);
+	}
+
+	private static Response methodNotAllowed() {
+		return error(405, "The request method is not supported for this path.");
+	}
+
+	private static Response error(int status, String message) {
+		return new Response(status, JsonNodeFactory.instance.objectNode().put("error", message));
+	}
+
+	private static int parseVersions(String versions) {
+		try {
+			int limit = Integer.parseInt(versions);
+			if (limit < 1) {
+				throw CredHubApiException.badRequest("The number of versions must be greater than zero.");
+			}
+			return limit;
+		}
+		catch (NumberFormatException e) {
+			throw CredHubApiException.badRequest(CredHubApiException.INVALID_REQUEST);
+		}
+	}
+
+	private static String parameter(Map<String, List<String>> query, String name) {
+		List<String> values = query.get(name);
+		return values == null || values.isEmpty() ? null : values.get(0);
+	}
+
+	private static String requiredParameter(Map<String, List<String>> query, String name) {
+		String value = parameter(query, name);
+		if (value == null || value.isEmpty()) {
+			throw CredHubApiException.badRequest("The query parameter " + name + " is required for this request.");
+		}
+		return value;
+	}
+
+	private static String requiredText(JsonNode request, String field) {
+		JsonNode value = request.get(field);
+		if (value == null || !value.isTextual() || value.asText().isEmpty()) {
+			throw CredHubApiException.badRequest(CredHubApiException.INVALID_REQUEST);
+		}
+		return value.asText();
+	}
+
+	/**
+	 * A response to a CredHub API request.
+	 */
+	static final class Response {
+		private final int status;
+		private final JsonNode body;
+
+		Response(int status, JsonNode body) {
+			this.status = status;
+			this.body = body;
+		}
+
+		int getStatus() {
+			return this.status;
+		}
+
+		JsonNode getBody() {
+			return this.body;
+		}
+	}
+}
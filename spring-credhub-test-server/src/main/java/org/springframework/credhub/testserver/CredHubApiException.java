@@ -0,0 +1,50 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.testserver;
+
+/**
+ * An error returned to the client as a CredHub error response.
+ */
+class CredHubApiException extends RuntimeException {
+	static final String CREDENTIAL_NOT_FOUND = "The request could not be completed because the credential " +
+			"does not exist or you do not have sufficient authorization.";
+
+	static final String PERMISSION_NOT_FOUND = "The request could not be completed because the permission " +
+			"does not exist or you do not have sufficient authorization.";
+
+	static final String INVALID_REQUEST = "The request could not be fulfilled because the request path or body " +
+			"did not meet expectation. Please check the documentation for required formatting and retry your request.";
+
+	private final int status;
+
+	CredHubApiException(int status, String message) {
+		super(message);
+		this.status = status;
+	}
+
+	int getStatus() {
+		return this.status;
+	}
+
+	static CredHubApiException notFound(String message) {
+		return new CredHubApiException(404, message);
+	}
+
+	static CredHubApiException badRequest(String message) {
+		return new CredHubApiException(400, message);
+	}
+}
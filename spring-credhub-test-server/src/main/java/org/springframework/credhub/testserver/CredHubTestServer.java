@@ -0,0 +1,290 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.testserver;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+/**
+ * An embeddable, in-memory emulator of the CredHub API for load and latency testing
+ * without a CredHub server.
+ *
+ * <p>The server implements the {@literal /api/v1/data}, {@literal /api/v1/regenerate},
+ * {@literal /api/v1/certificates}, {@literal /api/v1/bulk-regenerate},
+ * {@literal /api/v1/interpolate}, {@literal /api/v1/permissions} and
+ * {@literal /api/v2/permissions} endpoints, along with {@literal /info},
+ * {@literal /version} and {@literal /health}. An {@literal /oauth/token} endpoint issues
+ * opaque access tokens to any client, and {@literal /info} advertises the server itself as
+ * the authorization server. Requests are not authenticated.
+ *
+ * <p>Latency, errors and a throughput limit can be injected into requests to the CredHub
+ * API (paths under {@literal /api/}) using {@link #getFaultOptions()}.
+ *
+ * <pre>
+ * {@code
+ * try (CredHubTestServer server = new CredHubTestServer().start()) {
+ *     server.getFaultOptions().setLatency(Duration.ofMillis(20));
+ *
+ *     CredHubProperties properties = new CredHubProperties();
+ *     properties.setUrl(server.getUrl());
+ *     CredHubTemplate credHubTemplate = new CredHubTemplate(properties, clientHttpRequestFactory);
+ *     ...
+ * }
+ * }
+ * </pre>
+ */
+public class CredHubTestServer implements AutoCloseable {
+	private static final String API_PATH = "/api/";
+	private static final String JSON_CONTENT_TYPE = "application/json";
+
+	private final String host;
+	private final int port;
+
+	private final CredHubApi api = new CredHubApi();
+	private final FaultOptions faultOptions = new FaultOptions();
+	private final ThroughputLimiter throughputLimiter = new ThroughputLimiter();
+
+	private final LongAdder requestCount = new LongAdder();
+	private final LongAdder injectedFaultCount = new LongAdder();
+
+	private volatile DisposableServer server;
+
+	/**
+	 * Create a server that listens on a free port on the loopback interface.
+	 */
+	public CredHubTestServer() {
+		this(0);
+	}
+
+	/**
+	 * Create a server that listens on the given port on the loopback interface.
+	 *
+	 * @param port the port; {@literal 0} to choose a free port
+	 */
+	public CredHubTestServer(int port) {
+		this("localhost", port);
+	}
+
+	/**
+	 * Create a server that listens on the given host and port.
+	 *
+	 * @param host the host name or address to bind to
+	 * @param port the port; {@literal 0} to choose a free port
+	 */
+	public CredHubTestServer(String host, int port) {
+		this.host = host;
+		this.port = port;
+	}
+
+	/**
+	 * Start the server.
+	 *
+	 * @return this server
+	 */
+	public synchronized CredHubTestServer start() {
+		if (this.server == null) {
+			this.server = HttpServer.create()
+					.host(this.host)
+					.port(this.port)
+					.handle(this::handle)
+					.bindNow();
+			this.api.setBaseUrl(getUrl());
+		}
+		return this;
+	}
+
+	/**
+	 * Stop the server. Stored credentials and permissions are kept.
+	 */
+	public synchronized void stop() {
+		if (this.server != null) {
+			this.server.disposeNow();
+			this.server = null;
+		}
+	}
+
+	@Override
+	public void close() {
+		stop();
+	}
+
+	/**
+	 * Get the port the server is listening on.
+	 *
+	 * @return the port
+	 */
+	public int getPort() {
+		DisposableServer server = this.server;
+		if (server == null) {
+			throw new IllegalStateException("The server has not been started");
+		}
+		return server.port();
+	}
+
+	/**
+	 * Get the base URL of the server, to be used as the CredHub URL by clients.
+	 *
+	 * @return the URL
+	 */
+	public String getUrl() {
+		return "http://" + this.host + ":" + getPort();
+	}
+
+	/**
+	 * Get the faults injected into requests to the CredHub API.
+	 *
+	 * @return the fault options, which can be changed while the server is running
+	 */
+	public FaultOptions getFaultOptions() {
+		return this.faultOptions;
+	}
+
+	/**
+	 * Set the lifetime of access tokens issued by the {@literal /oauth/token} endpoint.
+	 *
+	 * @param accessTokenValidity the token lifetime; one hour by default
+	 */
+	public void setAccessTokenValidity(Duration accessTokenValidity) {
+		this.api.setAccessTokenValidity(accessTokenValidity);
+	}
+
+	/**
+	 * Get the number of requests to the CredHub API received since the server was
+	 * created or last reset, including requests that failed with injected faults.
+	 *
+	 * @return the request count
+	 */
+	public long getRequestCount() {
+		return this.requestCount.sum();
+	}
+
+	/**
+	 * Get the number of requests to the CredHub API that failed with an injected error
+	 * or were rejected by the throughput limit.
+	 *
+	 * @return the injected fault count
+	 */
+	public long getInjectedFaultCount() {
+		return this.injectedFaultCount.sum();
+	}
+
+	/**
+	 * Remove all credentials, permissions and injected faults, and reset the request
+	 * counts.
+	 */
+	public void reset() {
+		this.api.reset();
+		this.faultOptions.reset();
+		this.requestCount.reset();
+		this.injectedFaultCount.reset();
+	}
+
+	private Mono<Void> handle(HttpServerRequest request, HttpServerResponse response) {
+		String method = request.method().name();
+		String uri = request.uri();
+
+		Mono<String> body = request.receive()
+				.aggregate()
+				.asString(StandardCharsets.UTF_8)
+				.defaultIfEmpty("");
+
+		if (!uri.startsWith(API_PATH)) {
+			return body.flatMap(content -> send(response, this.api.handle(method, uri, content)));
+		}
+
+		this.requestCount.increment();
+
+		if (!this.throughputLimiter.tryAcquire(this.faultOptions.getMaxRequestsPerSecond())) {
+			this.injectedFaultCount.increment();
+			response.header(HttpHeaderNames.RETRY_AFTER, "1");
+			return body.then(send(response, error(429, "The request rate limit has been exceeded.")));
+		}
+
+		Duration latency = this.faultOptions.nextLatency();
+		boolean fails = this.faultOptions.nextRequestFails();
+
+		Mono<CredHubApi.Response> result = body.map(content -> {
+			if (fails) {
+				this.injectedFaultCount.increment();
+				return error(this.faultOptions.getErrorStatus(), "An injected error occurred.");
+			}
+			return this.api.handle(method, uri, content);
+		});
+
+		if (!latency.isZero()) {
+			result = result.delayElement(latency);
+		}
+
+		return result.flatMap(apiResponse -> send(response, apiResponse));
+	}
+
+	private Mono<Void> send(HttpServerResponse response, CredHubApi.Response apiResponse) {
+		response.status(apiResponse.getStatus());
+
+		if (apiResponse.getBody() == null) {
+			return response.send().then();
+		}
+
+		// a fixed length response is written in one flush, avoiding a separate write for the
+		// last chunk of a chunked response
+		byte[] body = this.api.serialize(apiResponse.getBody());
+		return response.header(HttpHeaderNames.CONTENT_TYPE, JSON_CONTENT_TYPE)
+				.header(HttpHeaderNames.CONTENT_LENGTH, String.valueOf(body.length))
+				.sendByteArray(Mono.just(body))
+				.then();
+	}
+
+	private static CredHubApi.Response error(int status, String message) {
+		return new CredHubApi.Response(status, JsonNodeFactory.instance.objectNode().put("error", message));
+	}
+
+	/**
+	 * Limits the number of requests accepted in each one second window.
+	 */
+	private static final class ThroughputLimiter {
+		private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+		private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+		private final AtomicInteger windowCount = new AtomicInteger();
+
+		private boolean tryAcquire(int limit) {
+			if (limit <= 0) {
+				return true;
+			}
+
+			long now = System.nanoTime();
+			long start = this.windowStart.get();
+			if (now - start >= WINDOW_NANOS && this.windowStart.compareAndSet(start, now)) {
+				this.windowCount.set(0);
+			}
+
+			return this.windowCount.incrementAndGet() <= limit;
+		}
+	}
+}
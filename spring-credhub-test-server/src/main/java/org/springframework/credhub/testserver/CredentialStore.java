@@ -0,0 +1,557 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.testserver;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * An in-memory store of credentials and their versions, implementing the semantics of
+ * the CredHub {@literal /api/v1/data}, {@literal /api/v1/regenerate},
+ * {@literal /api/v1/certificates} and {@literal /api/v1/interpolate} endpoints.
+ *
+ * <p>Requests and responses are handled as JSON trees in the format of the CredHub API.
+ */
+class CredentialStore {
+	private static final String OVERWRITE = "overwrite";
+	private static final String NO_OVERWRITE = "no-overwrite";
+	private static final String CONVERGE = "converge";
+
+	private static final String CERTIFICATE_TYPE = "certificate";
+
+	private static final String CREDHUB_REF = "credhub-ref";
+
+	private final CredentialValueGenerator generator = new CredentialValueGenerator();
+
+	private final Map<String, StoredCredential> credentials = new HashMap<>();
+	private final Map<String, Version> versions = new HashMap<>();
+
+	/**
+	 * Set the value of a credential.
+	 *
+	 * @param request a CredHub set request
+	 * @return the details of the current credential version
+	 */
+	synchronized ObjectNode set(JsonNode request) {
+		String name = requiredName(request);
+		String type = requiredText(request, "type");
+		JsonNode value = request.get("value");
+		if (value == null || value.isNull()) {
+			throw CredHubApiException.badRequest("A non-empty value must be specified for the credential. " +
+					"Please validate and retry your request.");
+		}
+
+		String mode = mode(request, OVERWRITE);
+		StoredCredential credential = credentials.get(name);
+
+		if (credential != null && !mode.equals(OVERWRITE)) {
+			checkType(credential, type);
+			if (mode.equals(NO_OVERWRITE) || credential.current().value.equals(value)) {
+				return credential.current().toJson();
+			}
+		}
+
+		return write(name, type, () -> value, null).toJson();
+	}
+
+	/**
+	 * Generate a new value for a credential.
+	 *
+	 * @param request a CredHub generate request
+	 * @return the details of the current credential version
+	 */
+	synchronized ObjectNode generate(JsonNode request) {
+		String name = requiredName(request);
+		String type = requiredText(request, "type");
+		JsonNode parameters = request.get("parameters");
+		JsonNode value = request.get("value");
+
+		String mode = mode(request, CONVERGE);
+		StoredCredential credential = credentials.get(name);
+
+		if (credential != null && !mode.equals(OVERWRITE)) {
+			checkType(credential, type);
+			if (mode.equals(NO_OVERWRITE) || sameParameters(credential.parameters, parameters)) {
+				return credential.current().toJson();
+			}
+		}
+
+		return write(name, type, () -> generateValue(type, parameters, value), parameters).toJson();
+	}
+
+	/**
+	 * Generate a new value for a credential using the parameters it was last generated
+	 * with.
+	 *
+	 * @param name the name of the credential
+	 * @return the details of the new credential version
+	 */
+	synchronized ObjectNode regenerate(String name) {
+		return regenerate(getCredential(normalize(name)), false).toJson();
+	}
+
+	/**
+	 * Get a credential version by its ID.
+	 *
+	 * @param id the version ID
+	 * @return the credential version details
+	 */
+	synchronized ObjectNode getById(String id) {
+		Version version = versions.get(id);
+		if (version == null) {
+			throw CredHubApiException.notFound(CredHubApiException.CREDENTIAL_NOT_FOUND);
+		}
+		return version.toJson();
+	}
+
+	/**
+	 * Get the versions of a credential, most recent first.
+	 *
+	 * @param name the name of the credential
+	 * @param limit the maximum number of versions to return; {@literal 0} for all versions
+	 * @return the credential version details
+	 */
+	synchronized ArrayNode getByName(String name, int limit) {
+		StoredCredential credential = getCredential(normalize(name));
+
+		ArrayNode data = JsonNodeFactory.instance.arrayNode();
+		for (Version version : credential.versions) {
+			if (limit > 0 && data.size() == limit) {
+				break;
+			}
+			data.add(version.toJson());
+		}
+		return data;
+	}
+
+	/**
+	 * Find credentials whose names contain the given string, ignoring case.
+	 *
+	 * @param nameLike the string to search for
+	 * @return the credential summaries
+	 */
+	synchronized ArrayNode findByNameLike(String nameLike) {
+		String search = nameLike.toLowerCase(Locale.ROOT);
+		return summaries(name -> name.toLowerCase(Locale.ROOT).contains(search));
+	}
+
+	/**
+	 * Find credentials whose names are under the given path.
+	 *
+	 * @param path the path to search
+	 * @return the credential summaries
+	 */
+	synchronized ArrayNode findByPath(String path) {
+		String prefix = normalize(path);
+		String search = prefix.endsWith("/") ? prefix : prefix + "/";
+		return summaries(name -> name.startsWith(search));
+	}
+
+	/**
+	 * Get all paths that contain credentials.
+	 *
+	 * @return the paths
+	 */
+	synchronized ArrayNode paths() {
+		TreeSet<String> paths = new TreeSet<>();
+		for (String name : credentials.keySet()) {
+			int separator = name.indexOf('/');
+			while (separator >= 0) {
+				paths.add(name.substring(0, separator + 1));
+				separator = name.indexOf('/', separator + 1);
+			}
+		}
+
+		ArrayNode data = JsonNodeFactory.instance.arrayNode();
+		for (String path : paths) {
+			data.addObject().put("path", path);
+		}
+		return data;
+	}
+
+	/**
+	 * Delete all versions of a credential.
+	 *
+	 * @param name the name of the credential
+	 */
+	synchronized void delete(String name) {
+		StoredCredential credential = credentials.remove(normalize(name));
+		if (credential == null) {
+			throw CredHubApiException.notFound(CredHubApiException.CREDENTIAL_NOT_FOUND);
+		}
+		for (Version version : credential.versions) {
+			versions.remove(version.id);
+		}
+	}
+
+	/**
+	 * Determine whether a credential exists.
+	 *
+	 * @param name the name of the credential
+	 * @return {@literal true} if the credential exists
+	 */
+	synchronized boolean exists(String name) {
+		return credentials.containsKey(normalize(name));
+	}
+
+	/**
+	 * Get summaries of certificate credentials.
+	 *
+	 * @param name the name of a certificate to get; {@literal null} to get all certificates
+	 * @return the certificate summaries
+	 */
+	synchronized ArrayNode certificates(String name) {
+		String search = name == null ? null : normalize(name);
+
+		ArrayNode data = JsonNodeFactory.instance.arrayNode();
+		for (StoredCredential credential : credentials.values()) {
+			if (credential.isCertificate() && (search == null || credential.name.equals(search))) {
+				data.add(credential.certificateSummary());
+			}
+		}
+
+		if (search != null && data.size() == 0) {
+			throw CredHubApiException.notFound(CredHubApiException.CREDENTIAL_NOT_FOUND);
+		}
+		return data;
+	}
+
+	/**
+	 * Regenerate a certificate identified by its certificate ID.
+	 *
+	 * @param certificateId the certificate ID
+	 * @param setAsTransitional whether the new version should be marked transitional
+	 * @return the details of the new certificate version
+	 */
+	synchronized ObjectNode regenerateCertificate(String certificateId, boolean setAsTransitional) {
+		return regenerate(getCertificate(certificateId), setAsTransitional).toJson();
+	}
+
+	/**
+	 * Regenerate all certificates signed by the given certificate authority.
+	 *
+	 * @param signedBy the name of the certificate authority
+	 * @return the names of the regenerated certificates
+	 */
+	synchronized ArrayNode bulkRegenerate(String signedBy) {
+		String ca = normalize(signedBy);
+		getCredential(ca);
+
+		List<StoredCredential> signed = new ArrayList<>();
+		for (StoredCredential credential : credentials.values()) {
+			if (credential.isCertificate() && credential.parameters != null
+					&& credential.parameters.hasNonNull("ca")
+					&& normalize(credential.parameters.get("ca").asText()).equals(ca)) {
+				signed.add(credential);
+			}
+		}
+
+		ArrayNode names = JsonNodeFactory.instance.arrayNode();
+		for (StoredCredential credential : signed) {
+			regenerate(credential, false);
+			names.add(credential.name);
+		}
+		return names;
+	}
+
+	/**
+	 * Mark a version of a certificate as transitional, clearing the flag on all other
+	 * versions.
+	 *
+	 * @param certificateId the certificate ID
+	 * @param versionId the ID of the version to mark; {@literal null} to clear the flag
+	 * @return the details of the current and transitional versions
+	 */
+	synchronized ArrayNode updateTransitionalVersion(String certificateId, String versionId) {
+		StoredCredential credential = getCertificate(certificateId);
+
+		Version transitional = null;
+		if (versionId != null) {
+			transitional = versions.get(versionId);
+			if (transitional == null || !credential.versions.contains(transitional)) {
+				throw CredHubApiException.notFound(CredHubApiException.CREDENTIAL_NOT_FOUND);
+			}
+		}
+
+		for (Version version : credential.versions) {
+			version.transitional = version == transitional;
+		}
+
+		ArrayNode data = JsonNodeFactory.instance.arrayNode();
+		data.add(credential.current().toJson());
+		if (transitional != null && transitional != credential.current()) {
+			data.add(transitional.toJson());
+		}
+		return data;
+	}
+
+	/**
+	 * Replace the {@literal credentials} of each service in a {@literal VCAP_SERVICES}
+	 * structure that holds a {@literal credhub-ref} with the value of the referenced
+	 * credential.
+	 *
+	 * @param services the service data
+	 * @return the interpolated service data
+	 */
+	synchronized JsonNode interpolate(JsonNode services) {
+		if (!services.isObject()) {
+			throw CredHubApiException.badRequest(CredHubApiException.INVALID_REQUEST);
+		}
+
+		for (JsonNode instances : services) {
+			for (JsonNode instance : instances) {
+				JsonNode serviceCredentials = instance.get("credentials");
+				if (serviceCredentials != null && serviceCredentials.hasNonNull(CREDHUB_REF)) {
+					String name = normalize(serviceCredentials.get(CREDHUB_REF).asText());
+					((ObjectNode) instance).set("credentials", getCredential(name).current().value);
+				}
+			}
+		}
+		return services;
+	}
+
+	/**
+	 * Remove all credentials.
+	 */
+	synchronized void clear() {
+		credentials.clear();
+		versions.clear();
+	}
+
+	/**
+	 * Normalize a credential name to the absolute form used by CredHub.
+	 *
+	 * @param name the credential name
+	 * @return the name with a leading {@literal /}
+	 */
+	static String normalize(String name) {
+		return name.startsWith("/") ? name : "/" + name;
+	}
+
+	private Version write(String name, String type, Supplier<JsonNode> value, JsonNode parameters) {
+		StoredCredential credential = credentials.get(name);
+		if (credential != null) {
+			checkType(credential, type);
+		}
+
+		JsonNode newValue = value.get();
+		if (CERTIFICATE_TYPE.equals(type) && parameters != null) {
+			newValue = signCertificate((ObjectNode) newValue, parameters);
+		}
+
+		if (credential == null) {
+			credential = new StoredCredential(name, type);
+			credentials.put(name, credential);
+		}
+
+		Version version = new Version(name, type, newValue);
+		credential.versions.addFirst(version);
+		credential.parameters = parameters;
+		versions.put(version.id, version);
+		return version;
+	}
+
+	private Version regenerate(StoredCredential credential, boolean setAsTransitional) {
+		if (credential.parameters == null) {
+			throw CredHubApiException.badRequest("The credential could not be regenerated because the value " +
+					"was statically set. Only generated credentials may be regenerated.");
+		}
+
+		Version version = write(credential.name, credential.type,
+				() -> generateValue(credential.type, credential.parameters, credential.current().value),
+				credential.parameters);
+
+		if (setAsTransitional) {
+			for (Version existing : credential.versions) {
+				existing.transitional = existing == version;
+			}
+		}
+		return version;
+	}
+
+	private JsonNode generateValue(String type, JsonNode parameters, JsonNode value) {
+		return generator.generate(type, parameters, value);
+	}
+
+	private ObjectNode signCertificate(ObjectNode certificate, JsonNode parameters) {
+		if (parameters.hasNonNull("ca")) {
+			StoredCredential ca = getCredential(normalize(parameters.get("ca").asText()));
+			certificate.set("ca", ca.current().value.get("certificate"));
+		}
+		else if (parameters.path("is_ca").asBoolean(false) || parameters.path("self_sign").asBoolean(false)) {
+			certificate.set("ca", certificate.get("certificate"));
+		}
+		return certificate;
+	}
+
+	private ArrayNode summaries(Predicate<String> filter) {
+		List<StoredCredential> matches = new ArrayList<>();
+		for (StoredCredential credential : credentials.values()) {
+			if (filter.test(credential.name)) {
+				matches.add(credential);
+			}
+		}
+		matches.sort(Comparator.comparing((StoredCredential credential) -> credential.current().createdAt)
+				.reversed());
+
+		ArrayNode data = JsonNodeFactory.instance.arrayNode();
+		for (StoredCredential credential : matches) {
+			data.addObject()
+					.put("name", credential.name)
+					.put("version_created_at", credential.current().createdAt.toString());
+		}
+		return data;
+	}
+
+	private StoredCredential getCredential(String name) {
+		StoredCredential credential = credentials.get(name);
+		if (credential == null) {
+			throw CredHubApiException.notFound(CredHubApiException.CREDENTIAL_NOT_FOUND);
+		}
+		return credential;
+	}
+
+	private StoredCredential getCertificate(String certificateId) {
+		for (StoredCredential credential : credentials.values()) {
+			if (certificateId.equals(credential.certificateId)) {
+				return credential;
+			}
+		}
+		throw CredHubApiException.notFound(CredHubApiException.CREDENTIAL_NOT_FOUND);
+	}
+
+	private static void checkType(StoredCredential credential, String type) {
+		if (!credential.type.equals(type)) {
+			throw CredHubApiException.badRequest("The credential type cannot be modified. " +
+					"Please delete the credential if you wish to create it with a different type.");
+		}
+	}
+
+	private static boolean sameParameters(JsonNode stored, JsonNode requested) {
+		if (stored == null) {
+			return false;
+		}
+		return requested == null ? stored.size() == 0 : stored.equals(requested);
+	}
+
+	private static String mode(JsonNode request, String defaultMode) {
+		if (request.hasNonNull("mode")) {
+			String mode = request.get("mode").asText();
+			if (!mode.equals(OVERWRITE) && !mode.equals(NO_OVERWRITE) && !mode.equals(CONVERGE)) {
+				throw CredHubApiException.badRequest("The request includes an unrecognized mode. " +
+						"Please use 'overwrite', 'no-overwrite' or 'converge' and retry your request.");
+			}
+			return mode;
+		}
+		if (request.hasNonNull("overwrite")) {
+			return request.get("overwrite").asBoolean() ? OVERWRITE : NO_OVERWRITE;
+		}
+		return defaultMode;
+	}
+
+	private static String requiredName(JsonNode request) {
+		return normalize(requiredText(request, "name"));
+	}
+
+	private static String requiredText(JsonNode request, String field) {
+		JsonNode value = request.get(field);
+		if (value == null || !value.isTextual() || value.asText().isEmpty()) {
+			throw CredHubApiException.badRequest(CredHubApiException.INVALID_REQUEST);
+		}
+		return value.asText();
+	}
+
+	private static final class StoredCredential {
+		private final String name;
+		private final String type;
+		private final String certificateId;
+		private final LinkedList<Version> versions = new LinkedList<>();
+		private JsonNode parameters;
+
+		private StoredCredential(String name, String type) {
+			this.name = name;
+			this.type = type;
+			this.certificateId = CERTIFICATE_TYPE.equals(type) ? UUID.randomUUID().toString() : null;
+		}
+
+		private boolean isCertificate() {
+			return certificateId != null;
+		}
+
+		private Version current() {
+			return versions.getFirst();
+		}
+
+		private ObjectNode certificateSummary() {
+			ObjectNode summary = JsonNodeFactory.instance.objectNode()
+					.put("id", certificateId)
+					.put("name", name);
+
+			ArrayNode summaryVersions = summary.putArray("versions");
+			for (Version version : versions) {
+				summaryVersions.addObject()
+						.put("id", version.id)
+						.put("transitional", version.transitional);
+			}
+			return summary;
+		}
+	}
+
+	private static final class Version {
+		private final String id = UUID.randomUUID().toString();
+		private final String name;
+		private final String type;
+		private final JsonNode value;
+		private final Instant createdAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+		private boolean transitional;
+
+		private Version(String name, String type, JsonNode value) {
+			this.name = name;
+			this.type = type;
+			this.value = value;
+		}
+
+		private ObjectNode toJson() {
+			ObjectNode details = JsonNodeFactory.instance.objectNode()
+					.put("id", id)
+					.put("name", name)
+					.put("type", type)
+					.put("version_created_at", createdAt.toString());
+			details.set("value", value);
+			if (CERTIFICATE_TYPE.equals(type)) {
+				details.put("transitional", transitional);
+			}
+			return details;
+		}
+	}
+}
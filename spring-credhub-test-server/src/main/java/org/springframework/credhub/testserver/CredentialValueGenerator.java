@@ -0,0 +1,148 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.testserver;
+
+import java.util.Base64;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+
+/**
+ * Generates credential values for the CredHub generate and regenerate endpoints.
+ *
+ * <p>Values have the shape of the values CredHub generates, but keys and certificates
+ * are random placeholder text and not valid key material.
+ */
+class CredentialValueGenerator {
+	private static final String UPPER = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+	private static final String LOWER = "abcdefghijklmnopqrstuvwxyz";
+	private static final String NUMBERS = "0123456789";
+	private static final String SPECIAL = "!\"#$%&'()*+,-./:;<=>?@[\\]^_`{|}~";
+
+	private static final int DEFAULT_PASSWORD_LENGTH = 30;
+	private static final int DEFAULT_USERNAME_LENGTH = 20;
+	private static final int KEY_BYTES = 256;
+
+	/**
+	 * Generate a value for a credential of the given type.
+	 *
+	 * @param type the credential type
+	 * @param parameters the generation parameters from the request; can be {@literal null}
+	 * @param value the value from the request, used to provide a user name; can be
+	 * {@literal null}
+	 * @return the generated value
+	 */
+	JsonNode generate(String type, JsonNode parameters, JsonNode value) {
+		switch (type) {
+			case "password":
+				return TextNode.valueOf(password(parameters));
+			case "user":
+				return user(parameters, value);
+			case "certificate":
+				return certificate();
+			case "rsa":
+				return keyPair();
+			case "ssh":
+				ObjectNode ssh = keyPair();
+				ssh.put("public_key_fingerprint", randomBase64(32));
+				return ssh;
+			default:
+				throw CredHubApiException.badRequest("The request does not include a valid type. Valid values " +
+						"for generate include 'password', 'user', 'certificate', 'ssh' and 'rsa'.");
+		}
+	}
+
+	private String password(JsonNode parameters) {
+		StringBuilder characters = new StringBuilder();
+		if (!flag(parameters, "exclude_upper")) {
+			characters.append(UPPER);
+		}
+		if (!flag(parameters, "exclude_lower")) {
+			characters.append(LOWER);
+		}
+		if (!flag(parameters, "exclude_number")) {
+			characters.append(NUMBERS);
+		}
+		if (flag(parameters, "include_special")) {
+			characters.append(SPECIAL);
+		}
+		if (characters.length() == 0) {
+			throw CredHubApiException.badRequest("The combination of parameters in the request is not allowed. " +
+					"Please validate your input and retry your request.");
+		}
+
+		int length = DEFAULT_PASSWORD_LENGTH;
+		if (parameters != null && parameters.hasNonNull("length")) {
+			length = parameters.get("length").asInt();
+		}
+
+		return randomString(characters, length);
+	}
+
+	private ObjectNode user(JsonNode parameters, JsonNode value) {
+		String username = value != null && value.hasNonNull("username")
+				? value.get("username").asText()
+				: randomString(UPPER + LOWER, DEFAULT_USERNAME_LENGTH);
+		String password = password(parameters);
+
+		ObjectNode user = JsonNodeFactory.instance.objectNode();
+		user.put("username", username);
+		user.put("password", password);
+		user.put("password_hash", "$6$" + randomString(LOWER + NUMBERS, 8) + "$" + randomBase64(64));
+		return user;
+	}
+
+	private ObjectNode certificate() {
+		ObjectNode certificate = JsonNodeFactory.instance.objectNode();
+		certificate.put("certificate", pem("CERTIFICATE"));
+		certificate.put("private_key", pem("RSA PRIVATE KEY"));
+		return certificate;
+	}
+
+	private ObjectNode keyPair() {
+		ObjectNode keyPair = JsonNodeFactory.instance.objectNode();
+		keyPair.put("public_key", pem("PUBLIC KEY"));
+		keyPair.put("private_key", pem("RSA PRIVATE KEY"));
+		return keyPair;
+	}
+
+	private static boolean flag(JsonNode parameters, String name) {
+		return parameters != null && parameters.path(name).asBoolean(false);
+	}
+
+	private static String pem(String label) {
+		return "-----BEGIN " + label + "-----\n" + randomBase64(KEY_BYTES) + "\n-----END " + label + "-----\n";
+	}
+
+	private static String randomBase64(int bytes) {
+		byte[] random = new byte[bytes];
+		ThreadLocalRandom.current().nextBytes(random);
+		return Base64.getEncoder().encodeToString(random);
+	}
+
+	private static String randomString(CharSequence characters, int length) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		StringBuilder builder = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			builder.append(characters.charAt(random.nextInt(characters.length())));
+		}
+		return builder.toString();
+	}
+}
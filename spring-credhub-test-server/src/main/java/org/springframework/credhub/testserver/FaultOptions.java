@@ -0,0 +1,174 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.testserver;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Faults injected by a {@link CredHubTestServer} into requests to the CredHub API.
+ *
+ * <p>Options can be changed while the server is running and take effect for the next
+ * request. By default no faults are injected.
+ */
+public class FaultOptions {
+	private static final int DEFAULT_ERROR_STATUS = 503;
+
+	private volatile Duration latency = Duration.ZERO;
+
+	private volatile Duration latencyJitter = Duration.ZERO;
+
+	private volatile double errorRate;
+
+	private volatile int errorStatus = DEFAULT_ERROR_STATUS;
+
+	private volatile int maxRequestsPerSecond;
+
+	/**
+	 * Get the fixed latency added to each response.
+	 *
+	 * @return the latency
+	 */
+	public Duration getLatency() {
+		return this.latency;
+	}
+
+	/**
+	 * Set the fixed latency added to each response.
+	 *
+	 * @param latency the latency; must not be negative
+	 */
+	public void setLatency(Duration latency) {
+		checkNotNegative(latency, "latency");
+		this.latency = latency;
+	}
+
+	/**
+	 * Get the maximum random latency added to each response in addition to the fixed
+	 * latency.
+	 *
+	 * @return the latency jitter
+	 */
+	public Duration getLatencyJitter() {
+		return this.latencyJitter;
+	}
+
+	/**
+	 * Set the maximum random latency added to each response in addition to the fixed
+	 * latency. The added latency is uniformly distributed between zero and this value.
+	 *
+	 * @param latencyJitter the latency jitter; must not be negative
+	 */
+	public void setLatencyJitter(Duration latencyJitter) {
+		checkNotNegative(latencyJitter, "latencyJitter");
+		this.latencyJitter = latencyJitter;
+	}
+
+	/**
+	 * Get the fraction of requests that fail with {@link #getErrorStatus()}.
+	 *
+	 * @return the error rate, between {@literal 0.0} and {@literal 1.0}
+	 */
+	public double getErrorRate() {
+		return this.errorRate;
+	}
+
+	/**
+	 * Set the fraction of requests that fail with {@link #getErrorStatus()}.
+	 *
+	 * @param errorRate the error rate, between {@literal 0.0} and {@literal 1.0}
+	 */
+	public void setErrorRate(double errorRate) {
+		if (errorRate < 0.0 || errorRate > 1.0) {
+			throw new IllegalArgumentException("errorRate must be between 0.0 and 1.0");
+		}
+		this.errorRate = errorRate;
+	}
+
+	/**
+	 * Get the HTTP status of injected errors.
+	 *
+	 * @return the error status; {@literal 503} by default
+	 */
+	public int getErrorStatus() {
+		return this.errorStatus;
+	}
+
+	/**
+	 * Set the HTTP status of injected errors.
+	 *
+	 * @param errorStatus the error status; must be a 4xx or 5xx status
+	 */
+	public void setErrorStatus(int errorStatus) {
+		if (errorStatus < 400 || errorStatus > 599) {
+			throw new IllegalArgumentException("errorStatus must be a 4xx or 5xx status");
+		}
+		this.errorStatus = errorStatus;
+	}
+
+	/**
+	 * Get the maximum number of requests accepted per second.
+	 *
+	 * @return the throughput limit; {@literal 0} if unlimited
+	 */
+	public int getMaxRequestsPerSecond() {
+		return this.maxRequestsPerSecond;
+	}
+
+	/**
+	 * Set the maximum number of requests accepted per second. Requests over the limit are
+	 * rejected with status {@literal 429} and a {@literal Retry-After} header.
+	 *
+	 * @param maxRequestsPerSecond the throughput limit; {@literal 0} for unlimited
+	 */
+	public void setMaxRequestsPerSecond(int maxRequestsPerSecond) {
+		if (maxRequestsPerSecond < 0) {
+			throw new IllegalArgumentException("maxRequestsPerSecond must not be negative");
+		}
+		this.maxRequestsPerSecond = maxRequestsPerSecond;
+	}
+
+	/**
+	 * Remove all injected faults.
+	 */
+	public void reset() {
+		this.latency = Duration.ZERO;
+		this.latencyJitter = Duration.ZERO;
+		this.errorRate = 0.0;
+		this.errorStatus = DEFAULT_ERROR_STATUS;
+		this.maxRequestsPerSecond = 0;
+	}
+
+	Duration nextLatency() {
+		Duration jitter = this.latencyJitter;
+		if (jitter.isZero()) {
+			return this.latency;
+		}
+		return this.latency.plusNanos(ThreadLocalRandom.current().nextLong(jitter.toNanos() + 1));
+	}
+
+	boolean nextRequestFails() {
+		double rate = this.errorRate;
+		return rate > 0.0 && ThreadLocalRandom.current().nextDouble() < rate;
+	}
+
+	private static void checkNotNegative(Duration duration, String name) {
+		if (duration == null || duration.isNegative()) {
+			throw new IllegalArgumentException(name + " must not be null or negative");
+		}
+	}
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.testserver;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * An in-memory store of permissions, implementing the semantics of the CredHub
+ * {@literal /api/v1/permissions} and {@literal /api/v2/permissions} endpoints.
+ *
+ * <p>Both API versions share the same permission entries. A version 1 permission on a
+ * credential is a version 2 permission whose path is the credential name.
+ */
+class PermissionStore {
+	private static final List<String> OPERATIONS = Arrays.asList("read", "write", "delete", "read_acl", "write_acl");
+
+	private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+	/**
+	 * Get the permissions on a credential in the version 1 format.
+	 *
+	 * @param credentialName the name of the credential
+	 * @return the credential permissions
+	 */
+	synchronized ObjectNode getCredentialPermissions(String credentialName) {
+		String path = CredentialStore.normalize(credentialName);
+
+		ObjectNode permissions = JsonNodeFactory.instance.objectNode().put("credential_name", path);
+		ArrayNode data = permissions.putArray("permissions");
+		for (Entry entry : entries.values()) {
+			if (entry.path.equals(path)) {
+				data.addObject()
+						.put("actor", entry.actor)
+						.set("operations", entry.operations);
+			}
+		}
+		return permissions;
+	}
+
+	/**
+	 * Add permissions to a credential using a version 1 request, replacing the operations
+	 * of any existing permission for the same actor.
+	 *
+	 * @param request the version 1 permissions request
+	 * @return the permissions that were added
+	 */
+	synchronized ObjectNode addCredentialPermissions(JsonNode request) {
+		String path = CredentialStore.normalize(requiredText(request, "credential_name"));
+		JsonNode permissions = request.get("permissions");
+		if (permissions == null || !permissions.isArray() || permissions.size() == 0) {
+			throw CredHubApiException.badRequest(CredHubApiException.INVALID_REQUEST);
+		}
+
+		for (JsonNode permission : permissions) {
+			String actor = requiredText(permission, "actor");
+			ArrayNode operations = operations(permission);
+
+			Entry existing = find(path, actor);
+			if (existing != null) {
+				existing.operations = operations;
+			}
+			else {
+				add(path, actor, operations);
+			}
+		}
+
+		ObjectNode response = JsonNodeFactory.instance.objectNode().put("credential_name", path);
+		response.set("permissions", permissions);
+		return response;
+	}
+
+	/**
+	 * Delete the permission of an actor on a credential.
+	 *
+	 * @param credentialName the name of the credential
+	 * @param actor the actor
+	 */
+	synchronized void deleteCredentialPermission(String credentialName, String actor) {
+		Entry entry = find(CredentialStore.normalize(credentialName), actor);
+		if (entry == null) {
+			throw CredHubApiException.notFound(CredHubApiException.PERMISSION_NOT_FOUND);
+		}
+		entries.remove(entry.uuid);
+	}
+
+	/**
+	 * Get a permission by its ID.
+	 *
+	 * @param uuid the permission ID
+	 * @return the permission
+	 */
+	synchronized ObjectNode getPermission(String uuid) {
+		return getEntry(uuid).toJson();
+	}
+
+	/**
+	 * Get the permission of an actor on a path.
+	 *
+	 * @param path the credential path
+	 * @param actor the actor
+	 * @return the permission
+	 */
+	synchronized ObjectNode getPermission(String path, String actor) {
+		Entry entry = find(CredentialStore.normalize(path), actor);
+		if (entry == null) {
+			throw CredHubApiException.notFound(CredHubApiException.PERMISSION_NOT_FOUND);
+		}
+		return entry.toJson();
+	}
+
+	/**
+	 * Add a permission using a version 2 request.
+	 *
+	 * @param request the version 2 permission request
+	 * @return the new permission
+	 */
+	synchronized ObjectNode addPermission(JsonNode request) {
+		String path = CredentialStore.normalize(requiredText(request, "path"));
+		String actor = requiredText(request, "actor");
+
+		if (find(path, actor) != null) {
+			throw new CredHubApiException(422, "A permission entry for this actor and path already exists.");
+		}
+
+		return add(path, actor, operations(request)).toJson();
+	}
+
+	/**
+	 * Replace a permission using a version 2 request.
+	 *
+	 * @param uuid the permission ID
+	 * @param request the version 2 permission request
+	 * @return the updated permission
+	 */
+	synchronized ObjectNode updatePermission(String uuid, JsonNode request) {
+		Entry entry = getEntry(uuid);
+
+		String path = CredentialStore.normalize(requiredText(request, "path"));
+		String actor = requiredText(request, "actor");
+		if (!entry.path.equals(path) || !entry.actor.equals(actor)) {
+			throw CredHubApiException.badRequest("The permission path and actor cannot be modified.");
+		}
+
+		entry.operations = operations(request);
+		return entry.toJson();
+	}
+
+	/**
+	 * Delete a permission.
+	 *
+	 * @param uuid the permission ID
+	 * @return the deleted permission
+	 */
+	synchronized ObjectNode deletePermission(String uuid) {
+		Entry entry = getEntry(uuid);
+		entries.remove(uuid);
+		return entry.toJson();
+	}
+
+	/**
+	 * Remove all permissions.
+	 */
+	synchronized void clear() {
+		entries.clear();
+	}
+
+	private Entry add(String path, String actor, ArrayNode operations) {
+		Entry entry = new Entry(path, actor, operations);
+		entries.put(entry.uuid, entry);
+		return entry;
+	}
+
+	private Entry find(String path, String actor) {
+		for (Entry entry : entries.values()) {
+			if (entry.path.equals(path) && entry.actor.equals(actor)) {
+				return entry;
+			}
+		}
+		return null;
+	}
+
+	private Entry getEntry(String uuid) {
+		Entry entry = entries.get(uuid);
+		if (entry == null) {
+			throw CredHubApiException.notFound(CredHubApiException.PERMISSION_NOT_FOUND);
+		}
+		return entry;
+	}
+
+	private static ArrayNode operations(JsonNode request) {
+		JsonNode operations = request.get("operations");
+		if (operations == null || !operations.isArray() || operations.size() == 0) {
+			throw CredHubApiException.badRequest(CredHubApiException.INVALID_REQUEST);
+		}
+
+		for (JsonNode operation : operations) {
+			if (!OPERATIONS.contains(operation.asText())) {
+				throw CredHubApiException.badRequest("The provided operation is not supported. " +
+						"Valid values include read, write, delete, read_acl, and write_acl.");
+			}
+		}
+		return (ArrayNode) operations;
+	}
+
+	private static String requiredText(JsonNode request, String field) {
+		JsonNode value = request.get(field);
+		if (value == null || !value.isTextual() || value.asText().isEmpty()) {
+			throw CredHubApiException.badRequest(CredHubApiException.INVALID_REQUEST);
+		}
+		return value.asText();
+	}
+
+	private static final class Entry {
+		private final String uuid = UUID.randomUUID().toString();
+		private final String path;
+		private final String actor;
+		private ArrayNode operations;
+
+		private Entry(String path, String actor, ArrayNode operations) {
+			this.path = path;
+			this.actor = actor;
+			this.operations = operations;
+		}
+
+		private ObjectNode toJson() {
+			ObjectNode permission = JsonNodeFactory.instance.objectNode()
+					.put("uuid", uuid)
+					.put("path", path)
+					.put("actor", actor);
+			permission.set("operations", operations);
+			return permission;
+		}
+	}
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.testserver;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.credhub.core.CredHubException;
+import org.springframework.credhub.core.CredHubOperations;
+import org.springframework.credhub.core.CredHubProperties;
+import org.springframework.credhub.core.CredHubTemplate;
+import org.springframework.credhub.core.ReactiveCredHubOperations;
+import org.springframework.credhub.core.ReactiveCredHubTemplate;
+import org.springframework.credhub.support.CredentialDetails;
+import org.springframework.credhub.support.CredentialPermission;
+import org.springframework.credhub.support.ServicesData;
+import org.springframework.credhub.support.SimpleCredentialName;
+import org.springframework.credhub.support.certificate.CertificateCredential;
+import org.springframework.credhub.support.certificate.CertificateCredentialDetails;
+import org.springframework.credhub.support.certificate.CertificateParameters;
+import org.springframework.credhub.support.certificate.CertificateParametersRequest;
+import org.springframework.credhub.support.json.JsonCredential;
+import org.springframework.credhub.support.json.JsonCredentialRequest;
+import org.springframework.credhub.support.password.PasswordCredential;
+import org.springframework.credhub.support.password.PasswordParameters;
+import org.springframework.credhub.support.password.PasswordParametersRequest;
+import org.springframework.credhub.support.permissions.Actor;
+import org.springframework.credhub.support.permissions.Operation;
+import org.springframework.credhub.support.permissions.Permission;
+import org.springframework.credhub.support.value.ValueCredential;
+import org.springframework.credhub.support.value.ValueCredentialRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class CredHubTestServerTests {
+	private static final SimpleCredentialName NAME = new SimpleCredentialName("app", "credential");
+
+	private CredHubTestServer server;
+	private CredHubOperations credHub;
+
+	@Before
+	public void setUp() {
+		server = new CredHubTestServer().start();
+
+		CredHubProperties properties = new CredHubProperties();
+		properties.setUrl(server.getUrl());
+		credHub = new CredHubTemplate(properties, new SimpleClientHttpRequestFactory());
+	}
+
+	@After
+	public void tearDown() {
+		server.stop();
+	}
+
+	@Test
+	public void writeAndRetrieveCredential() {
+		CredentialDetails<ValueCredential> written = credHub.credentials().write(ValueCredentialRequest.builder()
+				.name(NAME)
+				.value("secret")
+				.build());
+
+		CredentialDetails<ValueCredential> retrieved = credHub.credentials().getByName(NAME, ValueCredential.class);
+
+		assertThat(retrieved.getId()).isEqualTo(written.getId());
+		assertThat(retrieved.getName().getName()).isEqualTo("/app/credential");
+		assertThat(retrieved.getValue().getValue()).isEqualTo("secret");
+		assertThat(credHub.credentials().getById(written.getId(), ValueCredential.class).getValue().getValue())
+				.isEqualTo("secret");
+		assertThat(server.getRequestCount()).isEqualTo(3);
+	}
+
+	@Test
+	public void generateRegenerateAndDeleteCredential() {
+		CredentialDetails<PasswordCredential> generated = credHub.credentials().generate(PasswordParametersRequest.builder()
+				.name(NAME)
+				.parameters(new PasswordParameters(12, false, false, false, false))
+				.build());
+
+		assertThat(generated.getValue().getPassword()).hasSize(12);
+
+		CredentialDetails<PasswordCredential> regenerated = credHub.credentials().regenerate(NAME, PasswordCredential.class);
+
+		assertThat(regenerated.getId()).isNotEqualTo(generated.getId());
+		assertThat(regenerated.getValue().getPassword()).hasSize(12);
+		assertThat(credHub.credentials().getByNameWithHistory(NAME, PasswordCredential.class)).hasSize(2);
+		assertThat(credHub.credentials().findByPath("/app")).hasSize(1);
+
+		credHub.credentials().deleteByName(NAME);
+
+		assertThatThrownBy(() -> credHub.credentials().getByName(NAME, PasswordCredential.class))
+				.isInstanceOf(CredHubException.class)
+				.satisfies(e -> assertThat(((CredHubException) e).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND));
+	}
+
+	@Test
+	public void regenerateCertificate() {
+		credHub.credentials().generate(CertificateParametersRequest.builder()
+				.name(NAME)
+				.parameters(CertificateParameters.builder().commonName("example.com").selfSign(true).build())
+				.build());
+
+		String certificateId = credHub.certificates().getByName(NAME).getId();
+
+		CertificateCredentialDetails regenerated = credHub.certificates().regenerate(certificateId, true);
+
+		assertThat(regenerated.isTransitional()).isTrue();
+		assertThat(credHub.credentials().getByNameWithHistory(NAME, CertificateCredential.class)).hasSize(2);
+	}
+
+	@Test
+	public void addAndRetrievePermissions() {
+		credHub.credentials().write(ValueCredentialRequest.builder().name(NAME).value("secret").build());
+
+		Permission permission = Permission.builder()
+				.app("app-id")
+				.operations(Operation.READ, Operation.WRITE)
+				.build();
+
+		CredentialPermission added = credHub.permissionsV2().addPermissions(NAME, permission);
+		CredentialPermission retrieved = credHub.permissionsV2()
+				.getPermissionsByPathAndActor(NAME, Actor.app("app-id"));
+
+		assertThat(retrieved.getId()).isEqualTo(added.getId());
+		assertThat(retrieved.getPermission().getOperations()).containsExactly(Operation.READ, Operation.WRITE);
+		assertThat(credHub.permissions().getPermissions(NAME)).hasSize(1);
+	}
+
+	@Test
+	public void interpolateServiceData() {
+		Map<String, Object> value = Collections.singletonMap("password", "secret");
+		credHub.credentials().write(JsonCredentialRequest.builder()
+				.name(NAME)
+				.value(new JsonCredential(value))
+				.build());
+
+		ServicesData interpolated = credHub.interpolation().interpolateServiceData(servicesData("/app/credential"));
+
+		assertThat(interpolated.get("service").get(0).get("credentials")).isEqualTo(value);
+	}
+
+	@Test
+	public void reportsVersion() {
+		assertThat(credHub.info().version().isVersion2()).isTrue();
+	}
+
+	@Test
+	public void injectedErrorsAreReturned() {
+		server.getFaultOptions().setErrorRate(1.0);
+		server.getFaultOptions().setErrorStatus(502);
+
+		assertThatThrownBy(() -> credHub.credentials().findByPath("/app"))
+				.isInstanceOf(CredHubException.class)
+				.satisfies(e -> assertThat(((CredHubException) e).getStatusCode()).isEqualTo(HttpStatus.BAD_GATEWAY));
+
+		assertThat(server.getInjectedFaultCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void requestsOverThroughputLimitAreRejected() {
+		server.getFaultOptions().setMaxRequestsPerSecond(2);
+
+		credHub.credentials().findByPath("/app");
+		credHub.credentials().findByPath("/app");
+
+		assertThatThrownBy(() -> credHub.credentials().findByPath("/app"))
+				.isInstanceOf(CredHubException.class)
+				.satisfies(e -> assertThat(((CredHubException) e).getStatusCode())
+						.isEqualTo(HttpStatus.TOO_MANY_REQUESTS));
+	}
+
+	@Test
+	public void injectedLatencyDelaysResponses() {
+		server.getFaultOptions().setLatency(Duration.ofMillis(200));
+
+		long start = System.nanoTime();
+		credHub.credentials().findByPath("/app");
+		Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+		assertThat(elapsed).isGreaterThanOrEqualTo(Duration.ofMillis(200));
+	}
+
+	@Test
+	public void reactiveClientIsSupported() {
+		credHub.credentials().write(ValueCredentialRequest.builder().name(NAME).value("secret").build());
+
+		CredHubProperties properties = new CredHubProperties();
+		properties.setUrl(server.getUrl());
+		ReactiveCredHubOperations reactiveCredHub =
+				new ReactiveCredHubTemplate(properties, new ReactorClientHttpConnector());
+
+		CredentialDetails<ValueCredential> retrieved = reactiveCredHub.credentials()
+				.getByName(NAME, ValueCredential.class)
+				.block(Duration.ofSeconds(5));
+
+		assertThat(retrieved.getValue().getValue()).isEqualTo("secret");
+	}
+
+	@Test
+	public void resetRemovesCredentialsAndFaults() {
+		credHub.credentials().write(ValueCredentialRequest.builder().name(NAME).value("secret").build());
+		server.getFaultOptions().setErrorRate(0.5);
+
+		server.reset();
+
+		assertThat(server.getRequestCount()).isZero();
+		assertThat(server.getFaultOptions().getErrorRate()).isZero();
+		assertThat(credHub.credentials().findByPath("/app")).isEmpty();
+	}
+
+	private static ServicesData servicesData(String credHubReference) {
+		Map<String, Object> serviceInstance = new HashMap<>();
+		serviceInstance.put("name", "service-instance");
+		serviceInstance.put("credentials", Collections.singletonMap("credhub-ref", credHubReference));
+
+		List<Map<String, Object>> instances = Collections.singletonList(serviceInstance);
+
+		ServicesData servicesData = new ServicesData();
+		servicesData.put("service", instances);
+		return servicesData;
+	}
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.testserver;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class CredentialStoreTests {
+	private final CredentialStore store = new CredentialStore();
+
+	@Test
+	public void setOverwritesByDefault() {
+		ObjectNode first = store.set(valueRequest("credential", "one"));
+		ObjectNode second = store.set(valueRequest("credential", "two"));
+
+		assertThat(first.get("name").asText()).isEqualTo("/credential");
+		assertThat(second.get("id")).isNotEqualTo(first.get("id"));
+		assertThat(store.getByName("/credential", 0)).hasSize(2);
+		assertThat(store.getByName("credential", 1).get(0).get("value").asText()).isEqualTo("two");
+	}
+
+	@Test
+	public void setWithNoOverwriteKeepsCurrentVersion() {
+		ObjectNode first = store.set(valueRequest("credential", "one"));
+		ObjectNode second = store.set(valueRequest("credential", "two").put("mode", "no-overwrite"));
+
+		assertThat(second.get("id")).isEqualTo(first.get("id"));
+		assertThat(store.getByName("/credential", 0)).hasSize(1);
+	}
+
+	@Test
+	public void setWithConvergeWritesOnlyChangedValues() {
+		ObjectNode first = store.set(valueRequest("credential", "one"));
+		ObjectNode same = store.set(valueRequest("credential", "one").put("mode", "converge"));
+		ObjectNode changed = store.set(valueRequest("credential", "two").put("mode", "converge"));
+
+		assertThat(same.get("id")).isEqualTo(first.get("id"));
+		assertThat(changed.get("id")).isNotEqualTo(first.get("id"));
+	}
+
+	@Test
+	public void typeCannotBeChanged() {
+		store.set(valueRequest("credential", "one"));
+
+		ObjectNode passwordRequest = JsonNodeFactory.instance.objectNode()
+				.put("name", "/credential")
+				.put("type", "password")
+				.put("value", "secret");
+
+		assertThatThrownBy(() -> store.set(passwordRequest))
+				.isInstanceOf(CredHubApiException.class)
+				.satisfies(e -> assertThat(((CredHubApiException) e).getStatus()).isEqualTo(400));
+	}
+
+	@Test
+	public void generateConvergesOnParameters() {
+		ObjectNode first = store.generate(passwordRequest("credential", 20));
+		ObjectNode same = store.generate(passwordRequest("credential", 20));
+		ObjectNode changed = store.generate(passwordRequest("credential", 30));
+
+		assertThat(first.get("value").asText()).hasSize(20);
+		assertThat(same.get("id")).isEqualTo(first.get("id"));
+		assertThat(changed.get("value").asText()).hasSize(30);
+	}
+
+	@Test
+	public void regenerateUsesStoredParameters() {
+		ObjectNode generated = store.generate(passwordRequest("credential", 16));
+		ObjectNode regenerated = store.regenerate("/credential");
+
+		assertThat(regenerated.get("id")).isNotEqualTo(generated.get("id"));
+		assertThat(regenerated.get("value").asText()).hasSize(16);
+	}
+
+	@Test
+	public void regenerateRequiresGeneratedCredential() {
+		store.set(valueRequest("credential", "one"));
+
+		assertThatThrownBy(() -> store.regenerate("/credential"))
+				.isInstanceOf(CredHubApiException.class)
+				.satisfies(e -> assertThat(((CredHubApiException) e).getStatus()).isEqualTo(400));
+	}
+
+	@Test
+	public void missingCredentialIsNotFound() {
+		assertThatThrownBy(() -> store.getByName("/missing", 0))
+				.isInstanceOf(CredHubApiException.class)
+				.satisfies(e -> assertThat(((CredHubApiException) e).getStatus()).isEqualTo(404));
+		assertThatThrownBy(() -> store.delete("/missing"))
+				.isInstanceOf(CredHubApiException.class);
+	}
+
+	@Test
+	public void findCredentialsByPathAndName() {
+		store.set(valueRequest("/a/b/one", "1"));
+		store.set(valueRequest("/a/two", "2"));
+		store.set(valueRequest("/c/three", "3"));
+
+		assertThat(names(store.findByPath("/a"))).containsExactlyInAnyOrder("/a/b/one", "/a/two");
+		assertThat(names(store.findByPath("/a/b/"))).containsExactly("/a/b/one");
+		assertThat(names(store.findByNameLike("THREE"))).containsExactly("/c/three");
+		assertThat(store.paths()).extracting(path -> path.get("path").asText())
+				.containsExactly("/", "/a/", "/a/b/", "/c/");
+	}
+
+	@Test
+	public void certificatesAreSignedByCa() {
+		store.generate(certificateRequest("ca", JsonNodeFactory.instance.objectNode().put("is_ca", true)));
+		ObjectNode signed = store.generate(certificateRequest("leaf",
+				JsonNodeFactory.instance.objectNode().put("ca", "/ca")));
+
+		JsonNode ca = store.getByName("/ca", 1).get(0).get("value");
+		assertThat(signed.get("value").get("ca")).isEqualTo(ca.get("certificate"));
+		assertThat(signed.get("transitional").asBoolean()).isFalse();
+
+		ArrayNode regenerated = store.bulkRegenerate("/ca");
+
+		assertThat(regenerated).extracting(JsonNode::asText).containsExactly("/leaf");
+		assertThat(store.getByName("/leaf", 0)).hasSize(2);
+	}
+
+	@Test
+	public void certificateTransitionalVersionCanBeUpdated() {
+		ObjectNode first = store.generate(certificateRequest("cert",
+				JsonNodeFactory.instance.objectNode().put("self_sign", true)));
+		String certificateId = store.certificates("/cert").get(0).get("id").asText();
+
+		ObjectNode second = store.regenerateCertificate(certificateId, false);
+		ArrayNode active = store.updateTransitionalVersion(certificateId, first.get("id").asText());
+
+		assertThat(active).extracting(details -> details.get("id"))
+				.containsExactly(second.get("id"), first.get("id"));
+		assertThat(active.get(1).get("transitional").asBoolean()).isTrue();
+
+		ArrayNode cleared = store.updateTransitionalVersion(certificateId, null);
+
+		assertThat(cleared).hasSize(1);
+	}
+
+	@Test
+	public void interpolateReplacesCredHubReferences() {
+		ObjectNode value = JsonNodeFactory.instance.objectNode().put("password", "secret");
+		store.set(JsonNodeFactory.instance.objectNode()
+				.put("name", "/service/credentials")
+				.put("type", "json")
+				.set("value", value));
+
+		ObjectNode services = JsonNodeFactory.instance.objectNode();
+		ObjectNode instance = services.putArray("service").addObject().put("name", "instance");
+		instance.putObject("credentials").put("credhub-ref", "/service/credentials");
+		services.putArray("other").addObject().putObject("credentials").put("uri", "http://example.com");
+
+		JsonNode interpolated = store.interpolate(services);
+
+		assertThat(interpolated.get("service").get(0).get("credentials")).isEqualTo(value);
+		assertThat(interpolated.get("other").get(0).get("credentials").get("uri").asText())
+				.isEqualTo("http://example.com");
+	}
+
+	private static ObjectNode valueRequest(String name, String value) {
+		return JsonNodeFactory.instance.objectNode()
+				.put("name", name)
+				.put("type", "value")
+				.put("value", value);
+	}
+
+	private static ObjectNode passwordRequest(String name, int length) {
+		ObjectNode request = JsonNodeFactory.instance.objectNode()
+				.put("name", name)
+				.put("type", "password");
+		request.putObject("parameters").put("length", length);
+		return request;
+	}
+
+	private static ObjectNode certificateRequest(String name, ObjectNode parameters) {
+		ObjectNode request = JsonNodeFactory.instance.objectNode()
+				.put("name", name)
+				.put("type", "certificate");
+		request.set("parameters", parameters.put("common_name", name));
+		return request;
+	}
+
+	private static String[] names(ArrayNode summaries) {
+		String[] names = new String[summaries.size()];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = summaries.get(i).get("name").asText();
+		}
+		return names;
+	}
+}
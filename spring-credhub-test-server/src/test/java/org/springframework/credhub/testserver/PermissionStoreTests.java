@@ -0,0 +1,96 @@
+/*
+ * Copyright 2016-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.credhub.testserver;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class PermissionStoreTests {
+	private final PermissionStore store = new PermissionStore();
+
+	@Test
+	public void addAndRetrievePermission() {
+		ObjectNode added = store.addPermission(permission("/path/*", "mtls-app:app-id", "read"));
+
+		assertThat(added.get("uuid").asText()).isNotEmpty();
+		assertThat(store.getPermission(added.get("uuid").asText())).isEqualTo(added);
+		assertThat(store.getPermission("path/*", "mtls-app:app-id")).isEqualTo(added);
+	}
+
+	@Test
+	public void duplicatePermissionIsRejected() {
+		store.addPermission(permission("/path", "mtls-app:app-id", "read"));
+
+		assertThatThrownBy(() -> store.addPermission(permission("/path", "mtls-app:app-id", "write")))
+				.isInstanceOf(CredHubApiException.class)
+				.satisfies(e -> assertThat(((CredHubApiException) e).getStatus()).isEqualTo(422));
+	}
+
+	@Test
+	public void updateAndDeletePermission() {
+		String uuid = store.addPermission(permission("/path", "mtls-app:app-id", "read")).get("uuid").asText();
+
+		ObjectNode updated = store.updatePermission(uuid, permission("/path", "mtls-app:app-id", "write"));
+
+		assertThat(updated.get("operations").get(0).asText()).isEqualTo("write");
+
+		store.deletePermission(uuid);
+
+		assertThatThrownBy(() -> store.getPermission(uuid))
+				.isInstanceOf(CredHubApiException.class)
+				.satisfies(e -> assertThat(((CredHubApiException) e).getStatus()).isEqualTo(404));
+	}
+
+	@Test
+	public void invalidOperationIsRejected() {
+		assertThatThrownBy(() -> store.addPermission(permission("/path", "mtls-app:app-id", "admin")))
+				.isInstanceOf(CredHubApiException.class)
+				.satisfies(e -> assertThat(((CredHubApiException) e).getStatus()).isEqualTo(400));
+	}
+
+	@Test
+	public void credentialPermissionsShareEntriesWithPathPermissions() {
+		ObjectNode request = JsonNodeFactory.instance.objectNode().put("credential_name", "credential");
+		request.putArray("permissions").addObject()
+				.put("actor", "uaa-user:user-id")
+				.putArray("operations").add("read").add("write");
+
+		store.addCredentialPermissions(request);
+
+		JsonNode permissions = store.getCredentialPermissions("/credential").get("permissions");
+		assertThat(permissions).hasSize(1);
+		assertThat(permissions.get(0).get("actor").asText()).isEqualTo("uaa-user:user-id");
+		assertThat(store.getPermission("/credential", "uaa-user:user-id").get("operations")).hasSize(2);
+
+		store.deleteCredentialPermission("/credential", "uaa-user:user-id");
+
+		assertThat(store.getCredentialPermissions("/credential").get("permissions")).isEmpty();
+	}
+
+	private static ObjectNode permission(String path, String actor, String operation) {
+		ObjectNode permission = JsonNodeFactory.instance.objectNode()
+				.put("path", path)
+				.put("actor", actor);
+		permission.putArray("operations").add(operation);
+		return permission;
+	}
+}